@@ -0,0 +1,120 @@
+package com.bookstore.bookservice.cache;
+
+import com.bookstore.bookservice.dto.BookDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.cache.CacheKeyPrefix;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Many-key access to the books cache, which Spring's Cache abstraction only offers one key at a time.
+ * A lookup answers what it can from L1, then fetches every remaining key from Redis with a single MGET;
+ * a backfill writes loaded books under their id and ISBN keys in one pipelined round trip. Keys and
+ * values are rendered exactly as the Redis cache manager renders them, so entries written here are
+ * read by getBookById and getBookByIsbn and evicted by BookCacheInvalidator like any other.
+ *
+ * <p>Redis failures are logged and treated as misses, as for the annotated cache methods.
+ */
+public class BookBatchCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookBatchCache.class);
+
+    private final CacheManager cacheManager;
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final Duration timeToLive;
+    private final String keyPrefix;
+
+    public BookBatchCache(CacheManager cacheManager, RedisTemplate<String, Object> redisTemplate, Duration timeToLive) {
+        this.cacheManager = cacheManager;
+        this.redisTemplate = redisTemplate;
+        this.timeToLive = timeToLive;
+        this.keyPrefix = CacheKeyPrefix.simple().compute(BookCacheInvalidator.BOOKS);
+    }
+
+    /**
+     * Cached books for the given id and ISBN keys; keys that are not cached are absent from the result.
+     */
+    public Map<Object, BookDto> getAll(Collection<?> keys) {
+        Map<Object, BookDto> found = new LinkedHashMap<>(keys.size() * 2);
+        TwoTierCache twoTierCache = twoTierCache();
+        List<Object> remoteKeys = new ArrayList<>(keys.size());
+        for (Object key : keys) {
+            Cache.ValueWrapper local = twoTierCache != null ? twoTierCache.getLocal(key) : null;
+            if (local != null && local.get() instanceof BookDto book) {
+                found.put(key, book);
+            } else {
+                remoteKeys.add(key);
+            }
+        }
+        if (remoteKeys.isEmpty()) {
+            return found;
+        }
+
+        long observed = twoTierCache != null ? twoTierCache.currentGeneration() : 0;
+        List<Object> values;
+        try {
+            values = redisTemplate.opsForValue().multiGet(remoteKeys.stream().map(this::redisKey).toList());
+        } catch (RuntimeException e) {
+            logger.warn("Batch cache read failed, loading {} books from the database: {}", remoteKeys.size(), e.getMessage());
+            return found;
+        }
+        if (values == null) {
+            return found;
+        }
+        for (int i = 0; i < remoteKeys.size(); i++) {
+            if (values.get(i) instanceof BookDto book) {
+                found.put(remoteKeys.get(i), book);
+                if (twoTierCache != null) {
+                    twoTierCache.promoteLocal(remoteKeys.get(i), book, observed);
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Caches each book under its id and its ISBN in one pipelined round trip.
+     */
+    public void putAll(Collection<BookDto> books) {
+        if (books.isEmpty()) {
+            return;
+        }
+        try {
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) {
+                    RedisOperations<String, Object> redis = (RedisOperations<String, Object>) operations;
+                    for (BookDto book : books) {
+                        redis.opsForValue().set(redisKey(book.getId()), book, timeToLive);
+                        if (book.getIsbn() != null) {
+                            redis.opsForValue().set(redisKey(book.getIsbn()), book, timeToLive);
+                        }
+                    }
+                    return null;
+                }
+            });
+        } catch (RuntimeException e) {
+            logger.warn("Batch cache backfill of {} books failed: {}", books.size(), e.getMessage());
+        }
+    }
+
+    String redisKey(Object key) {
+        return keyPrefix + TwoTierCache.localKey(key);
+    }
+
+    private TwoTierCache twoTierCache() {
+        return cacheManager.getCache(BookCacheInvalidator.BOOKS) instanceof TwoTierCache cache ? cache : null;
+    }
+}
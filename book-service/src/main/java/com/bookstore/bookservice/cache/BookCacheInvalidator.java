@@ -0,0 +1,183 @@
+package com.bookstore.bookservice.cache;
+
+import com.bookstore.bookservice.entity.Book;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.interceptor.SimpleKey;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Knows every cache key a book lives under and evicts exactly those when the book changes,
+ * instead of wiping whole caches with allEntries.
+ * <ul>
+ *   <li>books: the book's id and its ISBN (both getBookById and getBookByIsbn write here)</li>
+ *   <li>all-books, available-books: the single no-arg entry</li>
+ *   <li>recent-books: keyed by the caller's limit, any of which may contain the book, so cleared</li>
+ *   <li>books-by-category: the book's category, lower-cased like the cache key; when an update moves
+ *       the book, both the old and the new category</li>
+ * </ul>
+ * Keys touched inside a transaction are collected, de-duplicated and evicted once after commit,
+ * so a batch of N writes costs one eviction per distinct key and readers cannot re-cache
+ * uncommitted state. The number of keys evicted per flush is recorded as book.cache.invalidation.fanout.
+ */
+@Component
+public class BookCacheInvalidator {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookCacheInvalidator.class);
+
+    public static final String BOOKS = "books";
+    public static final String ALL_BOOKS = "all-books";
+    public static final String AVAILABLE_BOOKS = "available-books";
+    public static final String RECENT_BOOKS = "recent-books";
+    public static final String BOOKS_BY_CATEGORY = "books-by-category";
+
+    private final CacheManager cacheManager;
+    private final DistributionSummary fanOut;
+
+    @Autowired
+    public BookCacheInvalidator(CacheManager cacheManager, MeterRegistry meterRegistry) {
+        this.cacheManager = cacheManager;
+        this.fanOut = DistributionSummary.builder("book.cache.invalidation.fanout")
+                .description("Cache keys evicted per book write")
+                .baseUnit("keys")
+                .register(meterRegistry);
+    }
+
+    /**
+     * A new book cannot be cached under its own keys yet, but every list it belongs to is now stale.
+     */
+    public void bookCreated(Book book) {
+        PendingEvictions pending = pending();
+        addListKeys(pending, book.getCategory());
+        flushIfNoTransaction(pending);
+    }
+
+    /**
+     * Evicts the book's id key, its ISBN and category, and the lists that may contain it.
+     * Its ISBN and category must not have changed; see {@link #bookChanged(Book, String, String)}.
+     */
+    public void bookChanged(Book book) {
+        bookChanged(book.getId(), book.getIsbn(), book.getCategory());
+    }
+
+    /**
+     * As {@link #bookChanged(Book)}, for an update that may have changed the ISBN or the category:
+     * the keys under both the previous and the current values are evicted.
+     */
+    public void bookChanged(Book book, String previousIsbn, String previousCategory) {
+        PendingEvictions pending = pending();
+        addBookKeys(pending, book.getId(), previousIsbn, book.getIsbn());
+        addListKeys(pending, previousCategory, book.getCategory());
+        flushIfNoTransaction(pending);
+    }
+
+    /**
+     * As {@link #bookChanged(Book)}, for writes that only know the book's id, ISBN and category.
+     */
+    public void bookChanged(Long id, String isbn, String category) {
+        PendingEvictions pending = pending();
+        addBookKeys(pending, id, isbn);
+        addListKeys(pending, category);
+        flushIfNoTransaction(pending);
+    }
+
+    private void addBookKeys(PendingEvictions pending, Long id, String... isbns) {
+        pending.evict(BOOKS, id);
+        for (String isbn : isbns) {
+            if (isbn != null) {
+                pending.evict(BOOKS, isbn);
+            }
+        }
+    }
+
+    private void addListKeys(PendingEvictions pending, String... categories) {
+        pending.evict(ALL_BOOKS, SimpleKey.EMPTY);
+        pending.evict(AVAILABLE_BOOKS, SimpleKey.EMPTY);
+        pending.clear(RECENT_BOOKS);
+        for (String category : categories) {
+            if (category != null) {
+                // Matches the key of BookService.searchBooksByCategory
+                pending.evict(BOOKS_BY_CATEGORY, category.toLowerCase(Locale.ROOT));
+            }
+        }
+    }
+
+    private PendingEvictions pending() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return new PendingEvictions();
+        }
+        PendingEvictions pending = (PendingEvictions) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            PendingEvictions created = new PendingEvictions();
+            TransactionSynchronizationManager.bindResource(this, created);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictAll(created);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(BookCacheInvalidator.this);
+                }
+            });
+            pending = created;
+        }
+        return pending;
+    }
+
+    private void flushIfNoTransaction(PendingEvictions pending) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evictAll(pending);
+        }
+    }
+
+    private void evictAll(PendingEvictions pending) {
+        int evicted = 0;
+        for (Map.Entry<String, Set<Object>> entry : pending.keys.entrySet()) {
+            Cache cache = cacheManager.getCache(entry.getKey());
+            if (cache == null) {
+                continue;
+            }
+            for (Object key : entry.getValue()) {
+                cache.evict(key);
+                evicted++;
+            }
+        }
+        for (String cacheName : pending.clears) {
+            Cache cache = cacheManager.getCache(cacheName);
+            if (cache != null) {
+                cache.clear();
+                evicted++;
+            }
+        }
+        fanOut.record(evicted);
+        logger.debug("Evicted {} book cache keys", evicted);
+    }
+
+    private static final class PendingEvictions {
+        private final Map<String, Set<Object>> keys = new LinkedHashMap<>();
+        private final Set<String> clears = new LinkedHashSet<>();
+
+        void evict(String cacheName, Object key) {
+            keys.computeIfAbsent(cacheName, name -> new LinkedHashSet<>()).add(key);
+        }
+
+        void clear(String cacheName) {
+            clears.add(cacheName);
+        }
+    }
+}
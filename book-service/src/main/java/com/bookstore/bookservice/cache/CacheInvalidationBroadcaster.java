@@ -0,0 +1,72 @@
+package com.bookstore.bookservice.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Carries L1 invalidations between book-service nodes over a Redis pub/sub channel.
+ * Messages are "nodeId\nop\ncacheName[\nkey]"; each node ignores its own.
+ * Pub/sub is fire-and-forget, so a node that misses a message is bounded by the L1 TTL.
+ */
+public class CacheInvalidationBroadcaster {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheInvalidationBroadcaster.class);
+
+    private static final String EVICT = "E";
+    private static final String CLEAR = "C";
+
+    private final StringRedisTemplate redisTemplate;
+    private final String channel;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    public CacheInvalidationBroadcaster(StringRedisTemplate redisTemplate, String channel) {
+        this.redisTemplate = redisTemplate;
+        this.channel = channel;
+    }
+
+    public String getChannel() {
+        return channel;
+    }
+
+    public void publishEvict(String cacheName, String key) {
+        publish(String.join("\n", nodeId, EVICT, cacheName, key));
+    }
+
+    public void publishClear(String cacheName) {
+        publish(String.join("\n", nodeId, CLEAR, cacheName));
+    }
+
+    /**
+     * Listener that applies peer invalidations to the given manager's L1 caches.
+     */
+    public MessageListener listenerFor(TwoTierCacheManager cacheManager) {
+        return (Message message, byte[] pattern) -> {
+            String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\n", 4);
+            if (parts.length < 3 || nodeId.equals(parts[0])) {
+                return;
+            }
+            if (EVICT.equals(parts[1]) && parts.length == 4) {
+                cacheManager.evictLocal(parts[2], parts[3]);
+            } else if (CLEAR.equals(parts[1])) {
+                cacheManager.clearLocal(parts[2]);
+            } else {
+                logger.warn("Ignoring malformed cache invalidation message on {}", channel);
+            }
+        };
+    }
+
+    private void publish(String message) {
+        try {
+            redisTemplate.convertAndSend(channel, message);
+        } catch (Exception e) {
+            // The L2 write already happened; peers fall back to their L1 TTL
+            logger.warn("Failed to broadcast cache invalidation: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.bookstore.bookservice.cache;
+
+import com.bookstore.bookservice.exception.BookNotFoundException;
+import com.bookstore.bookservice.service.BookService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the most requested entries of the books, books-by-category and recent-books caches loaded.
+ * Controllers record each request key in a HotKeyTracker; on schedule the current top keys are
+ * requested again through the cached BookService methods, which fills L1 and refreshes L2 for any
+ * key that has expired. At most {@code concurrency} lookups run at a time so warming never competes
+ * with live traffic for connections.
+ *
+ * <p>The top keys are also saved to Redis after each run, so a node that has just started warms
+ * with the keys the cluster was serving before it had any traffic of its own.
+ *
+ * <p>Runs happen on the warmer's own thread: the scheduler and the startup event only hand them over,
+ * and a run that is due while the previous one is still going is skipped.
+ */
+public class CacheWarmer implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheWarmer.class);
+
+    private static final String IDS = "ids";
+    private static final String ISBNS = "isbns";
+    private static final String CATEGORIES = "categories";
+    private static final String RECENT_LIMITS = "recent-limits";
+    private static final Duration HOT_KEYS_TTL = Duration.ofDays(1);
+
+    private final BookService bookService;
+    private final StringRedisTemplate redisTemplate;
+    private final String hotKeysKey;
+    private final boolean enabled;
+    private final int topKeys;
+    private final int concurrency;
+
+    private final HotKeyTracker<Long> bookIds;
+    private final HotKeyTracker<String> isbns;
+    private final HotKeyTracker<String> categories;
+    private final HotKeyTracker<Integer> recentLimits;
+    private final ExecutorService runner;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public CacheWarmer(BookService bookService, StringRedisTemplate redisTemplate, String hotKeysKey,
+                       boolean enabled, int topKeys, int concurrency) {
+        this.bookService = bookService;
+        this.redisTemplate = redisTemplate;
+        this.hotKeysKey = hotKeysKey;
+        this.enabled = enabled;
+        this.topKeys = topKeys;
+        this.concurrency = concurrency;
+        this.bookIds = new HotKeyTracker<>(topKeys);
+        this.isbns = new HotKeyTracker<>(topKeys);
+        this.categories = new HotKeyTracker<>(topKeys);
+        this.recentLimits = new HotKeyTracker<>(topKeys);
+        this.runner = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cache-warmer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void recordBookId(Long id) {
+        bookIds.record(id);
+    }
+
+    public void recordIsbn(String isbn) {
+        isbns.record(isbn);
+    }
+
+    public void recordCategory(String category) {
+        categories.record(category.toLowerCase(Locale.ROOT));
+    }
+
+    public void recordRecentLimit(int limit) {
+        recentLimits.record(limit);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmOnStartup() {
+        if (!enabled) {
+            logger.info("Cache warmer disabled");
+            return;
+        }
+        submit("startup", () -> {
+            Map<String, List<String>> saved = loadHotKeys();
+            warm(parse(saved.get(IDS), Long::valueOf), saved.getOrDefault(ISBNS, List.of()),
+                 saved.getOrDefault(CATEGORIES, List.of()), parse(saved.get(RECENT_LIMITS), Integer::valueOf));
+        });
+    }
+
+    @Scheduled(fixedRateString = "${cache.warmer.interval-ms:1800000}", initialDelayString = "${cache.warmer.interval-ms:1800000}")
+    public void warmHotKeys() {
+        if (!enabled) {
+            return;
+        }
+        List<Long> hotIds = bookIds.topKeys(topKeys);
+        List<String> hotIsbns = isbns.topKeys(topKeys);
+        List<String> hotCategories = categories.topKeys(topKeys);
+        List<Integer> hotLimits = recentLimits.topKeys(topKeys);
+        submit("scheduled", () -> {
+            warm(hotIds, hotIsbns, hotCategories, hotLimits);
+            saveHotKeys(hotIds, hotIsbns, hotCategories, hotLimits);
+        });
+    }
+
+    @Override
+    public void destroy() {
+        runner.shutdownNow();
+    }
+
+    boolean isRunning() {
+        return running.get();
+    }
+
+    // Hands the run to the warmer's thread and returns; false if the previous run has not finished
+    boolean submit(String trigger, Runnable run) {
+        if (!running.compareAndSet(false, true)) {
+            logger.info("Skipping {} cache warming, the previous run is still going", trigger);
+            return false;
+        }
+        try {
+            runner.execute(() -> {
+                try {
+                    run.run();
+                } catch (RuntimeException e) {
+                    logger.warn("Cache warming failed: {}", e.getMessage());
+                } finally {
+                    running.set(false);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+            running.set(false);
+            return false;
+        }
+    }
+
+    void warm(List<Long> ids, List<String> isbnKeys, List<String> categoryKeys, List<Integer> limits) {
+        List<Runnable> lookups = new ArrayList<>();
+        ids.forEach(id -> lookups.add(() -> bookService.getBookById(id)));
+        isbnKeys.forEach(isbn -> lookups.add(() -> bookService.getBookByIsbn(isbn)));
+        categoryKeys.forEach(category -> lookups.add(() -> bookService.searchBooksByCategory(category)));
+        limits.forEach(limit -> lookups.add(() -> bookService.getRecentBooks(limit)));
+        if (lookups.isEmpty()) {
+            logger.debug("No hot keys to warm");
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        AtomicInteger failed = new AtomicInteger();
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "cache-warmer-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            for (Runnable lookup : lookups) {
+                executor.execute(() -> {
+                    try {
+                        lookup.run();
+                    } catch (BookNotFoundException e) {
+                        // Deleted since it was requested; nothing to warm
+                    } catch (RuntimeException e) {
+                        failed.incrementAndGet();
+                        logger.debug("Cache warm lookup failed: {}", e.getMessage());
+                    }
+                });
+            }
+            executor.shutdown();
+            if (!executor.awaitTermination(10, TimeUnit.MINUTES)) {
+                logger.warn("Cache warming did not finish in 10 minutes, abandoning the rest");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
+        logger.info("Warmed {} hot cache keys in {} ms ({} failed)",
+                   lookups.size(), System.currentTimeMillis() - start, failed.get());
+    }
+
+    private void saveHotKeys(List<Long> ids, List<String> isbnKeys, List<String> categoryKeys, List<Integer> limits) {
+        Map<String, String> hotKeys = new HashMap<>();
+        hotKeys.put(IDS, join(ids));
+        hotKeys.put(ISBNS, join(isbnKeys));
+        hotKeys.put(CATEGORIES, join(categoryKeys));
+        hotKeys.put(RECENT_LIMITS, join(limits));
+        try {
+            redisTemplate.opsForHash().putAll(hotKeysKey, hotKeys);
+            redisTemplate.expire(hotKeysKey, HOT_KEYS_TTL);
+        } catch (RuntimeException e) {
+            logger.warn("Could not save hot cache keys: {}", e.getMessage());
+        }
+    }
+
+    private Map<String, List<String>> loadHotKeys() {
+        try {
+            Map<String, List<String>> hotKeys = new HashMap<>();
+            redisTemplate.<String, String>opsForHash().entries(hotKeysKey).forEach((kind, keys) ->
+                    hotKeys.put(kind, keys.isEmpty() ? List.of() : Arrays.asList(keys.split("\n"))));
+            return hotKeys;
+        } catch (RuntimeException e) {
+            logger.warn("Could not load hot cache keys, skipping startup warming: {}", e.getMessage());
+            return Map.of();
+        }
+    }
+
+    // Newline-separated, since categories may contain commas
+    private static String join(List<?> keys) {
+        return keys.stream().map(String::valueOf).collect(Collectors.joining("\n"));
+    }
+
+    private static <T> List<T> parse(List<String> keys, Function<String, T> parser) {
+        if (keys == null) {
+            return List.of();
+        }
+        List<T> parsed = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            try {
+                parsed.add(parser.apply(key));
+            } catch (NumberFormatException e) {
+                logger.debug("Skipping malformed hot cache key: {}", key);
+            }
+        }
+        return parsed;
+    }
+}
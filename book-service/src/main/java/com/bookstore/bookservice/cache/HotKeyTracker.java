@@ -0,0 +1,134 @@
+package com.bookstore.bookservice.cache;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Approximate most-requested keys in fixed memory. A count-min sketch (four rows of counters, each key
+ * hashed once per row, estimate = smallest of its counters) estimates how often each key was recorded,
+ * and a bounded candidate set remembers which keys are worth estimating. Every counter is halved once
+ * per sample of recordings, so keys that stop being requested fade out instead of staying hot forever.
+ * Recording is lock-free; halving and pruning are done by whichever caller gets the maintenance lock.
+ */
+public class HotKeyTracker<K> {
+
+    private static final int DEPTH = 4;
+    private static final long[] SEEDS = {
+            0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L
+    };
+
+    private final int capacity;
+    private final int width;
+    private final int sampleSize;
+    private final AtomicIntegerArray counters;
+    private final AtomicInteger recorded = new AtomicInteger();
+    private final Map<K, Boolean> candidates = new ConcurrentHashMap<>();
+    private final ReentrantLock maintenance = new ReentrantLock();
+
+    // Estimate a new key needs to join a full candidate set: the lowest estimate kept at the last prune
+    private volatile int admissionThreshold = 0;
+
+    /**
+     * @param capacity how many of the hottest keys to track
+     */
+    public HotKeyTracker(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1");
+        }
+        this.capacity = capacity;
+        // At least 16 counters per tracked key keeps collisions with the long tail rare
+        this.width = Math.max(64, Integer.highestOneBit(capacity * 16 - 1) << 1);
+        this.sampleSize = width * 10;
+        this.counters = new AtomicIntegerArray(DEPTH * width);
+    }
+
+    public void record(K key) {
+        int estimate = increment(key);
+        if (!candidates.containsKey(key) && (candidates.size() < capacity || estimate > admissionThreshold)) {
+            candidates.put(key, Boolean.TRUE);
+        }
+        if (recorded.incrementAndGet() >= sampleSize || candidates.size() > 2 * capacity) {
+            maintain();
+        }
+    }
+
+    public int estimate(K key) {
+        int hash = spread(key.hashCode());
+        int min = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            min = Math.min(min, counters.get(index(row, hash)));
+        }
+        return min;
+    }
+
+    /**
+     * Up to limit keys, hottest first.
+     */
+    public List<K> topKeys(int limit) {
+        List<Map.Entry<K, Integer>> estimated = new ArrayList<>(candidates.size());
+        for (K key : candidates.keySet()) {
+            int estimate = estimate(key);
+            if (estimate > 0) {
+                estimated.add(Map.entry(key, estimate));
+            }
+        }
+        estimated.sort(Map.Entry.<K, Integer>comparingByValue(Comparator.reverseOrder()));
+        List<K> top = new ArrayList<>(Math.min(limit, estimated.size()));
+        for (int i = 0; i < estimated.size() && i < limit; i++) {
+            top.add(estimated.get(i).getKey());
+        }
+        return top;
+    }
+
+    private int increment(K key) {
+        int hash = spread(key.hashCode());
+        int min = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            min = Math.min(min, counters.incrementAndGet(index(row, hash)));
+        }
+        return min;
+    }
+
+    private void maintain() {
+        if (!maintenance.tryLock()) {
+            return;
+        }
+        try {
+            if (recorded.get() >= sampleSize) {
+                // Increments racing with the halving may be lost; the estimates are approximate anyway
+                for (int i = 0; i < counters.length(); i++) {
+                    counters.set(i, counters.get(i) >>> 1);
+                }
+                recorded.set(0);
+                admissionThreshold >>>= 1;
+            }
+            if (candidates.size() > capacity) {
+                prune();
+            }
+        } finally {
+            maintenance.unlock();
+        }
+    }
+
+    private void prune() {
+        List<K> keep = topKeys(capacity);
+        candidates.keySet().retainAll(new HashSet<>(keep));
+        admissionThreshold = keep.isEmpty() ? 0 : estimate(keep.get(keep.size() - 1));
+    }
+
+    private int index(int row, int hash) {
+        long mixed = (hash + SEEDS[row]) * SEEDS[(row + 1) % DEPTH];
+        return row * width + (int) ((mixed ^ (mixed >>> 32)) & (width - 1));
+    }
+
+    private static int spread(int hash) {
+        return (hash ^ (hash >>> 16)) * 0x45D9F3B;
+    }
+}
@@ -0,0 +1,82 @@
+package com.bookstore.bookservice.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Wraps a cache manager so the named caches refresh their entries ahead of expiry; see {@link RefreshAheadCache}.
+ * Every other cache is handed out unchanged.
+ */
+public class RefreshAheadCacheManager implements CacheManager, DisposableBean {
+
+    private final CacheManager delegate;
+    private final Set<String> cacheNames;
+    private final Duration timeToLive;
+    private final double beta;
+    private final RedisLease lease;
+    private final String leasePrefix;
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService refreshExecutor;
+
+    private final ConcurrentMap<String, RefreshAheadCache> caches = new ConcurrentHashMap<>();
+
+    public RefreshAheadCacheManager(CacheManager delegate, Set<String> cacheNames, Duration timeToLive, double beta,
+                                    RedisLease lease, String leasePrefix, int refreshThreads,
+                                    MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.cacheNames = cacheNames;
+        this.timeToLive = timeToLive;
+        this.beta = beta;
+        this.lease = lease;
+        this.leasePrefix = leasePrefix;
+        this.meterRegistry = meterRegistry;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.refreshExecutor = Executors.newFixedThreadPool(refreshThreads, runnable -> {
+            Thread thread = new Thread(runnable, "cache-refresh-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        if (!cacheNames.contains(name)) {
+            return delegate.getCache(name);
+        }
+        return caches.computeIfAbsent(name, this::createCache);
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return delegate.getCacheNames();
+    }
+
+    public CacheManager getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public void destroy() {
+        refreshExecutor.shutdownNow();
+    }
+
+    private RefreshAheadCache createCache(String name) {
+        Cache cache = delegate.getCache(name);
+        if (cache == null) {
+            return null;
+        }
+        return new RefreshAheadCache(cache, timeToLive, beta, lease, leasePrefix, refreshExecutor, meterRegistry);
+    }
+}
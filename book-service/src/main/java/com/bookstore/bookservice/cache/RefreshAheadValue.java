@@ -0,0 +1,48 @@
+package com.bookstore.bookservice.cache;
+
+import java.io.Serializable;
+
+/**
+ * A cached value stored together with what it took to compute and when it is due to expire,
+ * which is what RefreshAheadCache needs to decide on an early refresh.
+ */
+public class RefreshAheadValue implements Serializable {
+
+    private Object value;
+    private long computeMillis;
+    private long expiresAt;
+
+    // Constructors
+    public RefreshAheadValue() {}
+
+    public RefreshAheadValue(Object value, long computeMillis, long expiresAt) {
+        this.value = value;
+        this.computeMillis = computeMillis;
+        this.expiresAt = expiresAt;
+    }
+
+    // Getters and Setters
+    public Object getValue() {
+        return value;
+    }
+
+    public void setValue(Object value) {
+        this.value = value;
+    }
+
+    public long getComputeMillis() {
+        return computeMillis;
+    }
+
+    public void setComputeMillis(long computeMillis) {
+        this.computeMillis = computeMillis;
+    }
+
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(long expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+}
@@ -0,0 +1,208 @@
+package com.bookstore.bookservice.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cache.Cache;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Lets only one caller per key load a missing entry, cluster-wide. This is what {@code @Cacheable(sync = true)}
+ * calls. On one node, concurrent misses for a key wait on the first caller's load. Across nodes, the loading
+ * node holds a Redis lease (SET NX PX) on the key; other nodes poll the cache until the value appears, the
+ * lease is released or it expires, and only then load themselves. Redis errors on the lease degrade to a plain
+ * local load rather than failing the read (see {@link RedisLease}).
+ *
+ * <p>Metrics, tagged with the cache name: cache.single-flight.loads (loader invocations) and
+ * cache.single-flight.coalesced (callers served by another caller's load, scope local or cluster).
+ */
+public class SingleFlightCache implements Cache {
+
+    private final Cache delegate;
+    private final RedisLease lease;
+    private final String leasePrefix;
+    private final Duration pollInterval;
+
+    private final ConcurrentMap<Object, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final Counter loads;
+    private final Counter coalescedLocal;
+    private final Counter coalescedCluster;
+
+    public SingleFlightCache(Cache delegate, StringRedisTemplate redisTemplate, String leasePrefix,
+                             Duration leaseTime, Duration pollInterval, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.lease = new RedisLease(redisTemplate, leaseTime);
+        this.leasePrefix = leasePrefix + delegate.getName() + "::";
+        this.pollInterval = pollInterval;
+
+        this.loads = Counter.builder("cache.single-flight.loads")
+                .description("Cache misses that invoked the loader")
+                .tag("cache", delegate.getName())
+                .register(meterRegistry);
+        this.coalescedLocal = Counter.builder("cache.single-flight.coalesced")
+                .description("Cache misses served by another caller's load instead of their own")
+                .tag("cache", delegate.getName())
+                .tag("scope", "local")
+                .register(meterRegistry);
+        this.coalescedCluster = Counter.builder("cache.single-flight.coalesced")
+                .description("Cache misses served by another caller's load instead of their own")
+                .tag("cache", delegate.getName())
+                .tag("scope", "cluster")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return delegate.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        return delegate.get(key);
+    }
+
+    @Override
+    public <T> T get(Object key, Class<T> type) {
+        return delegate.get(key, type);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper cached = delegate.get(key);
+        if (cached != null) {
+            return (T) cached.get();
+        }
+
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> leader = inFlight.putIfAbsent(key, flight);
+        if (leader != null) {
+            coalescedLocal.increment();
+            return (T) await(leader);
+        }
+        try {
+            Object value = loadOnce(key, valueLoader);
+            flight.complete(value);
+            return (T) value;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        delegate.put(key, value);
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        return delegate.putIfAbsent(key, value);
+    }
+
+    @Override
+    public void evict(Object key) {
+        delegate.evict(key);
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        return delegate.evictIfPresent(key);
+    }
+
+    @Override
+    public void clear() {
+        delegate.clear();
+    }
+
+    @Override
+    public boolean invalidate() {
+        return delegate.invalidate();
+    }
+
+    private Object loadOnce(Object key, Callable<?> valueLoader) {
+        String leaseKey = leasePrefix + key;
+        String token = lease.tryAcquire(leaseKey);
+        boolean leased = token != null;
+        if (!leased) {
+            ValueWrapper loaded = awaitPeer(key, leaseKey);
+            if (loaded != null) {
+                coalescedCluster.increment();
+                return loaded.get();
+            }
+        }
+        try {
+            if (leased) {
+                // The previous holder may have filled the cache between our miss and our lease
+                ValueWrapper cached = delegate.get(key);
+                if (cached != null) {
+                    return cached.get();
+                }
+            }
+            loads.increment();
+            Object value;
+            try {
+                value = valueLoader.call();
+            } catch (Exception e) {
+                throw new ValueRetrievalException(key, valueLoader, e);
+            }
+            // Null results are returned but never cached, so a missing value is looked up again next time
+            if (value != null) {
+                delegate.put(key, value);
+            }
+            return value;
+        } finally {
+            if (leased) {
+                lease.release(leaseKey, token);
+            }
+        }
+    }
+
+    // Polls until the peer's value lands; null if the lease went away without one (failure, null result, expiry)
+    private ValueWrapper awaitPeer(Object key, String leaseKey) {
+        long deadline = System.nanoTime() + lease.getLeaseTime().toNanos();
+        while (System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(pollInterval.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            ValueWrapper loaded = delegate.get(key);
+            if (loaded != null) {
+                return loaded;
+            }
+            if (!lease.isHeld(leaseKey)) {
+                return delegate.get(key);
+            }
+        }
+        return null;
+    }
+
+    private static Object await(CompletableFuture<Object> leader) {
+        try {
+            return leader.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.bookstore.bookservice.cache;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache with an in-process L1 in front of the shared Redis L2.
+ * Reads try L1 first and fall through to L2, promoting what they find. Every write goes to L2 first,
+ * then drops the key from L1 and tells peer nodes to drop theirs, so no node keeps serving a value
+ * another node has replaced. L1 values are the same instances handed to callers, so they must not be mutated.
+ */
+public class TwoTierCache implements Cache {
+
+    private final String name;
+    private final Cache remote;
+    private final com.github.benmanes.caffeine.cache.Cache<String, ValueWrapper> local;
+    private final CacheInvalidationBroadcaster broadcaster;
+
+    // Bumped on every invalidation; an L2 read that raced with one must not be promoted into L1
+    private final AtomicLong generation = new AtomicLong();
+
+    public TwoTierCache(String name, Cache remote,
+                        com.github.benmanes.caffeine.cache.Cache<String, ValueWrapper> local,
+                        CacheInvalidationBroadcaster broadcaster) {
+        this.name = name;
+        this.remote = remote;
+        this.local = local;
+        this.broadcaster = broadcaster;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return remote.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        String localKey = localKey(key);
+        ValueWrapper cached = local.getIfPresent(localKey);
+        if (cached != null) {
+            return cached;
+        }
+        long observed = generation.get();
+        ValueWrapper loaded = remote.get(key);
+        if (loaded != null) {
+            promote(localKey, loaded, observed);
+        }
+        return loaded;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object value = wrapper != null ? wrapper.get() : null;
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException(
+                    "Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        String localKey = localKey(key);
+        ValueWrapper cached = local.getIfPresent(localKey);
+        if (cached != null) {
+            return (T) cached.get();
+        }
+        long observed = generation.get();
+        T value = remote.get(key, valueLoader);
+        promote(localKey, new SimpleValueWrapper(value), observed);
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        remote.put(key, value);
+        invalidate(localKey(key), true);
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        ValueWrapper existing = remote.putIfAbsent(key, value);
+        if (existing == null) {
+            invalidate(localKey(key), true);
+        }
+        return existing;
+    }
+
+    @Override
+    public void evict(Object key) {
+        remote.evict(key);
+        invalidate(localKey(key), true);
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        boolean evicted = remote.evictIfPresent(key);
+        invalidate(localKey(key), true);
+        return evicted;
+    }
+
+    @Override
+    public void clear() {
+        remote.clear();
+        invalidateAll(true);
+    }
+
+    @Override
+    public boolean invalidate() {
+        boolean invalidated = remote.invalidate();
+        invalidateAll(true);
+        return invalidated;
+    }
+
+    /**
+     * Reads L1 only, for callers that fetch the L2 misses of many keys in one round trip themselves.
+     */
+    public ValueWrapper getLocal(Object key) {
+        return local.getIfPresent(localKey(key));
+    }
+
+    /**
+     * Invalidation generation to take before such an L2 read and pass back to {@link #promoteLocal}.
+     */
+    public long currentGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Puts a value read from L2 into L1, unless the cache has been invalidated since observed.
+     */
+    public void promoteLocal(Object key, Object value, long observed) {
+        promote(localKey(key), new SimpleValueWrapper(value), observed);
+    }
+
+    /**
+     * Drops one key from L1 only; called when a peer node has changed it in L2.
+     */
+    void evictLocal(String localKey) {
+        invalidate(localKey, false);
+    }
+
+    /**
+     * Drops all of L1 only; called when a peer node has cleared L2.
+     */
+    void clearLocal() {
+        invalidateAll(false);
+    }
+
+    long localSize() {
+        return local.estimatedSize();
+    }
+
+    com.github.benmanes.caffeine.cache.Cache<String, ValueWrapper> getLocalCache() {
+        return local;
+    }
+
+    private void promote(String localKey, ValueWrapper wrapper, long observed) {
+        if (generation.get() != observed) {
+            return;
+        }
+        local.put(localKey, wrapper);
+        // An invalidation may have landed between the check and the put; never let it be lost
+        if (generation.get() != observed) {
+            local.invalidate(localKey);
+        }
+    }
+
+    private void invalidate(String localKey, boolean broadcast) {
+        generation.incrementAndGet();
+        local.invalidate(localKey);
+        if (broadcast) {
+            broadcaster.publishEvict(name, localKey);
+        }
+    }
+
+    private void invalidateAll(boolean broadcast) {
+        generation.incrementAndGet();
+        local.invalidateAll();
+        if (broadcast) {
+            broadcaster.publishClear(name);
+        }
+    }
+
+    /**
+     * L1 is keyed by the key's string form, which is also what crosses the wire to peers
+     * and matches how the Redis tier renders keys.
+     */
+    static String localKey(Object key) {
+        return String.valueOf(key);
+    }
+}
@@ -0,0 +1,95 @@
+package com.bookstore.bookservice.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.Slice;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Wraps the Redis cache manager so every cache it hands out gets a bounded in-process L1.
+ * L1 is bounded by weight rather than entry count: a cached list or page weighs its element count,
+ * so one "all-books" entry cannot silently hold as much memory as thousands of single books.
+ */
+public class TwoTierCacheManager implements CacheManager {
+
+    private final CacheManager remoteCacheManager;
+    private final CacheInvalidationBroadcaster broadcaster;
+    private final MeterRegistry meterRegistry;
+    private final long maximumWeight;
+    private final Duration timeToLive;
+
+    private final ConcurrentMap<String, TwoTierCache> caches = new ConcurrentHashMap<>();
+
+    public TwoTierCacheManager(CacheManager remoteCacheManager, CacheInvalidationBroadcaster broadcaster,
+                               MeterRegistry meterRegistry, long maximumWeight, Duration timeToLive) {
+        this.remoteCacheManager = remoteCacheManager;
+        this.broadcaster = broadcaster;
+        this.meterRegistry = meterRegistry;
+        this.maximumWeight = maximumWeight;
+        this.timeToLive = timeToLive;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        return caches.computeIfAbsent(name, this::createCache);
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return remoteCacheManager.getCacheNames();
+    }
+
+    void evictLocal(String cacheName, String key) {
+        TwoTierCache cache = caches.get(cacheName);
+        if (cache != null) {
+            cache.evictLocal(key);
+        }
+    }
+
+    void clearLocal(String cacheName) {
+        TwoTierCache cache = caches.get(cacheName);
+        if (cache != null) {
+            cache.clearLocal();
+        }
+    }
+
+    private TwoTierCache createCache(String name) {
+        Cache remote = remoteCacheManager.getCache(name);
+        if (remote == null) {
+            return null;
+        }
+        com.github.benmanes.caffeine.cache.Cache<String, Cache.ValueWrapper> local = Caffeine.newBuilder()
+                .maximumWeight(maximumWeight)
+                .weigher((String key, Cache.ValueWrapper value) -> weigh(value.get()))
+                .expireAfterWrite(timeToLive)
+                .recordStats()
+                .build();
+        if (meterRegistry != null) {
+            CaffeineCacheMetrics.monitor(meterRegistry, local, "l1." + name);
+        }
+        return new TwoTierCache(name, remote, local, broadcaster);
+    }
+
+    static int weigh(Object value) {
+        if (value instanceof RefreshAheadValue entry) {
+            return weigh(entry.getValue());
+        }
+        int weight = 1;
+        if (value instanceof Collection<?> collection) {
+            weight = collection.size();
+        } else if (value instanceof Slice<?> slice) {
+            weight = slice.getNumberOfElements();
+        } else if (value instanceof Map<?, ?> map) {
+            weight = map.size();
+        }
+        return Math.max(weight, 1);
+    }
+}
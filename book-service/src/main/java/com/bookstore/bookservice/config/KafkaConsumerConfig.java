@@ -1,13 +1,23 @@
 package com.bookstore.bookservice.config;
 
+import com.bookstore.bookservice.kafka.KeyOrderedParallelProcessor;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
 import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.util.backoff.FixedBackOff;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -20,6 +30,27 @@ public class KafkaConsumerConfig {
 
     @Value("${spring.kafka.consumer.group-id}")
     private String groupId;
+
+    @Value("${kafka.consumer.batch.max-poll-records:500}")
+    private int batchMaxPollRecords;
+
+    @Value("${kafka.consumer.parallel.enabled:false}")
+    private boolean parallelEnabled;
+
+    @Value("${kafka.consumer.parallel.workers:16}")
+    private int parallelWorkers;
+
+    @Value("${kafka.consumer.parallel.max-in-flight:1000}")
+    private int parallelMaxInFlight;
+
+    @Value("${kafka.consumer.parallel.retry-backoff-ms:1000}")
+    private long parallelRetryBackoffMs;
+
+    @Value("${kafka.consumer.parallel.drain-timeout-ms:10000}")
+    private long parallelDrainTimeoutMs;
+
+    @Value("${kafka.consumer.parallel.idle-commit-ms:1000}")
+    private long parallelIdleCommitMs;
     
     @Bean
     public ConsumerFactory<String, String> stringConsumerFactory() {
@@ -44,4 +75,60 @@ public class KafkaConsumerConfig {
         
         return factory;
     }
+
+    // Raw record values, so listeners can pick the decoder from the content-type header
+    @Bean
+    public ConsumerFactory<String, byte[]> batchEventConsumerFactory() {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class);
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, batchMaxPollRecords);
+        
+        return new DefaultKafkaConsumerFactory<>(props);
+    }
+
+    /**
+     * Delivers each poll as one List of records and commits once per batch (AckMode.MANUAL).
+     * Listeners isolate failures per record: they retry a failing record a few times, then hand it (or at once,
+     * if it cannot be decoded) to the dead-letter recoverer; if even that fails
+     * they throw BatchListenerFailedException, and the error handler redelivers from the failed record.
+     * In parallel mode listeners hand the batch to the event processor, which commits offsets itself.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, byte[]> batchEventKafkaListenerContainerFactory(
+            KeyOrderedParallelProcessor eventParallelProcessor) {
+        ConcurrentKafkaListenerContainerFactory<String, byte[]> factory = 
+            new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(batchEventConsumerFactory());
+        factory.setConcurrency(3);
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        // Only reached when dead-lettering itself fails; keep retrying rather than skip a record
+        factory.setCommonErrorHandler(new DefaultErrorHandler(new FixedBackOff(1000L, FixedBackOff.UNLIMITED_ATTEMPTS)));
+        // Lets the processor drain and commit a partition before it moves to another consumer
+        factory.getContainerProperties().setConsumerRebalanceListener(eventParallelProcessor);
+        // Idle events let it commit records that finished after the last batch
+        factory.getContainerProperties().setIdleEventInterval(parallelIdleCommitMs);
+        
+        return factory;
+    }
+
+    // Fans event records out to workers by key, so one slow entity no longer holds up its whole partition
+    @Bean
+    public KeyOrderedParallelProcessor eventParallelProcessor(MeterRegistry meterRegistry) {
+        return new KeyOrderedParallelProcessor("book-service-events", parallelEnabled, parallelWorkers,
+                parallelMaxInFlight, parallelRetryBackoffMs, parallelDrainTimeoutMs, meterRegistry);
+    }
+
+    // Failed records go to <topic>-dlt with their original bytes and headers, plus exception headers
+    @Bean
+    public DeadLetterPublishingRecoverer eventDeadLetterRecoverer(
+            @Qualifier("outboxKafkaTemplate") KafkaTemplate<String, byte[]> kafkaTemplate) {
+        return new DeadLetterPublishingRecoverer(kafkaTemplate,
+                (record, exception) -> new TopicPartition(record.topic() + "-dlt", -1));
+    }
 }
@@ -0,0 +1,42 @@
+package com.bookstore.bookservice.config;
+
+import com.bookstore.bookservice.dto.BookDto;
+import com.bookstore.bookservice.mapper.BookMapper;
+import com.bookstore.bookservice.repository.BookRepository;
+import com.bookstore.bookservice.util.BatchLoader;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Configuration
+public class LoaderConfig {
+
+    @Value("${book.loader.enabled:true}")
+    private boolean bookLoaderEnabled;
+
+    @Value("${book.loader.max-batch-size:100}")
+    private int bookLoaderMaxBatchSize;
+
+    @Value("${book.loader.window-micros:1000}")
+    private long bookLoaderWindowMicros;
+
+    @Value("${book.loader.dispatch-threads:4}")
+    private int bookLoaderDispatchThreads;
+
+    /**
+     * Concurrent getBookById misses for different ids become one findAllById query.
+     */
+    @Bean
+    public BatchLoader<Long, BookDto> bookByIdLoader(BookRepository bookRepository, BookMapper bookMapper,
+                                                     MeterRegistry meterRegistry) {
+        return new BatchLoader<>("book-by-id", bookLoaderEnabled, ids -> {
+            Map<Long, BookDto> books = new HashMap<>(ids.size() * 2);
+            bookRepository.findAllById(ids).forEach(book -> books.put(book.getId(), bookMapper.toDto(book)));
+            return books;
+        }, bookLoaderMaxBatchSize, bookLoaderWindowMicros, bookLoaderDispatchThreads, meterRegistry);
+    }
+}
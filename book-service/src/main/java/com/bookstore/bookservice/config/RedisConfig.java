@@ -1,5 +1,17 @@
 package com.bookstore.bookservice.config;
 
+import com.bookstore.bookservice.cache.BookBatchCache;
+import com.bookstore.bookservice.cache.CacheInvalidationBroadcaster;
+import com.bookstore.bookservice.cache.CacheWarmer;
+import com.bookstore.bookservice.cache.RedisLease;
+import com.bookstore.bookservice.cache.RefreshAheadCacheManager;
+import com.bookstore.bookservice.cache.SingleFlightCacheManager;
+import com.bookstore.bookservice.cache.TwoTierCacheManager;
+import com.bookstore.bookservice.service.BookService;
+import com.bookstore.bookservice.service.IsbnFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
@@ -12,15 +24,21 @@ import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 import java.time.Duration;
+import java.util.Set;
 
 @Configuration
 @EnableCaching
 public class RedisConfig {
 
+    public static final Duration CACHE_TTL = Duration.ofHours(1);
+
     @Value("${spring.data.redis.host:localhost}")
     private String redisHost;
 
@@ -30,6 +48,63 @@ public class RedisConfig {
     @Value("${spring.data.redis.password:}")
     private String redisPassword;
 
+    @Value("${cache.local.enabled:true}")
+    private boolean localCacheEnabled;
+
+    @Value("${cache.local.max-weight:10000}")
+    private long localCacheMaxWeight;
+
+    @Value("${cache.local.ttl-seconds:60}")
+    private long localCacheTtlSeconds;
+
+    @Value("${cache.local.invalidation-channel:book-cache-invalidation}")
+    private String invalidationChannel;
+
+    @Value("${cache.single-flight.enabled:true}")
+    private boolean singleFlightEnabled;
+
+    @Value("${cache.single-flight.lease-prefix:book-service:cache-load:}")
+    private String singleFlightLeasePrefix;
+
+    @Value("${cache.single-flight.lease-ms:10000}")
+    private long singleFlightLeaseMs;
+
+    @Value("${cache.single-flight.poll-ms:50}")
+    private long singleFlightPollMs;
+
+    @Value("${cache.refresh-ahead.enabled:true}")
+    private boolean refreshAheadEnabled;
+
+    @Value("${cache.refresh-ahead.caches:all-books,available-books,recent-books}")
+    private Set<String> refreshAheadCaches;
+
+    @Value("${cache.refresh-ahead.beta:1.0}")
+    private double refreshAheadBeta;
+
+    @Value("${cache.refresh-ahead.threads:2}")
+    private int refreshAheadThreads;
+
+    @Value("${cache.refresh-ahead.lease-prefix:book-service:cache-refresh:}")
+    private String refreshAheadLeasePrefix;
+
+    @Value("${cache.refresh-ahead.lease-ms:30000}")
+    private long refreshAheadLeaseMs;
+
+    @Value("${cache.missing-isbns.ttl-seconds:60}")
+    private long missingIsbnsTtlSeconds;
+
+    @Value("${cache.warmer.enabled:true}")
+    private boolean warmerEnabled;
+
+    @Value("${cache.warmer.top-keys:200}")
+    private int warmerTopKeys;
+
+    @Value("${cache.warmer.concurrency:2}")
+    private int warmerConcurrency;
+
+    @Value("${cache.warmer.hot-keys-key:book-service:cache-warmer:hot-keys}")
+    private String warmerHotKeysKey;
+
     @Bean
     @Primary
     public RedisConnectionFactory lettuceConnectionFactory() {
@@ -60,16 +135,76 @@ public class RedisConfig {
     }
 
     @Bean
-    public CacheManager cacheManager(RedisConnectionFactory connectionFactory) {
+    public CacheManager cacheManager(RedisConnectionFactory connectionFactory,
+                                     CacheInvalidationBroadcaster cacheInvalidationBroadcaster,
+                                     StringRedisTemplate stringRedisTemplate,
+                                     ObjectProvider<MeterRegistry> meterRegistry) {
+        CacheManager remoteCacheManager = redisCacheManager(connectionFactory);
+        // Between L1 and Redis, so only an L1 miss that is also an L2 miss takes part in single-flight
+        if (singleFlightEnabled) {
+            remoteCacheManager = new SingleFlightCacheManager(remoteCacheManager, stringRedisTemplate,
+                    singleFlightLeasePrefix, Duration.ofMillis(singleFlightLeaseMs), Duration.ofMillis(singleFlightPollMs),
+                    meterRegistry.getIfAvailable(SimpleMeterRegistry::new));
+        }
+        CacheManager cacheManager = !localCacheEnabled ? remoteCacheManager
+                : new TwoTierCacheManager(remoteCacheManager, cacheInvalidationBroadcaster,
+                        meterRegistry.getIfAvailable(), localCacheMaxWeight, Duration.ofSeconds(localCacheTtlSeconds));
+        // Outermost, so L1 hits also get the chance to start an early refresh
+        if (refreshAheadEnabled) {
+            cacheManager = new RefreshAheadCacheManager(cacheManager, refreshAheadCaches, CACHE_TTL, refreshAheadBeta,
+                    new RedisLease(stringRedisTemplate, Duration.ofMillis(refreshAheadLeaseMs)), refreshAheadLeasePrefix,
+                    refreshAheadThreads, meterRegistry.getIfAvailable(SimpleMeterRegistry::new));
+        }
+        return cacheManager;
+    }
+
+    @Bean
+    public CacheInvalidationBroadcaster cacheInvalidationBroadcaster(StringRedisTemplate stringRedisTemplate) {
+        return new CacheInvalidationBroadcaster(stringRedisTemplate, invalidationChannel);
+    }
+
+    @Bean
+    public RedisMessageListenerContainer cacheInvalidationListenerContainer(
+            RedisConnectionFactory connectionFactory, CacheManager cacheManager,
+            CacheInvalidationBroadcaster cacheInvalidationBroadcaster, IsbnFilter isbnFilter) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        CacheManager tiers = cacheManager instanceof RefreshAheadCacheManager refreshAhead
+                ? refreshAhead.getDelegate() : cacheManager;
+        if (tiers instanceof TwoTierCacheManager twoTierCacheManager) {
+            container.addMessageListener(cacheInvalidationBroadcaster.listenerFor(twoTierCacheManager),
+                    new ChannelTopic(cacheInvalidationBroadcaster.getChannel()));
+        }
+        container.addMessageListener(isbnFilter, new ChannelTopic(isbnFilter.getChannel()));
+        return container;
+    }
+
+    @Bean
+    public CacheWarmer cacheWarmer(BookService bookService, StringRedisTemplate stringRedisTemplate) {
+        return new CacheWarmer(bookService, stringRedisTemplate, warmerHotKeysKey,
+                warmerEnabled, warmerTopKeys, warmerConcurrency);
+    }
+
+    @Bean
+    public BookBatchCache bookBatchCache(CacheManager cacheManager, RedisTemplate<String, Object> redisTemplate) {
+        return new BookBatchCache(cacheManager, redisTemplate, CACHE_TTL);
+    }
+
+    private RedisCacheManager redisCacheManager(RedisConnectionFactory connectionFactory) {
         RedisCacheConfiguration config = RedisCacheConfiguration.defaultCacheConfig()
-                .entryTtl(Duration.ofHours(1))
+                .entryTtl(CACHE_TTL)
                 .serializeKeysWith(org.springframework.data.redis.serializer.RedisSerializationContext.SerializationPair
                         .fromSerializer(new StringRedisSerializer()))
                 .serializeValuesWith(org.springframework.data.redis.serializer.RedisSerializationContext.SerializationPair
                         .fromSerializer(new GenericJackson2JsonRedisSerializer()));
 
-        return RedisCacheManager.builder(connectionFactory)
+        RedisCacheManager redisCacheManager = RedisCacheManager.builder(connectionFactory)
                 .cacheDefaults(config)
+                // Confirmed misses are kept briefly, so a book created elsewhere is not hidden for long
+                .withCacheConfiguration(IsbnFilter.MISSING_ISBNS,
+                        config.entryTtl(Duration.ofSeconds(missingIsbnsTtlSeconds)))
                 .build();
+        redisCacheManager.afterPropertiesSet();
+        return redisCacheManager;
     }
 }
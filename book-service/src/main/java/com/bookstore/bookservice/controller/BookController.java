@@ -1,14 +1,26 @@
 package com.bookstore.bookservice.controller;
 
+import com.bookstore.bookservice.cache.CacheWarmer;
+import com.bookstore.bookservice.dto.BookBatchGetRequestDto;
+import com.bookstore.bookservice.dto.BookBatchGetResultDto;
 import com.bookstore.bookservice.dto.BookDto;
+import com.bookstore.bookservice.dto.BookImportResultDto;
 import com.bookstore.bookservice.dto.CreateBookRequestDto;
+import com.bookstore.bookservice.dto.CursorPage;
+import com.bookstore.bookservice.dto.InventoryStatsDto;
+import com.bookstore.bookservice.dto.StockReservationDto;
 import com.bookstore.bookservice.dto.UpdateBookRequestDto;
+import com.bookstore.bookservice.service.BookExportService;
+import com.bookstore.bookservice.service.BookImportService;
 import com.bookstore.bookservice.service.BookService;
+import com.bookstore.bookservice.service.InventoryStatistics;
+import com.bookstore.bookservice.service.StockReservationService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Min;
 import org.slf4j.Logger;
@@ -18,12 +30,20 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/v1/books")
@@ -34,10 +54,22 @@ public class BookController {
     private static final Logger logger = LoggerFactory.getLogger(BookController.class);
 
     private final BookService bookService;
+    private final StockReservationService stockReservationService;
+    private final BookImportService bookImportService;
+    private final BookExportService bookExportService;
+    private final InventoryStatistics inventoryStatistics;
+    private final CacheWarmer cacheWarmer;
 
     @Autowired
-    public BookController(BookService bookService) {
+    public BookController(BookService bookService, StockReservationService stockReservationService,
+                          BookImportService bookImportService, BookExportService bookExportService,
+                          InventoryStatistics inventoryStatistics, CacheWarmer cacheWarmer) {
         this.bookService = bookService;
+        this.stockReservationService = stockReservationService;
+        this.bookImportService = bookImportService;
+        this.bookExportService = bookExportService;
+        this.inventoryStatistics = inventoryStatistics;
+        this.cacheWarmer = cacheWarmer;
     }
 
     @PostMapping
@@ -71,6 +103,7 @@ public class BookController {
         
         logger.debug("Fetching book with ID: {}", id);
         BookDto book = bookService.getBookById(id);
+        cacheWarmer.recordBookId(id);
         return ResponseEntity.ok(book);
     }
 
@@ -85,6 +118,7 @@ public class BookController {
         
         logger.debug("Fetching book with ISBN: {}", isbn);
         BookDto book = bookService.getBookByIsbn(isbn);
+        cacheWarmer.recordIsbn(isbn);
         return ResponseEntity.ok(book);
     }
 
@@ -111,6 +145,24 @@ public class BookController {
         return ResponseEntity.ok(books);
     }
 
+    @GetMapping("/scroll")
+    @Operation(summary = "Scroll all books", description = "Keyset-paginated listing without a total count. " +
+            "Pass nextCursor from the previous response as cursor to continue; the cursor keeps its original sort.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Books retrieved successfully"),
+        @ApiResponse(responseCode = "400", description = "Invalid cursor or unsupported sort field")
+    })
+    public ResponseEntity<CursorPage<BookDto>> scrollBooks(
+            @Parameter(description = "Continuation token from a previous response") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size") @RequestParam(defaultValue = "10") int size,
+            @Parameter(description = "Sort by field (id, title, author, isbn, price)") @RequestParam(defaultValue = "id") String sortBy,
+            @Parameter(description = "Sort direction") @RequestParam(defaultValue = "asc") String sortDir) {
+        
+        logger.debug("Scrolling books - size: {}, sortBy: {}", size, sortBy);
+        CursorPage<BookDto> books = bookService.scrollBooks(cursor, size, sortBy, sortDir);
+        return ResponseEntity.ok(books);
+    }
+
     @PutMapping("/{id}")
     @Operation(summary = "Update book", description = "Updates an existing book")
     @ApiResponses(value = {
@@ -190,8 +242,57 @@ public class BookController {
         return ResponseEntity.ok(updatedBook);
     }
 
+    @PostMapping("/{id}/reservations")
+    @Operation(summary = "Reserve stock", description = "Holds stock for a checkout until it is confirmed, released or expires")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "201", description = "Stock reserved successfully"),
+        @ApiResponse(responseCode = "400", description = "Insufficient stock or invalid quantity"),
+        @ApiResponse(responseCode = "404", description = "Book not found")
+    })
+    public ResponseEntity<StockReservationDto> reserveStock(
+            @Parameter(description = "Book ID") @PathVariable Long id,
+            @Parameter(description = "Quantity to hold") @RequestParam Integer quantity,
+            @Parameter(description = "Seconds before the hold expires") @RequestParam(required = false) Integer ttlSeconds) {
+        
+        logger.info("Reserving {} of book ID: {}", quantity, id);
+        StockReservationDto reservation = stockReservationService.reserve(id, quantity, ttlSeconds);
+        return new ResponseEntity<>(reservation, HttpStatus.CREATED);
+    }
+
+    @PostMapping("/reservations/{reservationId}/confirm")
+    @Operation(summary = "Confirm reservation", description = "Turns a held reservation into a sale")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Reservation confirmed successfully"),
+        @ApiResponse(responseCode = "400", description = "Stock no longer available"),
+        @ApiResponse(responseCode = "404", description = "Reservation not found or expired")
+    })
+    public ResponseEntity<StockReservationDto> confirmReservation(
+            @Parameter(description = "Reservation ID") @PathVariable String reservationId) {
+        
+        logger.info("Confirming reservation: {}", reservationId);
+        StockReservationDto reservation = stockReservationService.confirm(reservationId);
+        return ResponseEntity.ok(reservation);
+    }
+
+    @DeleteMapping("/reservations/{reservationId}")
+    @Operation(summary = "Release reservation", description = "Returns held stock before the reservation expires")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Reservation released successfully"),
+        @ApiResponse(responseCode = "404", description = "Reservation not found or expired")
+    })
+    public ResponseEntity<StockReservationDto> releaseReservation(
+            @Parameter(description = "Reservation ID") @PathVariable String reservationId) {
+        
+        logger.info("Releasing reservation: {}", reservationId);
+        StockReservationDto reservation = stockReservationService.release(reservationId);
+        return ResponseEntity.ok(reservation);
+    }
+
     @GetMapping("/search")
-    @Operation(summary = "Search books", description = "Searches books by title, author, or description")
+    @Operation(summary = "Search books", description = "Searches books by title, author, or description. "
+            + "Unsorted searches whose words are all at least three characters long are answered from an "
+            + "in-memory index, which also matches the publisher, matches the start of words rather than any "
+            + "substring, and requires every word to match; other searches match the whole term as a substring")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Search completed successfully")
     })
@@ -230,6 +331,27 @@ public class BookController {
         return ResponseEntity.ok(books);
     }
 
+    @GetMapping("/filter/scroll")
+    @Operation(summary = "Scroll filtered books", description = "Keyset-paginated variant of /filter ordered by ID. " +
+            "Repeat the same filters together with the cursor on each request.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Filter completed successfully"),
+        @ApiResponse(responseCode = "400", description = "Invalid cursor")
+    })
+    public ResponseEntity<CursorPage<BookDto>> scrollFilteredBooks(
+            @Parameter(description = "Title filter") @RequestParam(required = false) String title,
+            @Parameter(description = "Author filter") @RequestParam(required = false) String author,
+            @Parameter(description = "Category filter") @RequestParam(required = false) String category,
+            @Parameter(description = "Minimum price") @RequestParam(required = false) BigDecimal minPrice,
+            @Parameter(description = "Maximum price") @RequestParam(required = false) BigDecimal maxPrice,
+            @Parameter(description = "Continuation token from a previous response") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size") @RequestParam(defaultValue = "10") int size) {
+        
+        logger.debug("Scrolling filtered books - title: {}, author: {}, category: {}", title, author, category);
+        CursorPage<BookDto> books = bookService.scrollBooksWithFilters(title, author, category, minPrice, maxPrice, cursor, size);
+        return ResponseEntity.ok(books);
+    }
+
     @GetMapping("/category/{category}")
     @Operation(summary = "Get books by category", description = "Retrieves books by category")
     @ApiResponses(value = {
@@ -240,6 +362,7 @@ public class BookController {
         
         logger.debug("Fetching books by category: {}", category);
         List<BookDto> books = bookService.searchBooksByCategory(category);
+        cacheWarmer.recordCategory(category);
         return ResponseEntity.ok(books);
     }
 
@@ -304,9 +427,21 @@ public class BookController {
         
         logger.debug("Fetching recent {} books", limit);
         List<BookDto> books = bookService.getRecentBooks(limit);
+        cacheWarmer.recordRecentLimit(limit);
         return ResponseEntity.ok(books);
     }
 
+    @GetMapping("/stats")
+    @Operation(summary = "Get inventory statistics", description = "Title, unit, low-stock and negative-stock counts per category and overall. " +
+            "Writes made through other instances may take up to inventory.stats.rebuild-interval-ms to show.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Statistics retrieved successfully")
+    })
+    public ResponseEntity<InventoryStatsDto> getInventoryStats() {
+        logger.debug("Fetching inventory statistics");
+        return ResponseEntity.ok(inventoryStatistics.getStats());
+    }
+
     @GetMapping("/category/{category}/count")
     @Operation(summary = "Count books by category", description = "Counts books in a specific category")
     @ApiResponses(value = {
@@ -333,4 +468,68 @@ public class BookController {
         List<BookDto> createdBooks = bookService.createBooksInBatch(createBookRequests);
         return new ResponseEntity<>(createdBooks, HttpStatus.CREATED);
     }
+
+    @PostMapping("/batch-get")
+    @Operation(summary = "Get books in batch", description = "Fetches up to " + BookBatchGetRequestDto.MAX_KEYS +
+            " books by ID and/or ISBN in one call; ids and ISBNs that match no book are listed separately")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Books found"),
+        @ApiResponse(responseCode = "400", description = "Too many ids or ISBNs")
+    })
+    public ResponseEntity<BookBatchGetResultDto> getBooksInBatch(
+            @Valid @RequestBody BookBatchGetRequestDto request) {
+        
+        logger.debug("Fetching books in batch");
+        BookBatchGetResultDto result = bookService.getBooks(request.getIds(), request.getIsbns());
+        result.getBooks().forEach(book -> cacheWarmer.recordBookId(book.getId()));
+        return ResponseEntity.ok(result);
+    }
+
+    @PostMapping(value = "/import", consumes = {"text/csv", MediaType.APPLICATION_NDJSON_VALUE})
+    @Operation(summary = "Import books", description = "Streams a CSV (with header row) or NDJSON body and upserts books by ISBN in chunks")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Import finished; see the report for rejected rows"),
+        @ApiResponse(responseCode = "415", description = "Body is neither CSV nor NDJSON")
+    })
+    public ResponseEntity<BookImportResultDto> importBooks(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            InputStream body) throws IOException {
+        
+        logger.info("Importing books from {} body", contentType);
+        // The body is read as a stream; never bind it to a List here
+        BookImportResultDto result = BookImportService.TEXT_CSV.isCompatibleWith(MediaType.parseMediaType(contentType))
+                ? bookImportService.importCsv(body)
+                : bookImportService.importNdjson(body);
+        return ResponseEntity.ok(result);
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Export books", description = "Streams the catalogue as NDJSON in id order, gzip-compressed when the client accepts it")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Export streamed")
+    })
+    public void exportBooks(
+            @Parameter(description = "Only active (true) or inactive (false) books") @RequestParam(required = false) Boolean active,
+            @Parameter(description = "Only books updated at or after this ISO date-time") @RequestParam(required = false)
+                @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime updatedSince,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            HttpServletResponse response) throws IOException {
+        
+        logger.info("Exporting books - active: {}, updatedSince: {}", active, updatedSince);
+        // Written on the request thread straight to the response; rows never collect in a list
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            // syncFlush so each chunk flushed by the export reaches the client
+            GZIPOutputStream out = new GZIPOutputStream(response.getOutputStream(), 8192, true);
+            bookExportService.exportNdjson(active, updatedSince, out);
+            out.finish();
+        } else {
+            OutputStream out = response.getOutputStream();
+            bookExportService.exportNdjson(active, updatedSince, out);
+        }
+        response.flushBuffer();
+    }
 }
@@ -0,0 +1,45 @@
+package com.bookstore.bookservice.dto;
+
+import jakarta.validation.constraints.Size;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Books to fetch in one call, by id, by ISBN, or both; at most MAX_KEYS of them in total.
+ */
+public class BookBatchGetRequestDto {
+
+    public static final int MAX_KEYS = 500;
+
+    @Size(max = MAX_KEYS, message = "At most " + MAX_KEYS + " ids can be requested at once")
+    private List<Long> ids = new ArrayList<>();
+
+    @Size(max = MAX_KEYS, message = "At most " + MAX_KEYS + " ISBNs can be requested at once")
+    private List<String> isbns = new ArrayList<>();
+
+    // Constructors
+    public BookBatchGetRequestDto() {}
+
+    public BookBatchGetRequestDto(List<Long> ids, List<String> isbns) {
+        this.ids = ids;
+        this.isbns = isbns;
+    }
+
+    // Getters and Setters
+    public List<Long> getIds() {
+        return ids;
+    }
+
+    public void setIds(List<Long> ids) {
+        this.ids = ids;
+    }
+
+    public List<String> getIsbns() {
+        return isbns;
+    }
+
+    public void setIsbns(List<String> isbns) {
+        this.isbns = isbns;
+    }
+}
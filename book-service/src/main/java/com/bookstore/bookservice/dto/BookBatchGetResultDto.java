@@ -0,0 +1,49 @@
+package com.bookstore.bookservice.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Books found by a batch get, in request order with ids before ISBNs and each book listed once,
+ * plus the requested ids and ISBNs that matched no book.
+ */
+public class BookBatchGetResultDto {
+
+    private List<BookDto> books = new ArrayList<>();
+    private List<Long> missingIds = new ArrayList<>();
+    private List<String> missingIsbns = new ArrayList<>();
+
+    // Constructors
+    public BookBatchGetResultDto() {}
+
+    public BookBatchGetResultDto(List<BookDto> books, List<Long> missingIds, List<String> missingIsbns) {
+        this.books = books;
+        this.missingIds = missingIds;
+        this.missingIsbns = missingIsbns;
+    }
+
+    // Getters and Setters
+    public List<BookDto> getBooks() {
+        return books;
+    }
+
+    public void setBooks(List<BookDto> books) {
+        this.books = books;
+    }
+
+    public List<Long> getMissingIds() {
+        return missingIds;
+    }
+
+    public void setMissingIds(List<Long> missingIds) {
+        this.missingIds = missingIds;
+    }
+
+    public List<String> getMissingIsbns() {
+        return missingIsbns;
+    }
+
+    public void setMissingIsbns(List<String> missingIsbns) {
+        this.missingIsbns = missingIsbns;
+    }
+}
@@ -65,6 +65,29 @@ public class BookDto implements Serializable {
     // Constructors
     public BookDto() {}
 
+    // Used by the BookRepository projection queries; same fields as BookMapper.toDto
+    public BookDto(Long id, String title, String author, String isbn, String description, BigDecimal price,
+                   Integer stockQuantity, String category, String publisher, Integer publicationYear,
+                   String language, Integer pages, String imageUrl, Boolean active,
+                   LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this.id = id;
+        this.title = title;
+        this.author = author;
+        this.isbn = isbn;
+        this.description = description;
+        this.price = price;
+        this.stockQuantity = stockQuantity;
+        this.category = category;
+        this.publisher = publisher;
+        this.publicationYear = publicationYear;
+        this.language = language;
+        this.pages = pages;
+        this.imageUrl = imageUrl;
+        this.active = active;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+    }
+
     // Getters and Setters
     public Long getId() {
         return id;
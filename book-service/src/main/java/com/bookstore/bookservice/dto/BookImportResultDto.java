@@ -0,0 +1,135 @@
+package com.bookstore.bookservice.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a bulk import. Counts cover every row; the error list keeps only the first
+ * maxReportedErrors rejections so the report stays small however bad the file is.
+ */
+public class BookImportResultDto {
+
+    private long totalRows;
+    private long created;
+    private long updated;
+    private long rejected;
+    private boolean errorsTruncated;
+    private List<RowError> errors = new ArrayList<>();
+
+    // Constructors
+    public BookImportResultDto() {}
+
+    public void addCreated(long count) {
+        created += count;
+    }
+
+    public void addUpdated(long count) {
+        updated += count;
+    }
+
+    public void rowRead() {
+        totalRows++;
+    }
+
+    public void reject(long row, String isbn, String message, int maxReportedErrors) {
+        rejected++;
+        if (errors.size() < maxReportedErrors) {
+            errors.add(new RowError(row, isbn, message));
+        } else {
+            errorsTruncated = true;
+        }
+    }
+
+    // Getters and Setters
+    public long getTotalRows() {
+        return totalRows;
+    }
+
+    public void setTotalRows(long totalRows) {
+        this.totalRows = totalRows;
+    }
+
+    public long getCreated() {
+        return created;
+    }
+
+    public void setCreated(long created) {
+        this.created = created;
+    }
+
+    public long getUpdated() {
+        return updated;
+    }
+
+    public void setUpdated(long updated) {
+        this.updated = updated;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public void setRejected(long rejected) {
+        this.rejected = rejected;
+    }
+
+    public boolean isErrorsTruncated() {
+        return errorsTruncated;
+    }
+
+    public void setErrorsTruncated(boolean errorsTruncated) {
+        this.errorsTruncated = errorsTruncated;
+    }
+
+    public List<RowError> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(List<RowError> errors) {
+        this.errors = errors;
+    }
+
+    /**
+     * A rejected row: its 1-based position among the data rows, the ISBN if it could be read, and why.
+     */
+    public static class RowError {
+
+        private long row;
+        private String isbn;
+        private String message;
+
+        // Constructors
+        public RowError() {}
+
+        public RowError(long row, String isbn, String message) {
+            this.row = row;
+            this.isbn = isbn;
+            this.message = message;
+        }
+
+        // Getters and Setters
+        public long getRow() {
+            return row;
+        }
+
+        public void setRow(long row) {
+            this.row = row;
+        }
+
+        public String getIsbn() {
+            return isbn;
+        }
+
+        public void setIsbn(String isbn) {
+            this.isbn = isbn;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public void setMessage(String message) {
+            this.message = message;
+        }
+    }
+}
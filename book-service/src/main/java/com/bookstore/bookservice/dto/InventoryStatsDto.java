@@ -0,0 +1,143 @@
+package com.bookstore.bookservice.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Inventory counters, overall and per category. Titles, units and low stock cover active books;
+ * negative stock covers all books.
+ */
+public class InventoryStatsDto {
+
+    private int lowStockThreshold;
+    private long titles;
+    private long units;
+    private long lowStock;
+    private long negativeStock;
+    private List<CategoryStats> categories = new ArrayList<>();
+
+    // Constructors
+    public InventoryStatsDto() {}
+
+    public InventoryStatsDto(int lowStockThreshold) {
+        this.lowStockThreshold = lowStockThreshold;
+    }
+
+    public void addCategory(CategoryStats category) {
+        categories.add(category);
+        titles += category.getTitles();
+        units += category.getUnits();
+        lowStock += category.getLowStock();
+        negativeStock += category.getNegativeStock();
+    }
+
+    // Getters and Setters
+    public int getLowStockThreshold() {
+        return lowStockThreshold;
+    }
+
+    public void setLowStockThreshold(int lowStockThreshold) {
+        this.lowStockThreshold = lowStockThreshold;
+    }
+
+    public long getTitles() {
+        return titles;
+    }
+
+    public void setTitles(long titles) {
+        this.titles = titles;
+    }
+
+    public long getUnits() {
+        return units;
+    }
+
+    public void setUnits(long units) {
+        this.units = units;
+    }
+
+    public long getLowStock() {
+        return lowStock;
+    }
+
+    public void setLowStock(long lowStock) {
+        this.lowStock = lowStock;
+    }
+
+    public long getNegativeStock() {
+        return negativeStock;
+    }
+
+    public void setNegativeStock(long negativeStock) {
+        this.negativeStock = negativeStock;
+    }
+
+    public List<CategoryStats> getCategories() {
+        return categories;
+    }
+
+    public void setCategories(List<CategoryStats> categories) {
+        this.categories = categories;
+    }
+
+    public static class CategoryStats {
+
+        private String category;
+        private long titles;
+        private long units;
+        private long lowStock;
+        private long negativeStock;
+
+        // Constructors
+        public CategoryStats() {}
+
+        public CategoryStats(String category, long titles, long units, long lowStock, long negativeStock) {
+            this.category = category;
+            this.titles = titles;
+            this.units = units;
+            this.lowStock = lowStock;
+            this.negativeStock = negativeStock;
+        }
+
+        // Getters and Setters
+        public String getCategory() {
+            return category;
+        }
+
+        public void setCategory(String category) {
+            this.category = category;
+        }
+
+        public long getTitles() {
+            return titles;
+        }
+
+        public void setTitles(long titles) {
+            this.titles = titles;
+        }
+
+        public long getUnits() {
+            return units;
+        }
+
+        public void setUnits(long units) {
+            this.units = units;
+        }
+
+        public long getLowStock() {
+            return lowStock;
+        }
+
+        public void setLowStock(long lowStock) {
+            this.lowStock = lowStock;
+        }
+
+        public long getNegativeStock() {
+            return negativeStock;
+        }
+
+        public void setNegativeStock(long negativeStock) {
+            this.negativeStock = negativeStock;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.bookstore.bookservice.dto;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+public class StockReservationDto implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final String HELD = "HELD";
+    public static final String CONFIRMED = "CONFIRMED";
+    public static final String RELEASED = "RELEASED";
+
+    private String reservationId;
+    private Long bookId;
+    private Integer quantity;
+    private String status;
+    private LocalDateTime expiresAt;
+
+    // Constructors
+    public StockReservationDto() {}
+
+    public StockReservationDto(String reservationId, Long bookId, Integer quantity, String status, LocalDateTime expiresAt) {
+        this.reservationId = reservationId;
+        this.bookId = bookId;
+        this.quantity = quantity;
+        this.status = status;
+        this.expiresAt = expiresAt;
+    }
+
+    // Getters and Setters
+    public String getReservationId() {
+        return reservationId;
+    }
+
+    public void setReservationId(String reservationId) {
+        this.reservationId = reservationId;
+    }
+
+    public Long getBookId() {
+        return bookId;
+    }
+
+    public void setBookId(Long bookId) {
+        this.bookId = bookId;
+    }
+
+    public Integer getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(Integer quantity) {
+        this.quantity = quantity;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(LocalDateTime expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+}
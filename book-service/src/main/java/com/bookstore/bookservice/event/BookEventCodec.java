@@ -0,0 +1,39 @@
+package com.bookstore.bookservice.event;
+
+/**
+ * Binary v1 codec for {@link BookEvent}. Field order is part of the format:
+ * eventType, bookId, title, author, isbn, stockQuantity, timestamp.
+ */
+public final class BookEventCodec {
+
+    private BookEventCodec() {
+    }
+
+    public static byte[] encode(BookEvent event) {
+        return new EventWireFormat.Writer()
+                .header(EventWireFormat.VERSION_1, EventWireFormat.presence(event.getEventType(), event.getBookId(),
+                        event.getTitle(), event.getAuthor(), event.getIsbn(), event.getStockQuantity(),
+                        event.getTimestamp()))
+                .writeString(event.getEventType())
+                .writeLong(event.getBookId())
+                .writeString(event.getTitle())
+                .writeString(event.getAuthor())
+                .writeString(event.getIsbn())
+                .writeInt(event.getStockQuantity())
+                .writeTimestamp(event.getTimestamp())
+                .toByteArray();
+    }
+
+    public static BookEvent decode(byte[] bytes) {
+        EventWireFormat.Reader reader = new EventWireFormat.Reader(bytes, EventWireFormat.VERSION_1);
+        BookEvent event = new BookEvent();
+        event.setEventType(reader.readString());
+        event.setBookId(reader.readLong());
+        event.setTitle(reader.readString());
+        event.setAuthor(reader.readString());
+        event.setIsbn(reader.readString());
+        event.setStockQuantity(reader.readInt());
+        event.setTimestamp(reader.readTimestamp());
+        return event;
+    }
+}
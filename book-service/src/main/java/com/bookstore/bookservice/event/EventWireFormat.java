@@ -0,0 +1,219 @@
+package com.bookstore.bookservice.event;
+
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+/**
+ * Wire formats for events on Kafka, selected per record by the content-type header.
+ * Records without the header are JSON, which is what every producer sent before the binary format.
+ * <p>
+ * Binary v1 layout: a version byte, a presence bitmap byte (bit i set = field i is not null), then
+ * the present fields in declaration order. Integers are zig-zag varints, strings are a varint byte length
+ * followed by UTF-8, timestamps are epoch seconds (as UTC) plus nanos. New fields may only be appended;
+ * decoders ignore trailing bytes, so an older consumer can still read a newer v1 record.
+ * <p>
+ * The bitmap byte caps v1 at eight fields. A ninth needs a new version under its own content type, so
+ * consumers that only know v1 fall back instead of failing on the record.
+ */
+public final class EventWireFormat {
+
+    public static final String CONTENT_TYPE_HEADER = "content-type";
+    public static final String JSON = "application/json";
+    public static final String BINARY_V1 = "application/vnd.bookstore.event.v1+binary";
+
+    static final byte VERSION_1 = 1;
+    static final int MAX_FIELDS = 8;
+
+    private EventWireFormat() {
+    }
+
+    /**
+     * Content type of a record, defaulting to JSON for records written before the header existed.
+     */
+    public static String contentType(Headers headers) {
+        Header header = headers != null ? headers.lastHeader(CONTENT_TYPE_HEADER) : null;
+        return header != null ? new String(header.value(), StandardCharsets.UTF_8) : JSON;
+    }
+
+    public static boolean isBinary(String contentType) {
+        return BINARY_V1.equals(contentType);
+    }
+
+    static final class Writer {
+        private byte[] buffer = new byte[128];
+        private int position;
+
+        Writer header(byte version, int presence) {
+            writeByte(version);
+            writeByte(presence);
+            return this;
+        }
+
+        Writer writeString(String value) {
+            if (value == null) {
+                return this;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length);
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+            return this;
+        }
+
+        Writer writeLong(Long value) {
+            if (value != null) {
+                writeVarLong((value << 1) ^ (value >> 63));
+            }
+            return this;
+        }
+
+        Writer writeInt(Integer value) {
+            return value != null ? writeLong(value.longValue()) : this;
+        }
+
+        Writer writeBoolean(Boolean value) {
+            if (value != null) {
+                writeByte(value ? 1 : 0);
+            }
+            return this;
+        }
+
+        Writer writeTimestamp(LocalDateTime value) {
+            if (value != null) {
+                writeLong(value.toEpochSecond(ZoneOffset.UTC));
+                writeVarLong(value.getNano());
+            }
+            return this;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, position);
+        }
+
+        private void writeVarLong(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        private void writeByte(int value) {
+            ensureCapacity(1);
+            buffer[position++] = (byte) value;
+        }
+
+        private void ensureCapacity(int extra) {
+            if (position + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + extra));
+            }
+        }
+    }
+
+    static final class Reader {
+        private final byte[] buffer;
+        private final int presence;
+        private int position;
+        private int field;
+
+        Reader(byte[] buffer, byte expectedVersion) {
+            if (buffer == null || buffer.length < 2) {
+                throw new IllegalArgumentException("Binary event is truncated");
+            }
+            if (buffer[0] != expectedVersion) {
+                throw new IllegalArgumentException("Unsupported binary event version: " + buffer[0]);
+            }
+            this.buffer = buffer;
+            this.presence = buffer[1] & 0xFF;
+            this.position = 2;
+        }
+
+        String readString() {
+            if (!nextPresent()) {
+                return null;
+            }
+            int length = (int) readVarLong();
+            if (length < 0 || position + length > buffer.length) {
+                throw new IllegalArgumentException("Binary event is truncated");
+            }
+            String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        Long readLong() {
+            return nextPresent() ? zigZagLong() : null;
+        }
+
+        Integer readInt() {
+            return nextPresent() ? (int) zigZagLong() : null;
+        }
+
+        Boolean readBoolean() {
+            if (!nextPresent()) {
+                return null;
+            }
+            return readByte() != 0;
+        }
+
+        LocalDateTime readTimestamp() {
+            if (!nextPresent()) {
+                return null;
+            }
+            long epochSecond = zigZagLong();
+            int nanos = (int) readVarLong();
+            return LocalDateTime.ofEpochSecond(epochSecond, nanos, ZoneOffset.UTC);
+        }
+
+        private boolean nextPresent() {
+            return (presence & (1 << field++)) != 0;
+        }
+
+        private long zigZagLong() {
+            long raw = readVarLong();
+            return (raw >>> 1) ^ -(raw & 1);
+        }
+
+        private long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint in binary event");
+        }
+
+        private byte readByte() {
+            if (position >= buffer.length) {
+                throw new IllegalArgumentException("Binary event is truncated");
+            }
+            return buffer[position++];
+        }
+    }
+
+    /**
+     * Presence bitmap for up to {@value #MAX_FIELDS} fields, in declaration order.
+     */
+    static int presence(Object... fields) {
+        if (fields.length > MAX_FIELDS) {
+            throw new IllegalArgumentException("Binary v1 events hold at most " + MAX_FIELDS + " fields, got " + fields.length);
+        }
+        int bits = 0;
+        for (int i = 0; i < fields.length; i++) {
+            if (fields[i] != null) {
+                bits |= 1 << i;
+            }
+        }
+        return bits;
+    }
+}
@@ -0,0 +1,26 @@
+package com.bookstore.bookservice.event;
+
+import com.bookstore.bookservice.dto.UserEventDTO;
+
+/**
+ * Binary v1 decoder for user events published by user-service. Field order is part of the format
+ * and must match user-service's UserEventCodec: eventType, userId, firstName, lastName, email, active, timestamp.
+ */
+public final class UserEventCodec {
+
+    private UserEventCodec() {
+    }
+
+    public static UserEventDTO decode(byte[] bytes) {
+        EventWireFormat.Reader reader = new EventWireFormat.Reader(bytes, EventWireFormat.VERSION_1);
+        UserEventDTO event = new UserEventDTO();
+        event.setEventType(reader.readString());
+        event.setUserId(reader.readLong());
+        event.setFirstName(reader.readString());
+        event.setLastName(reader.readString());
+        event.setEmail(reader.readString());
+        event.setActive(reader.readBoolean());
+        event.setTimestamp(reader.readTimestamp());
+        return event;
+    }
+}
@@ -0,0 +1,356 @@
+package com.bookstore.bookservice.kafka;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.ApplicationListener;
+import org.springframework.kafka.event.ListenerContainerIdleEvent;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Processes the records of a batch listener on a worker pool instead of the consumer thread, so
+ * parallelism is no longer capped by the partition count. Records with the same key run one at a time
+ * in offset order (records without a key are serialized per partition); different keys run concurrently.
+ *
+ * <p>Records finish out of order, so offsets are committed here, from the consumer thread, and only up to
+ * the lowest record of each partition that has not finished yet. A crash therefore redelivers at most
+ * the records that were in flight. The listener call returns as soon as the batch is dispatched unless
+ * more than max-in-flight records are outstanding, which is what bounds memory and lag.
+ *
+ * <p>Register the processor as the container's rebalance listener: on revocation it waits for the
+ * partition's in-flight records (up to the drain timeout), commits what finished and drops the rest.
+ * Set an idleEventInterval on the container as well: records that finish after the last batch of a
+ * quiet spell are then committed on the next idle event rather than waiting for more records to arrive.
+ */
+public class KeyOrderedParallelProcessor implements ConsumerAwareRebalanceListener,
+        ApplicationListener<ListenerContainerIdleEvent>, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(KeyOrderedParallelProcessor.class);
+
+    private static final long COMMIT_WHILE_WAITING_MS = 1000;
+
+    @FunctionalInterface
+    public interface RecordHandler<K, V> {
+        void handle(ConsumerRecord<K, V> record) throws Exception;
+    }
+
+    private final String name;
+    private final boolean enabled;
+    private final int maxInFlight;
+    private final long retryBackoffMs;
+    private final long drainTimeoutMs;
+    private final ExecutorService workers;
+
+    private final Map<Object, KeyLane> lanes = new ConcurrentHashMap<>();
+    private final Map<TopicPartition, OffsetTracker> trackers = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Object capacity = new Object();
+    private final DistributionSummary keyQueueDepth;
+
+    public KeyOrderedParallelProcessor(String name, boolean enabled, int workerCount, int maxInFlight,
+                                       long retryBackoffMs, long drainTimeoutMs, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.enabled = enabled;
+        this.maxInFlight = maxInFlight;
+        this.retryBackoffMs = retryBackoffMs;
+        this.drainTimeoutMs = drainTimeoutMs;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+            Thread thread = new Thread(runnable, name + "-worker-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Gauge.builder("kafka.consumer.parallel.in-flight", inFlight, AtomicInteger::get)
+                .description("Records dispatched to workers and not yet finished")
+                .tag("listener", name)
+                .register(meterRegistry);
+        Gauge.builder("kafka.consumer.parallel.active-keys", lanes, Map::size)
+                .description("Keys with records queued or running")
+                .tag("listener", name)
+                .register(meterRegistry);
+        this.keyQueueDepth = DistributionSummary.builder("kafka.consumer.parallel.key-queue-depth")
+                .description("Records queued for the same key, sampled as each record is enqueued")
+                .tag("listener", name)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Dispatches the batch to the worker lanes and commits whatever has finished so far.
+     * Must be called on the consumer thread that polled the records.
+     */
+    public <K, V> void process(List<ConsumerRecord<K, V>> records, Consumer<?, ?> consumer,
+                               RecordHandler<K, V> handler) {
+        for (ConsumerRecord<K, V> record : records) {
+            TopicPartition partition = new TopicPartition(record.topic(), record.partition());
+            OffsetTracker tracker = trackers.computeIfAbsent(partition, p -> new OffsetTracker());
+            tracker.dispatched(record.offset());
+            inFlight.incrementAndGet();
+            Object key = record.key() != null ? record.key() : partition;
+            submit(key, () -> run(record, partition, tracker, handler));
+        }
+
+        awaitCapacity(consumer);
+        commit(consumer, consumer.assignment(), false);
+    }
+
+    @Override
+    public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        awaitDrained(partitions);
+        commit(consumer, partitions, true);
+        // Records still queued for these partitions see their tracker gone and are skipped
+        trackers.keySet().removeAll(partitions);
+    }
+
+    /**
+     * Commits whatever finished since the last batch. Idle events are published on the consumer thread.
+     */
+    @Override
+    public void onApplicationEvent(ListenerContainerIdleEvent event) {
+        Consumer<?, ?> consumer = event.getConsumer();
+        if (consumer != null && !trackers.isEmpty()) {
+            // Only partitions this processor tracks are committed, so other containers' idle events are harmless
+            commit(consumer, consumer.assignment(), false);
+        }
+    }
+
+    @Override
+    public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        // Someone else owns them already; committing would fail and could move their offsets
+        trackers.keySet().removeAll(partitions);
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        workers.shutdown();
+        if (!workers.awaitTermination(drainTimeoutMs, TimeUnit.MILLISECONDS)) {
+            // Interrupted records are never marked finished, so they are redelivered
+            workers.shutdownNow();
+        }
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+
+    long committableOffset(TopicPartition partition) {
+        OffsetTracker tracker = trackers.get(partition);
+        return tracker != null ? tracker.committable() : -1;
+    }
+
+    private void submit(Object key, Runnable task) {
+        while (true) {
+            KeyLane lane = lanes.computeIfAbsent(key, KeyLane::new);
+            synchronized (lane) {
+                if (lane.retired) {
+                    // Finished and removed itself between the lookup and the lock; take a fresh lane
+                    continue;
+                }
+                lane.tasks.add(task);
+                keyQueueDepth.record(lane.tasks.size());
+                if (!lane.scheduled) {
+                    lane.scheduled = true;
+                    workers.execute(lane);
+                }
+                return;
+            }
+        }
+    }
+
+    private <K, V> void run(ConsumerRecord<K, V> record, TopicPartition partition, OffsetTracker tracker,
+                            RecordHandler<K, V> handler) {
+        boolean finished = false;
+        try {
+            finished = trackers.get(partition) != tracker || handleWithRetry(record, handler);
+        } finally {
+            if (finished) {
+                tracker.completed(record.offset());
+            }
+            if (inFlight.decrementAndGet() == maxInFlight) {
+                synchronized (capacity) {
+                    capacity.notifyAll();
+                }
+            }
+        }
+    }
+
+    // Retrying in the lane holds back only this key; the offset stays uncommitted until it succeeds
+    private <K, V> boolean handleWithRetry(ConsumerRecord<K, V> record, RecordHandler<K, V> handler) {
+        while (true) {
+            try {
+                handler.handle(record);
+                return true;
+            } catch (Exception e) {
+                logger.warn("Record {}-{}@{} failed on {}, retrying in {} ms", record.topic(), record.partition(),
+                            record.offset(), name, retryBackoffMs, e);
+            }
+            try {
+                Thread.sleep(retryBackoffMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            TopicPartition partition = new TopicPartition(record.topic(), record.partition());
+            if (!trackers.containsKey(partition)) {
+                return false;
+            }
+        }
+    }
+
+    private void awaitCapacity(Consumer<?, ?> consumer) {
+        long lastCommit = System.currentTimeMillis();
+        synchronized (capacity) {
+            while (inFlight.get() > maxInFlight) {
+                try {
+                    capacity.wait(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                // Keep committing progress so a long wait does not turn into a large redelivery
+                if (System.currentTimeMillis() - lastCommit >= COMMIT_WHILE_WAITING_MS) {
+                    commit(consumer, consumer.assignment(), false);
+                    lastCommit = System.currentTimeMillis();
+                }
+            }
+        }
+    }
+
+    private void awaitDrained(Collection<TopicPartition> partitions) {
+        long deadline = System.currentTimeMillis() + drainTimeoutMs;
+        for (TopicPartition partition : partitions) {
+            OffsetTracker tracker = trackers.get(partition);
+            while (tracker != null && tracker.hasPending() && System.currentTimeMillis() < deadline) {
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void commit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions, boolean sync) {
+        Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+        for (TopicPartition partition : partitions) {
+            OffsetTracker tracker = trackers.get(partition);
+            if (tracker != null) {
+                // A revocation commit must go out even if an earlier async commit claimed the same offset
+                long offset = sync ? tracker.committable() : tracker.advance();
+                if (offset >= 0) {
+                    offsets.put(partition, new OffsetAndMetadata(offset));
+                }
+            }
+        }
+        if (offsets.isEmpty()) {
+            return;
+        }
+        if (sync) {
+            consumer.commitSync(offsets);
+        } else {
+            consumer.commitAsync(offsets, (committed, exception) -> {
+                if (exception != null) {
+                    // Covered by the next commit once the partition moves on, or by the one on revocation
+                    logger.warn("Offset commit failed on {}: {}", name, exception.getMessage());
+                }
+            });
+        }
+    }
+
+    /**
+     * Runs the queued records of one key in order. Scheduled on a worker while it has work, removed from
+     * the lane map once empty.
+     */
+    private final class KeyLane implements Runnable {
+
+        private final Object key;
+        private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+        private boolean scheduled;
+        private boolean retired;
+
+        KeyLane(Object key) {
+            this.key = key;
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                Runnable task;
+                synchronized (this) {
+                    task = tasks.poll();
+                    if (task == null) {
+                        scheduled = false;
+                        retired = true;
+                        lanes.remove(key, this);
+                        return;
+                    }
+                }
+                task.run();
+            }
+        }
+    }
+
+    /**
+     * Offsets of one partition that were dispatched but have not finished. Everything below the lowest
+     * of them is done, which makes it the committable offset.
+     */
+    static final class OffsetTracker {
+
+        private final TreeSet<Long> pending = new TreeSet<>();
+        private long next = -1;
+        private long committed = -1;
+
+        synchronized void dispatched(long offset) {
+            pending.add(offset);
+            next = Math.max(next, offset + 1);
+        }
+
+        synchronized void completed(long offset) {
+            pending.remove(offset);
+        }
+
+        synchronized boolean hasPending() {
+            return !pending.isEmpty();
+        }
+
+        synchronized long committable() {
+            return pending.isEmpty() ? next : pending.first();
+        }
+
+        // The committable offset if it moved since the last commit, otherwise -1
+        synchronized long advance() {
+            long offset = committable();
+            if (offset <= committed) {
+                return -1;
+            }
+            committed = offset;
+            return offset;
+        }
+    }
+}
@@ -14,4 +14,6 @@ public interface BookMapper {
     Book toEntity(CreateBookRequestDto createBookRequestDto);
     
     void updateEntityFromDto(UpdateBookRequestDto updateBookRequestDto, Book book);
+
+    void updateEntityFromDto(CreateBookRequestDto createBookRequestDto, Book book);
 }
@@ -128,4 +128,45 @@ public class BookMapperImpl implements BookMapper {
             book.setActive(updateBookRequestDto.getActive());
         }
     }
+
+    @Override
+    public void updateEntityFromDto(CreateBookRequestDto createBookRequestDto, Book book) {
+        if (createBookRequestDto == null || book == null) {
+            return;
+        }
+
+        if (createBookRequestDto.getTitle() != null) {
+            book.setTitle(createBookRequestDto.getTitle());
+        }
+        if (createBookRequestDto.getAuthor() != null) {
+            book.setAuthor(createBookRequestDto.getAuthor());
+        }
+        if (createBookRequestDto.getDescription() != null) {
+            book.setDescription(createBookRequestDto.getDescription());
+        }
+        if (createBookRequestDto.getPrice() != null) {
+            book.setPrice(createBookRequestDto.getPrice());
+        }
+        if (createBookRequestDto.getStockQuantity() != null) {
+            book.setStockQuantity(createBookRequestDto.getStockQuantity());
+        }
+        if (createBookRequestDto.getCategory() != null) {
+            book.setCategory(createBookRequestDto.getCategory());
+        }
+        if (createBookRequestDto.getPublisher() != null) {
+            book.setPublisher(createBookRequestDto.getPublisher());
+        }
+        if (createBookRequestDto.getPublicationYear() != null) {
+            book.setPublicationYear(createBookRequestDto.getPublicationYear());
+        }
+        if (createBookRequestDto.getLanguage() != null) {
+            book.setLanguage(createBookRequestDto.getLanguage());
+        }
+        if (createBookRequestDto.getPages() != null) {
+            book.setPages(createBookRequestDto.getPages());
+        }
+        if (createBookRequestDto.getImageUrl() != null) {
+            book.setImageUrl(createBookRequestDto.getImageUrl());
+        }
+    }
 }
@@ -0,0 +1,94 @@
+package com.bookstore.bookservice.ratelimit;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.util.matcher.IpAddressMatcher;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Identifies the client behind the current request: the authenticated user if there is one, otherwise
+ * the client's address. Calls made outside an HTTP request all get the id "internal".
+ *
+ * <p>Behind a load balancer the remote address is the balancer's, which would put every client in one
+ * bucket. So when the request arrives from one of rate-limiter.trusted-proxies (addresses or CIDR ranges),
+ * the address is taken from X-Forwarded-For instead: the right-most entry that is not itself a trusted
+ * proxy. Entries to the left of it were written by the client and are ignored, as is the header on
+ * requests that did not come through a trusted proxy, so a client cannot pick its own id.
+ */
+@Component
+public class ClientIdResolver {
+
+    static final String FORWARDED_FOR = "X-Forwarded-For";
+
+    // Literal IPv4 or IPv6 addresses only, so matching never resolves a host name from the header
+    private static final Pattern IP_LITERAL = Pattern.compile("\\d{1,3}(\\.\\d{1,3}){3}|[0-9a-fA-F:.]*:[0-9a-fA-F:.]*");
+
+    private final List<IpAddressMatcher> trustedProxies;
+
+    public ClientIdResolver(@Value("${rate-limiter.trusted-proxies:}") List<String> trustedProxies) {
+        this.trustedProxies = trustedProxies.stream()
+                .map(String::trim)
+                .filter(StringUtils::hasText)
+                .map(IpAddressMatcher::new)
+                .toList();
+    }
+
+    public String clientId() {
+        if (!(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes)) {
+            return "internal";
+        }
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated()
+                && !(authentication instanceof AnonymousAuthenticationToken)) {
+            return "user:" + authentication.getName();
+        }
+        return "ip:" + clientAddress(attributes.getRequest());
+    }
+
+    String clientAddress(HttpServletRequest request) {
+        String address = request.getRemoteAddr();
+        if (!isTrustedProxy(address)) {
+            return address;
+        }
+        // Each proxy appends the address it received the request from
+        List<String> hops = Collections.list(request.getHeaders(FORWARDED_FOR)).stream()
+                .flatMap(header -> Arrays.stream(StringUtils.commaDelimitedListToStringArray(header)))
+                .map(String::trim)
+                .filter(StringUtils::hasText)
+                .toList();
+        for (int i = hops.size() - 1; i >= 0; i--) {
+            address = hops.get(i);
+            if (!isTrustedProxy(address)) {
+                break;
+            }
+        }
+        return address;
+    }
+
+    private boolean isTrustedProxy(String address) {
+        if (address == null || !IP_LITERAL.matcher(address).matches()) {
+            return false;
+        }
+        for (IpAddressMatcher proxy : trustedProxies) {
+            try {
+                if (proxy.matches(address)) {
+                    return true;
+                }
+            } catch (IllegalArgumentException e) {
+                return false;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,47 @@
+package com.bookstore.bookservice.ratelimit;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Applies {@link DistributedRateLimiter}. Each client has its own bucket, identified by
+ * {@link ClientIdResolver}.
+ *
+ * <p>Ordered outside the Resilience4j retry and circuit breaker aspects, so a rejected call is
+ * neither retried nor counted as a failure of the service.
+ */
+@Aspect
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 5)
+public class DistributedRateLimiterAspect {
+
+    private final TokenBucketRateLimiter rateLimiter;
+    private final ClientIdResolver clientIdResolver;
+
+    public DistributedRateLimiterAspect(TokenBucketRateLimiter rateLimiter, ClientIdResolver clientIdResolver) {
+        this.rateLimiter = rateLimiter;
+        this.clientIdResolver = clientIdResolver;
+    }
+
+    @Around("@annotation(com.bookstore.bookservice.ratelimit.DistributedRateLimiter) || "
+            + "@within(com.bookstore.bookservice.ratelimit.DistributedRateLimiter)")
+    public Object limit(ProceedingJoinPoint joinPoint) throws Throwable {
+        MethodSignature signature = (MethodSignature) joinPoint.getSignature();
+        DistributedRateLimiter limiter = AnnotatedElementUtils.findMergedAnnotation(
+                signature.getMethod(), DistributedRateLimiter.class);
+        if (limiter == null) {
+            limiter = AnnotatedElementUtils.findMergedAnnotation(
+                    joinPoint.getTarget().getClass(), DistributedRateLimiter.class);
+        }
+        if (limiter != null) {
+            rateLimiter.acquire(limiter.name(), clientIdResolver.clientId());
+        }
+        return joinPoint.proceed();
+    }
+}
@@ -0,0 +1,245 @@
+package com.bookstore.bookservice.ratelimit;
+
+import com.bookstore.bookservice.exception.RateLimitExceededException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token buckets in Redis, one per limiter name and client, shared by every node. A node does not spend
+ * a round trip per call: it takes a block of up to lease-size tokens from the bucket at once and hands
+ * them out locally, going back to Redis only when its block runs out. Tokens leave the bucket when they
+ * are leased, so the cluster never admits more than the bucket allows; a block not used within
+ * rate-limiter.lease-ttl-ms is dropped, which errs on the strict side. An empty bucket's answer (retry
+ * in n ms) is also remembered locally, so a client hammering a limit it has hit costs no round trips.
+ *
+ * <p>The bucket refills continuously at refill-per-second up to capacity, using the Redis clock so that
+ * node clocks do not matter. If Redis is unavailable each node enforces the limit on its own, one lease
+ * period at a time, rather than failing or admitting everything.
+ *
+ * <p>Metrics: rate-limiter.requests (tagged name and outcome permitted or rejected) and rate-limiter.leases
+ * (tagged name and outcome granted, exhausted or unavailable), which counts the round trips to Redis.
+ */
+@Component
+public class TokenBucketRateLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenBucketRateLimiter.class);
+
+    // Refills the bucket for the time since it was last touched, then grants up to ARGV[3] tokens.
+    // Returns {granted, ms until the next token when none were granted}.
+    private static final RedisScript<List> LEASE = new DefaultRedisScript<>(
+            "local capacity = tonumber(ARGV[1]) " +
+            "local perMs = tonumber(ARGV[2]) " +
+            "local time = redis.call('time') " +
+            "local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000) " +
+            "local bucket = redis.call('hmget', KEYS[1], 'tokens', 'ts') " +
+            "local tokens = tonumber(bucket[1]) or capacity " +
+            "local ts = tonumber(bucket[2]) or now " +
+            "tokens = math.min(capacity, tokens + math.max(0, now - ts) * perMs) " +
+            "local granted = math.min(tonumber(ARGV[3]), math.floor(tokens)) " +
+            "tokens = tokens - granted " +
+            "redis.call('hset', KEYS[1], 'tokens', tostring(tokens), 'ts', now) " +
+            "redis.call('pexpire', KEYS[1], math.ceil(capacity / perMs) + 1000) " +
+            "if granted > 0 then return {granted, 0} end " +
+            "return {0, math.ceil((1 - tokens) / perMs)}",
+            List.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final Environment environment;
+    private final MeterRegistry meterRegistry;
+    private final long leaseTtlNanos;
+    private final Cache<String, Lease> leases;
+    private final Map<String, Limits> limits = new ConcurrentHashMap<>();
+
+    @Value("${rate-limiter.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${rate-limiter.key-prefix:book-service:rate-limiter:}")
+    private String keyPrefix = "book-service:rate-limiter:";
+
+    @Autowired
+    public TokenBucketRateLimiter(StringRedisTemplate redisTemplate, Environment environment, MeterRegistry meterRegistry,
+                                  @Value("${rate-limiter.lease-ttl-ms:1000}") long leaseTtlMs,
+                                  @Value("${rate-limiter.max-clients:100000}") long maxClients) {
+        this.redisTemplate = redisTemplate;
+        this.environment = environment;
+        this.meterRegistry = meterRegistry;
+        this.leaseTtlNanos = Duration.ofMillis(leaseTtlMs).toNanos();
+        this.leases = Caffeine.newBuilder()
+                .maximumSize(maxClients)
+                .expireAfterAccess(Duration.ofMillis(leaseTtlMs).multipliedBy(10))
+                .build();
+    }
+
+    /**
+     * Takes one permit for the client from the named bucket.
+     *
+     * @throws RateLimitExceededException if the bucket is empty
+     */
+    public void acquire(String name, String clientId) {
+        if (!enabled) {
+            return;
+        }
+        Limits instance = limits.computeIfAbsent(name, this::loadLimits);
+        String bucketKey = name + ":" + clientId;
+        Lease lease = leases.get(bucketKey, key -> new Lease(System.nanoTime()));
+
+        long now = System.nanoTime();
+        if (lease.tryTake(now)) {
+            instance.permitted.increment();
+            return;
+        }
+        long deniedFor = lease.deniedUntil - now;
+        if (deniedFor > 0) {
+            throw reject(instance, name, deniedFor);
+        }
+        // One lease request per bucket at a time; the others wait for it and share the block
+        synchronized (lease) {
+            now = System.nanoTime();
+            if (lease.tryTake(now)) {
+                instance.permitted.increment();
+                return;
+            }
+            deniedFor = lease.deniedUntil - now;
+            if (deniedFor > 0) {
+                throw reject(instance, name, deniedFor);
+            }
+            long retryAfterMs = renew(instance, bucketKey, lease, now);
+            if (retryAfterMs > 0) {
+                throw reject(instance, name, Duration.ofMillis(retryAfterMs).toNanos());
+            }
+        }
+        instance.permitted.increment();
+    }
+
+    // Takes a block from Redis, keeping one permit for the caller; returns 0, or how long the bucket stays empty
+    private long renew(Limits instance, String bucketKey, Lease lease, long now) {
+        List<?> result;
+        try {
+            result = redisTemplate.execute(LEASE, List.of(keyPrefix + bucketKey),
+                    String.valueOf(instance.capacity), String.valueOf(instance.refillPerSecond / 1000.0),
+                    String.valueOf(instance.leaseSize));
+        } catch (RuntimeException e) {
+            logger.warn("Rate limiter store unavailable, limiting {} locally: {}", bucketKey, e.getMessage());
+            result = null;
+        }
+        if (result == null || result.size() < 2) {
+            // Enforce the limit on this node alone until the period ends, then try Redis again
+            instance.unavailable.increment();
+            long localPermits = Math.max(1, Math.min(instance.capacity,
+                    (long) (instance.refillPerSecond * leaseTtlNanos / 1_000_000_000.0)));
+            lease.grant(localPermits - 1, now, now + leaseTtlNanos);
+            lease.deniedUntil = now + leaseTtlNanos;
+            return 0;
+        }
+
+        long granted = ((Number) result.get(0)).longValue();
+        if (granted > 0) {
+            instance.granted.increment();
+            lease.grant(granted - 1, now, now + leaseTtlNanos);
+            return 0;
+        }
+        instance.exhausted.increment();
+        long retryAfterMs = Math.max(1, ((Number) result.get(1)).longValue());
+        lease.deniedUntil = now + Duration.ofMillis(retryAfterMs).toNanos();
+        return retryAfterMs;
+    }
+
+    private RateLimitExceededException reject(Limits instance, String name, long retryAfterNanos) {
+        instance.rejected.increment();
+        return new RateLimitExceededException("Rate limit exceeded for " + name + ", please retry later",
+                Math.max(1, Duration.ofNanos(retryAfterNanos).toMillis()));
+    }
+
+    private Limits loadLimits(String name) {
+        String prefix = "rate-limiter.instances." + name + ".";
+        long capacity = environment.getProperty(prefix + "capacity", Long.class, 100L);
+        double refillPerSecond = environment.getProperty(prefix + "refill-per-second", Double.class, (double) capacity);
+        long leaseSize = environment.getProperty(prefix + "lease-size", Long.class, 10L);
+        if (capacity < 1 || refillPerSecond <= 0 || leaseSize < 1) {
+            throw new IllegalStateException("Invalid rate limiter configuration for " + name);
+        }
+        logger.info("Rate limiter {}: capacity {}, {} per second, leased {} at a time",
+                   name, capacity, refillPerSecond, Math.min(leaseSize, capacity));
+        return new Limits(capacity, refillPerSecond, Math.min(leaseSize, capacity), meterRegistry, name);
+    }
+
+    private static final class Limits {
+        final long capacity;
+        final double refillPerSecond;
+        final long leaseSize;
+        final Counter permitted;
+        final Counter rejected;
+        final Counter granted;
+        final Counter exhausted;
+        final Counter unavailable;
+
+        Limits(long capacity, double refillPerSecond, long leaseSize, MeterRegistry meterRegistry, String name) {
+            this.capacity = capacity;
+            this.refillPerSecond = refillPerSecond;
+            this.leaseSize = leaseSize;
+            this.permitted = counter(meterRegistry, "rate-limiter.requests", "Rate-limited calls by outcome", name, "permitted");
+            this.rejected = counter(meterRegistry, "rate-limiter.requests", "Rate-limited calls by outcome", name, "rejected");
+            this.granted = counter(meterRegistry, "rate-limiter.leases", "Permit blocks requested from Redis by outcome", name, "granted");
+            this.exhausted = counter(meterRegistry, "rate-limiter.leases", "Permit blocks requested from Redis by outcome", name, "exhausted");
+            this.unavailable = counter(meterRegistry, "rate-limiter.leases", "Permit blocks requested from Redis by outcome", name, "unavailable");
+        }
+
+        private static Counter counter(MeterRegistry meterRegistry, String meter, String description, String name, String outcome) {
+            return Counter.builder(meter)
+                    .description(description)
+                    .tag("name", name)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry);
+        }
+    }
+
+    // This node's unspent block of one bucket
+    private static final class Lease {
+        private final AtomicLong permits = new AtomicLong();
+        // System.nanoTime() values, which may be negative, so only ever compared by subtraction
+        private volatile long expiresAt;
+        private volatile long deniedUntil;
+
+        Lease(long now) {
+            this.expiresAt = now;
+            this.deniedUntil = now;
+        }
+
+        boolean tryTake(long now) {
+            if (now - expiresAt >= 0) {
+                return false;
+            }
+            long available;
+            do {
+                available = permits.get();
+                if (available <= 0) {
+                    return false;
+                }
+            } while (!permits.compareAndSet(available, available - 1));
+            return true;
+        }
+
+        void grant(long remaining, long now, long expiresAt) {
+            permits.set(remaining);
+            this.expiresAt = expiresAt;
+            this.deniedUntil = now;
+        }
+    }
+}
@@ -1,24 +1,48 @@
 package com.bookstore.bookservice.repository;
 
+import com.bookstore.bookservice.dto.BookDto;
 import com.bookstore.bookservice.entity.Book;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface BookRepository extends JpaRepository<Book, Long> {
+public interface BookRepository extends JpaRepository<Book, Long>, JpaSpecificationExecutor<Book>, BookRepositoryCustom {
+
+    // Selects exactly the BookDto columns, for read paths that never need a managed entity
+    String SELECT_BOOK_DTO = "SELECT new com.bookstore.bookservice.dto.BookDto(b.id, b.title, b.author, b.isbn, " +
+           "b.description, b.price, b.stockQuantity, b.category, b.publisher, b.publicationYear, b.language, " +
+           "b.pages, b.imageUrl, b.active, b.createdAt, b.updatedAt) FROM Book b ";
+
+    // Optional filters shared by the entity and DTO filter queries; null parameters match everything
+    String BOOK_FILTERS = "(:title IS NULL OR LOWER(b.title) LIKE LOWER(CONCAT('%', :title, '%'))) AND " +
+           "(:author IS NULL OR LOWER(b.author) LIKE LOWER(CONCAT('%', :author, '%'))) AND " +
+           "(:category IS NULL OR b.category = :category) AND " +
+           "(:minPrice IS NULL OR b.price >= :minPrice) AND " +
+           "(:maxPrice IS NULL OR b.price <= :maxPrice) AND " +
+           "b.active = true";
 
     // Find by ISBN
     Optional<Book> findByIsbn(String isbn);
 
+    // ISBN only, for cache invalidation on bulk-update paths that never load the entity
+    @Query("SELECT b.isbn FROM Book b WHERE b.id = :bookId")
+    Optional<String> findIsbnById(@Param("bookId") Long bookId);
+
     // Find by title (case-insensitive)
     List<Book> findByTitleContainingIgnoreCase(String title);
 
@@ -59,9 +83,13 @@ public interface BookRepository extends JpaRepository<Book, Long> {
     @Query("SELECT b FROM Book b WHERE b.stockQuantity < :threshold AND b.active = true")
     List<Book> findBooksWithLowStock(@Param("threshold") Integer threshold);
 
-    // Update stock quantity
-    @Modifying
-    @Query("UPDATE Book b SET b.stockQuantity = b.stockQuantity + :quantity WHERE b.id = :bookId")
+    // Update stock quantity in one statement; the guard rejects a decrease that would take stock below zero,
+    // while a restock always applies, even to a book whose stock is already negative.
+    // Bumps the version so concurrent read-modify-write updates of the same book still fail their optimistic check.
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Book b SET b.stockQuantity = b.stockQuantity + :quantity, " +
+           "b.version = b.version + 1, b.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE b.id = :bookId AND (:quantity >= 0 OR b.stockQuantity + :quantity >= 0)")
     int updateStockQuantity(@Param("bookId") Long bookId, @Param("quantity") Integer quantity);
 
     // Find books by multiple categories
@@ -82,13 +110,7 @@ public interface BookRepository extends JpaRepository<Book, Long> {
     List<Book> findRecentBooks(Pageable pageable);
 
     // Custom query for complex search with pagination
-    @Query("SELECT b FROM Book b WHERE " +
-           "(:title IS NULL OR LOWER(b.title) LIKE LOWER(CONCAT('%', :title, '%'))) AND " +
-           "(:author IS NULL OR LOWER(b.author) LIKE LOWER(CONCAT('%', :author, '%'))) AND " +
-           "(:category IS NULL OR b.category = :category) AND " +
-           "(:minPrice IS NULL OR b.price >= :minPrice) AND " +
-           "(:maxPrice IS NULL OR b.price <= :maxPrice) AND " +
-           "b.active = true")
+    @Query("SELECT b FROM Book b WHERE " + BOOK_FILTERS)
     Page<Book> findBooksWithFilters(
         @Param("title") String title,
         @Param("author") String author,
@@ -98,19 +120,110 @@ public interface BookRepository extends JpaRepository<Book, Long> {
         Pageable pageable
     );
 
+    // Forward-only cursor for the catalogue export. A fetch size of Integer.MIN_VALUE makes MySQL
+    // Connector/J stream rows one at a time instead of buffering the whole result set; must be
+    // consumed inside a transaction and closed.
+    @QueryHints({
+        @QueryHint(name = "org.hibernate.fetchSize", value = "" + Integer.MIN_VALUE),
+        @QueryHint(name = "org.hibernate.readOnly", value = "true")
+    })
+    @Query("SELECT b FROM Book b WHERE " +
+           "(:active IS NULL OR b.active = :active) AND " +
+           "(:updatedSince IS NULL OR b.updatedAt >= :updatedSince) " +
+           "ORDER BY b.id")
+    Stream<Book> streamForExport(@Param("active") Boolean active, @Param("updatedSince") LocalDateTime updatedSince);
+
+    // Every ISBN, streamed like the export cursor above, to build the IsbnFilter
+    @QueryHints({
+        @QueryHint(name = "org.hibernate.fetchSize", value = "" + Integer.MIN_VALUE),
+        @QueryHint(name = "org.hibernate.readOnly", value = "true")
+    })
+    @Query("SELECT b.isbn FROM Book b")
+    Stream<String> streamAllIsbns();
+
+    // Per-category inventory counters in one scan, used to seed InventoryStatistics at startup
+    @Query("SELECT b.category AS category, " +
+           "SUM(CASE WHEN b.active = true THEN 1 ELSE 0 END) AS titles, " +
+           "SUM(CASE WHEN b.active = true THEN b.stockQuantity ELSE 0 END) AS units, " +
+           "SUM(CASE WHEN b.active = true AND b.stockQuantity < :threshold THEN 1 ELSE 0 END) AS lowStock, " +
+           "SUM(CASE WHEN b.stockQuantity < 0 THEN 1 ELSE 0 END) AS negativeStock " +
+           "FROM Book b GROUP BY b.category")
+    List<CategoryInventory> aggregateInventoryByCategory(@Param("threshold") int threshold);
+
     // Check if ISBN exists
     boolean existsByIsbn(String isbn);
 
+    // One lookup for a whole import chunk
+    List<Book> findByIsbnIn(Collection<String> isbns);
+
     // Find books by publisher
     List<Book> findByPublisherContainingIgnoreCase(String publisher);
 
-    // Soft delete (mark as inactive)
-    @Modifying
-    @Query("UPDATE Book b SET b.active = false WHERE b.id = :bookId")
+    // Soft delete (mark as inactive); matches only an active book so callers can tell a real transition
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Book b SET b.active = false WHERE b.id = :bookId AND b.active = true")
     int softDeleteBook(@Param("bookId") Long bookId);
 
-    // Reactivate book
-    @Modifying
-    @Query("UPDATE Book b SET b.active = true WHERE b.id = :bookId")
+    // Reactivate book; matches only an inactive book so callers can tell a real transition
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Book b SET b.active = true WHERE b.id = :bookId AND (b.active = false OR b.active IS NULL)")
     int reactivateBook(@Param("bookId") Long bookId);
+
+    // DTO projections of the list queries above: no entity hydration, persistence context or mapping
+    @Query(SELECT_BOOK_DTO + "WHERE b.active = true")
+    List<BookDto> findActiveBookDtos();
+
+    @Query(value = SELECT_BOOK_DTO, countQuery = "SELECT COUNT(b) FROM Book b")
+    Page<BookDto> findAllBookDtos(Pageable pageable);
+
+    @Query(SELECT_BOOK_DTO + "WHERE b.id IN :ids")
+    List<BookDto> findBookDtosByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query(SELECT_BOOK_DTO + "WHERE b.isbn IN :isbns")
+    List<BookDto> findBookDtosByIsbnIn(@Param("isbns") Collection<String> isbns);
+
+    @Query(SELECT_BOOK_DTO + "WHERE b.id IN :ids OR b.isbn IN :isbns")
+    List<BookDto> findBookDtosByIdInOrIsbnIn(@Param("ids") Collection<Long> ids, @Param("isbns") Collection<String> isbns);
+
+    // Wildcards in the argument are escaped, as in the derived ContainingIgnoreCase queries
+    @Query(SELECT_BOOK_DTO + "WHERE UPPER(b.title) LIKE UPPER(CONCAT('%', ?#{escape([0])}, '%')) ESCAPE ?#{escapeCharacter()}")
+    List<BookDto> findBookDtosByTitleContaining(String title);
+
+    @Query(SELECT_BOOK_DTO + "WHERE UPPER(b.author) LIKE UPPER(CONCAT('%', ?#{escape([0])}, '%')) ESCAPE ?#{escapeCharacter()}")
+    List<BookDto> findBookDtosByAuthorContaining(String author);
+
+    @Query(SELECT_BOOK_DTO + "WHERE UPPER(b.category) = UPPER(:category)")
+    List<BookDto> findBookDtosByCategoryIgnoreCase(@Param("category") String category);
+
+    @Query(SELECT_BOOK_DTO + "WHERE b.active = true AND b.stockQuantity > 0")
+    List<BookDto> findAvailableBookDtos();
+
+    @Query(SELECT_BOOK_DTO + "WHERE b.price BETWEEN :minPrice AND :maxPrice")
+    List<BookDto> findBookDtosByPriceBetween(@Param("minPrice") BigDecimal minPrice, @Param("maxPrice") BigDecimal maxPrice);
+
+    @Query(SELECT_BOOK_DTO + "WHERE b.stockQuantity < :threshold AND b.active = true")
+    List<BookDto> findBookDtosWithLowStock(@Param("threshold") Integer threshold);
+
+    @Query(SELECT_BOOK_DTO + "WHERE b.active = true ORDER BY b.createdAt DESC")
+    List<BookDto> findRecentBookDtos(Pageable pageable);
+
+    @Query(value = SELECT_BOOK_DTO + "WHERE " +
+                   "LOWER(b.title) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
+                   "LOWER(b.author) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
+                   "LOWER(b.description) LIKE LOWER(CONCAT('%', :searchTerm, '%'))",
+           countQuery = "SELECT COUNT(b) FROM Book b WHERE " +
+                   "LOWER(b.title) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
+                   "LOWER(b.author) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
+                   "LOWER(b.description) LIKE LOWER(CONCAT('%', :searchTerm, '%'))")
+    Page<BookDto> searchBookDtos(@Param("searchTerm") String searchTerm, Pageable pageable);
+
+    @Query(value = SELECT_BOOK_DTO + "WHERE " + BOOK_FILTERS, countQuery = "SELECT COUNT(b) FROM Book b WHERE " + BOOK_FILTERS)
+    Page<BookDto> findBookDtosWithFilters(
+        @Param("title") String title,
+        @Param("author") String author,
+        @Param("category") String category,
+        @Param("minPrice") BigDecimal minPrice,
+        @Param("maxPrice") BigDecimal maxPrice,
+        Pageable pageable
+    );
 }
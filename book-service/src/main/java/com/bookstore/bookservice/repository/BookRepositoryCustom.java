@@ -0,0 +1,9 @@
+package com.bookstore.bookservice.repository;
+
+import java.util.Map;
+
+public interface BookRepositoryCustom {
+
+    // Apply per-book stock deltas in a single guarded UPDATE; returns the number of books changed
+    int updateStockQuantities(Map<Long, Integer> quantitiesByBookId);
+}
@@ -0,0 +1,52 @@
+package com.bookstore.bookservice.repository;
+
+import com.bookstore.bookservice.entity.Book;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Root;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+public class BookRepositoryCustomImpl implements BookRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Renders UPDATE books SET stock_quantity = stock_quantity + CASE id WHEN ? THEN ? ... END
+     * WHERE id IN (...) AND (CASE ... END >= 0 OR stock_quantity + CASE ... END >= 0), so every row is
+     * changed by one statement and a row whose decrease would take stock negative is left untouched;
+     * restocks always apply. Callers compare the returned count with the number of books to detect rejections.
+     */
+    @Override
+    public int updateStockQuantities(Map<Long, Integer> quantitiesByBookId) {
+        if (quantitiesByBookId.isEmpty()) {
+            return 0;
+        }
+        entityManager.flush();
+
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<Book> update = cb.createCriteriaUpdate(Book.class);
+        Root<Book> book = update.from(Book.class);
+
+        CriteriaBuilder.SimpleCase<Long, Integer> delta = cb.selectCase(book.<Long>get("id"));
+        quantitiesByBookId.forEach(delta::when);
+        Expression<Integer> quantity = delta.otherwise(0);
+        Expression<Integer> newStock = cb.sum(book.<Integer>get("stockQuantity"), quantity);
+
+        update.set(book.<Integer>get("stockQuantity"), newStock)
+                .set(book.<Long>get("version"), cb.sum(book.<Long>get("version"), 1L))
+                .set(book.<LocalDateTime>get("updatedAt"), LocalDateTime.now())
+                .where(book.get("id").in(quantitiesByBookId.keySet()),
+                       cb.or(cb.ge(quantity, 0), cb.ge(newStock, 0)));
+
+        int updated = entityManager.createQuery(update).executeUpdate();
+        // Managed copies of these books are now stale
+        entityManager.clear();
+        return updated;
+    }
+}
@@ -0,0 +1,40 @@
+package com.bookstore.bookservice.repository;
+
+import com.bookstore.bookservice.entity.Book;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+public final class BookSpecifications {
+
+    private BookSpecifications() {
+    }
+
+    // Same criteria as BookRepository.findBooksWithFilters, for use with keyset scrolling
+    public static Specification<Book> withFilters(String title, String author, String category,
+                                                  BigDecimal minPrice, BigDecimal maxPrice) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (title != null) {
+                predicates.add(cb.like(cb.lower(root.get("title")), "%" + title.toLowerCase() + "%"));
+            }
+            if (author != null) {
+                predicates.add(cb.like(cb.lower(root.get("author")), "%" + author.toLowerCase() + "%"));
+            }
+            if (category != null) {
+                predicates.add(cb.equal(root.get("category"), category));
+            }
+            if (minPrice != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.<BigDecimal>get("price"), minPrice));
+            }
+            if (maxPrice != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.<BigDecimal>get("price"), maxPrice));
+            }
+            predicates.add(cb.isTrue(root.get("active")));
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+}
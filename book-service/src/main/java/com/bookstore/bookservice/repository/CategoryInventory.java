@@ -0,0 +1,18 @@
+package com.bookstore.bookservice.repository;
+
+/**
+ * One row of the per-category inventory aggregate. Titles, units and low stock count active books
+ * only; negative stock counts every book, since it is a data problem whether or not the book is listed.
+ */
+public interface CategoryInventory {
+
+    String getCategory();
+
+    Long getTitles();
+
+    Long getUnits();
+
+    Long getLowStock();
+
+    Long getNegativeStock();
+}
@@ -1,6 +1,7 @@
 package com.bookstore.bookservice.service;
 
 import com.bookstore.bookservice.dto.BookDto;
+import com.bookstore.bookservice.dto.InventoryStatsDto;
 import com.bookstore.bookservice.entity.Book;
 import com.bookstore.bookservice.repository.BookRepository;
 import com.bookstore.bookservice.mapper.BookMapper;
@@ -13,7 +14,10 @@ import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
@@ -25,6 +29,8 @@ public class BatchProcessingService {
     private final BookRepository bookRepository;
     private final BookMapper bookMapper;
     private final KafkaProducerService kafkaProducerService;
+    private final InventoryStatistics inventoryStatistics;
+    private final IsbnFilter isbnFilter;
 
     @Value("${batch.chunk-size:1000}")
     private int chunkSize;
@@ -35,10 +41,14 @@ public class BatchProcessingService {
     @Autowired
     public BatchProcessingService(BookRepository bookRepository, 
                                  BookMapper bookMapper,
-                                 KafkaProducerService kafkaProducerService) {
+                                 KafkaProducerService kafkaProducerService,
+                                 InventoryStatistics inventoryStatistics,
+                                 IsbnFilter isbnFilter) {
         this.bookRepository = bookRepository;
         this.bookMapper = bookMapper;
         this.kafkaProducerService = kafkaProducerService;
+        this.inventoryStatistics = inventoryStatistics;
+        this.isbnFilter = isbnFilter;
     }
 
     @Async("batchTaskExecutor")
@@ -90,7 +100,26 @@ public class BatchProcessingService {
         logger.info("Starting bulk update for {} books", books.size());
         
         try {
+            // Current rows, for the inventory counters; merging into them below needs no further selects
+            Map<Long, InventoryStatistics.BookState> previousStates = new HashMap<>();
+            Map<Long, String> previousIsbns = new HashMap<>();
+            bookRepository.findAllById(books.stream().map(Book::getId).filter(Objects::nonNull).toList())
+                    .forEach(book -> {
+                        previousStates.put(book.getId(), InventoryStatistics.stateOf(book));
+                        previousIsbns.put(book.getId(), book.getIsbn());
+                    });
+
             List<Book> updatedBooks = bookRepository.saveAll(books);
+            updatedBooks.forEach(book -> {
+                InventoryStatistics.BookState previousState = previousStates.get(book.getId());
+                if (previousState != null) {
+                    inventoryStatistics.bookChangedAfterCommit(previousState, book);
+                    isbnFilter.isbnChangedAfterCommit(previousIsbns.get(book.getId()), book.getIsbn());
+                } else {
+                    inventoryStatistics.bookCreatedAfterCommit(book);
+                    isbnFilter.bookCreatedAfterCommit(book);
+                }
+            });
             
             List<BookDto> result = updatedBooks.stream()
                     .map(bookMapper::toDto)
@@ -106,21 +135,15 @@ public class BatchProcessingService {
     }
 
     @Async("batchTaskExecutor")
-    @Transactional(readOnly = true)
     public CompletableFuture<Void> generateInventoryReport() {
         logger.info("Starting inventory report generation");
         
         try {
-            List<Book> allBooks = bookRepository.findByActiveTrue();
-            
-            long totalBooks = allBooks.size();
-            long booksInStock = allBooks.stream()
-                    .mapToLong(Book::getStockQuantity)
-                    .sum();
-            long lowStockBooks = bookRepository.findBooksWithLowStock(10).size();
+            // Maintained counters; no table scan
+            InventoryStatsDto stats = inventoryStatistics.getStats();
             
             logger.info("Inventory Report - Total Books: {}, Total Stock: {}, Low Stock Books: {}", 
-                       totalBooks, booksInStock, lowStockBooks);
+                       stats.getTitles(), stats.getUnits(), stats.getLowStock());
             
             // Here you could:
             // - Send the report via email
@@ -149,36 +172,6 @@ public class BatchProcessingService {
         generateInventoryReport();
     }
 
-    @Scheduled(fixedRate = 1800000) // Every 30 minutes
-    public void scheduledCacheWarmup() {
-        logger.info("Running scheduled cache warmup");
-        warmupCache();
-    }
-
-    @Async("taskExecutor")
-    @Transactional(readOnly = true)
-    public CompletableFuture<Void> warmupCache() {
-        logger.info("Starting cache warmup");
-        
-        try {
-            // Warmup frequently accessed data
-            bookRepository.findAvailableBooks();
-            bookRepository.findRecentBooks(org.springframework.data.domain.PageRequest.of(0, 20));
-            
-            // Warmup popular categories
-            String[] popularCategories = {"Fiction", "Technology", "Science Fiction", "Biography"};
-            for (String category : popularCategories) {
-                bookRepository.findByCategoryIgnoreCase(category);
-            }
-            
-            logger.info("Cache warmup completed");
-        } catch (Exception e) {
-            logger.error("Error during cache warmup", e);
-        }
-        
-        return CompletableFuture.completedFuture(null);
-    }
-
     @Scheduled(fixedRate = 7200000) // Every 2 hours
     public void scheduledHealthCheck() {
         logger.info("Running scheduled health check");
@@ -195,12 +188,10 @@ public class BatchProcessingService {
             logger.info("Health check - Database connectivity OK, total books: {}", bookCount);
             
             // Check for data integrity issues
-            List<Book> booksWithNegativeStock = bookRepository.findAll().stream()
-                    .filter(book -> book.getStockQuantity() < 0)
-                    .collect(Collectors.toList());
+            long booksWithNegativeStock = inventoryStatistics.getStats().getNegativeStock();
             
-            if (!booksWithNegativeStock.isEmpty()) {
-                logger.warn("Health check - Found {} books with negative stock", booksWithNegativeStock.size());
+            if (booksWithNegativeStock > 0) {
+                logger.warn("Health check - Found {} books with negative stock", booksWithNegativeStock);
             }
             
             logger.info("Health check completed");
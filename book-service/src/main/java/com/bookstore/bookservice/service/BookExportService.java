@@ -0,0 +1,79 @@
+package com.bookstore.bookservice.service;
+
+import com.bookstore.bookservice.dto.BookDto;
+import com.bookstore.bookservice.entity.Book;
+import com.bookstore.bookservice.mapper.BookMapper;
+import com.bookstore.bookservice.repository.BookRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes the catalogue as NDJSON, one BookDto per line, straight from a forward-only database cursor.
+ * Every batch.chunk-size rows the output is flushed and the persistence context cleared, so memory
+ * depends on the chunk size, not the catalogue size.
+ */
+@Service
+public class BookExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookExportService.class);
+
+    private final BookRepository bookRepository;
+    private final BookMapper bookMapper;
+    private final EntityManager entityManager;
+    private final ObjectWriter bookWriter;
+
+    @Value("${batch.chunk-size:1000}")
+    private int chunkSize = 1000;
+
+    @Autowired
+    public BookExportService(BookRepository bookRepository, BookMapper bookMapper,
+                             ObjectMapper objectMapper, EntityManager entityManager) {
+        this.bookRepository = bookRepository;
+        this.bookMapper = bookMapper;
+        this.entityManager = entityManager;
+        // Flushing is done per chunk below, not after every row
+        this.bookWriter = objectMapper.writerFor(BookDto.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /**
+     * Streams books matching the optional filters, ordered by id, and returns how many were written.
+     * Does not close the output stream.
+     */
+    @Transactional(readOnly = true)
+    public long exportNdjson(Boolean active, LocalDateTime updatedSince, OutputStream out) throws IOException {
+        long written = 0;
+        try (Stream<Book> books = bookRepository.streamForExport(active, updatedSince);
+             JsonGenerator generator = bookWriter.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+
+            Iterator<Book> iterator = books.iterator();
+            while (iterator.hasNext()) {
+                bookWriter.writeValue(generator, bookMapper.toDto(iterator.next()));
+                generator.writeRaw('\n');
+                if (++written % chunkSize == 0) {
+                    generator.flush();
+                    entityManager.clear();
+                }
+            }
+            generator.flush();
+        }
+        logger.info("Book export finished: {} rows (active: {}, updated since: {})", written, active, updatedSince);
+        return written;
+    }
+}
@@ -0,0 +1,306 @@
+package com.bookstore.bookservice.service;
+
+import com.bookstore.bookservice.cache.BookCacheInvalidator;
+import com.bookstore.bookservice.dto.BookImportResultDto;
+import com.bookstore.bookservice.dto.CreateBookRequestDto;
+import com.bookstore.bookservice.entity.Book;
+import com.bookstore.bookservice.event.BookEvent;
+import com.bookstore.bookservice.mapper.BookMapper;
+import com.bookstore.bookservice.repository.BookRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Streams a CSV or NDJSON body into the catalogue without holding it in memory: rows are parsed one
+ * at a time, validated, and upserted by ISBN in chunks of batch.chunk-size, each chunk in its own
+ * transaction with one ISBN lookup, one flush and one outbox write for its events. The persistence
+ * context is cleared after every chunk, so memory depends on the chunk size, not the file size.
+ *
+ * <p>Bad rows are reported and skipped. If a chunk fails as a whole it is retried row by row, so one
+ * conflicting row only rejects itself. A CSV body that stops being parseable ends the import there;
+ * chunks written before that point stay committed.
+ */
+@Service
+public class BookImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookImportService.class);
+
+    public static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+
+    private final BookRepository bookRepository;
+    private final BookMapper bookMapper;
+    private final KafkaProducerService kafkaProducerService;
+    private final BookSearchIndex bookSearchIndex;
+    private final BookSubstringIndex bookSubstringIndex;
+    private final BookCacheInvalidator bookCacheInvalidator;
+    private final InventoryStatistics inventoryStatistics;
+    private final IsbnFilter isbnFilter;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final CsvMapper csvMapper = new CsvMapper();
+
+    @Value("${batch.chunk-size:1000}")
+    private int chunkSize = 1000;
+
+    @Value("${batch.import.max-reported-errors:1000}")
+    private int maxReportedErrors = 1000;
+
+    @Autowired
+    public BookImportService(BookRepository bookRepository, BookMapper bookMapper,
+                             KafkaProducerService kafkaProducerService, BookSearchIndex bookSearchIndex,
+                             BookSubstringIndex bookSubstringIndex, BookCacheInvalidator bookCacheInvalidator,
+                             InventoryStatistics inventoryStatistics, IsbnFilter isbnFilter, Validator validator, ObjectMapper objectMapper, EntityManager entityManager,
+                             PlatformTransactionManager transactionManager) {
+        this.bookRepository = bookRepository;
+        this.bookMapper = bookMapper;
+        this.kafkaProducerService = kafkaProducerService;
+        this.bookSearchIndex = bookSearchIndex;
+        this.bookSubstringIndex = bookSubstringIndex;
+        this.bookCacheInvalidator = bookCacheInvalidator;
+        this.inventoryStatistics = inventoryStatistics;
+        this.isbnFilter = isbnFilter;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * CSV with a header row naming CreateBookRequestDto properties (title, author, isbn, price, ...).
+     * Blank cells count as absent; unknown columns are ignored.
+     */
+    public BookImportResultDto importCsv(InputStream body) throws IOException {
+        CsvSchema schema = CsvSchema.emptySchema().withHeader();
+        try (MappingIterator<Map<String, String>> rows = csvMapper.readerFor(Map.class).with(schema)
+                .readValues(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            return importRows(() -> {
+                try {
+                    if (!rows.hasNextValue()) {
+                        return null;
+                    }
+                    Map<String, String> cells = rows.nextValue();
+                    cells.values().removeIf(value -> value == null || value.isBlank());
+                    return cells;
+                } catch (JsonProcessingException e) {
+                    throw new IOException("Malformed CSV: " + e.getOriginalMessage(), e);
+                }
+            }, cells -> objectMapper.convertValue(cells, CreateBookRequestDto.class));
+        }
+    }
+
+    // One JSON object per line; blank lines are skipped
+    public BookImportResultDto importNdjson(InputStream body) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            return importRows(() -> {
+                String line;
+                do {
+                    line = reader.readLine();
+                } while (line != null && line.isBlank());
+                return line;
+            }, line -> {
+                try {
+                    return objectMapper.readValue(line, CreateBookRequestDto.class);
+                } catch (JsonProcessingException e) {
+                    throw new IllegalArgumentException("Malformed JSON: " + e.getOriginalMessage(), e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Next raw row, or null at the end of the body. An IOException means the rest of the body
+     * cannot be read and ends the import.
+     */
+    @FunctionalInterface
+    private interface RowSource<T> {
+        T next() throws IOException;
+    }
+
+    private <T> BookImportResultDto importRows(RowSource<T> source, Function<T, CreateBookRequestDto> converter) {
+        BookImportResultDto result = new BookImportResultDto();
+        List<ImportRow> chunk = new ArrayList<>(chunkSize);
+        long rowNumber = 0;
+
+        while (true) {
+            T raw;
+            try {
+                raw = source.next();
+            } catch (IOException e) {
+                result.reject(rowNumber + 1, null, e.getMessage() + "; import stopped", maxReportedErrors);
+                break;
+            }
+            if (raw == null) {
+                break;
+            }
+            rowNumber++;
+            result.rowRead();
+
+            CreateBookRequestDto request;
+            try {
+                request = converter.apply(raw);
+            } catch (IllegalArgumentException e) {
+                result.reject(rowNumber, null, e.getMessage(), maxReportedErrors);
+                continue;
+            }
+            String violations = validate(request);
+            if (violations != null) {
+                result.reject(rowNumber, request.getIsbn(), violations, maxReportedErrors);
+                continue;
+            }
+
+            chunk.add(new ImportRow(rowNumber, request));
+            if (chunk.size() >= chunkSize) {
+                writeChunk(chunk, result);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            writeChunk(chunk, result);
+        }
+
+        logger.info("Book import finished: {} rows, {} created, {} updated, {} rejected",
+                   result.getTotalRows(), result.getCreated(), result.getUpdated(), result.getRejected());
+        return result;
+    }
+
+    private String validate(CreateBookRequestDto request) {
+        Set<ConstraintViolation<CreateBookRequestDto>> violations = validator.validate(request);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+
+    private void writeChunk(List<ImportRow> chunk, BookImportResultDto result) {
+        try {
+            ChunkOutcome outcome = transactionTemplate.execute(status -> upsert(chunk));
+            result.addCreated(outcome.created);
+            result.addUpdated(outcome.updated);
+            logger.debug("Imported chunk of {} rows ending at row {}", chunk.size(), chunk.get(chunk.size() - 1).rowNumber);
+        } catch (RuntimeException e) {
+            // The chunk rolled back as a whole; retry row by row so one bad row cannot reject the rest
+            logger.warn("Import chunk ending at row {} failed, retrying per row: {}",
+                       chunk.get(chunk.size() - 1).rowNumber, e.getMessage());
+            for (ImportRow row : chunk) {
+                try {
+                    ChunkOutcome outcome = transactionTemplate.execute(status -> upsert(List.of(row)));
+                    result.addCreated(outcome.created);
+                    result.addUpdated(outcome.updated);
+                } catch (RuntimeException rowFailure) {
+                    result.reject(row.rowNumber, row.request.getIsbn(), rootMessage(rowFailure), maxReportedErrors);
+                }
+            }
+        }
+    }
+
+    private ChunkOutcome upsert(List<ImportRow> rows) {
+        Set<String> isbns = rows.stream().map(row -> row.request.getIsbn()).collect(Collectors.toSet());
+        Map<String, Book> books = bookRepository.findByIsbnIn(isbns).stream()
+                .collect(Collectors.toMap(Book::getIsbn, Function.identity()));
+
+        // Later rows for the same ISBN update the book the earlier row created or loaded
+        Map<String, Book> touched = new LinkedHashMap<>();
+        Set<String> createdIsbns = new HashSet<>();
+        Map<String, InventoryStatistics.BookState> previousStates = new HashMap<>();
+        ChunkOutcome outcome = new ChunkOutcome();
+        for (ImportRow row : rows) {
+            String isbn = row.request.getIsbn();
+            Book book = books.get(isbn);
+            if (book == null) {
+                book = bookMapper.toEntity(row.request);
+                books.put(isbn, book);
+                createdIsbns.add(isbn);
+                outcome.created++;
+            } else {
+                if (!createdIsbns.contains(isbn)) {
+                    previousStates.putIfAbsent(isbn, InventoryStatistics.stateOf(book));
+                }
+                bookMapper.updateEntityFromDto(row.request, book);
+                outcome.updated++;
+            }
+            touched.put(isbn, book);
+        }
+
+        List<Book> saved = bookRepository.saveAll(touched.values());
+        List<BookEvent> events = new ArrayList<>(saved.size());
+        for (Book book : saved) {
+            boolean created = createdIsbns.contains(book.getIsbn());
+            events.add(new BookEvent(created ? "BOOK_CREATED" : "BOOK_UPDATED", book.getId(),
+                                     book.getTitle(), book.getAuthor(), book.getIsbn(), book.getStockQuantity()));
+            bookSearchIndex.indexAfterCommit(book);
+            bookSubstringIndex.indexAfterCommit(book);
+            if (created) {
+                bookCacheInvalidator.bookCreated(book);
+                inventoryStatistics.bookCreatedAfterCommit(book);
+                isbnFilter.bookCreatedAfterCommit(book);
+            } else {
+                InventoryStatistics.BookState previousState = previousStates.get(book.getIsbn());
+                bookCacheInvalidator.bookChanged(book, book.getIsbn(), previousState.getCategory());
+                inventoryStatistics.bookChangedAfterCommit(previousState, book);
+            }
+        }
+        kafkaProducerService.publishBookEvents(events);
+
+        // Write the chunk now and drop it from the persistence context, which may outlive this transaction
+        entityManager.flush();
+        entityManager.clear();
+        return outcome;
+    }
+
+    private static String rootMessage(Throwable failure) {
+        Throwable root = failure;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        return root.getMessage();
+    }
+
+    private static final class ImportRow {
+        private final long rowNumber;
+        private final CreateBookRequestDto request;
+
+        private ImportRow(long rowNumber, CreateBookRequestDto request) {
+            this.rowNumber = rowNumber;
+            this.request = request;
+        }
+    }
+
+    private static final class ChunkOutcome {
+        private int created;
+        private int updated;
+    }
+}
@@ -0,0 +1,96 @@
+package com.bookstore.bookservice.service;
+
+import com.bookstore.bookservice.entity.Book;
+import com.bookstore.bookservice.repository.BookRepository;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Builds the search index, substring index, ISBN filter and inventory statistics from one forward-only
+ * cursor over the book table at startup. The persistence context is cleared every batch.chunk-size rows,
+ * as in the export, so memory depends on the chunk size rather than the catalogue size.
+ * The periodic rebuilds of the ISBN filter and the statistics still use their own narrower queries.
+ */
+@Component
+public class BookIndexLoader {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookIndexLoader.class);
+
+    private final BookRepository bookRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final List<BookScanListener> listeners;
+
+    @Value("${batch.chunk-size:1000}")
+    private int chunkSize = 1000;
+
+    @Autowired
+    public BookIndexLoader(BookRepository bookRepository, EntityManager entityManager,
+                           PlatformTransactionManager transactionManager, List<BookScanListener> listeners) {
+        this.bookRepository = bookRepository;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.listeners = listeners;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        List<BookScanListener> participants = new ArrayList<>(listeners.size());
+        for (BookScanListener listener : listeners) {
+            try {
+                if (listener.scanStarting()) {
+                    participants.add(listener);
+                }
+            } catch (Exception e) {
+                logger.error("{} could not start its build, it will use the database", listener.getClass().getSimpleName(), e);
+            }
+        }
+        if (participants.isEmpty()) {
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        Exception failure = null;
+        try {
+            Long scanned = transactionTemplate.execute(status -> scan(participants));
+            logger.info("Scanned {} books for {} in-memory indexes in {} ms",
+                       scanned, participants.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            failure = e;
+        }
+        for (BookScanListener listener : participants) {
+            listener.scanFinished(failure);
+        }
+    }
+
+    private long scan(List<BookScanListener> participants) {
+        long count = 0;
+        try (Stream<Book> books = bookRepository.streamForExport(null, null)) {
+            Iterator<Book> iterator = books.iterator();
+            while (iterator.hasNext()) {
+                Book book = iterator.next();
+                for (BookScanListener listener : participants) {
+                    listener.scanned(book);
+                }
+                if (++count % chunkSize == 0) {
+                    entityManager.clear();
+                }
+            }
+        }
+        return count;
+    }
+}
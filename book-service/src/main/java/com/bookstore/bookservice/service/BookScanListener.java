@@ -0,0 +1,22 @@
+package com.bookstore.bookservice.service;
+
+import com.bookstore.bookservice.entity.Book;
+
+/**
+ * An in-memory structure built from every book. {@link BookIndexLoader} feeds all of them from one
+ * streamed scan of the book table at startup, instead of each reading the whole table on its own.
+ */
+public interface BookScanListener {
+
+    /**
+     * Called before the first book; return false to sit the scan out, for example when disabled.
+     */
+    boolean scanStarting();
+
+    void scanned(Book book);
+
+    /**
+     * Called after the last book, or with the exception that broke the scan off.
+     */
+    void scanFinished(Exception failure);
+}
@@ -0,0 +1,233 @@
+package com.bookstore.bookservice.service;
+
+import com.bookstore.bookservice.entity.Book;
+import com.bookstore.bookservice.util.TransactionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * In-process inverted index over book title, author, description and publisher.
+ * Built once at startup from the shared {@link BookIndexLoader} scan and kept current from the same
+ * write paths that publish BookEvents.
+ * Every query token is matched as a prefix of an indexed token, so partially typed words still hit.
+ * Terms with a token shorter than search.index.min-prefix-length are left to the database: a one- or
+ * two-letter prefix would expand to a large share of the vocabulary and union most of the postings.
+ *
+ * <p>Unlike the database LIKE query, the index also matches the publisher, matches word prefixes
+ * rather than arbitrary substrings, and requires every token of a multi-word term to match.
+ */
+@Component
+public class BookSearchIndex implements BookScanListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookSearchIndex.class);
+
+    // token -> ids of books containing it, sorted so page slicing is stable
+    private final ConcurrentSkipListMap<String, NavigableSet<Long>> postings = new ConcurrentSkipListMap<>();
+
+    // id -> tokens currently indexed for that book, used to unindex on update/delete
+    private final Map<Long, Set<String>> documentTokens = new ConcurrentHashMap<>();
+
+    private volatile boolean ready = false;
+    private long buildStartedAt;
+
+    @Value("${search.index.enabled:true}")
+    private boolean enabled;
+
+    @Value("${search.index.min-prefix-length:3}")
+    private int minPrefixLength = 3;
+
+    @Override
+    public boolean scanStarting() {
+        if (!enabled) {
+            logger.info("Book search index disabled, searches will use the database");
+            return false;
+        }
+        logger.info("Building book search index");
+        buildStartedAt = System.currentTimeMillis();
+        ready = false;
+        postings.clear();
+        documentTokens.clear();
+        return true;
+    }
+
+    @Override
+    public void scanned(Book book) {
+        index(book);
+    }
+
+    @Override
+    public void scanFinished(Exception failure) {
+        if (failure != null) {
+            logger.error("Failed to build book search index, searches will use the database", failure);
+            return;
+        }
+        ready = true;
+        logger.info("Book search index built with {} books and {} tokens in {} ms",
+                   documentTokens.size(), postings.size(), System.currentTimeMillis() - buildStartedAt);
+    }
+
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    /**
+     * Whether the index can answer this term; terms without any word characters, or with a token too
+     * short to expand as a prefix, go to the database.
+     */
+    public boolean canAnswer(String searchTerm) {
+        if (!isReady()) {
+            return false;
+        }
+        Set<String> tokens = new HashSet<>();
+        tokenizeInto(searchTerm, tokens);
+        return !tokens.isEmpty() && tokens.stream().allMatch(token -> token.length() >= minPrefixLength);
+    }
+
+    /**
+     * Indexes the book once the surrounding transaction commits, or immediately when there is none.
+     */
+    public void indexAfterCommit(Book book) {
+        if (book == null || book.getId() == null) {
+            return;
+        }
+        TransactionUtils.afterCommit(() -> index(book));
+    }
+
+    public void removeAfterCommit(Long bookId) {
+        if (bookId == null) {
+            return;
+        }
+        TransactionUtils.afterCommit(() -> remove(bookId));
+    }
+
+    public void index(Book book) {
+        Long id = book.getId();
+        Set<String> tokens = new HashSet<>();
+        tokenizeInto(book.getTitle(), tokens);
+        tokenizeInto(book.getAuthor(), tokens);
+        tokenizeInto(book.getDescription(), tokens);
+        tokenizeInto(book.getPublisher(), tokens);
+
+        Set<String> previous = documentTokens.put(id, tokens);
+        if (previous != null) {
+            for (String token : previous) {
+                if (!tokens.contains(token)) {
+                    removePosting(token, id);
+                }
+            }
+        }
+        for (String token : tokens) {
+            postings.computeIfAbsent(token, t -> new ConcurrentSkipListSet<>()).add(id);
+        }
+    }
+
+    public void remove(Long bookId) {
+        Set<String> tokens = documentTokens.remove(bookId);
+        if (tokens != null) {
+            tokens.forEach(token -> removePosting(token, bookId));
+        }
+    }
+
+    /**
+     * Returns the ids of all books matching every token in the search term, in ascending id order.
+     * An empty query matches nothing, and tokens shorter than the minimum prefix length only match
+     * whole words; callers check {@link #canAnswer} first so those terms never get here.
+     */
+    public List<Long> search(String searchTerm) {
+        Set<String> queryTokens = new TreeSet<>();
+        tokenizeInto(searchTerm, queryTokens);
+        if (queryTokens.isEmpty()) {
+            return List.of();
+        }
+
+        List<NavigableSet<Long>> matches = new ArrayList<>(queryTokens.size());
+        for (String token : queryTokens) {
+            NavigableSet<Long> tokenMatches = token.length() < minPrefixLength ? exactMatches(token) : prefixMatches(token);
+            if (tokenMatches.isEmpty()) {
+                return List.of();
+            }
+            matches.add(tokenMatches);
+        }
+
+        // Intersect starting from the smallest set so the candidate list only ever shrinks
+        matches.sort(Comparator.comparingInt(Set::size));
+        List<Long> result = new ArrayList<>(matches.get(0));
+        for (int i = 1; i < matches.size() && !result.isEmpty(); i++) {
+            NavigableSet<Long> other = matches.get(i);
+            result.removeIf(id -> !other.contains(id));
+        }
+        return result;
+    }
+
+    public int size() {
+        return documentTokens.size();
+    }
+
+    private NavigableSet<Long> exactMatches(String token) {
+        NavigableSet<Long> ids = postings.get(token);
+        return ids != null ? ids : new TreeSet<>();
+    }
+
+    private NavigableSet<Long> prefixMatches(String prefix) {
+        NavigableMap<String, NavigableSet<Long>> range =
+                postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+        // Exact single-token hits are returned as-is; only true prefix expansions pay for a union
+        NavigableSet<Long> first = null;
+        NavigableSet<Long> union = null;
+        for (NavigableSet<Long> ids : range.values()) {
+            if (first == null) {
+                first = ids;
+            } else {
+                if (union == null) {
+                    union = new TreeSet<>(first);
+                }
+                union.addAll(ids);
+            }
+        }
+        if (union != null) {
+            return union;
+        }
+        return first != null ? first : new TreeSet<>();
+    }
+
+    private void removePosting(String token, Long id) {
+        postings.computeIfPresent(token, (t, ids) -> {
+            ids.remove(id);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    static void tokenizeInto(String text, Collection<String> tokens) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+    }
+}
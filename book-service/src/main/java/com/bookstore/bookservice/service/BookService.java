@@ -1,7 +1,9 @@
 package com.bookstore.bookservice.service;
 
+import com.bookstore.bookservice.dto.BookBatchGetResultDto;
 import com.bookstore.bookservice.dto.BookDto;
 import com.bookstore.bookservice.dto.CreateBookRequestDto;
+import com.bookstore.bookservice.dto.CursorPage;
 import com.bookstore.bookservice.dto.UpdateBookRequestDto;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -15,6 +17,7 @@ public interface BookService {
     BookDto createBook(CreateBookRequestDto createBookRequest);
     BookDto getBookById(Long id);
     BookDto getBookByIsbn(String isbn);
+    BookBatchGetResultDto getBooks(List<Long> ids, List<String> isbns);
     List<BookDto> getAllBooks();
     Page<BookDto> getAllBooks(Pageable pageable);
     BookDto updateBook(Long id, UpdateBookRequestDto updateBookRequest);
@@ -30,6 +33,11 @@ public interface BookService {
     Page<BookDto> findBooksWithFilters(String title, String author, String category, 
                                        BigDecimal minPrice, BigDecimal maxPrice, Pageable pageable);
 
+    // Keyset (cursor) pagination - no offset scan and no count query
+    CursorPage<BookDto> scrollBooks(String cursor, int size, String sortBy, String sortDir);
+    CursorPage<BookDto> scrollBooksWithFilters(String title, String author, String category,
+                                               BigDecimal minPrice, BigDecimal maxPrice, String cursor, int size);
+
     // Business Operations
     BookDto updateStock(Long bookId, Integer quantity);
     List<BookDto> findBooksWithLowStock(Integer threshold);
@@ -0,0 +1,121 @@
+package com.bookstore.bookservice.service;
+
+import com.bookstore.bookservice.entity.Book;
+import com.bookstore.bookservice.util.TransactionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Trigram-backed answers for the title and author "containing, ignore case" lookups,
+ * which the leading-wildcard LIKE cannot serve from idx_book_title / idx_book_author.
+ * Built at startup from the shared {@link BookIndexLoader} scan.
+ *
+ * <p>Matching ignores case and accents, like MySQL's default accent-insensitive collation; see
+ * {@link TrigramIndex} for the characters it still treats differently.
+ */
+@Component
+public class BookSubstringIndex implements BookScanListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookSubstringIndex.class);
+
+    private final TrigramIndex titleIndex = new TrigramIndex();
+    private final TrigramIndex authorIndex = new TrigramIndex();
+
+    private volatile boolean ready = false;
+    private long buildStartedAt;
+
+    @Value("${search.substring-index.enabled:true}")
+    private volatile boolean enabled;
+
+    @Override
+    public boolean scanStarting() {
+        if (!enabled) {
+            logger.info("Book substring index disabled, title/author lookups will use the database");
+            return false;
+        }
+        logger.info("Building book substring index");
+        buildStartedAt = System.currentTimeMillis();
+        ready = false;
+        titleIndex.clear();
+        authorIndex.clear();
+        return true;
+    }
+
+    @Override
+    public void scanned(Book book) {
+        if (enabled) {
+            index(book);
+        }
+    }
+
+    @Override
+    public void scanFinished(Exception failure) {
+        if (failure != null) {
+            logger.error("Failed to build book substring index, title/author lookups will use the database", failure);
+            return;
+        }
+        ready = enabled;
+        logger.info("Book substring index built with {} titles in {} ms",
+                   titleIndex.size(), System.currentTimeMillis() - buildStartedAt);
+    }
+
+    public boolean canAnswer(String query) {
+        return enabled && ready && TrigramIndex.isSearchable(query);
+    }
+
+    public List<Long> findIdsByTitleContaining(String title) {
+        return toIds(titleIndex.search(title));
+    }
+
+    public List<Long> findIdsByAuthorContaining(String author) {
+        return toIds(authorIndex.search(author));
+    }
+
+    public void indexAfterCommit(Book book) {
+        if (book == null || book.getId() == null) {
+            return;
+        }
+        TransactionUtils.afterCommit(() -> index(book));
+    }
+
+    public void removeAfterCommit(Long bookId) {
+        if (bookId == null) {
+            return;
+        }
+        TransactionUtils.afterCommit(() -> remove(bookId));
+    }
+
+    public void index(Book book) {
+        if (book.getId() > Integer.MAX_VALUE) {
+            // Postings are int arrays; stop serving rather than return incomplete results
+            logger.warn("Book ID {} exceeds the substring index range, disabling index", book.getId());
+            enabled = false;
+            ready = false;
+            return;
+        }
+        int id = book.getId().intValue();
+        titleIndex.put(id, book.getTitle());
+        authorIndex.put(id, book.getAuthor());
+    }
+
+    public void remove(Long bookId) {
+        if (bookId > Integer.MAX_VALUE) {
+            return;
+        }
+        titleIndex.remove(bookId.intValue());
+        authorIndex.remove(bookId.intValue());
+    }
+
+    private static List<Long> toIds(int[] ids) {
+        List<Long> result = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            result.add((long) id);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,59 @@
+package com.bookstore.bookservice.service;
+
+import com.bookstore.bookservice.exception.IdempotencyException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * The string stored under an idempotency key:
+ * <ul>
+ *   <li>{@code P:<owner token>} while the first request is still running</li>
+ *   <li>{@code C:<result class>:<result JSON>} once it has completed</li>
+ * </ul>
+ * Results are read back as the class the caller asks for, not the class recorded in the JSON, and a key
+ * completed with a different result class is rejected, so replaying a key can never yield a mis-typed object.
+ */
+public class IdempotencyCodec {
+
+    private static final String IN_PROGRESS = "P:";
+    private static final String COMPLETED = "C:";
+
+    private final ObjectMapper objectMapper;
+
+    public IdempotencyCodec(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public String inProgress(String ownerToken) {
+        return IN_PROGRESS + ownerToken;
+    }
+
+    public boolean isCompleted(String value) {
+        return value.startsWith(COMPLETED);
+    }
+
+    public String completed(Object result, Class<?> resultType) {
+        try {
+            return COMPLETED + resultType.getName() + ":" + objectMapper.writeValueAsString(result);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Cannot encode " + resultType.getSimpleName() + " result", e);
+        }
+    }
+
+    public <T> T decode(String value, Class<T> resultType) {
+        int separator = value.indexOf(':', COMPLETED.length());
+        if (!isCompleted(value) || separator < 0) {
+            throw new IllegalArgumentException("Not a completed idempotency record");
+        }
+        String storedType = value.substring(COMPLETED.length(), separator);
+        if (!storedType.equals(resultType.getName())) {
+            throw new IdempotencyException("Idempotency key was already used for a request returning " + storedType);
+        }
+        try {
+            return objectMapper.readValue(value.substring(separator + 1), resultType);
+        } catch (JsonProcessingException e) {
+            throw new IdempotencyException("Stored result for idempotency key cannot be read as "
+                    + resultType.getSimpleName(), e);
+        }
+    }
+}
@@ -1,75 +1,194 @@
 package com.bookstore.bookservice.service;
 
+import com.bookstore.bookservice.exception.IdempotencyException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.Duration;
-import java.util.Optional;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
 
+/**
+ * Runs an operation at most once per idempotency key and replays its result to every repeat of the key.
+ *
+ * <p>The first caller reserves the key in one round trip (a Lua GET-or-SET that leaves an in-progress
+ * marker with a short TTL) and runs the operation in its own transaction. Once that commits, the result
+ * replaces the marker for idempotency.ttl-minutes. Callers arriving meanwhile see the marker and poll
+ * until the result appears, or fail with {@link IdempotencyException} after idempotency.wait-timeout-ms.
+ * If the operation fails, the marker is removed so the request can be retried, and the exception is
+ * rethrown unchanged. A crashed owner's marker expires after idempotency.in-progress-ttl-ms, which must
+ * therefore exceed the slowest operation.
+ *
+ * <p>Completed keys are also kept in a small local near-cache, so retry storms against one node do not
+ * reach Redis. Results are stored as JSON and read back as the requested type (see {@link IdempotencyCodec}).
+ * If Redis is unavailable the operation runs without idempotency rather than failing.
+ *
+ * <p>Call it outside a transaction: waiting callers should not hold a connection, and a result must not
+ * be recorded before the transaction that produced it has committed.
+ *
+ * <p>Metrics: idempotency.requests, tagged with outcome executed, replayed or in-progress.
+ */
 @Service
 public class IdempotencyService {
 
     private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
-    private static final String IDEMPOTENCY_KEY_PREFIX = "idempotency:";
 
-    private final RedisTemplate<String, Object> redisTemplate;
+    // Returns the current value, or reserves the key and returns nil
+    private static final RedisScript<String> RESERVE = new DefaultRedisScript<>(
+            "local current = redis.call('get', KEYS[1]) " +
+            "if current then return current end " +
+            "redis.call('set', KEYS[1], ARGV[1], 'px', ARGV[2]) " +
+            "return false",
+            String.class);
+
+    // Replaces the caller's own in-progress marker with the result
+    private static final RedisScript<Long> COMPLETE = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then " +
+            "redis.call('set', KEYS[1], ARGV[2], 'px', ARGV[3]) return 1 end " +
+            "return 0",
+            Long.class);
+
+    private static final RedisScript<Long> RELEASE = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final IdempotencyCodec codec;
+    private final Cache<String, String> completed;
+    private final Counter executed;
+    private final Counter replayed;
+    private final Counter inProgress;
+
+    @Value("${idempotency.key-prefix:book-service:idempotency:}")
+    private String keyPrefix = "book-service:idempotency:";
 
     @Value("${idempotency.ttl-minutes:60}")
-    private int ttlMinutes;
+    private int ttlMinutes = 60;
+
+    @Value("${idempotency.in-progress-ttl-ms:30000}")
+    private long inProgressTtlMs = 30000;
+
+    @Value("${idempotency.wait-timeout-ms:10000}")
+    private long waitTimeoutMs = 10000;
+
+    @Value("${idempotency.poll-ms:50}")
+    private long pollMs = 50;
 
     @Autowired
-    public IdempotencyService(RedisTemplate<String, Object> redisTemplate) {
+    public IdempotencyService(StringRedisTemplate redisTemplate, PlatformTransactionManager transactionManager,
+                              ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                              @Value("${idempotency.near-cache.max-size:10000}") long nearCacheMaxSize,
+                              @Value("${idempotency.near-cache.ttl-seconds:30}") long nearCacheTtlSeconds) {
         this.redisTemplate = redisTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.codec = new IdempotencyCodec(objectMapper);
+        this.completed = Caffeine.newBuilder()
+                .maximumSize(nearCacheMaxSize)
+                .expireAfterWrite(Duration.ofSeconds(nearCacheTtlSeconds))
+                .build();
+
+        this.executed = requests(meterRegistry, "executed");
+        this.replayed = requests(meterRegistry, "replayed");
+        this.inProgress = requests(meterRegistry, "in-progress");
     }
 
-    public Optional<Object> getCachedResult(String idempotencyKey) {
-        String redisKey = IDEMPOTENCY_KEY_PREFIX + idempotencyKey;
-        logger.debug("Checking cached result for idempotency key: {}", idempotencyKey);
-        
-        try {
-            Object cachedResult = redisTemplate.opsForValue().get(redisKey);
-            return Optional.ofNullable(cachedResult);
-        } catch (Exception e) {
-            logger.error("Error retrieving cached result for idempotency key: {}", idempotencyKey, e);
-            return Optional.empty();
+    /**
+     * Runs the operation in a transaction unless the key has been used before; then returns the recorded result.
+     */
+    public <T> T execute(String idempotencyKey, Class<T> resultType, Supplier<T> operation) {
+        String redisKey = keyPrefix + idempotencyKey;
+        String local = completed.getIfPresent(redisKey);
+        if (local != null) {
+            replayed.increment();
+            return codec.decode(local, resultType);
+        }
+
+        String marker = codec.inProgress(UUID.randomUUID().toString());
+        long deadline = System.nanoTime() + Duration.ofMillis(waitTimeoutMs).toNanos();
+        while (true) {
+            String current;
+            try {
+                current = redisTemplate.execute(RESERVE, List.of(redisKey), marker, String.valueOf(inProgressTtlMs));
+            } catch (RuntimeException e) {
+                logger.warn("Idempotency store unavailable, running {} without it: {}", idempotencyKey, e.getMessage());
+                return transactionTemplate.execute(status -> operation.get());
+            }
+            if (current == null) {
+                return runReserved(idempotencyKey, redisKey, marker, resultType, operation);
+            }
+            if (codec.isCompleted(current)) {
+                logger.info("Returning recorded result for idempotency key: {}", idempotencyKey);
+                replayed.increment();
+                T result = codec.decode(current, resultType);
+                completed.put(redisKey, current);
+                return result;
+            }
+            if (System.nanoTime() >= deadline) {
+                inProgress.increment();
+                throw new IdempotencyException("A request with idempotency key " + idempotencyKey + " is still in progress");
+            }
+            try {
+                Thread.sleep(pollMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IdempotencyException("Interrupted while waiting for idempotency key " + idempotencyKey);
+            }
         }
     }
 
-    public void cacheResult(String idempotencyKey, Object result) {
-        String redisKey = IDEMPOTENCY_KEY_PREFIX + idempotencyKey;
-        logger.debug("Caching result for idempotency key: {}", idempotencyKey);
-        
+    private <T> T runReserved(String idempotencyKey, String redisKey, String marker,
+                              Class<T> resultType, Supplier<T> operation) {
+        executed.increment();
+        T result;
         try {
-            redisTemplate.opsForValue().set(redisKey, result, Duration.ofMinutes(ttlMinutes));
-            logger.info("Successfully cached result for idempotency key: {}", idempotencyKey);
-        } catch (Exception e) {
-            logger.error("Error caching result for idempotency key: {}", idempotencyKey, e);
+            result = transactionTemplate.execute(status -> operation.get());
+        } catch (RuntimeException | Error e) {
+            release(redisKey, marker);
+            throw e;
         }
-    }
 
-    public void invalidateCache(String idempotencyKey) {
-        String redisKey = IDEMPOTENCY_KEY_PREFIX + idempotencyKey;
-        logger.debug("Invalidating cache for idempotency key: {}", idempotencyKey);
-        
+        String record = codec.completed(result, resultType);
         try {
-            redisTemplate.delete(redisKey);
-            logger.info("Successfully invalidated cache for idempotency key: {}", idempotencyKey);
-        } catch (Exception e) {
-            logger.error("Error invalidating cache for idempotency key: {}", idempotencyKey, e);
+            Long stored = redisTemplate.execute(COMPLETE, List.of(redisKey), marker, record,
+                    String.valueOf(Duration.ofMinutes(ttlMinutes).toMillis()));
+            if (!Long.valueOf(1).equals(stored)) {
+                logger.warn("In-progress marker for idempotency key {} expired before the request completed", idempotencyKey);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Error recording result for idempotency key: {}", idempotencyKey, e);
         }
+        completed.put(redisKey, record);
+        return result;
     }
 
-    public boolean exists(String idempotencyKey) {
-        String redisKey = IDEMPOTENCY_KEY_PREFIX + idempotencyKey;
+    private void release(String redisKey, String marker) {
         try {
-            return Boolean.TRUE.equals(redisTemplate.hasKey(redisKey));
-        } catch (Exception e) {
-            logger.error("Error checking existence for idempotency key: {}", idempotencyKey, e);
-            return false;
+            redisTemplate.execute(RELEASE, List.of(redisKey), marker);
+        } catch (RuntimeException e) {
+            // It expires on its own
+            logger.warn("Could not release idempotency key {}: {}", redisKey, e.getMessage());
         }
     }
+
+    private static Counter requests(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("idempotency.requests")
+                .description("Idempotent requests by outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
 }
@@ -0,0 +1,224 @@
+package com.bookstore.bookservice.service;
+
+import com.bookstore.bookservice.dto.InventoryStatsDto;
+import com.bookstore.bookservice.entity.Book;
+import com.bookstore.bookservice.repository.BookRepository;
+import com.bookstore.bookservice.repository.CategoryInventory;
+import com.bookstore.bookservice.util.TransactionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-category inventory counters (titles, units, low-stock and negative-stock books), seeded from the
+ * shared {@link BookIndexLoader} scan at startup and then kept current from the same write paths that
+ * publish BookEvents.
+ * Each write reports the book as it was and as it is; the counters subtract the old contribution and
+ * add the new one after the transaction commits, so rolled-back writes never count.
+ *
+ * <p>Like the search index, the counters are per node: they see the writes this node commits at once, but
+ * writes committed on other instances only when the counters are rebuilt from the aggregate query, every
+ * inventory.stats.rebuild-interval-ms. Stats therefore lag other instances' writes by up to that interval,
+ * and a rebuild also corrects any local drift (such as a write committed while the query was running).
+ */
+@Component
+public class InventoryStatistics implements BookScanListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(InventoryStatistics.class);
+
+    private final BookRepository bookRepository;
+
+    private volatile Map<String, CategoryCounters> categories = new ConcurrentHashMap<>();
+    private volatile boolean ready = false;
+    private Map<String, CategoryCounters> scanning;
+    private long buildStartedAt;
+
+    @Value("${inventory.stats.low-stock-threshold:10}")
+    private int lowStockThreshold = 10;
+
+    @Autowired
+    public InventoryStatistics(BookRepository bookRepository) {
+        this.bookRepository = bookRepository;
+    }
+
+    @Override
+    public boolean scanStarting() {
+        buildStartedAt = System.currentTimeMillis();
+        scanning = new ConcurrentHashMap<>();
+        return true;
+    }
+
+    @Override
+    public void scanned(Book book) {
+        scanning.computeIfAbsent(book.getCategory(), key -> new CategoryCounters())
+                .apply(stateOf(book), 1, lowStockThreshold);
+    }
+
+    @Override
+    public void scanFinished(Exception failure) {
+        if (failure != null) {
+            scanning = null;
+            logger.error("Failed to build inventory statistics, stats will be read from the database", failure);
+            return;
+        }
+        categories = scanning;
+        scanning = null;
+        ready = true;
+        logger.info("Inventory statistics built for {} categories in {} ms",
+                   categories.size(), System.currentTimeMillis() - buildStartedAt);
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.stats.rebuild-interval-ms:60000}",
+               initialDelayString = "${inventory.stats.rebuild-interval-ms:60000}")
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        try {
+            Map<String, CategoryCounters> rebuilt = new ConcurrentHashMap<>();
+            for (CategoryInventory row : bookRepository.aggregateInventoryByCategory(lowStockThreshold)) {
+                rebuilt.put(row.getCategory(), new CategoryCounters(row));
+            }
+            categories = rebuilt;
+            ready = true;
+            logger.info("Inventory statistics built for {} categories in {} ms",
+                       rebuilt.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            ready = false;
+            logger.error("Failed to build inventory statistics, stats will be read from the database", e);
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int getLowStockThreshold() {
+        return lowStockThreshold;
+    }
+
+    /**
+     * Current counters, or the aggregate query if they have not been built.
+     */
+    public InventoryStatsDto getStats() {
+        InventoryStatsDto stats = new InventoryStatsDto(lowStockThreshold);
+        if (!ready) {
+            for (CategoryInventory row : bookRepository.aggregateInventoryByCategory(lowStockThreshold)) {
+                stats.addCategory(new CategoryCounters(row).toDto(row.getCategory()));
+            }
+            return stats;
+        }
+        // Sorted by category; categories whose books are all gone are left out
+        new TreeMap<>(categories).forEach((category, counters) -> {
+            InventoryStatsDto.CategoryStats categoryStats = counters.toDto(category);
+            if (categoryStats.getTitles() != 0 || categoryStats.getNegativeStock() != 0) {
+                stats.addCategory(categoryStats);
+            }
+        });
+        return stats;
+    }
+
+    /**
+     * The state of a book that the counters depend on. Take it before mutating the entity.
+     */
+    public static BookState stateOf(Book book) {
+        return new BookState(book.getCategory(), Boolean.TRUE.equals(book.getActive()), book.getStockQuantity());
+    }
+
+    public void bookCreatedAfterCommit(Book book) {
+        recordAfterCommit(null, stateOf(book));
+    }
+
+    public void bookChangedAfterCommit(BookState before, Book book) {
+        recordAfterCommit(before, stateOf(book));
+    }
+
+    public void bookDeletedAfterCommit(BookState before) {
+        recordAfterCommit(before, null);
+    }
+
+    // For guarded stock UPDATEs that only know the delta; book is the row as reloaded afterwards
+    public void stockChangedAfterCommit(Book book, int delta) {
+        BookState after = stateOf(book);
+        recordAfterCommit(new BookState(after.category, after.active, after.stock - delta), after);
+    }
+
+    // For active-flag UPDATEs that changed the flag; book is the row as reloaded afterwards
+    public void activeChangedAfterCommit(Book book) {
+        BookState after = stateOf(book);
+        recordAfterCommit(new BookState(after.category, !after.active, after.stock), after);
+    }
+
+    private void recordAfterCommit(BookState before, BookState after) {
+        TransactionUtils.afterCommit(() -> record(before, after));
+    }
+
+    void record(BookState before, BookState after) {
+        if (before != null) {
+            countersFor(before.category).apply(before, -1, lowStockThreshold);
+        }
+        if (after != null) {
+            countersFor(after.category).apply(after, 1, lowStockThreshold);
+        }
+    }
+
+    private CategoryCounters countersFor(String category) {
+        return categories.computeIfAbsent(category, key -> new CategoryCounters());
+    }
+
+    public static final class BookState {
+        private final String category;
+        private final boolean active;
+        private final int stock;
+
+        private BookState(String category, boolean active, Integer stock) {
+            this.category = category;
+            this.active = active;
+            this.stock = stock != null ? stock : 0;
+        }
+
+        public String getCategory() {
+            return category;
+        }
+    }
+
+    private static final class CategoryCounters {
+        private long titles;
+        private long units;
+        private long lowStock;
+        private long negativeStock;
+
+        private CategoryCounters() {
+        }
+
+        private CategoryCounters(CategoryInventory row) {
+            this.titles = row.getTitles();
+            this.units = row.getUnits();
+            this.lowStock = row.getLowStock();
+            this.negativeStock = row.getNegativeStock();
+        }
+
+        // sign is +1 to add a book's contribution, -1 to take it away
+        private synchronized void apply(BookState state, int sign, int lowStockThreshold) {
+            if (state.active) {
+                titles += sign;
+                units += (long) sign * state.stock;
+                if (state.stock < lowStockThreshold) {
+                    lowStock += sign;
+                }
+            }
+            if (state.stock < 0) {
+                negativeStock += sign;
+            }
+        }
+
+        private synchronized InventoryStatsDto.CategoryStats toDto(String category) {
+            return new InventoryStatsDto.CategoryStats(category, titles, units, lowStock, negativeStock);
+        }
+    }
+}
@@ -0,0 +1,348 @@
+package com.bookstore.bookservice.service;
+
+import com.bookstore.bookservice.entity.Book;
+import com.bookstore.bookservice.repository.BookRepository;
+import com.bookstore.bookservice.util.BloomFilter;
+import com.bookstore.bookservice.util.TransactionUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Answers "this ISBN certainly does not exist" without a query, so lookups of unknown ISBNs (typically
+ * bots probing random ones) never reach MySQL. Two layers:
+ * <ul>
+ *   <li>A Bloom filter of every ISBN, built from the shared {@link BookIndexLoader} scan at startup and
+ *       rebuilt from a streamed ISBN-only scan every isbn-filter.rebuild-interval-ms. ISBNs committed on this node are added after commit and
+ *       announced to the other nodes over a Redis pub/sub channel.</li>
+ *   <li>The missing-isbns cache: ISBNs the filter let through but the database did not have (Bloom false
+ *       positives, and deleted or renamed ISBNs, which a Bloom filter cannot forget until the next rebuild).
+ *       Entries live for cache.missing-isbns.ttl-seconds and are evicted when the ISBN is created.</li>
+ * </ul>
+ * Until the first build, or when it fails, every ISBN might exist and lookups go to the database.
+ * Pub/sub is fire-and-forget, so a node that misses an announcement can report a new ISBN as missing
+ * until its next rebuild; a lookup racing a create can likewise cache it as missing for up to the TTL.
+ *
+ * <p>Metrics: book.isbn-filter.rejected (lookups answered by the filter), book.isbn-filter.false-positives
+ * (lookups it let through for ISBNs that do not exist), book.isbn-filter.false-positive-rate (the share of
+ * lookups for non-existent ISBNs that the filter let through, since the last build) and
+ * book.isbn-filter.expected-false-positive-rate (the rate predicted from the filter's fill).
+ */
+@Component
+public class IsbnFilter implements MessageListener, BookScanListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(IsbnFilter.class);
+
+    public static final String MISSING_ISBNS = "missing-isbns";
+
+    private final BookRepository bookRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final CacheManager cacheManager;
+    private final StringRedisTemplate redisTemplate;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private volatile BloomFilter filter;
+    // The filter being rebuilt, which must also see ISBNs added while the scan runs
+    private volatile BloomFilter building;
+    private long buildStartedAt;
+    private long scannedIsbns;
+
+    private final AtomicLong rejectedSinceBuild = new AtomicLong();
+    private final AtomicLong falsePositivesSinceBuild = new AtomicLong();
+    private final Counter rejected;
+    private final Counter falsePositives;
+
+    @Value("${isbn-filter.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${isbn-filter.expected-isbns:1000000}")
+    private long expectedIsbns = 1_000_000;
+
+    @Value("${isbn-filter.false-positive-probability:0.01}")
+    private double falsePositiveProbability = 0.01;
+
+    @Value("${isbn-filter.channel:book-isbn-filter}")
+    private String channel = "book-isbn-filter";
+
+    @Autowired
+    public IsbnFilter(BookRepository bookRepository, PlatformTransactionManager transactionManager,
+                      CacheManager cacheManager, StringRedisTemplate redisTemplate, MeterRegistry meterRegistry) {
+        this.bookRepository = bookRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.cacheManager = cacheManager;
+        this.redisTemplate = redisTemplate;
+
+        this.rejected = Counter.builder("book.isbn-filter.rejected")
+                .description("ISBN lookups answered as missing by the Bloom filter without a query")
+                .register(meterRegistry);
+        this.falsePositives = Counter.builder("book.isbn-filter.false-positives")
+                .description("ISBN lookups the Bloom filter let through for ISBNs that do not exist")
+                .register(meterRegistry);
+        Gauge.builder("book.isbn-filter.false-positive-rate", this, IsbnFilter::observedFalsePositiveRate)
+                .description("Share of lookups for non-existent ISBNs that the Bloom filter let through, since the last build")
+                .register(meterRegistry);
+        Gauge.builder("book.isbn-filter.expected-false-positive-rate", this, IsbnFilter::expectedFalsePositiveRate)
+                .description("False-positive rate predicted from the Bloom filter's current fill")
+                .register(meterRegistry);
+    }
+
+    public String getChannel() {
+        return channel;
+    }
+
+    @Override
+    public synchronized boolean scanStarting() {
+        if (!enabled) {
+            return false;
+        }
+        startBuild();
+        return true;
+    }
+
+    @Override
+    public void scanned(Book book) {
+        building.put(book.getIsbn());
+        scannedIsbns++;
+    }
+
+    @Override
+    public void scanFinished(Exception failure) {
+        if (failure != null) {
+            failBuild(failure);
+        } else {
+            finishBuild(scannedIsbns);
+        }
+    }
+
+    // Drops deleted and renamed ISBNs, picks up announcements this node missed, and resizes for growth
+    @Scheduled(fixedDelayString = "${isbn-filter.rebuild-interval-ms:600000}",
+               initialDelayString = "${isbn-filter.rebuild-interval-ms:600000}")
+    public void scheduledRebuild() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    public synchronized void rebuild() {
+        if (building != null) {
+            logger.info("Skipping ISBN filter rebuild, the startup build is still running");
+            return;
+        }
+        try {
+            BloomFilter rebuilt = startBuild();
+            Long scanned = transactionTemplate.execute(status -> {
+                long count = 0;
+                try (Stream<String> isbns = bookRepository.streamAllIsbns()) {
+                    for (String isbn : (Iterable<String>) isbns::iterator) {
+                        rebuilt.put(isbn);
+                        count++;
+                    }
+                }
+                return count;
+            });
+            finishBuild(scanned != null ? scanned : 0);
+        } catch (Exception e) {
+            failBuild(e);
+        }
+    }
+
+    private BloomFilter startBuild() {
+        buildStartedAt = System.currentTimeMillis();
+        scannedIsbns = 0;
+        // Twice the current size, so the false-positive rate holds until the next rebuild
+        long capacity = Math.max(expectedIsbns, 2 * bookRepository.count());
+        BloomFilter rebuilt = new BloomFilter(capacity, falsePositiveProbability);
+        building = rebuilt;
+        return rebuilt;
+    }
+
+    private void finishBuild(long scanned) {
+        BloomFilter rebuilt = building;
+        filter = rebuilt;
+        building = null;
+        rejectedSinceBuild.set(0);
+        falsePositivesSinceBuild.set(0);
+        logger.info("ISBN filter built from {} ISBNs ({} bits, {} hashes) in {} ms",
+                   scanned, rebuilt.getBitCount(), rebuilt.getHashCount(), System.currentTimeMillis() - buildStartedAt);
+    }
+
+    private void failBuild(Exception e) {
+        building = null;
+        // A previous filter, if any, stays in use; it only lacks what changed since it was built
+        logger.error("Failed to build ISBN filter, keeping the {}", filter != null ? "previous one" : "database lookups", e);
+    }
+
+    /**
+     * False only if the ISBN certainly does not exist. Has no side effects, so it can be used in cache conditions.
+     */
+    public boolean mightContain(String isbn) {
+        BloomFilter current = filter;
+        return current == null || isbn == null || current.mightContain(isbn);
+    }
+
+    /**
+     * True if the ISBN is known not to exist, from the filter or from the missing-isbns cache.
+     * When false, look it up and report a miss with {@link #recordMissing(String)}.
+     */
+    public boolean isKnownMissing(String isbn) {
+        if (isbn == null) {
+            return false;
+        }
+        BloomFilter current = filter;
+        if (current != null && !current.mightContain(isbn)) {
+            rejected.increment();
+            rejectedSinceBuild.incrementAndGet();
+            return true;
+        }
+        Cache missing = missingIsbns();
+        try {
+            if (missing != null && missing.get(isbn) != null) {
+                countFalsePositive(current);
+                return true;
+            }
+        } catch (RuntimeException e) {
+            logger.debug("Missing-ISBN cache read failed for {}: {}", isbn, e.getMessage());
+        }
+        return false;
+    }
+
+    /**
+     * Remembers an ISBN the database did not have.
+     */
+    public void recordMissing(String isbn) {
+        countFalsePositive(filter);
+        cacheMissing(isbn);
+    }
+
+    public void bookCreatedAfterCommit(Book book) {
+        String isbn = book.getIsbn();
+        TransactionUtils.afterCommit(() -> {
+            add(isbn);
+            announce(isbn);
+        });
+    }
+
+    public void isbnChangedAfterCommit(String previousIsbn, String isbn) {
+        if (Objects.equals(previousIsbn, isbn)) {
+            return;
+        }
+        TransactionUtils.afterCommit(() -> {
+            add(isbn);
+            announce(isbn);
+            cacheMissing(previousIsbn);
+        });
+    }
+
+    // The filter keeps the ISBN until the next rebuild; the missing-isbns cache answers for it meanwhile
+    public void bookDeletedAfterCommit(String isbn) {
+        TransactionUtils.afterCommit(() -> cacheMissing(isbn));
+    }
+
+    /**
+     * Applies an ISBN announced by another node. Messages are "nodeId\nisbn"; each node ignores its own.
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\n", 2);
+        if (parts.length < 2) {
+            logger.warn("Ignoring malformed ISBN filter message on {}", channel);
+            return;
+        }
+        if (!nodeId.equals(parts[0])) {
+            addToFilter(parts[1]);
+        }
+    }
+
+    private void add(String isbn) {
+        if (isbn == null) {
+            return;
+        }
+        addToFilter(isbn);
+        // Evicts cluster-wide, including the other nodes' L1
+        Cache missing = missingIsbns();
+        try {
+            if (missing != null) {
+                missing.evict(isbn);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Failed to evict created ISBN {} from the missing-ISBN cache: {}", isbn, e.getMessage());
+        }
+    }
+
+    private void addToFilter(String isbn) {
+        BloomFilter current = filter;
+        if (current != null) {
+            current.put(isbn);
+        }
+        BloomFilter rebuilding = building;
+        if (rebuilding != null) {
+            rebuilding.put(isbn);
+        }
+    }
+
+    private void announce(String isbn) {
+        if (isbn == null || !enabled) {
+            return;
+        }
+        try {
+            redisTemplate.convertAndSend(channel, nodeId + "\n" + isbn);
+        } catch (Exception e) {
+            // Other nodes pick the ISBN up at their next rebuild
+            logger.warn("Failed to announce ISBN {} to other nodes: {}", isbn, e.getMessage());
+        }
+    }
+
+    private void cacheMissing(String isbn) {
+        Cache missing = missingIsbns();
+        if (isbn == null || missing == null) {
+            return;
+        }
+        try {
+            missing.put(isbn, Boolean.TRUE);
+        } catch (RuntimeException e) {
+            logger.debug("Missing-ISBN cache write failed for {}: {}", isbn, e.getMessage());
+        }
+    }
+
+    private void countFalsePositive(BloomFilter current) {
+        if (current != null) {
+            falsePositives.increment();
+            falsePositivesSinceBuild.incrementAndGet();
+        }
+    }
+
+    private Cache missingIsbns() {
+        return cacheManager.getCache(MISSING_ISBNS);
+    }
+
+    private double observedFalsePositiveRate() {
+        long passed = falsePositivesSinceBuild.get();
+        long total = passed + rejectedSinceBuild.get();
+        return total == 0 ? 0.0 : (double) passed / total;
+    }
+
+    private double expectedFalsePositiveRate() {
+        BloomFilter current = filter;
+        return current == null ? 0.0 : current.expectedFalsePositiveProbability();
+    }
+}
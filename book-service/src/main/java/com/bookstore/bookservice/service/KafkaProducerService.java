@@ -1,22 +1,35 @@
 package com.bookstore.bookservice.service;
 
+import com.bookstore.bookservice.entity.OutboxEvent;
 import com.bookstore.bookservice.event.BookEvent;
+import com.bookstore.bookservice.event.BookEventCodec;
+import com.bookstore.bookservice.event.EventWireFormat;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
 
-import java.util.concurrent.CompletableFuture;
+import java.util.ArrayList;
+import java.util.List;
 
+/**
+ * Publishes book events through the transactional outbox: events are written with the caller's
+ * transaction and sent to Kafka by {@link OutboxRelay} once it has committed.
+ * kafka.events.wire-format selects JSON or the binary codec; switch to binary only once every consumer
+ * of the topics understands it.
+ */
 @Service
 public class KafkaProducerService {
 
     private static final Logger logger = LoggerFactory.getLogger(KafkaProducerService.class);
 
-    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private static final String AGGREGATE_TYPE = "Book";
+
+    private final OutboxService outboxService;
+    private final ObjectMapper objectMapper;
 
     @Value("${kafka.topics.book-events}")
     private String bookEventsTopic;
@@ -24,48 +37,59 @@ public class KafkaProducerService {
     @Value("${kafka.topics.book-cdc}")
     private String bookCdcTopic;
 
+    @Value("${kafka.events.wire-format:json}")
+    private String wireFormat = "json";
+
     @Autowired
-    public KafkaProducerService(KafkaTemplate<String, Object> kafkaTemplate) {
-        this.kafkaTemplate = kafkaTemplate;
+    public KafkaProducerService(OutboxService outboxService, ObjectMapper objectMapper) {
+        this.outboxService = outboxService;
+        this.objectMapper = objectMapper;
     }
 
     public void publishBookEvent(BookEvent bookEvent) {
         logger.info("Publishing book event: {}", bookEvent);
-        
-        try {
-            CompletableFuture<SendResult<String, Object>> future = 
-                kafkaTemplate.send(bookEventsTopic, bookEvent.getBookId().toString(), bookEvent);
-            
-            future.whenComplete((result, ex) -> {
-                if (ex == null) {
-                    logger.info("Successfully published book event for book ID: {} with offset: {}", 
-                              bookEvent.getBookId(), result.getRecordMetadata().offset());
-                } else {
-                    logger.error("Failed to publish book event for book ID: {}", bookEvent.getBookId(), ex);
-                }
-            });
-        } catch (Exception e) {
-            logger.error("Error publishing book event", e);
-        }
+        enqueue(bookEventsTopic, bookEvent);
     }
 
     public void publishBookCdcEvent(BookEvent bookEvent) {
         logger.info("Publishing book CDC event: {}", bookEvent);
-        
+        enqueue(bookCdcTopic, bookEvent);
+    }
+
+    // Used by bulk writers: the whole list goes to the outbox in one call, or none of it if an event cannot be encoded
+    public void publishBookEvents(List<BookEvent> bookEvents) {
+        logger.info("Publishing {} book events", bookEvents.size());
+        List<OutboxEvent> outboxEvents = new ArrayList<>(bookEvents.size());
+        for (BookEvent bookEvent : bookEvents) {
+            try {
+                outboxEvents.add(new OutboxEvent(AGGREGATE_TYPE, bookEvent.getBookId().toString(),
+                        bookEvent.getEventType(), bookEventsTopic, contentType(), encode(bookEvent)));
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Could not serialize book event for book ID: " + bookEvent.getBookId(), e);
+            }
+        }
+        outboxService.appendAll(outboxEvents);
+    }
+
+    private void enqueue(String topic, BookEvent bookEvent) {
         try {
-            CompletableFuture<SendResult<String, Object>> future = 
-                kafkaTemplate.send(bookCdcTopic, bookEvent.getBookId().toString(), bookEvent);
-            
-            future.whenComplete((result, ex) -> {
-                if (ex == null) {
-                    logger.info("Successfully published book CDC event for book ID: {} with offset: {}", 
-                              bookEvent.getBookId(), result.getRecordMetadata().offset());
-                } else {
-                    logger.error("Failed to publish book CDC event for book ID: {}", bookEvent.getBookId(), ex);
-                }
-            });
-        } catch (Exception e) {
-            logger.error("Error publishing book CDC event", e);
+            outboxService.append(topic, AGGREGATE_TYPE, bookEvent.getBookId().toString(), bookEvent.getEventType(),
+                                 contentType(), encode(bookEvent));
+        } catch (JsonProcessingException e) {
+            // Rolls the caller's transaction back rather than committing the change without its event
+            throw new IllegalStateException("Could not serialize book event for book ID: " + bookEvent.getBookId(), e);
         }
     }
+
+    private byte[] encode(BookEvent bookEvent) throws JsonProcessingException {
+        return isBinary() ? BookEventCodec.encode(bookEvent) : objectMapper.writeValueAsBytes(bookEvent);
+    }
+
+    private String contentType() {
+        return isBinary() ? EventWireFormat.BINARY_V1 : EventWireFormat.JSON;
+    }
+
+    private boolean isBinary() {
+        return "binary".equalsIgnoreCase(wireFormat);
+    }
 }
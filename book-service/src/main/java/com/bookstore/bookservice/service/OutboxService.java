@@ -0,0 +1,43 @@
+package com.bookstore.bookservice.service;
+
+import com.bookstore.bookservice.entity.OutboxEvent;
+import com.bookstore.bookservice.repository.OutboxEventRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Records events in the caller's transaction, so an event exists if and only if its change committed.
+ * {@link OutboxRelay} delivers them to Kafka afterwards.
+ */
+@Service
+public class OutboxService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxService.class);
+
+    private final OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    public OutboxService(OutboxEventRepository outboxEventRepository) {
+        this.outboxEventRepository = outboxEventRepository;
+    }
+
+    @Transactional
+    public void append(String topic, String aggregateType, String aggregateId, String eventType,
+                       String contentType, byte[] payload) {
+        outboxEventRepository.save(
+                new OutboxEvent(aggregateType, aggregateId, eventType, topic, contentType, payload));
+        logger.debug("Recorded {} event for {} {} in outbox for topic {}", eventType, aggregateType, aggregateId, topic);
+    }
+
+    // Bulk writers record a whole chunk of events in one call
+    @Transactional
+    public void appendAll(List<OutboxEvent> events) {
+        outboxEventRepository.saveAll(events);
+        logger.debug("Recorded {} events in outbox", events.size());
+    }
+}
@@ -0,0 +1,437 @@
+package com.bookstore.bookservice.service;
+
+import com.bookstore.bookservice.cache.RedisLease;
+import com.bookstore.bookservice.dto.StockReservationDto;
+import com.bookstore.bookservice.entity.Book;
+import com.bookstore.bookservice.exception.BookNotFoundException;
+import com.bookstore.bookservice.exception.ReservationNotFoundException;
+import com.bookstore.bookservice.repository.BookRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Holds stock for checkouts without touching the books row per hold.
+ * <p>
+ * Holds live in Redis, shared by every instance: per book, a hash with the stock on hand, the total held
+ * and each hold's quantity, plus a sorted set of hold expiry times. Each reserve is one Lua script that
+ * first drops expired holds, then checks stock - held, so two instances can never promise the same units,
+ * and holds of an instance that crashed simply expire. The stock figure is re-read from the database at
+ * most every stock.reservation.reseed-interval-ms per book across the cluster, which also picks up changes
+ * made through PATCH /{id}/stock or updates; idle books' keys expire on their own.
+ * <p>
+ * Confirming claims the hold in Redis and then writes the sale through with the guarded stock decrement,
+ * in its own transaction, before returning: a confirmation is never reported before it is durable, and
+ * nothing is buffered in memory. If the database no longer has the units (stock was cut below what was
+ * held), the confirmation fails and the book is re-seeded; a transient failure puts the hold back so the
+ * confirmation can be retried.
+ * <p>
+ * Between the claim and the commit, the sold units are already off the Redis stock but still in the
+ * database's, so they are counted as pending until the confirmation settles, and a seed sets the stock to
+ * the database figure minus pending. Each settle bumps a counter the seed compares against the value it
+ * saw before reading the database, so a figure read before a confirmation committed is never written
+ * after it settled. Pending units of an instance that died mid-confirmation are dropped after
+ * stock.reservation.confirm-timeout-ms. Every stock.reservation.reconcile-interval-ms one instance
+ * re-reads the stock of every book with keys in batches and rebuilds held and pending from the holds,
+ * which repairs any drift left by lost replies or failed settles.
+ */
+@Service
+public class StockReservationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockReservationService.class);
+
+    private static final int MAX_SEED_ATTEMPTS = 3;
+
+    // Drops holds and unsettled confirmations (members prefixed "c:") whose deadline in KEYS[2] has passed
+    private static final String DROP_EXPIRED =
+            "local now = tonumber(ARGV[1]) " +
+            "local expired = redis.call('zrangebyscore', KEYS[2], '-inf', now) " +
+            "for _, id in ipairs(expired) do " +
+            "  local confirming = string.sub(id, 1, 2) == 'c:' " +
+            "  local field = confirming and id or 'r:' .. id " +
+            "  local q = redis.call('hget', KEYS[1], field) " +
+            "  if q then " +
+            "    redis.call('hincrby', KEYS[1], confirming and 'pending' or 'held', -tonumber(q)) " +
+            "    if confirming then redis.call('hincrby', KEYS[1], 'settles', 1) end " +
+            "    redis.call('hdel', KEYS[1], field) " +
+            "  end " +
+            "end " +
+            "if #expired > 0 then redis.call('zremrangebyscore', KEYS[2], '-inf', now) end ";
+
+    // Drops expired holds, seeds the stock if given one, then holds ARGV[2] units if available. A seed is only
+    // applied if no confirmation settled since ARGV[8] was read, and adds the book to the set KEYS[3].
+    // Returns {1, available after} when held, {0, available} when short, {-1, settles} when the stock needs seeding.
+    private static final RedisScript<List> RESERVE = new DefaultRedisScript<>(
+            DROP_EXPIRED +
+            "local settles = redis.call('hget', KEYS[1], 'settles') or '0' " +
+            "if ARGV[6] ~= '' then " +
+            "  if settles ~= ARGV[8] then return {-1, tonumber(settles)} end " +
+            "  local pending = tonumber(redis.call('hget', KEYS[1], 'pending') or '0') " +
+            "  redis.call('hset', KEYS[1], 'stock', tonumber(ARGV[6]) - pending, 'seeded', now) " +
+            "  redis.call('sadd', KEYS[3], ARGV[9]) " +
+            "else " +
+            "  local seeded = tonumber(redis.call('hget', KEYS[1], 'seeded')) " +
+            "  if not seeded or now - seeded >= tonumber(ARGV[7]) then return {-1, tonumber(settles)} end " +
+            "end " +
+            "local available = tonumber(redis.call('hget', KEYS[1], 'stock')) " +
+            "  - tonumber(redis.call('hget', KEYS[1], 'held') or '0') " +
+            "local qty = tonumber(ARGV[2]) " +
+            "if available < qty then return {0, available} end " +
+            "redis.call('hincrby', KEYS[1], 'held', qty) " +
+            "redis.call('hset', KEYS[1], 'r:' .. ARGV[3], qty) " +
+            "redis.call('zadd', KEYS[2], ARGV[4], ARGV[3]) " +
+            "redis.call('pexpire', KEYS[1], ARGV[5]) " +
+            "redis.call('pexpire', KEYS[2], ARGV[5]) " +
+            "return {1, available - qty}",
+            List.class);
+
+    // Removes a live hold. When ARGV[3] is 1 (sold) its units also come off the stock and stay pending
+    // until settled or until the deadline ARGV[4]. Returns {quantity, expiresAt}, or nil if there is no
+    // such hold or it has expired.
+    private static final RedisScript<List> TAKE = new DefaultRedisScript<>(
+            "local expiresAt = redis.call('zscore', KEYS[2], ARGV[2]) " +
+            "local q = redis.call('hget', KEYS[1], 'r:' .. ARGV[2]) " +
+            "if not expiresAt or not q or tonumber(expiresAt) <= tonumber(ARGV[1]) then return false end " +
+            "redis.call('zrem', KEYS[2], ARGV[2]) " +
+            "redis.call('hdel', KEYS[1], 'r:' .. ARGV[2]) " +
+            "redis.call('hincrby', KEYS[1], 'held', -tonumber(q)) " +
+            "if ARGV[3] == '1' then " +
+            "  redis.call('hincrby', KEYS[1], 'stock', -tonumber(q)) " +
+            "  redis.call('hincrby', KEYS[1], 'pending', tonumber(q)) " +
+            "  redis.call('hset', KEYS[1], 'c:' .. ARGV[2], q) " +
+            "  redis.call('zadd', KEYS[2], ARGV[4], 'c:' .. ARGV[2]) " +
+            "end " +
+            "return {tonumber(q), tonumber(expiresAt)}",
+            List.class);
+
+    // Ends a confirmation whose write-through committed or was refused; ARGV[2] of 1 also forces a reseed
+    private static final RedisScript<Long> SETTLE = new DefaultRedisScript<>(
+            "local q = redis.call('hget', KEYS[1], 'c:' .. ARGV[1]) " +
+            "if q then " +
+            "  redis.call('hdel', KEYS[1], 'c:' .. ARGV[1]) " +
+            "  redis.call('zrem', KEYS[2], 'c:' .. ARGV[1]) " +
+            "  redis.call('hincrby', KEYS[1], 'pending', -tonumber(q)) " +
+            "  redis.call('hincrby', KEYS[1], 'settles', 1) " +
+            "end " +
+            "if ARGV[2] == '1' then redis.call('hdel', KEYS[1], 'seeded') end " +
+            "return 1",
+            Long.class);
+
+    // Undoes a TAKE of a sold hold whose write-through failed
+    private static final RedisScript<Long> RESTORE = new DefaultRedisScript<>(
+            "redis.call('hincrby', KEYS[1], 'held', ARGV[2]) " +
+            "redis.call('hincrby', KEYS[1], 'stock', ARGV[2]) " +
+            "redis.call('hset', KEYS[1], 'r:' .. ARGV[1], ARGV[2]) " +
+            "redis.call('zadd', KEYS[2], ARGV[3], ARGV[1]) " +
+            "if redis.call('hdel', KEYS[1], 'c:' .. ARGV[1]) == 1 then " +
+            "  redis.call('zrem', KEYS[2], 'c:' .. ARGV[1]) " +
+            "  redis.call('hincrby', KEYS[1], 'pending', -tonumber(ARGV[2])) " +
+            "end " +
+            "redis.call('hincrby', KEYS[1], 'settles', 1) " +
+            "redis.call('pexpire', KEYS[1], ARGV[4]) " +
+            "redis.call('pexpire', KEYS[2], ARGV[4]) " +
+            "return 1",
+            Long.class);
+
+    // Resets a book's stock to the database figure ARGV[2] minus pending, and held and pending to the sums
+    // of its holds, unless a confirmation settled since ARGV[3] was read. An empty ARGV[2] (book gone or
+    // inactive) forces a reseed instead, and a book without keys leaves the set KEYS[3].
+    // Returns {1, stock change, available} when reset, {0, 0, 0} when skipped.
+    private static final RedisScript<List> RECONCILE = new DefaultRedisScript<>(
+            "if redis.call('exists', KEYS[1]) == 0 then " +
+            "  redis.call('srem', KEYS[3], ARGV[4]) " +
+            "  return {0, 0, 0} " +
+            "end " +
+            DROP_EXPIRED +
+            "if ARGV[2] == '' then " +
+            "  redis.call('hdel', KEYS[1], 'seeded') " +
+            "  return {0, 0, 0} " +
+            "end " +
+            "if (redis.call('hget', KEYS[1], 'settles') or '0') ~= ARGV[3] then return {0, 0, 0} end " +
+            "local held, pending = 0, 0 " +
+            "local fields = redis.call('hgetall', KEYS[1]) " +
+            "for i = 1, #fields, 2 do " +
+            "  local prefix = string.sub(fields[i], 1, 2) " +
+            "  if prefix == 'r:' then held = held + tonumber(fields[i + 1]) " +
+            "  elseif prefix == 'c:' then pending = pending + tonumber(fields[i + 1]) end " +
+            "end " +
+            "local stock = tonumber(ARGV[2]) - pending " +
+            "local change = stock - tonumber(redis.call('hget', KEYS[1], 'stock') or stock) " +
+            "redis.call('hset', KEYS[1], 'stock', stock, 'held', held, 'pending', pending, 'seeded', now) " +
+            "return {1, change, stock - held}",
+            List.class);
+
+    private final BookRepository bookRepository;
+    private final BookService bookService;
+    private final StringRedisTemplate redisTemplate;
+    private final Clock clock;
+
+    @Value("${stock.reservation.default-ttl-seconds:600}")
+    private int defaultTtlSeconds = 600;
+
+    @Value("${stock.reservation.max-ttl-seconds:3600}")
+    private int maxTtlSeconds = 3600;
+
+    @Value("${stock.reservation.reseed-interval-ms:5000}")
+    private long reseedIntervalMs = 5000;
+
+    @Value("${stock.reservation.confirm-timeout-ms:30000}")
+    private long confirmTimeoutMs = 30000;
+
+    @Value("${stock.reservation.reconcile-interval-ms:60000}")
+    private long reconcileIntervalMs = 60000;
+
+    @Value("${batch.chunk-size:1000}")
+    private int chunkSize = 1000;
+
+    @Value("${stock.reservation.key-prefix:book-service:stock:}")
+    private String keyPrefix = "book-service:stock:";
+
+    @Autowired
+    public StockReservationService(BookRepository bookRepository, BookService bookService,
+                                   StringRedisTemplate redisTemplate) {
+        this(bookRepository, bookService, redisTemplate, Clock.systemUTC());
+    }
+
+    StockReservationService(BookRepository bookRepository, BookService bookService,
+                            StringRedisTemplate redisTemplate, Clock clock) {
+        this.bookRepository = bookRepository;
+        this.bookService = bookService;
+        this.redisTemplate = redisTemplate;
+        this.clock = clock;
+    }
+
+    public StockReservationDto reserve(Long bookId, int quantity, Integer ttlSeconds) {
+        if (quantity < 1) {
+            throw new IllegalArgumentException("Reservation quantity must be at least 1");
+        }
+        int ttl = ttlSeconds != null ? ttlSeconds : defaultTtlSeconds;
+        if (ttl < 1 || ttl > maxTtlSeconds) {
+            throw new IllegalArgumentException("Reservation TTL must be between 1 and " + maxTtlSeconds + " seconds");
+        }
+
+        String holdId = UUID.randomUUID().toString();
+        Instant expiresAt = clock.instant().plusSeconds(ttl);
+        List<?> result = reserveScript(bookId, quantity, holdId, expiresAt, "", "");
+        for (int attempt = 0; status(result) < 0; attempt++) {
+            if (attempt == MAX_SEED_ATTEMPTS) {
+                throw new IllegalStateException("Stock of book ID " + bookId + " kept changing while being seeded");
+            }
+            // Read the counter before the database, so a confirmation settling in between voids the figure
+            String settles = String.valueOf(result.get(1));
+            result = reserveScript(bookId, quantity, holdId, expiresAt, String.valueOf(stockOnHand(bookId)), settles);
+        }
+        if (status(result) == 0) {
+            throw new IllegalArgumentException("Insufficient stock. Available: "
+                                               + Math.max(((Number) result.get(1)).longValue(), 0)
+                                               + ", Requested: " + quantity);
+        }
+
+        String reservationId = bookId + ":" + holdId;
+        logger.debug("Reserved {} of book ID: {} as {}", quantity, bookId, reservationId);
+        return toDto(reservationId, bookId, quantity, StockReservationDto.HELD, expiresAt);
+    }
+
+    public StockReservationDto confirm(String reservationId) {
+        Long bookId = bookIdOf(reservationId);
+        String holdId = holdIdOf(reservationId);
+        List<?> hold = take(reservationId, bookId, holdId, true);
+        int quantity = ((Number) hold.get(0)).intValue();
+        Instant expiresAt = Instant.ofEpochMilli(((Number) hold.get(1)).longValue());
+
+        try {
+            // Guarded decrement, committed before the confirmation is reported
+            bookService.updateStock(bookId, -quantity);
+        } catch (BookNotFoundException | IllegalArgumentException e) {
+            // The database no longer has the units; the hold is spent, and the stock is re-read on the next hold
+            logger.warn("Could not confirm reservation {} for book ID: {}: {}", reservationId, bookId, e.getMessage());
+            settle(bookId, holdId, true);
+            throw e;
+        } catch (RuntimeException e) {
+            logger.error("Failed to write confirmed reservation {} through, restoring the hold", reservationId, e);
+            redisTemplate.execute(RESTORE, keys(bookId), holdId, String.valueOf(quantity),
+                    String.valueOf(expiresAt.toEpochMilli()), keyTtlMs());
+            throw e;
+        }
+        settle(bookId, holdId, false);
+
+        logger.debug("Confirmed reservation {} for book ID: {}", reservationId, bookId);
+        return toDto(reservationId, bookId, quantity, StockReservationDto.CONFIRMED, expiresAt);
+    }
+
+    public StockReservationDto release(String reservationId) {
+        Long bookId = bookIdOf(reservationId);
+        List<?> hold = take(reservationId, bookId, holdIdOf(reservationId), false);
+
+        logger.debug("Released reservation {} for book ID: {}", reservationId, bookId);
+        return toDto(reservationId, bookId, ((Number) hold.get(0)).intValue(), StockReservationDto.RELEASED,
+                Instant.ofEpochMilli(((Number) hold.get(1)).longValue()));
+    }
+
+    /**
+     * Resets every tracked book's Redis stock to the database figure and rebuilds its held and pending
+     * totals from the holds themselves. The lease is kept for the interval, so one instance runs it per
+     * interval across the cluster.
+     */
+    @Scheduled(fixedDelayString = "${stock.reservation.reconcile-interval-ms:60000}",
+               initialDelayString = "${stock.reservation.reconcile-interval-ms:60000}")
+    public void reconcile() {
+        RedisLease lease = new RedisLease(redisTemplate, Duration.ofMillis(reconcileIntervalMs));
+        if (lease.tryAcquire(keyPrefix + "reconcile") == null) {
+            return;
+        }
+
+        try {
+            Set<String> members = redisTemplate.opsForSet().members(booksKey());
+            List<Long> bookIds = members == null ? List.of() : members.stream().map(Long::valueOf).sorted().toList();
+            int drifted = 0;
+            for (int from = 0; from < bookIds.size(); from += chunkSize) {
+                drifted += reconcileChunk(bookIds.subList(from, Math.min(from + chunkSize, bookIds.size())));
+            }
+            if (drifted > 0) {
+                logger.info("Reconciled reserved stock of {} books, {} had drifted", bookIds.size(), drifted);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Stock reservation reconciliation failed", e);
+        }
+    }
+
+    private int reconcileChunk(List<Long> bookIds) {
+        // Settle counters first, for the same reason as when seeding
+        Map<Long, String> settles = new HashMap<>();
+        for (Long bookId : bookIds) {
+            Object value = redisTemplate.opsForHash().get(stockKey(bookId), "settles");
+            settles.put(bookId, value != null ? value.toString() : "0");
+        }
+        Map<Long, Book> books = bookRepository.findAllById(bookIds).stream()
+                .collect(Collectors.toMap(Book::getId, Function.identity()));
+
+        int drifted = 0;
+        for (Long bookId : bookIds) {
+            Book book = books.get(bookId);
+            String stock = book != null && Boolean.TRUE.equals(book.getActive())
+                    ? String.valueOf(book.getStockQuantity()) : "";
+            List<String> keys = List.of(stockKey(bookId), stockKey(bookId) + ":expiries", booksKey());
+            List<?> result = redisTemplate.execute(RECONCILE, keys,
+                    String.valueOf(clock.millis()), stock, settles.get(bookId), String.valueOf(bookId));
+            if (result == null || result.size() < 3 || status(result) != 1) {
+                continue;
+            }
+            long change = ((Number) result.get(1)).longValue();
+            if (change != 0) {
+                drifted++;
+                logger.debug("Reserved stock of book ID: {} was off by {}", bookId, -change);
+            }
+            long available = ((Number) result.get(2)).longValue();
+            if (available < 0) {
+                logger.warn("Holds on book ID: {} exceed its stock by {}", bookId, -available);
+            }
+        }
+        return drifted;
+    }
+
+    private List<?> reserveScript(Long bookId, int quantity, String holdId, Instant expiresAt, String seed,
+                                  String settles) {
+        List<?> result = redisTemplate.execute(RESERVE,
+                List.of(stockKey(bookId), stockKey(bookId) + ":expiries", booksKey()),
+                String.valueOf(clock.millis()), String.valueOf(quantity), holdId,
+                String.valueOf(expiresAt.toEpochMilli()), keyTtlMs(), seed, String.valueOf(reseedIntervalMs),
+                settles, String.valueOf(bookId));
+        if (result == null || result.size() < 2) {
+            throw new IllegalStateException("Unexpected reply from the reservation store");
+        }
+        return result;
+    }
+
+    private List<?> take(String reservationId, Long bookId, String holdId, boolean sold) {
+        List<?> hold = redisTemplate.execute(TAKE, keys(bookId),
+                String.valueOf(clock.millis()), holdId, sold ? "1" : "0",
+                String.valueOf(clock.millis() + confirmTimeoutMs));
+        if (hold == null || hold.size() < 2) {
+            throw notFound(reservationId);
+        }
+        return hold;
+    }
+
+    private void settle(Long bookId, String holdId, boolean reseed) {
+        try {
+            redisTemplate.execute(SETTLE, keys(bookId), holdId, reseed ? "1" : "0");
+        } catch (RuntimeException e) {
+            // The units stay pending until the confirm timeout, which only understates availability
+            logger.warn("Could not settle confirmation {} of book ID: {}: {}", holdId, bookId, e.getMessage());
+        }
+    }
+
+    private int stockOnHand(Long bookId) {
+        Book book = bookRepository.findById(bookId)
+                .orElseThrow(() -> new BookNotFoundException("Book not found with ID: " + bookId));
+        if (!Boolean.TRUE.equals(book.getActive())) {
+            throw new IllegalArgumentException("Book is not available for reservation: " + bookId);
+        }
+        return book.getStockQuantity();
+    }
+
+    private static int status(List<?> result) {
+        return ((Number) result.get(0)).intValue();
+    }
+
+    // Reservation ids are "<bookId>:<hold id>", so confirm and release find the book without a lookup
+    private static Long bookIdOf(String reservationId) {
+        int separator = reservationId.indexOf(':');
+        try {
+            return Long.valueOf(reservationId.substring(0, Math.max(separator, 0)));
+        } catch (NumberFormatException e) {
+            throw notFound(reservationId);
+        }
+    }
+
+    private static String holdIdOf(String reservationId) {
+        return reservationId.substring(reservationId.indexOf(':') + 1);
+    }
+
+    private static ReservationNotFoundException notFound(String reservationId) {
+        return new ReservationNotFoundException("Reservation not found or expired: " + reservationId);
+    }
+
+    private List<String> keys(Long bookId) {
+        return List.of(stockKey(bookId), stockKey(bookId) + ":expiries");
+    }
+
+    private String stockKey(Long bookId) {
+        return keyPrefix + bookId;
+    }
+
+    // Ids of the books with reservation keys, for the reconciliation
+    private String booksKey() {
+        return keyPrefix + "books";
+    }
+
+    // Outlives the longest possible hold, so a book's keys only expire once it has none
+    private String keyTtlMs() {
+        return String.valueOf(Duration.ofSeconds(maxTtlSeconds).plusMinutes(1).toMillis());
+    }
+
+    private StockReservationDto toDto(String reservationId, Long bookId, int quantity, String status, Instant expiresAt) {
+        return new StockReservationDto(reservationId, bookId, quantity, status,
+                LocalDateTime.ofInstant(expiresAt, ZoneId.systemDefault()));
+    }
+}
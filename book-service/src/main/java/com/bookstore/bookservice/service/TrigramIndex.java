@@ -0,0 +1,216 @@
+package com.bookstore.bookservice.service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Case- and accent-insensitive substring index over one text field, keyed by int document id.
+ * Every distinct trigram of a value maps to a sorted posting array. A query intersects the postings
+ * of its own trigrams and then verifies each surviving candidate with String.contains, so results
+ * are exactly those of a "containing" scan over the normalized values.
+ *
+ * <p>Values and queries are lower-cased and stripped of combining accents, so "Garcia" finds
+ * "García" as MySQL's accent-insensitive collation does. Letters that do not decompose into a base
+ * letter and an accent (such as "ø" or "ß") still only match themselves, where the collation may fold them.
+ */
+public class TrigramIndex {
+
+    public static final int GRAM_LENGTH = 3;
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    private final Map<Long, Posting> postings = new HashMap<>();
+    private final Map<Integer, String> values = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Queries shorter than a trigram cannot be narrowed by the index.
+     */
+    public static boolean isSearchable(String query) {
+        return query != null && normalize(query).length() >= GRAM_LENGTH;
+    }
+
+    public void put(int id, String value) {
+        String normalized = value == null ? null : normalize(value);
+        lock.writeLock().lock();
+        try {
+            String previous = normalized == null ? values.remove(id) : values.put(id, normalized);
+            if (Objects.equals(previous, normalized)) {
+                return;
+            }
+            Set<Long> oldGrams = trigrams(previous);
+            Set<Long> newGrams = trigrams(normalized);
+            for (Long gram : oldGrams) {
+                if (!newGrams.contains(gram)) {
+                    removePosting(gram, id);
+                }
+            }
+            for (Long gram : newGrams) {
+                if (!oldGrams.contains(gram)) {
+                    postings.computeIfAbsent(gram, g -> new Posting()).add(id);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int id) {
+        put(id, null);
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            values.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return values.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the ids, in ascending order, of every value containing the query ignoring case.
+     * The query must satisfy {@link #isSearchable(String)}.
+     */
+    public int[] search(String query) {
+        if (!isSearchable(query)) {
+            throw new IllegalArgumentException("Query must be at least " + GRAM_LENGTH + " characters");
+        }
+        String normalized = normalize(query);
+        Set<Long> grams = trigrams(normalized);
+
+        lock.readLock().lock();
+        try {
+            List<Posting> lists = new ArrayList<>(grams.size());
+            for (Long gram : grams) {
+                Posting posting = postings.get(gram);
+                if (posting == null) {
+                    return new int[0];
+                }
+                lists.add(posting);
+            }
+            // Drive the intersection from the rarest trigram so each later probe only shrinks the set
+            lists.sort((a, b) -> Integer.compare(a.size, b.size));
+
+            Posting smallest = lists.get(0);
+            int[] candidates = Arrays.copyOf(smallest.ids, smallest.size);
+            int count = candidates.length;
+            for (int i = 1; i < lists.size() && count > 0; i++) {
+                count = retainAll(candidates, count, lists.get(i));
+            }
+
+            // Trigram co-occurrence is necessary but not sufficient, so confirm the real substring
+            int matches = 0;
+            for (int i = 0; i < count; i++) {
+                String value = values.get(candidates[i]);
+                if (value != null && value.contains(normalized)) {
+                    candidates[matches++] = candidates[i];
+                }
+            }
+            return Arrays.copyOf(candidates, matches);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void removePosting(Long gram, int id) {
+        Posting posting = postings.get(gram);
+        if (posting != null && posting.remove(id) && posting.size == 0) {
+            postings.remove(gram);
+        }
+    }
+
+    private static int retainAll(int[] candidates, int count, Posting posting) {
+        int kept = 0;
+        int from = 0;
+        for (int i = 0; i < count; i++) {
+            int position = Arrays.binarySearch(posting.ids, from, posting.size, candidates[i]);
+            if (position >= 0) {
+                candidates[kept++] = candidates[i];
+                from = position + 1;
+            } else {
+                from = -position - 1;
+            }
+            if (from >= posting.size) {
+                break;
+            }
+        }
+        return kept;
+    }
+
+    static String normalize(String value) {
+        String lower = value.toLowerCase(Locale.ROOT);
+        for (int i = 0; i < lower.length(); i++) {
+            if (lower.charAt(i) >= 0x80) {
+                return COMBINING_MARKS.matcher(Normalizer.normalize(lower, Normalizer.Form.NFD)).replaceAll("");
+            }
+        }
+        return lower;
+    }
+
+    static Set<Long> trigrams(String normalized) {
+        if (normalized == null || normalized.length() < GRAM_LENGTH) {
+            return Set.of();
+        }
+        Set<Long> grams = new HashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= normalized.length(); i++) {
+            grams.add(((long) normalized.charAt(i) << 32)
+                    | ((long) normalized.charAt(i + 1) << 16)
+                    | normalized.charAt(i + 2));
+        }
+        return grams;
+    }
+
+    /**
+     * Sorted, growable int array. New books get increasing ids, so inserts are almost always appends.
+     */
+    private static final class Posting {
+        private int[] ids = new int[4];
+        private int size;
+
+        void add(int id) {
+            int position = size == 0 || ids[size - 1] < id ? -size - 1 : Arrays.binarySearch(ids, 0, size, id);
+            if (position >= 0) {
+                return;
+            }
+            int insertAt = -position - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+            }
+            System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+            ids[insertAt] = id;
+            size++;
+        }
+
+        boolean remove(int id) {
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position < 0) {
+                return false;
+            }
+            System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+            size--;
+            return true;
+        }
+    }
+}
@@ -1,63 +1,167 @@
 package com.bookstore.bookservice.service;
 
 import com.bookstore.bookservice.dto.UserEventDTO;
+import com.bookstore.bookservice.event.EventWireFormat;
+import com.bookstore.bookservice.event.UserEventCodec;
+import com.bookstore.bookservice.kafka.KeyOrderedParallelProcessor;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
 import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.util.List;
+
 @Service
 public class UserEventConsumerService {
     
     private static final Logger logger = LoggerFactory.getLogger(UserEventConsumerService.class);
     
     private final ObjectMapper objectMapper;
+    private final DeadLetterPublishingRecoverer deadLetterRecoverer;
+    private final KeyOrderedParallelProcessor parallelProcessor;
+    
+    @Value("${kafka.consumer.retry.max-attempts:3}")
+    private int retryMaxAttempts = 3;
     
+    @Value("${kafka.consumer.retry.backoff-ms:100}")
+    private long retryBackoffMs = 100;
+    
+    @Value("${kafka.consumer.retry.max-backoff-ms:1000}")
+    private long retryMaxBackoffMs = 1000;
+
     @Autowired
-    public UserEventConsumerService(ObjectMapper objectMapper) {
+    public UserEventConsumerService(ObjectMapper objectMapper, DeadLetterPublishingRecoverer deadLetterRecoverer,
+                                    KeyOrderedParallelProcessor parallelProcessor) {
         this.objectMapper = objectMapper;
+        this.deadLetterRecoverer = deadLetterRecoverer;
+        this.parallelProcessor = parallelProcessor;
     }
     
-    @KafkaListener(topics = "${kafka.topics.user-events}", groupId = "${spring.kafka.consumer.group-id}", containerFactory = "stringKafkaListenerContainerFactory")
-    public void consumeUserEvent(String eventJson, Acknowledgment ack) {
+    /**
+     * Handles a whole poll and commits it once. A record that cannot be decoded or is invalid goes straight
+     * to the dead-letter topic; one whose handling fails is retried in place up to kafka.consumer.retry.max-attempts
+     * times with doubling backoff, and dead-lettered only once those run out. Either way the rest of the batch
+     * carries on.
+     * In parallel mode the records are handed to workers keyed by user ID instead, and the processor
+     * commits offsets as contiguous runs of them finish.
+     */
+    @KafkaListener(topics = "${kafka.topics.user-events}", groupId = "${spring.kafka.consumer.group-id}", containerFactory = "batchEventKafkaListenerContainerFactory")
+    public void consumeUserEvents(List<ConsumerRecord<String, byte[]>> records, Acknowledgment ack,
+                                  Consumer<?, ?> consumer) {
+        if (parallelProcessor.isEnabled()) {
+            // A failed dead-letter publish is retried by the processor on that key's lane
+            parallelProcessor.process(records, consumer, this::process);
+            return;
+        }
+        
+        int deadLettered = 0;
+        for (int i = 0; i < records.size(); i++) {
+            try {
+                if (!process(records.get(i))) {
+                    deadLettered++;
+                }
+            } catch (RuntimeException e) {
+                // Nothing from this record on is committed; the container redelivers from here
+                throw new BatchListenerFailedException("Failed to dead-letter user event", e, i);
+            }
+        }
+        
+        // Acknowledge the whole batch to Kafka in one commit
+        ack.acknowledge();
+        logger.debug("Processed batch of {} user events, {} dead-lettered", records.size(), deadLettered);
+    }
+    
+    // Returns false when the record went to the dead-letter topic; throws if even that failed
+    private boolean process(ConsumerRecord<String, byte[]> record) {
+        UserEventDTO userEvent;
         try {
-            logger.info("Received user event: {}", eventJson);
-            
-            UserEventDTO userEvent = objectMapper.readValue(eventJson, UserEventDTO.class);
-            
-            // Process the event based on event type
-            switch (userEvent.getEventType()) {
-                case "USER_CREATED":
-                    handleUserCreated(userEvent);
-                    break;
-                case "USER_UPDATED":
-                    handleUserUpdated(userEvent);
-                    break;
-                case "USER_ACTIVATED":
-                    handleUserActivated(userEvent);
-                    break;
-                case "USER_DEACTIVATED":
-                    handleUserDeactivated(userEvent);
-                    break;
-                case "USER_DELETED":
-                    handleUserDeleted(userEvent);
-                    break;
-                default:
-                    logger.warn("Unknown user event type: {}", userEvent.getEventType());
+            userEvent = decode(record);
+            validate(userEvent);
+        } catch (IOException | RuntimeException e) {
+            // Retrying cannot fix a malformed or invalid record
+            logger.error("Invalid user event at {}-{}@{}, dead-lettering it",
+                        record.topic(), record.partition(), record.offset(), e);
+            deadLetterRecoverer.accept(record, e);
+            return false;
+        }
+        
+        logger.info("Received user event: {}", userEvent);
+        for (int attempt = 1; ; attempt++) {
+            try {
+                handle(userEvent);
+                return true;
+            } catch (RuntimeException e) {
+                if (attempt >= retryMaxAttempts) {
+                    logger.error("User event at {}-{}@{} failed {} times, dead-lettering it",
+                            record.topic(), record.partition(), record.offset(), attempt, e);
+                    deadLetterRecoverer.accept(record, e);
+                    return false;
+                }
+                long backoffMs = Math.min(retryBackoffMs << (attempt - 1), retryMaxBackoffMs);
+                logger.warn("User event at {}-{}@{} failed, retrying in {} ms: {}",
+                        record.topic(), record.partition(), record.offset(), backoffMs, e.getMessage());
+                sleep(backoffMs);
             }
-            
-            // Acknowledge the message to Kafka
-            ack.acknowledge();
-            
-        } catch (Exception e) {
-            logger.error("Error processing user event: {}", eventJson, e);
-            // Don't acknowledge the message to trigger redelivery
         }
     }
     
+    private static void validate(UserEventDTO userEvent) {
+        if (userEvent == null || userEvent.getEventType() == null || userEvent.getUserId() == null) {
+            throw new IllegalArgumentException("User event has no event type or user ID");
+        }
+    }
+    
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            // Leaves the record uncommitted, to be redelivered
+            throw new IllegalStateException("Interrupted while retrying user event", e);
+        }
+    }
+    
+    // Package-private so tests can make it fail
+    void handle(UserEventDTO userEvent) {
+        // Process the event based on event type
+        switch (userEvent.getEventType()) {
+            case "USER_CREATED":
+                handleUserCreated(userEvent);
+                break;
+            case "USER_UPDATED":
+                handleUserUpdated(userEvent);
+                break;
+            case "USER_ACTIVATED":
+                handleUserActivated(userEvent);
+                break;
+            case "USER_DEACTIVATED":
+                handleUserDeactivated(userEvent);
+                break;
+            case "USER_DELETED":
+                handleUserDeleted(userEvent);
+                break;
+            default:
+                logger.warn("Unknown user event type: {}", userEvent.getEventType());
+        }
+    }
+    
+    // Binary when the producer says so; anything else, including records without the header, is JSON
+    private UserEventDTO decode(ConsumerRecord<String, byte[]> record) throws IOException {
+        if (EventWireFormat.isBinary(EventWireFormat.contentType(record.headers()))) {
+            return UserEventCodec.decode(record.value());
+        }
+        return objectMapper.readValue(record.value(), UserEventDTO.class);
+    }
+    
     private void handleUserCreated(UserEventDTO userEvent) {
         logger.info("Processing USER_CREATED event for user ID: {}, name: {} {}", 
                 userEvent.getUserId(), userEvent.getFirstName(), userEvent.getLastName());
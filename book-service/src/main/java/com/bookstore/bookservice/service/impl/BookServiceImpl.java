@@ -1,36 +1,65 @@
 package com.bookstore.bookservice.service.impl;
 
+import com.bookstore.bookservice.cache.BookBatchCache;
+import com.bookstore.bookservice.cache.BookCacheInvalidator;
+import com.bookstore.bookservice.dto.BookBatchGetRequestDto;
+import com.bookstore.bookservice.dto.BookBatchGetResultDto;
 import com.bookstore.bookservice.dto.BookDto;
 import com.bookstore.bookservice.dto.CreateBookRequestDto;
+import com.bookstore.bookservice.dto.CursorPage;
 import com.bookstore.bookservice.dto.UpdateBookRequestDto;
 import com.bookstore.bookservice.entity.Book;
 import com.bookstore.bookservice.event.BookEvent;
 import com.bookstore.bookservice.exception.BookNotFoundException;
 import com.bookstore.bookservice.exception.DuplicateIsbnException;
 import com.bookstore.bookservice.exception.IdempotencyException;
+import com.bookstore.bookservice.exception.InvalidCursorException;
 import com.bookstore.bookservice.mapper.BookMapper;
+import com.bookstore.bookservice.ratelimit.DistributedRateLimiter;
 import com.bookstore.bookservice.repository.BookRepository;
+import com.bookstore.bookservice.repository.BookSpecifications;
+import com.bookstore.bookservice.service.BookSearchIndex;
 import com.bookstore.bookservice.service.BookService;
+import com.bookstore.bookservice.service.BookSubstringIndex;
+import com.bookstore.bookservice.service.InventoryStatistics;
+import com.bookstore.bookservice.service.IsbnFilter;
 import com.bookstore.bookservice.service.IdempotencyService;
 import com.bookstore.bookservice.service.KafkaProducerService;
+import com.bookstore.bookservice.util.BatchLoader;
+import com.bookstore.bookservice.util.KeysetCursor;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
-import io.github.resilience4j.ratelimiter.annotation.RateLimiter;
 import io.github.resilience4j.retry.annotation.Retry;
+import org.hibernate.exception.ConstraintViolationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.KeysetScrollPosition;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -38,86 +67,201 @@ import java.util.stream.Collectors;
 public class BookServiceImpl implements BookService {
 
     private static final Logger logger = LoggerFactory.getLogger(BookServiceImpl.class);
+    private static final int MAX_IN_CLAUSE_SIZE = 1000;
+    private static final int MAX_SCROLL_SIZE = 1000;
+    // Each book adds two CASE parameters and one IN parameter to the batch stock UPDATE
+    private static final int STOCK_BATCH_SIZE = 500;
+
+    // Sortable columns for keyset pagination; all are NOT NULL so (value, id) is a strict total order
+    private static final Map<String, Function<String, Object>> KEYSET_COLUMNS = Map.of(
+            "id", Long::valueOf,
+            "title", value -> value,
+            "author", value -> value,
+            "isbn", value -> value,
+            "price", BigDecimal::new
+    );
 
     private final BookRepository bookRepository;
     private final BookMapper bookMapper;
     private final KafkaProducerService kafkaProducerService;
     private final IdempotencyService idempotencyService;
+    private final BookSearchIndex bookSearchIndex;
+    private final BookSubstringIndex bookSubstringIndex;
+    private final BookCacheInvalidator bookCacheInvalidator;
+    private final InventoryStatistics inventoryStatistics;
+    private final BookBatchCache bookBatchCache;
+    private final BatchLoader<Long, BookDto> bookByIdLoader;
+    private final IsbnFilter isbnFilter;
 
     @Autowired
     public BookServiceImpl(BookRepository bookRepository, 
                           BookMapper bookMapper,
                           KafkaProducerService kafkaProducerService,
-                          IdempotencyService idempotencyService) {
+                          IdempotencyService idempotencyService,
+                          BookSearchIndex bookSearchIndex,
+                          BookSubstringIndex bookSubstringIndex,
+                          BookCacheInvalidator bookCacheInvalidator,
+                          InventoryStatistics inventoryStatistics,
+                          BookBatchCache bookBatchCache,
+                          BatchLoader<Long, BookDto> bookByIdLoader,
+                          IsbnFilter isbnFilter) {
         this.bookRepository = bookRepository;
         this.bookMapper = bookMapper;
         this.kafkaProducerService = kafkaProducerService;
         this.idempotencyService = idempotencyService;
+        this.bookSearchIndex = bookSearchIndex;
+        this.bookSubstringIndex = bookSubstringIndex;
+        this.bookCacheInvalidator = bookCacheInvalidator;
+        this.inventoryStatistics = inventoryStatistics;
+        this.bookBatchCache = bookBatchCache;
+        this.bookByIdLoader = bookByIdLoader;
+        this.isbnFilter = isbnFilter;
     }
 
     @Override
     @CircuitBreaker(name = "book-service", fallbackMethod = "createBookFallback")
-    @RateLimiter(name = "book-service")
-    @CacheEvict(value = "books", allEntries = true)
+    @DistributedRateLimiter(name = "book-service")
     public BookDto createBook(CreateBookRequestDto createBookRequest) {
         logger.info("Creating book with ISBN: {}", createBookRequest.getIsbn());
 
-        // Check if ISBN already exists
-        if (bookRepository.existsByIsbn(createBookRequest.getIsbn())) {
+        // Check if ISBN already exists; a definite miss in the filter needs no query, the unique index backs it up
+        if (isbnFilter.mightContain(createBookRequest.getIsbn())
+                && bookRepository.existsByIsbn(createBookRequest.getIsbn())) {
             throw new DuplicateIsbnException("Book with ISBN " + createBookRequest.getIsbn() + " already exists");
         }
 
         Book book = bookMapper.toEntity(createBookRequest);
-        Book savedBook = bookRepository.save(book);
+        Book savedBook;
+        try {
+            // Flushed here so a violation of the index surfaces in this method rather than at commit
+            savedBook = bookRepository.saveAndFlush(book);
+        } catch (DataIntegrityViolationException e) {
+            // A filter that has not heard of another node's new ISBN, or a concurrent create, got past the check
+            if (!isIsbnConflict(e)) {
+                throw e;
+            }
+            throw new DuplicateIsbnException("Book with ISBN " + createBookRequest.getIsbn() + " already exists", e);
+        }
 
         // Publish CDC event
         BookEvent bookEvent = new BookEvent("BOOK_CREATED", savedBook.getId(), 
                                            savedBook.getTitle(), savedBook.getAuthor(), 
                                            savedBook.getIsbn(), savedBook.getStockQuantity());
         kafkaProducerService.publishBookEvent(bookEvent);
+        bookSearchIndex.indexAfterCommit(savedBook);
+        bookSubstringIndex.indexAfterCommit(savedBook);
+        bookCacheInvalidator.bookCreated(savedBook);
+        inventoryStatistics.bookCreatedAfterCommit(savedBook);
+        isbnFilter.bookCreatedAfterCommit(savedBook);
 
         logger.info("Book created successfully with ID: {}", savedBook.getId());
         return bookMapper.toDto(savedBook);
     }
 
     @Override
-    @Cacheable(value = "books", key = "#id")
+    @Cacheable(value = "books", key = "#id", sync = true)
     @CircuitBreaker(name = "book-service", fallbackMethod = "getBookByIdFallback")
     @Retry(name = "book-service")
-    @Transactional(readOnly = true)
+    // No transaction: concurrent misses wait on one shared query and must not each hold a connection meanwhile
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public BookDto getBookById(Long id) {
         logger.debug("Fetching book with ID: {}", id);
         
-        Book book = bookRepository.findById(id)
-                .orElseThrow(() -> new BookNotFoundException("Book not found with ID: " + id));
-        
-        return bookMapper.toDto(book);
+        BookDto book = bookByIdLoader.load(id);
+        if (book == null) {
+            throw new BookNotFoundException("Book not found with ID: " + id);
+        }
+        return book;
     }
 
     @Override
-    @Cacheable(value = "books", key = "#isbn")
+    // ISBNs the filter rules out skip the cache too, so probes for unknown ISBNs cost no Redis round trips.
+    // A book created on another node is reported missing here until this node hears the announcement or
+    // rebuilds its filter (isbn-filter.rebuild-interval-ms); announcements are only lost while this node is
+    // disconnected from Redis pub/sub.
+    @Cacheable(value = "books", key = "#isbn", sync = true, condition = "@isbnFilter.mightContain(#isbn)")
     @CircuitBreaker(name = "book-service", fallbackMethod = "getBookByIsbnFallback")
     @Transactional(readOnly = true)
     public BookDto getBookByIsbn(String isbn) {
         logger.debug("Fetching book with ISBN: {}", isbn);
         
-        Book book = bookRepository.findByIsbn(isbn)
-                .orElseThrow(() -> new BookNotFoundException("Book not found with ISBN: " + isbn));
+        if (isbnFilter.isKnownMissing(isbn)) {
+            throw new BookNotFoundException("Book not found with ISBN: " + isbn);
+        }
+        Optional<Book> book = bookRepository.findByIsbn(isbn);
+        if (book.isEmpty()) {
+            isbnFilter.recordMissing(isbn);
+            throw new BookNotFoundException("Book not found with ISBN: " + isbn);
+        }
         
-        return bookMapper.toDto(book);
+        return bookMapper.toDto(book.get());
     }
 
+    // No transaction: nothing holds a connection while Redis is read, and the one query for the misses
+    // runs in the repository's own read-only transaction
     @Override
-    @Cacheable(value = "all-books")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public BookBatchGetResultDto getBooks(List<Long> ids, List<String> isbns) {
+        Set<Long> requestedIds = new LinkedHashSet<>(ids != null ? ids : List.of());
+        Set<String> requestedIsbns = new LinkedHashSet<>(isbns != null ? isbns : List.of());
+        requestedIds.remove(null);
+        requestedIsbns.remove(null);
+        if (requestedIds.size() + requestedIsbns.size() > BookBatchGetRequestDto.MAX_KEYS) {
+            throw new IllegalArgumentException(
+                    "At most " + BookBatchGetRequestDto.MAX_KEYS + " ids and ISBNs can be requested at once");
+        }
+        logger.debug("Fetching {} books by ID and {} by ISBN", requestedIds.size(), requestedIsbns.size());
+
+        // ISBNs the filter rules out are reported missing without a cache read or a query
+        List<String> lookupIsbns = requestedIsbns.stream().filter(isbnFilter::mightContain).toList();
+        List<Object> keys = new ArrayList<>(requestedIds.size() + lookupIsbns.size());
+        keys.addAll(requestedIds);
+        keys.addAll(lookupIsbns);
+        Map<Object, BookDto> found = bookBatchCache.getAll(keys);
+
+        List<Long> uncachedIds = requestedIds.stream().filter(id -> !found.containsKey(id)).toList();
+        List<String> uncachedIsbns = lookupIsbns.stream().filter(isbn -> !found.containsKey(isbn)).toList();
+        if (!uncachedIds.isEmpty() || !uncachedIsbns.isEmpty()) {
+            List<BookDto> loaded = uncachedIsbns.isEmpty() ? bookRepository.findBookDtosByIdIn(uncachedIds)
+                    : uncachedIds.isEmpty() ? bookRepository.findBookDtosByIsbnIn(uncachedIsbns)
+                    : bookRepository.findBookDtosByIdInOrIsbnIn(uncachedIds, uncachedIsbns);
+            for (BookDto book : loaded) {
+                found.put(book.getId(), book);
+                found.put(book.getIsbn(), book);
+            }
+            bookBatchCache.putAll(loaded);
+        }
+
+        Map<Long, BookDto> books = new LinkedHashMap<>();
+        List<Long> missingIds = new ArrayList<>();
+        List<String> missingIsbns = new ArrayList<>();
+        for (Long id : requestedIds) {
+            BookDto book = found.get(id);
+            if (book != null) {
+                books.putIfAbsent(book.getId(), book);
+            } else {
+                missingIds.add(id);
+            }
+        }
+        for (String isbn : requestedIsbns) {
+            BookDto book = found.get(isbn);
+            if (book != null) {
+                books.putIfAbsent(book.getId(), book);
+            } else {
+                missingIsbns.add(isbn);
+            }
+        }
+        return new BookBatchGetResultDto(new ArrayList<>(books.values()), missingIds, missingIsbns);
+    }
+
+    @Override
+    @Cacheable(value = "all-books", sync = true)
     @CircuitBreaker(name = "book-service", fallbackMethod = "getAllBooksFallback")
     @Transactional(readOnly = true)
     public List<BookDto> getAllBooks() {
         logger.debug("Fetching all books");
         
-        List<Book> books = bookRepository.findByActiveTrue();
-        return books.stream()
-                .map(bookMapper::toDto)
-                .collect(Collectors.toList());
+        return bookRepository.findActiveBookDtos();
     }
 
     @Override
@@ -125,13 +269,10 @@ public class BookServiceImpl implements BookService {
     public Page<BookDto> getAllBooks(Pageable pageable) {
         logger.debug("Fetching books with pagination: {}", pageable);
         
-        Page<Book> bookPage = bookRepository.findAll(pageable);
-        return bookPage.map(bookMapper::toDto);
+        return bookRepository.findAllBookDtos(pageable);
     }
 
     @Override
-    @CachePut(value = "books", key = "#id")
-    @CacheEvict(value = "all-books", allEntries = true)
     @CircuitBreaker(name = "book-service", fallbackMethod = "updateBookFallback")
     public BookDto updateBook(Long id, UpdateBookRequestDto updateBookRequest) {
         logger.info("Updating book with ID: {}", id);
@@ -139,6 +280,10 @@ public class BookServiceImpl implements BookService {
         Book existingBook = bookRepository.findById(id)
                 .orElseThrow(() -> new BookNotFoundException("Book not found with ID: " + id));
 
+        String previousIsbn = existingBook.getIsbn();
+        String previousCategory = existingBook.getCategory();
+        InventoryStatistics.BookState previousState = InventoryStatistics.stateOf(existingBook);
+
         // Update only non-null fields
         bookMapper.updateEntityFromDto(updateBookRequest, existingBook);
         
@@ -149,13 +294,17 @@ public class BookServiceImpl implements BookService {
                                            updatedBook.getTitle(), updatedBook.getAuthor(), 
                                            updatedBook.getIsbn(), updatedBook.getStockQuantity());
         kafkaProducerService.publishBookEvent(bookEvent);
+        bookSearchIndex.indexAfterCommit(updatedBook);
+        bookSubstringIndex.indexAfterCommit(updatedBook);
+        bookCacheInvalidator.bookChanged(updatedBook, previousIsbn, previousCategory);
+        inventoryStatistics.bookChangedAfterCommit(previousState, updatedBook);
+        isbnFilter.isbnChangedAfterCommit(previousIsbn, updatedBook.getIsbn());
 
         logger.info("Book updated successfully with ID: {}", updatedBook.getId());
         return bookMapper.toDto(updatedBook);
     }
 
     @Override
-    @CacheEvict(value = {"books", "all-books"}, allEntries = true)
     @CircuitBreaker(name = "book-service", fallbackMethod = "deleteBookFallback")
     public void deleteBook(Long id) {
         logger.info("Deleting book with ID: {}", id);
@@ -170,40 +319,59 @@ public class BookServiceImpl implements BookService {
                                            book.getTitle(), book.getAuthor(), 
                                            book.getIsbn(), book.getStockQuantity());
         kafkaProducerService.publishBookEvent(bookEvent);
+        bookSearchIndex.removeAfterCommit(book.getId());
+        bookSubstringIndex.removeAfterCommit(book.getId());
+        bookCacheInvalidator.bookChanged(book);
+        inventoryStatistics.bookDeletedAfterCommit(InventoryStatistics.stateOf(book));
+        isbnFilter.bookDeletedAfterCommit(book.getIsbn());
 
         logger.info("Book deleted successfully with ID: {}", id);
     }
 
     @Override
-    @CacheEvict(value = {"books", "all-books"}, allEntries = true)
     public void softDeleteBook(Long id) {
         logger.info("Soft deleting book with ID: {}", id);
         
+        String isbn = bookRepository.findIsbnById(id).orElse(null);
+        // Only matches an active book, so zero rows for a known ISBN means it was already inactive
         int updatedRows = bookRepository.softDeleteBook(id);
-        if (updatedRows == 0) {
+        if (updatedRows == 0 && isbn == null) {
             throw new BookNotFoundException("Book not found with ID: " + id);
         }
+        Book changed = updatedRows > 0 ? bookRepository.findById(id).orElse(null) : null;
+        if (changed != null) {
+            inventoryStatistics.activeChangedAfterCommit(changed);
+        }
 
         // Publish CDC event
         BookEvent bookEvent = new BookEvent("BOOK_DEACTIVATED", id, null, null, null, null);
         kafkaProducerService.publishBookEvent(bookEvent);
+        // An unchanged row left its category list as it was
+        bookCacheInvalidator.bookChanged(id, isbn, changed != null ? changed.getCategory() : null);
 
         logger.info("Book soft deleted successfully with ID: {}", id);
     }
 
     @Override
-    @CacheEvict(value = {"books", "all-books"}, allEntries = true)
     public void reactivateBook(Long id) {
         logger.info("Reactivating book with ID: {}", id);
         
+        String isbn = bookRepository.findIsbnById(id).orElse(null);
+        // Only matches an inactive book, so zero rows for a known ISBN means it was already active
         int updatedRows = bookRepository.reactivateBook(id);
-        if (updatedRows == 0) {
+        if (updatedRows == 0 && isbn == null) {
             throw new BookNotFoundException("Book not found with ID: " + id);
         }
+        Book changed = updatedRows > 0 ? bookRepository.findById(id).orElse(null) : null;
+        if (changed != null) {
+            inventoryStatistics.activeChangedAfterCommit(changed);
+        }
 
         // Publish CDC event
         BookEvent bookEvent = new BookEvent("BOOK_REACTIVATED", id, null, null, null, null);
         kafkaProducerService.publishBookEvent(bookEvent);
+        // An unchanged row left its category list as it was
+        bookCacheInvalidator.bookChanged(id, isbn, changed != null ? changed.getCategory() : null);
 
         logger.info("Book reactivated successfully with ID: {}", id);
     }
@@ -212,42 +380,74 @@ public class BookServiceImpl implements BookService {
     @Transactional(readOnly = true)
     public List<BookDto> searchBooksByTitle(String title) {
         logger.debug("Searching books by title: {}", title);
+
+        if (bookSubstringIndex.canAnswer(title)) {
+            return findBooksInOrder(bookSubstringIndex.findIdsByTitleContaining(title));
+        }
         
-        List<Book> books = bookRepository.findByTitleContainingIgnoreCase(title);
-        return books.stream()
-                .map(bookMapper::toDto)
-                .collect(Collectors.toList());
+        return bookRepository.findBookDtosByTitleContaining(title);
     }
 
     @Override
     @Transactional(readOnly = true)
     public List<BookDto> searchBooksByAuthor(String author) {
         logger.debug("Searching books by author: {}", author);
+
+        if (bookSubstringIndex.canAnswer(author)) {
+            return findBooksInOrder(bookSubstringIndex.findIdsByAuthorContaining(author));
+        }
         
-        List<Book> books = bookRepository.findByAuthorContainingIgnoreCase(author);
-        return books.stream()
-                .map(bookMapper::toDto)
-                .collect(Collectors.toList());
+        return bookRepository.findBookDtosByAuthorContaining(author);
     }
 
     @Override
+    @Cacheable(value = "books-by-category", key = "#category.toLowerCase(T(java.util.Locale).ROOT)", sync = true)
     @Transactional(readOnly = true)
     public List<BookDto> searchBooksByCategory(String category) {
         logger.debug("Searching books by category: {}", category);
         
-        List<Book> books = bookRepository.findByCategoryIgnoreCase(category);
-        return books.stream()
-                .map(bookMapper::toDto)
-                .collect(Collectors.toList());
+        return bookRepository.findBookDtosByCategoryIgnoreCase(category);
     }
 
     @Override
     @Transactional(readOnly = true)
     public Page<BookDto> searchBooks(String searchTerm, Pageable pageable) {
         logger.debug("Searching books with term: {}", searchTerm);
+
+        // The in-memory index only orders by id, so explicitly sorted requests stay on the database
+        if (pageable.getSort().isUnsorted() && bookSearchIndex.canAnswer(searchTerm)) {
+            return searchBooksFromIndex(searchTerm, pageable);
+        }
         
-        Page<Book> bookPage = bookRepository.searchBooks(searchTerm, pageable);
-        return bookPage.map(bookMapper::toDto);
+        return bookRepository.searchBookDtos(searchTerm, pageable);
+    }
+
+    private Page<BookDto> searchBooksFromIndex(String searchTerm, Pageable pageable) {
+        List<Long> matchingIds = bookSearchIndex.search(searchTerm);
+        int total = matchingIds.size();
+        int from = (int) Math.min(pageable.getOffset(), total);
+        int to = Math.min(from + pageable.getPageSize(), total);
+        List<Long> pageIds = matchingIds.subList(from, to);
+
+        return new PageImpl<>(findBooksInOrder(pageIds), pageable, total);
+    }
+
+    // Loads books by primary key and returns them in the order of the given ids, skipping any deleted meanwhile
+    private List<BookDto> findBooksInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        // Bounded IN lists keep broad substring matches from producing one giant statement
+        Map<Long, BookDto> booksById = new HashMap<>(ids.size() * 2);
+        for (int i = 0; i < ids.size(); i += MAX_IN_CLAUSE_SIZE) {
+            List<Long> chunk = ids.subList(i, Math.min(i + MAX_IN_CLAUSE_SIZE, ids.size()));
+            bookRepository.findBookDtosByIdIn(chunk).forEach(book -> booksById.put(book.getId(), book));
+        }
+        return ids.stream()
+                .map(booksById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
     }
 
     @Override
@@ -256,27 +456,80 @@ public class BookServiceImpl implements BookService {
                                               BigDecimal minPrice, BigDecimal maxPrice, Pageable pageable) {
         logger.debug("Searching books with filters - title: {}, author: {}, category: {}", title, author, category);
         
-        Page<Book> bookPage = bookRepository.findBooksWithFilters(title, author, category, minPrice, maxPrice, pageable);
-        return bookPage.map(bookMapper::toDto);
+        return bookRepository.findBookDtosWithFilters(title, author, category, minPrice, maxPrice, pageable);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<BookDto> scrollBooks(String cursor, int size, String sortBy, String sortDir) {
+        logger.debug("Scrolling books - size: {}, sortBy: {}", size, sortBy);
+        return scroll(Specification.where(null), "", cursor, size, sortBy, sortDir);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<BookDto> scrollBooksWithFilters(String title, String author, String category,
+                                                      BigDecimal minPrice, BigDecimal maxPrice, String cursor, int size) {
+        logger.debug("Scrolling books with filters - title: {}, author: {}, category: {}", title, author, category);
+        return scroll(BookSpecifications.withFilters(title, author, category, minPrice, maxPrice),
+                      KeysetCursor.fingerprint(title, author, category, minPrice, maxPrice), cursor, size, "id", "asc");
+    }
+
+    private CursorPage<BookDto> scroll(Specification<Book> specification, String filter, String cursor, int size,
+                                       String sortBy, String sortDir) {
+        if (size < 1) {
+            throw new InvalidCursorException("Page size must be at least 1");
+        }
+
+        // A continuation token carries its own sort so a walk cannot change order midway,
+        // and is bound to its filters so a walk cannot switch result sets either
+        KeysetCursor keysetCursor = cursor != null ? KeysetCursor.decode(cursor) : null;
+        if (keysetCursor != null) {
+            keysetCursor.requireFilter(filter);
+        }
+        String sortProperty = keysetCursor != null ? keysetCursor.getSortBy() : sortBy;
+        Sort.Direction direction = keysetCursor != null
+                ? keysetCursor.getDirection()
+                : (sortDir.equalsIgnoreCase("desc") ? Sort.Direction.DESC : Sort.Direction.ASC);
+        if (!KEYSET_COLUMNS.containsKey(sortProperty)) {
+            throw new InvalidCursorException("Cursor pagination is not supported for sort field: " + sortProperty);
+        }
+
+        Sort sort = "id".equals(sortProperty)
+                ? Sort.by(direction, "id")
+                : Sort.by(direction, sortProperty, "id");
+        ScrollPosition position = keysetCursor != null
+                ? ScrollPosition.forward(keysetCursor.typedKeys(KEYSET_COLUMNS))
+                : ScrollPosition.keyset();
+        int limit = Math.min(size, MAX_SCROLL_SIZE);
+
+        Window<Book> window = bookRepository.findBy(specification,
+                query -> query.sortBy(sort).limit(limit).scroll(position));
+
+        String nextCursor = null;
+        if (window.hasNext() && !window.isEmpty()) {
+            KeysetScrollPosition last = (KeysetScrollPosition) window.positionAt(window.size() - 1);
+            nextCursor = KeysetCursor.encode(sortProperty, direction, filter, last.getKeys());
+        }
+        List<BookDto> content = window.getContent().stream()
+                .map(bookMapper::toDto)
+                .collect(Collectors.toList());
+        return new CursorPage<>(content, nextCursor);
     }
 
     @Override
-    @CachePut(value = "books", key = "#bookId")
-    @CacheEvict(value = "all-books", allEntries = true)
     public BookDto updateStock(Long bookId, Integer quantity) {
         logger.info("Updating stock for book ID: {} with quantity: {}", bookId, quantity);
         
-        Book book = bookRepository.findById(bookId)
+        // Single guarded UPDATE instead of read-modify-write, so concurrent orders never conflict on @Version
+        if (bookRepository.updateStockQuantity(bookId, quantity) == 0) {
+            throw insufficientStock(bookId, quantity);
+        }
+        Book updatedBook = bookRepository.findById(bookId)
                 .orElseThrow(() -> new BookNotFoundException("Book not found with ID: " + bookId));
 
-        book.updateStock(quantity);
-        Book updatedBook = bookRepository.save(book);
-
-        // Publish CDC event
-        BookEvent bookEvent = new BookEvent("STOCK_UPDATED", updatedBook.getId(), 
-                                           updatedBook.getTitle(), updatedBook.getAuthor(), 
-                                           updatedBook.getIsbn(), updatedBook.getStockQuantity());
-        kafkaProducerService.publishBookEvent(bookEvent);
+        publishStockUpdated(updatedBook);
+        inventoryStatistics.stockChangedAfterCommit(updatedBook, quantity);
 
         logger.info("Stock updated successfully for book ID: {}", bookId);
         return bookMapper.toDto(updatedBook);
@@ -287,22 +540,16 @@ public class BookServiceImpl implements BookService {
     public List<BookDto> findBooksWithLowStock(Integer threshold) {
         logger.debug("Finding books with low stock threshold: {}", threshold);
         
-        List<Book> books = bookRepository.findBooksWithLowStock(threshold);
-        return books.stream()
-                .map(bookMapper::toDto)
-                .collect(Collectors.toList());
+        return bookRepository.findBookDtosWithLowStock(threshold);
     }
 
     @Override
-    @Cacheable(value = "available-books")
+    @Cacheable(value = "available-books", sync = true)
     @Transactional(readOnly = true)
     public List<BookDto> findAvailableBooks() {
         logger.debug("Finding available books");
         
-        List<Book> books = bookRepository.findAvailableBooks();
-        return books.stream()
-                .map(bookMapper::toDto)
-                .collect(Collectors.toList());
+        return bookRepository.findAvailableBookDtos();
     }
 
     @Override
@@ -310,14 +557,10 @@ public class BookServiceImpl implements BookService {
     public List<BookDto> findBooksByPriceRange(BigDecimal minPrice, BigDecimal maxPrice) {
         logger.debug("Finding books in price range: {} - {}", minPrice, maxPrice);
         
-        List<Book> books = bookRepository.findByPriceBetween(minPrice, maxPrice);
-        return books.stream()
-                .map(bookMapper::toDto)
-                .collect(Collectors.toList());
+        return bookRepository.findBookDtosByPriceBetween(minPrice, maxPrice);
     }
 
     @Override
-    @CacheEvict(value = "all-books", allEntries = true)
     public List<BookDto> createBooksInBatch(List<CreateBookRequestDto> createBookRequests) {
         logger.info("Creating {} books in batch", createBookRequests.size());
         
@@ -333,6 +576,11 @@ public class BookServiceImpl implements BookService {
                                                book.getTitle(), book.getAuthor(), 
                                                book.getIsbn(), book.getStockQuantity());
             kafkaProducerService.publishBookEvent(bookEvent);
+            bookSearchIndex.indexAfterCommit(book);
+            bookSubstringIndex.indexAfterCommit(book);
+            bookCacheInvalidator.bookCreated(book);
+            inventoryStatistics.bookCreatedAfterCommit(book);
+            isbnFilter.bookCreatedAfterCommit(book);
         });
 
         logger.info("Batch creation completed for {} books", savedBooks.size());
@@ -342,7 +590,6 @@ public class BookServiceImpl implements BookService {
     }
 
     @Override
-    @CacheEvict(value = {"books", "all-books"}, allEntries = true)
     public void updateStockInBatch(List<Long> bookIds, List<Integer> quantities) {
         logger.info("Updating stock in batch for {} books", bookIds.size());
         
@@ -350,11 +597,30 @@ public class BookServiceImpl implements BookService {
             throw new IllegalArgumentException("Book IDs and quantities lists must have the same size");
         }
 
+        // Repeated IDs are folded into one delta so each row is touched once
+        Map<Long, Integer> quantitiesByBookId = new LinkedHashMap<>();
         for (int i = 0; i < bookIds.size(); i++) {
-            updateStock(bookIds.get(i), quantities.get(i));
+            quantitiesByBookId.merge(bookIds.get(i), quantities.get(i), Integer::sum);
         }
 
-        logger.info("Batch stock update completed");
+        List<Long> ids = new ArrayList<>(quantitiesByBookId.keySet());
+        for (int from = 0; from < ids.size(); from += STOCK_BATCH_SIZE) {
+            List<Long> chunkIds = ids.subList(from, Math.min(from + STOCK_BATCH_SIZE, ids.size()));
+            Map<Long, Integer> chunk = new LinkedHashMap<>();
+            chunkIds.forEach(id -> chunk.put(id, quantitiesByBookId.get(id)));
+
+            int updated = bookRepository.updateStockQuantities(chunk);
+            if (updated != chunk.size()) {
+                // Throwing rolls back the whole batch, including chunks already applied
+                throw batchStockRejected(chunkIds, chunk.size() - updated);
+            }
+            bookRepository.findAllById(chunkIds).forEach(book -> {
+                publishStockUpdated(book);
+                inventoryStatistics.stockChangedAfterCommit(book, chunk.get(book.getId()));
+            });
+        }
+
+        logger.info("Batch stock update completed for {} books", ids.size());
     }
 
     @Override
@@ -365,56 +631,72 @@ public class BookServiceImpl implements BookService {
     }
 
     @Override
-    @Cacheable(value = "recent-books", key = "#limit")
+    @Cacheable(value = "recent-books", key = "#limit", sync = true)
     @Transactional(readOnly = true)
     public List<BookDto> getRecentBooks(int limit) {
         logger.debug("Getting recent {} books", limit);
         
         Pageable pageable = PageRequest.of(0, limit);
-        List<Book> books = bookRepository.findRecentBooks(pageable);
-        return books.stream()
-                .map(bookMapper::toDto)
-                .collect(Collectors.toList());
+        return bookRepository.findRecentBookDtos(pageable);
     }
 
+    // No transaction: duplicates wait for the first request without holding a connection, and the
+    // idempotency service runs the write in its own transaction before recording the result.
+    // createBook is called on this object, not the proxy, so its rate limit and circuit breaker are applied here
     @Override
+    @CircuitBreaker(name = "book-service", fallbackMethod = "createBookIdempotentFallback")
+    @DistributedRateLimiter(name = "book-service")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public BookDto createBookIdempotent(String idempotencyKey, CreateBookRequestDto createBookRequest) {
         logger.info("Creating book with idempotency key: {}", idempotencyKey);
         
-        Optional<Object> cachedResult = idempotencyService.getCachedResult(idempotencyKey);
-        if (cachedResult.isPresent()) {
-            logger.info("Returning cached result for idempotency key: {}", idempotencyKey);
-            return (BookDto) cachedResult.get();
-        }
-
-        try {
-            BookDto result = createBook(createBookRequest);
-            idempotencyService.cacheResult(idempotencyKey, result);
-            return result;
-        } catch (Exception e) {
-            logger.error("Error creating book with idempotency key: {}", idempotencyKey, e);
-            throw new IdempotencyException("Failed to create book idempotently", e);
-        }
+        return idempotencyService.execute(idempotencyKey, BookDto.class, () -> createBook(createBookRequest));
     }
 
     @Override
+    @CircuitBreaker(name = "book-service", fallbackMethod = "updateBookIdempotentFallback")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public BookDto updateBookIdempotent(String idempotencyKey, Long id, UpdateBookRequestDto updateBookRequest) {
         logger.info("Updating book with idempotency key: {}", idempotencyKey);
         
-        Optional<Object> cachedResult = idempotencyService.getCachedResult(idempotencyKey);
-        if (cachedResult.isPresent()) {
-            logger.info("Returning cached result for idempotency key: {}", idempotencyKey);
-            return (BookDto) cachedResult.get();
+        return idempotencyService.execute(idempotencyKey, BookDto.class, () -> updateBook(id, updateBookRequest));
+    }
+
+    private void publishStockUpdated(Book book) {
+        BookEvent bookEvent = new BookEvent("STOCK_UPDATED", book.getId(), 
+                                           book.getTitle(), book.getAuthor(), 
+                                           book.getIsbn(), book.getStockQuantity());
+        kafkaProducerService.publishBookEvent(bookEvent);
+        bookCacheInvalidator.bookChanged(book);
+    }
+
+    private static boolean isIsbnConflict(DataIntegrityViolationException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation) {
+                String constraint = violation.getConstraintName() != null
+                        ? violation.getConstraintName() : violation.getMessage();
+                return constraint != null && constraint.toLowerCase(Locale.ROOT).contains("isbn");
+            }
         }
+        return false;
+    }
 
-        try {
-            BookDto result = updateBook(id, updateBookRequest);
-            idempotencyService.cacheResult(idempotencyKey, result);
-            return result;
-        } catch (Exception e) {
-            logger.error("Error updating book with idempotency key: {}", idempotencyKey, e);
-            throw new IdempotencyException("Failed to update book idempotently", e);
+    private IllegalArgumentException insufficientStock(Long bookId, Integer quantity) {
+        Book book = bookRepository.findById(bookId)
+                .orElseThrow(() -> new BookNotFoundException("Book not found with ID: " + bookId));
+        return new IllegalArgumentException("Insufficient stock. Available: " + book.getStockQuantity() 
+                                           + ", Requested: " + Math.abs(quantity));
+    }
+
+    private IllegalArgumentException batchStockRejected(List<Long> bookIds, int rejected) {
+        List<Book> found = bookRepository.findAllById(bookIds);
+        if (found.size() != bookIds.size()) {
+            Set<Long> foundIds = found.stream().map(Book::getId).collect(Collectors.toSet());
+            Long missingId = bookIds.stream().filter(id -> !foundIds.contains(id)).findFirst().orElse(null);
+            throw new BookNotFoundException("Book not found with ID: " + missingId);
         }
+        return new IllegalArgumentException("Insufficient stock for " + rejected 
+                                           + " book(s) in batch; no stock was changed");
     }
 
     // Fallback methods for Circuit Breaker
@@ -423,6 +705,11 @@ public class BookServiceImpl implements BookService {
         throw new RuntimeException("Book service is currently unavailable. Please try again later.");
     }
 
+    // The most specific fallback wins, so the client's own mistakes keep their status instead of becoming a 500
+    public BookDto createBookFallback(CreateBookRequestDto createBookRequest, DuplicateIsbnException ex) {
+        throw ex;
+    }
+
     public BookDto getBookByIdFallback(Long id, Exception ex) {
         logger.error("Circuit breaker activated for getBookById", ex);
         throw new RuntimeException("Book service is currently unavailable. Please try again later.");
@@ -433,6 +720,10 @@ public class BookServiceImpl implements BookService {
         throw new RuntimeException("Book service is currently unavailable. Please try again later.");
     }
 
+    public BookDto getBookByIsbnFallback(String isbn, BookNotFoundException ex) {
+        throw ex;
+    }
+
     public List<BookDto> getAllBooksFallback(Exception ex) {
         logger.error("Circuit breaker activated for getAllBooks", ex);
         throw new RuntimeException("Book service is currently unavailable. Please try again later.");
@@ -447,4 +738,35 @@ public class BookServiceImpl implements BookService {
         logger.error("Circuit breaker activated for deleteBook", ex);
         throw new RuntimeException("Book service is currently unavailable. Please try again later.");
     }
+
+    public BookDto createBookIdempotentFallback(String idempotencyKey, CreateBookRequestDto createBookRequest, Exception ex) {
+        logger.error("Circuit breaker activated for createBookIdempotent", ex);
+        throw new RuntimeException("Book service is currently unavailable. Please try again later.");
+    }
+
+    public BookDto createBookIdempotentFallback(String idempotencyKey, CreateBookRequestDto createBookRequest,
+                                                DuplicateIsbnException ex) {
+        throw ex;
+    }
+
+    public BookDto createBookIdempotentFallback(String idempotencyKey, CreateBookRequestDto createBookRequest,
+                                                IdempotencyException ex) {
+        throw ex;
+    }
+
+    public BookDto updateBookIdempotentFallback(String idempotencyKey, Long id, UpdateBookRequestDto updateBookRequest,
+                                                Exception ex) {
+        logger.error("Circuit breaker activated for updateBookIdempotent", ex);
+        throw new RuntimeException("Book service is currently unavailable. Please try again later.");
+    }
+
+    public BookDto updateBookIdempotentFallback(String idempotencyKey, Long id, UpdateBookRequestDto updateBookRequest,
+                                                BookNotFoundException ex) {
+        throw ex;
+    }
+
+    public BookDto updateBookIdempotentFallback(String idempotencyKey, Long id, UpdateBookRequestDto updateBookRequest,
+                                                IdempotencyException ex) {
+        throw ex;
+    }
 }
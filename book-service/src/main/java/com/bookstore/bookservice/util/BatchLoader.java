@@ -0,0 +1,163 @@
+package com.bookstore.bookservice.util;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Coalesces concurrent single-key lookups into one batch call. The first key to arrive opens a batch;
+ * keys arriving while it is open join it (the same key twice shares one result), and the batch is
+ * dispatched when it reaches maxBatchSize or the window has passed, whichever comes first. A full batch
+ * is dispatched on the thread that filled it, an expired one on a dispatch thread. Each caller's future
+ * is completed on its own, with null for keys the batch function did not return; if the batch function
+ * throws, every caller in the batch gets that exception.
+ *
+ * <p>Metrics, tagged with the loader name: loader.batch.size (keys per batch) and loader.batch.window
+ * (how long the batch was open before dispatch).
+ */
+public class BatchLoader<K, V> implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchLoader.class);
+
+    private final String name;
+    private final boolean enabled;
+    private final Function<Collection<K>, Map<K, V>> batchFunction;
+    private final int maxBatchSize;
+    private final long windowNanos;
+    private final ScheduledExecutorService dispatcher;
+    private final DistributionSummary batchSizes;
+    private final Timer windows;
+
+    private final Object lock = new Object();
+    private Batch<K, V> open;
+
+    public BatchLoader(String name, boolean enabled, Function<Collection<K>, Map<K, V>> batchFunction,
+                       int maxBatchSize, long windowMicros, int dispatchThreads, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.enabled = enabled;
+        this.batchFunction = batchFunction;
+        this.maxBatchSize = maxBatchSize;
+        this.windowNanos = TimeUnit.MICROSECONDS.toNanos(windowMicros);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.dispatcher = new ScheduledThreadPoolExecutor(dispatchThreads, runnable -> {
+            Thread thread = new Thread(runnable, name + "-dispatch-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.batchSizes = DistributionSummary.builder("loader.batch.size")
+                .description("Keys loaded per batch")
+                .tag("loader", name)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.windows = Timer.builder("loader.batch.window")
+                .description("Time a batch stayed open collecting keys before it was dispatched")
+                .tag("loader", name)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * Loads one key, waiting for the batch it joins; null if the key does not exist.
+     * Exceptions thrown by the batch function are rethrown as they are.
+     */
+    public V load(K key) {
+        if (!enabled) {
+            return batchFunction.apply(List.of(key)).get(key);
+        }
+        try {
+            return loadAsync(key).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    public CompletableFuture<V> loadAsync(K key) {
+        CompletableFuture<V> future;
+        Batch<K, V> opened = null;
+        Batch<K, V> full = null;
+        synchronized (lock) {
+            if (open == null) {
+                open = new Batch<>();
+                opened = open;
+            }
+            future = open.futures.computeIfAbsent(key, k -> new CompletableFuture<>());
+            if (open.futures.size() >= maxBatchSize) {
+                full = open;
+                open = null;
+            }
+        }
+        if (full != null) {
+            dispatch(full);
+        } else if (opened != null) {
+            Batch<K, V> batch = opened;
+            dispatcher.schedule(() -> dispatchIfOpen(batch), windowNanos, TimeUnit.NANOSECONDS);
+        }
+        return future;
+    }
+
+    @Override
+    public void destroy() {
+        dispatcher.shutdownNow();
+        synchronized (lock) {
+            if (open != null) {
+                open.futures.values().forEach(future ->
+                        future.completeExceptionally(new IllegalStateException("Loader " + name + " is shut down")));
+                open = null;
+            }
+        }
+    }
+
+    private void dispatchIfOpen(Batch<K, V> batch) {
+        synchronized (lock) {
+            // Already dispatched by the caller that filled it
+            if (open != batch) {
+                return;
+            }
+            open = null;
+        }
+        dispatch(batch);
+    }
+
+    private void dispatch(Batch<K, V> batch) {
+        windows.record(System.nanoTime() - batch.openedAt, TimeUnit.NANOSECONDS);
+        batchSizes.record(batch.futures.size());
+        Map<K, V> loaded;
+        try {
+            loaded = batchFunction.apply(batch.futures.keySet());
+        } catch (RuntimeException | Error e) {
+            logger.debug("Loader {} batch of {} keys failed: {}", name, batch.futures.size(), e.getMessage());
+            batch.futures.values().forEach(future -> future.completeExceptionally(e));
+            return;
+        }
+        batch.futures.forEach((key, future) -> future.complete(loaded.get(key)));
+    }
+
+    private static final class Batch<K, V> {
+        private final long openedAt = System.nanoTime();
+        // Only modified under the loader's lock while the batch is open, and only read after
+        private final Map<K, CompletableFuture<V>> futures = new LinkedHashMap<>();
+    }
+}
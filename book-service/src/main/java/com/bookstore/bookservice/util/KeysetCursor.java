@@ -0,0 +1,168 @@
+package com.bookstore.bookservice.util;
+
+import com.bookstore.bookservice.exception.InvalidCursorException;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.function.Function;
+
+/**
+ * Opaque continuation token for keyset pagination: the sort column, direction, a fingerprint of the
+ * filters it was issued for, and the (sort value, id) of the last row returned. Clients must treat it
+ * as an opaque string; a token that does not decode, does not match its sort, or is replayed with other
+ * filters is rejected with {@link InvalidCursorException}.
+ */
+public final class KeysetCursor {
+
+    private static final String VERSION = "v1";
+    private static final String KEY_PREFIX = "k.";
+    private static final String ID = "id";
+
+    private final String sortBy;
+    private final Sort.Direction direction;
+    private final String filter;
+    private final Map<String, String> keys;
+
+    private KeysetCursor(String sortBy, Sort.Direction direction, String filter, Map<String, String> keys) {
+        this.sortBy = sortBy;
+        this.direction = direction;
+        this.filter = filter;
+        this.keys = keys;
+    }
+
+    public static String encode(String sortBy, Sort.Direction direction, Map<String, ?> keys) {
+        return encode(sortBy, direction, "", keys);
+    }
+
+    /**
+     * @param filter the {@link #fingerprint} of the filters the page was queried with
+     */
+    public static String encode(String sortBy, Sort.Direction direction, String filter, Map<String, ?> keys) {
+        StringJoiner joiner = new StringJoiner("&");
+        joiner.add(VERSION);
+        joiner.add("s=" + urlEncode(sortBy));
+        joiner.add("d=" + direction.name());
+        if (!filter.isEmpty()) {
+            joiner.add("f=" + urlEncode(filter));
+        }
+        keys.forEach((name, value) -> joiner.add(urlEncode(KEY_PREFIX + name) + "=" + urlEncode(String.valueOf(value))));
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(joiner.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static KeysetCursor decode(String token) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = decoded.split("&");
+            if (parts.length < 3 || !VERSION.equals(parts[0])) {
+                throw new InvalidCursorException("Invalid pagination cursor");
+            }
+
+            String sortBy = null;
+            Sort.Direction direction = null;
+            String filter = "";
+            Map<String, String> keys = new LinkedHashMap<>();
+            for (int i = 1; i < parts.length; i++) {
+                int separator = parts[i].indexOf('=');
+                String name = urlDecode(parts[i].substring(0, separator));
+                String value = urlDecode(parts[i].substring(separator + 1));
+                if ("s".equals(name)) {
+                    sortBy = value;
+                } else if ("d".equals(name)) {
+                    direction = Sort.Direction.valueOf(value);
+                } else if ("f".equals(name)) {
+                    filter = value;
+                } else if (name.startsWith(KEY_PREFIX)) {
+                    keys.put(name.substring(KEY_PREFIX.length()), value);
+                }
+            }
+            if (sortBy == null || direction == null || keys.isEmpty()) {
+                throw new InvalidCursorException("Invalid pagination cursor");
+            }
+            return new KeysetCursor(sortBy, direction, filter, keys);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new InvalidCursorException("Invalid pagination cursor", e);
+        }
+    }
+
+    /**
+     * A short digest of filter values, to bind a cursor to the filters it was issued for.
+     * Returns "" when every value is null, so unfiltered cursors carry no fingerprint.
+     */
+    public static String fingerprint(Object... filterValues) {
+        // Blank strings filter nothing, same as null
+        Object[] values = Arrays.stream(filterValues)
+                .map(value -> value instanceof String text && text.isBlank() ? null : value)
+                .toArray();
+        if (Arrays.stream(values).allMatch(Objects::isNull)) {
+            return "";
+        }
+        StringJoiner joiner = new StringJoiner("\u0000");
+        for (Object value : values) {
+            joiner.add(value == null ? "\u0001" : value instanceof BigDecimal number
+                    ? number.stripTrailingZeros().toPlainString() : value.toString());
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(joiner.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public String getSortBy() {
+        return sortBy;
+    }
+
+    public Sort.Direction getDirection() {
+        return direction;
+    }
+
+    /**
+     * Rejects the cursor unless it was issued for the same filters.
+     */
+    public void requireFilter(String expectedFilter) {
+        if (!filter.equals(expectedFilter)) {
+            throw new InvalidCursorException("Pagination cursor was issued for different filters");
+        }
+    }
+
+    /**
+     * Converts the stored key values back to the property types the query compares against.
+     * The keys must be exactly the sort column and id, each parseable as its property type.
+     */
+    public Map<String, Object> typedKeys(Map<String, Function<String, Object>> parsers) {
+        Set<String> expected = ID.equals(sortBy) ? Set.of(ID) : Set.of(sortBy, ID);
+        if (!keys.keySet().equals(expected) || !parsers.keySet().containsAll(expected)) {
+            throw new InvalidCursorException("Pagination cursor does not match its sort");
+        }
+        Map<String, Object> typed = new LinkedHashMap<>();
+        try {
+            keys.forEach((name, value) -> typed.put(name, parsers.get(name).apply(value)));
+        } catch (RuntimeException e) {
+            throw new InvalidCursorException("Invalid pagination cursor", e);
+        }
+        return typed;
+    }
+
+    private static String urlEncode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private static String urlDecode(String value) {
+        return URLDecoder.decode(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,134 @@
+package com.bookstore.bookservice.benchmark;
+
+import com.bookstore.bookservice.event.BookEvent;
+import com.bookstore.bookservice.event.BookEventCodec;
+import com.bookstore.bookservice.event.EventWireFormat;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeader;
+import org.apache.kafka.common.record.CompressionType;
+import org.apache.kafka.common.record.MemoryRecords;
+import org.apache.kafka.common.record.SimpleRecord;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Binary event codec versus the JSON path it replaces: bytes per event (raw, and inside an lz4
+ * producer batch with the content-type header) and encode/decode time per event.
+ * Not matched by the default surefire includes; run with {@code mvn test -Dtest=EventCodecBenchmark}.
+ */
+public class EventCodecBenchmark {
+
+    private static final int BATCH_EVENTS = 500;
+
+    // Benchmarks live in a nested state class so the JMH-generated subclasses do not inherit the JUnit entry point
+    @State(Scope.Benchmark)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @Warmup(iterations = 3, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    @Fork(1)
+    public static class Codecs {
+
+        private ObjectMapper objectMapper;
+        private BookEvent event;
+        private byte[] json;
+        private byte[] binary;
+
+        @Setup
+        public void setUp() throws Exception {
+            objectMapper = newObjectMapper();
+            event = sampleEvent(12345L);
+            json = objectMapper.writeValueAsBytes(event);
+            binary = BookEventCodec.encode(event);
+        }
+
+        @Benchmark
+        public byte[] encodeJson() throws Exception {
+            return objectMapper.writeValueAsBytes(event);
+        }
+
+        @Benchmark
+        public byte[] encodeBinary() {
+            return BookEventCodec.encode(event);
+        }
+
+        @Benchmark
+        public BookEvent decodeJson() throws Exception {
+            return objectMapper.readValue(json, BookEvent.class);
+        }
+
+        @Benchmark
+        public BookEvent decodeBinary() {
+            return BookEventCodec.decode(binary);
+        }
+    }
+
+    @Test
+    void run() throws Exception {
+        ObjectMapper mapper = newObjectMapper();
+        reportSize("json", EventWireFormat.JSON, event -> {
+            try {
+                return mapper.writeValueAsBytes(event);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        reportSize("binary", EventWireFormat.BINARY_V1, BookEventCodec::encode);
+
+        // JMH names nested benchmarks Outer.Inner.method
+        new Runner(new OptionsBuilder().include(EventCodecBenchmark.class.getName() + ".Codecs.").build()).run();
+    }
+
+    private static void reportSize(String label, String contentType, Function<BookEvent, byte[]> encoder) {
+        Header[] headers = {new RecordHeader(EventWireFormat.CONTENT_TYPE_HEADER,
+                                             contentType.getBytes(StandardCharsets.UTF_8))};
+        SimpleRecord[] records = new SimpleRecord[BATCH_EVENTS];
+        long rawBytes = 0;
+        for (int i = 0; i < BATCH_EVENTS; i++) {
+            BookEvent event = sampleEvent(10_000L + i);
+            byte[] value = encoder.apply(event);
+            rawBytes += value.length;
+            records[i] = new SimpleRecord(System.currentTimeMillis(),
+                    String.valueOf(event.getBookId()).getBytes(StandardCharsets.UTF_8), value, headers);
+        }
+        int uncompressed = MemoryRecords.withRecords(CompressionType.NONE, records).sizeInBytes();
+        int lz4 = MemoryRecords.withRecords(CompressionType.LZ4, records).sizeInBytes();
+        System.out.printf("%-6s payload %6.1f B/event | batch %6.1f B/event | lz4 batch %6.1f B/event%n", label,
+                (double) rawBytes / BATCH_EVENTS, (double) uncompressed / BATCH_EVENTS, (double) lz4 / BATCH_EVENTS);
+    }
+
+    private static ObjectMapper newObjectMapper() {
+        // Same shape as the Spring Boot mapper the producer uses
+        return JsonMapper.builder()
+                .addModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+    }
+
+    private static BookEvent sampleEvent(long bookId) {
+        BookEvent event = new BookEvent("STOCK_UPDATED", bookId, "The Pragmatic Programmer, volume " + bookId,
+                "David Thomas", "978" + (1_000_000_000L + bookId), (int) (bookId % 250));
+        event.setTimestamp(LocalDateTime.of(2024, 5, 1, 12, 0).plusNanos(bookId * 1_000_000L));
+        return event;
+    }
+}
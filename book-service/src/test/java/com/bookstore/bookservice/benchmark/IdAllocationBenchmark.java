@@ -0,0 +1,173 @@
+package com.bookstore.bookservice.benchmark;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Rows per second for inserting books the way Hibernate does under each id strategy:
+ * IDENTITY (one INSERT and generated-key read per row, batching disabled), the pooled-lo table
+ * generator with JDBC batches, and the same with rewriteBatchedStatements so a batch becomes one
+ * multi-row INSERT. Not matched by the default surefire includes; run with
+ * {@code mvn test -Dtest=IdAllocationBenchmark} (needs Docker).
+ */
+@Testcontainers
+class IdAllocationBenchmark {
+
+    private static final int ROWS = 20_000;
+    private static final int BATCH_SIZE = 50;      // hibernate.jdbc.batch_size
+    private static final int ALLOCATION_SIZE = 50; // @TableGenerator allocationSize
+    private static final int ROWS_PER_TRANSACTION = 1000;
+
+    private static final String INSERT_WITH_ID = "INSERT INTO books (id, title, author, isbn, price, stock_quantity, "
+            + "category, active, version) VALUES (?, ?, ?, ?, ?, ?, ?, true, 0)";
+    private static final String INSERT_WITHOUT_ID = "INSERT INTO books (title, author, isbn, price, stock_quantity, "
+            + "category, active, version) VALUES (?, ?, ?, ?, ?, ?, true, 0)";
+
+    @Container
+    static MySQLContainer<?> mysql = new MySQLContainer<>("mysql:8.0")
+            .withDatabaseName("bookstore_books_test")
+            .withUsername("test_user")
+            .withPassword("test_password");
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        try (Connection connection = connect(false); Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS books");
+            statement.execute("DROP TABLE IF EXISTS id_sequences");
+            statement.execute("CREATE TABLE books (id BIGINT AUTO_INCREMENT PRIMARY KEY, title VARCHAR(255) NOT NULL, "
+                    + "author VARCHAR(255) NOT NULL, isbn VARCHAR(17) NOT NULL UNIQUE, price DECIMAL(10,2) NOT NULL, "
+                    + "stock_quantity INT NOT NULL, category VARCHAR(100) NOT NULL, active BOOLEAN NOT NULL, "
+                    + "version BIGINT)");
+            statement.execute("CREATE TABLE id_sequences (sequence_name VARCHAR(255) NOT NULL PRIMARY KEY, next_val BIGINT)");
+            statement.execute("INSERT INTO id_sequences VALUES ('books', 1)");
+        }
+    }
+
+    @Test
+    void identity() throws SQLException {
+        try (Connection connection = connect(false)) {
+            long begin = System.nanoTime();
+            try (PreparedStatement insert = connection.prepareStatement(INSERT_WITHOUT_ID, Statement.RETURN_GENERATED_KEYS)) {
+                for (int row = 0; row < ROWS; row++) {
+                    bind(insert, 1, row);
+                    insert.executeUpdate();
+                    try (ResultSet keys = insert.getGeneratedKeys()) {
+                        keys.next();
+                    }
+                    commitEvery(connection, row);
+                }
+            }
+            connection.commit();
+            report("identity", System.nanoTime() - begin, connection);
+        }
+    }
+
+    @Test
+    void pooledBatched() throws SQLException {
+        try (Connection connection = connect(false)) {
+            report("pooled, batched", insertPooled(connection), connection);
+        }
+    }
+
+    @Test
+    void pooledBatchedRewritten() throws SQLException {
+        try (Connection connection = connect(true)) {
+            report("pooled, rewritten", insertPooled(connection), connection);
+        }
+    }
+
+    // Returns the elapsed nanoseconds
+    private long insertPooled(Connection connection) throws SQLException {
+        long begin = System.nanoTime();
+        long nextId = 0;
+        long blockEnd = 0;
+        try (PreparedStatement insert = connection.prepareStatement(INSERT_WITH_ID)) {
+            for (int row = 0; row < ROWS; row++) {
+                if (nextId == blockEnd) {
+                    // Hibernate reserves the block in its own transaction
+                    nextId = reserveBlock();
+                    blockEnd = nextId + ALLOCATION_SIZE;
+                }
+                insert.setLong(1, nextId++);
+                bind(insert, 2, row);
+                insert.addBatch();
+                if ((row + 1) % BATCH_SIZE == 0) {
+                    insert.executeBatch();
+                }
+                commitEvery(connection, row);
+            }
+            insert.executeBatch();
+        }
+        connection.commit();
+        return System.nanoTime() - begin;
+    }
+
+    private static long reserveBlock() throws SQLException {
+        try (Connection connection = connect(false)) {
+            long low;
+            try (PreparedStatement select = connection.prepareStatement(
+                    "SELECT next_val FROM id_sequences WHERE sequence_name = 'books' FOR UPDATE");
+                 ResultSet resultSet = select.executeQuery()) {
+                resultSet.next();
+                low = resultSet.getLong(1);
+            }
+            try (PreparedStatement update = connection.prepareStatement(
+                    "UPDATE id_sequences SET next_val = ? WHERE sequence_name = 'books' AND next_val = ?")) {
+                update.setLong(1, low + ALLOCATION_SIZE);
+                update.setLong(2, low);
+                update.executeUpdate();
+            }
+            connection.commit();
+            return low;
+        }
+    }
+
+    private static void bind(PreparedStatement insert, int firstIndex, int row) throws SQLException {
+        insert.setString(firstIndex, "Title " + row);
+        insert.setString(firstIndex + 1, "Author " + (row % 100));
+        insert.setString(firstIndex + 2, String.valueOf(9780000000000L + row));
+        insert.setBigDecimal(firstIndex + 3, new BigDecimal("19.99"));
+        insert.setInt(firstIndex + 4, row % 50);
+        insert.setString(firstIndex + 5, "Fiction");
+    }
+
+    private static void commitEvery(Connection connection, int row) throws SQLException {
+        if ((row + 1) % ROWS_PER_TRANSACTION == 0) {
+            connection.commit();
+        }
+    }
+
+    private static void report(String name, long nanos, Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet count = statement.executeQuery("SELECT COUNT(*) FROM books")) {
+            count.next();
+            assertEquals(ROWS, count.getLong(1));
+        }
+        System.out.printf("%-18s %,d rows in %,d ms: %,.0f rows/s%n",
+                name, ROWS, nanos / 1_000_000, ROWS / (nanos / 1_000_000_000.0));
+    }
+
+    private static Connection connect(boolean rewriteBatchedStatements) throws SQLException {
+        Properties properties = new Properties();
+        properties.setProperty("user", mysql.getUsername());
+        properties.setProperty("password", mysql.getPassword());
+        properties.setProperty("rewriteBatchedStatements", String.valueOf(rewriteBatchedStatements));
+        Connection connection = DriverManager.getConnection(mysql.getJdbcUrl(), properties);
+        connection.setAutoCommit(false);
+        return connection;
+    }
+}
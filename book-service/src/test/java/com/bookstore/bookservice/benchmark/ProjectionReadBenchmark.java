@@ -0,0 +1,127 @@
+package com.bookstore.bookservice.benchmark;
+
+import com.bookstore.bookservice.dto.BookDto;
+import com.bookstore.bookservice.entity.Book;
+import com.bookstore.bookservice.mapper.BookMapper;
+import com.bookstore.bookservice.repository.BookRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.KafkaContainer;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * A 10k-row list read the old way (managed Book entities mapped through BookMapper) versus the
+ * BookDto constructor projection, in a read-only transaction like the service methods. Reports mean
+ * latency and bytes allocated per call. Not matched by the default surefire includes; run with
+ * {@code mvn test -Dtest=ProjectionReadBenchmark} (needs Docker).
+ */
+@SpringBootTest
+@Testcontainers
+class ProjectionReadBenchmark {
+
+    private static final int ROWS = 10_000;
+    private static final int WARMUP = 10;
+    private static final int ITERATIONS = 30;
+    private static final BigDecimal MIN_PRICE = BigDecimal.ZERO;
+    private static final BigDecimal MAX_PRICE = new BigDecimal("1000");
+
+    @Container
+    static MySQLContainer<?> mysql = new MySQLContainer<>("mysql:8.0")
+            .withDatabaseName("bookstore_books_test")
+            .withUsername("test_user")
+            .withPassword("test_password");
+
+    @Container
+    static KafkaContainer kafka = new KafkaContainer(DockerImageName.parse("confluentinc/cp-kafka:latest"));
+
+    @Container
+    static GenericContainer<?> redis = new GenericContainer<>("redis:7-alpine")
+            .withExposedPorts(6379);
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", mysql::getJdbcUrl);
+        registry.add("spring.datasource.username", mysql::getUsername);
+        registry.add("spring.datasource.password", mysql::getPassword);
+        registry.add("spring.kafka.bootstrap-servers", kafka::getBootstrapServers);
+        registry.add("spring.data.redis.host", redis::getHost);
+        registry.add("spring.data.redis.port", () -> redis.getMappedPort(6379));
+    }
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BookMapper bookMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate readOnly;
+
+    @BeforeEach
+    void setUp() {
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        bookRepository.deleteAll();
+        List<Book> books = new ArrayList<>(1000);
+        for (int i = 0; i < ROWS; i++) {
+            Book book = new Book("Title " + i, "Author " + (i % 500), String.valueOf(9780000000000L + i),
+                                 new BigDecimal("19.99"), i % 50, "Fiction");
+            book.setDescription("A description long enough to look like a real one, for book number " + i);
+            books.add(book);
+            if (books.size() == 1000) {
+                bookRepository.saveAll(books);
+                books.clear();
+            }
+        }
+    }
+
+    @Test
+    void entitiesVersusProjection() {
+        measure("entities + mapper", () -> bookRepository.findByPriceBetween(MIN_PRICE, MAX_PRICE).stream()
+                .map(bookMapper::toDto)
+                .collect(Collectors.toList()));
+        measure("DTO projection", () -> bookRepository.findBookDtosByPriceBetween(MIN_PRICE, MAX_PRICE));
+    }
+
+    private void measure(String name, Supplier<List<BookDto>> read) {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        for (int i = 0; i < WARMUP; i++) {
+            assertEquals(ROWS, readOnly.execute(status -> read.get()).size());
+        }
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long begin = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            readOnly.execute(status -> read.get());
+        }
+        long nanos = System.nanoTime() - begin;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        System.out.printf("%-18s %,d rows: %,.1f ms/call, %,.1f MB allocated/call%n", name, ROWS,
+                nanos / 1_000_000.0 / ITERATIONS, allocated / 1024.0 / 1024.0 / ITERATIONS);
+    }
+}
@@ -0,0 +1,150 @@
+package com.bookstore.bookservice.benchmark;
+
+import com.bookstore.bookservice.entity.Book;
+import com.bookstore.bookservice.repository.BookRepository;
+import com.bookstore.bookservice.service.BookService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.KafkaContainer;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Many concurrent orders against one hot book: the old read-modify-write path under @Version
+ * versus the single guarded UPDATE. Not matched by the default surefire includes; run with
+ * {@code mvn test -Dtest=StockContentionBenchmark} (needs Docker).
+ */
+@SpringBootTest
+@Testcontainers
+class StockContentionBenchmark {
+
+    private static final int THREADS = 32;
+    private static final int ORDERS_PER_THREAD = 50;
+    private static final int INITIAL_STOCK = THREADS * ORDERS_PER_THREAD;
+
+    @Container
+    static MySQLContainer<?> mysql = new MySQLContainer<>("mysql:8.0")
+            .withDatabaseName("bookstore_books_test")
+            .withUsername("test_user")
+            .withPassword("test_password");
+
+    @Container
+    static KafkaContainer kafka = new KafkaContainer(DockerImageName.parse("confluentinc/cp-kafka:latest"));
+
+    @Container
+    static GenericContainer<?> redis = new GenericContainer<>("redis:7-alpine")
+            .withExposedPorts(6379);
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", mysql::getJdbcUrl);
+        registry.add("spring.datasource.username", mysql::getUsername);
+        registry.add("spring.datasource.password", mysql::getPassword);
+        registry.add("spring.kafka.bootstrap-servers", kafka::getBootstrapServers);
+        registry.add("spring.data.redis.host", redis::getHost);
+        registry.add("spring.data.redis.port", () -> redis.getMappedPort(6379));
+    }
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Long bookId;
+
+    @BeforeEach
+    void setUp() {
+        bookRepository.deleteAll();
+        Book book = new Book("Hot Book", "Author", "9780000000001", new BigDecimal("9.99"), INITIAL_STOCK, "Fiction");
+        bookId = bookRepository.save(book).getId();
+    }
+
+    @Test
+    void readModifyWrite() throws InterruptedException {
+        Result result = run(() -> transactionTemplate.executeWithoutResult(status -> {
+            Book book = bookRepository.findById(bookId).orElseThrow();
+            book.updateStock(-1);
+            bookRepository.save(book);
+        }));
+        report("read-modify-write", result);
+    }
+
+    @Test
+    void conditionalUpdate() throws InterruptedException {
+        Result result = run(() -> bookService.updateStock(bookId, -1));
+        report("conditional update", result);
+
+        assertEquals(0, result.failures.get());
+        assertEquals(0, bookRepository.findById(bookId).orElseThrow().getStockQuantity());
+    }
+
+    private Result run(Runnable order) throws InterruptedException {
+        Result result = new Result();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Runnable> workers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            workers.add(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < ORDERS_PER_THREAD; i++) {
+                    try {
+                        order.run();
+                        result.successes.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        result.failures.incrementAndGet();
+                    }
+                }
+            });
+        }
+        workers.forEach(executor::submit);
+
+        long begin = System.nanoTime();
+        start.countDown();
+        executor.shutdown();
+        executor.awaitTermination(5, TimeUnit.MINUTES);
+        result.elapsedNanos = System.nanoTime() - begin;
+        return result;
+    }
+
+    private void report(String name, Result result) {
+        double seconds = result.elapsedNanos / 1_000_000_000.0;
+        int stock = bookRepository.findById(bookId).orElseThrow().getStockQuantity();
+        System.out.printf("%-20s threads=%d ok=%d failed=%d %.0f orders/s, final stock=%d (expected %d)%n",
+                name, THREADS, result.successes.get(), result.failures.get(),
+                result.successes.get() / seconds, stock, INITIAL_STOCK - result.successes.get());
+    }
+
+    private static final class Result {
+        private final AtomicInteger successes = new AtomicInteger();
+        private final AtomicInteger failures = new AtomicInteger();
+        private long elapsedNanos;
+    }
+}
@@ -0,0 +1,100 @@
+package com.bookstore.bookservice.cache;
+
+import com.bookstore.bookservice.dto.BookDto;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BookBatchCacheTest {
+
+    @Mock
+    private CacheManager cacheManager;
+
+    @Mock
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Mock
+    private ValueOperations<String, Object> valueOperations;
+
+    private TwoTierCache books;
+    private BookBatchCache bookBatchCache;
+
+    @BeforeEach
+    void setUp() {
+        com.github.benmanes.caffeine.cache.Cache<String, Cache.ValueWrapper> local = Caffeine.newBuilder()
+                .maximumSize(100)
+                .build();
+        books = new TwoTierCache("books", new ConcurrentMapCache("books"), local,
+                mock(CacheInvalidationBroadcaster.class));
+        lenient().when(cacheManager.getCache("books")).thenReturn(books);
+        lenient().when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        bookBatchCache = new BookBatchCache(cacheManager, redisTemplate, Duration.ofHours(1));
+    }
+
+    @Test
+    void getAll_ReadsLocalHitsThenFetchesTheRestWithOneMultiGet() {
+        // Arrange
+        BookDto local = book(1L, "9781234567890");
+        BookDto remote = book(2L, "9780134685991");
+        books.promoteLocal(1L, local, books.currentGeneration());
+        when(valueOperations.multiGet(List.of("books::2", "books::9780134685991", "books::3")))
+                .thenReturn(Arrays.asList(remote, remote, null));
+
+        // Act
+        Map<Object, BookDto> found = bookBatchCache.getAll(List.of(1L, 2L, "9780134685991", 3L));
+
+        // Assert
+        assertEquals(Map.of(1L, local, 2L, remote, "9780134685991", remote), found);
+        verify(valueOperations, times(1)).multiGet(anyCollection());
+        assertSame(remote, books.getLocal(2L).get());
+    }
+
+    @Test
+    void getAll_RedisUnavailable_ReturnsLocalHitsOnly() {
+        // Arrange
+        BookDto local = book(1L, "9781234567890");
+        books.promoteLocal(1L, local, books.currentGeneration());
+        when(valueOperations.multiGet(anyCollection())).thenThrow(new IllegalStateException("connection refused"));
+
+        // Act
+        Map<Object, BookDto> found = bookBatchCache.getAll(List.of(1L, 2L));
+
+        // Assert
+        assertEquals(Map.of(1L, local), found);
+    }
+
+    @Test
+    void putAll_WritesEveryBookInOnePipeline() {
+        // Act
+        bookBatchCache.putAll(List.of(book(1L, "9781234567890"), book(2L, "9780134685991")));
+
+        // Assert
+        verify(redisTemplate, times(1)).executePipelined(any(SessionCallback.class));
+    }
+
+    private static BookDto book(Long id, String isbn) {
+        BookDto book = new BookDto();
+        book.setId(id);
+        book.setIsbn(isbn);
+        return book;
+    }
+}
@@ -0,0 +1,102 @@
+package com.bookstore.bookservice.cache;
+
+import com.bookstore.bookservice.entity.Book;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.cache.interceptor.SimpleKey;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookCacheInvalidatorTest {
+
+    private ConcurrentMapCacheManager cacheManager;
+    private SimpleMeterRegistry meterRegistry;
+    private BookCacheInvalidator invalidator;
+
+    @BeforeEach
+    void setUp() {
+        cacheManager = new ConcurrentMapCacheManager();
+        meterRegistry = new SimpleMeterRegistry();
+        invalidator = new BookCacheInvalidator(cacheManager, meterRegistry);
+
+        Cache books = cacheManager.getCache(BookCacheInvalidator.BOOKS);
+        books.put(1L, "book 1");
+        books.put("978-0134685991", "book 1");
+        books.put(2L, "book 2");
+        books.put("978-1617294945", "book 2");
+        cacheManager.getCache(BookCacheInvalidator.ALL_BOOKS).put(SimpleKey.EMPTY, List.of("book 1", "book 2"));
+        cacheManager.getCache(BookCacheInvalidator.RECENT_BOOKS).put(10, List.of("book 2"));
+        Cache categories = cacheManager.getCache(BookCacheInvalidator.BOOKS_BY_CATEGORY);
+        categories.put("fiction", List.of("book 1"));
+        categories.put("science", List.of());
+        categories.put("poetry", List.of("book 2"));
+    }
+
+    @Test
+    void bookChanged_EvictsOnlyThatBooksKeysAndLists() {
+        // Act
+        invalidator.bookChanged(book(1L, "978-0134685991", "Fiction"));
+
+        // Assert
+        Cache books = cacheManager.getCache(BookCacheInvalidator.BOOKS);
+        assertNull(books.get(1L));
+        assertNull(books.get("978-0134685991"));
+        assertNotNull(books.get(2L));
+        assertNotNull(books.get("978-1617294945"));
+        assertNull(cacheManager.getCache(BookCacheInvalidator.ALL_BOOKS).get(SimpleKey.EMPTY));
+        assertNull(cacheManager.getCache(BookCacheInvalidator.RECENT_BOOKS).get(10));
+        Cache categories = cacheManager.getCache(BookCacheInvalidator.BOOKS_BY_CATEGORY);
+        assertNull(categories.get("fiction"));
+        assertNotNull(categories.get("science"));
+        assertNotNull(categories.get("poetry"));
+    }
+
+    @Test
+    void bookChanged_CategoryMove_EvictsTheOldAndNewCategoryOnly() {
+        // Act
+        invalidator.bookChanged(book(1L, "978-0134685991", "Science"), "978-0134685991", "Fiction");
+
+        // Assert
+        Cache categories = cacheManager.getCache(BookCacheInvalidator.BOOKS_BY_CATEGORY);
+        assertNull(categories.get("fiction"));
+        assertNull(categories.get("science"));
+        assertNotNull(categories.get("poetry"));
+    }
+
+    @Test
+    void bookCreated_LeavesExistingBooksCached() {
+        // Act
+        invalidator.bookCreated(book(3L, "978-0000000003", "Science"));
+
+        // Assert
+        assertNotNull(cacheManager.getCache(BookCacheInvalidator.BOOKS).get(1L));
+        assertNull(cacheManager.getCache(BookCacheInvalidator.ALL_BOOKS).get(SimpleKey.EMPTY));
+        assertNull(cacheManager.getCache(BookCacheInvalidator.BOOKS_BY_CATEGORY).get("science"));
+        assertNotNull(cacheManager.getCache(BookCacheInvalidator.BOOKS_BY_CATEGORY).get("fiction"));
+    }
+
+    @Test
+    void bookChanged_RecordsFanOut() {
+        // Act
+        invalidator.bookChanged(book(1L, "978-0134685991", "Fiction"), "978-0134685991", "FICTION");
+
+        // Assert: id, one ISBN, all-books, available-books, recent-books, one category
+        DistributionSummary fanOut = meterRegistry.get("book.cache.invalidation.fanout").summary();
+        assertEquals(1, fanOut.count());
+        assertEquals(6, fanOut.totalAmount());
+    }
+
+    private static Book book(Long id, String isbn, String category) {
+        Book book = new Book();
+        book.setId(id);
+        book.setIsbn(isbn);
+        book.setCategory(category);
+        return book;
+    }
+}
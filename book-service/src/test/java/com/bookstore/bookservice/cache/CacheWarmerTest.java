@@ -0,0 +1,120 @@
+package com.bookstore.bookservice.cache;
+
+import com.bookstore.bookservice.exception.BookNotFoundException;
+import com.bookstore.bookservice.service.BookService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CacheWarmerTest {
+
+    private static final String HOT_KEYS = "test:hot-keys";
+
+    @Mock
+    private BookService bookService;
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private HashOperations<String, Object, Object> hashOperations;
+
+    private CacheWarmer cacheWarmer;
+
+    @BeforeEach
+    void setUp() {
+        cacheWarmer = new CacheWarmer(bookService, redisTemplate, HOT_KEYS, true, 2, 2);
+        lenient().when(redisTemplate.opsForHash()).thenReturn(hashOperations);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void warmHotKeys_RequestsTheTopKeysThroughTheServiceAndSavesThem() {
+        // Arrange
+        for (int i = 0; i < 5; i++) {
+            cacheWarmer.recordBookId(1L);
+            cacheWarmer.recordBookId(2L);
+        }
+        cacheWarmer.recordBookId(3L);
+        cacheWarmer.recordCategory("Fiction");
+        cacheWarmer.recordRecentLimit(10);
+        when(bookService.getBookById(2L)).thenThrow(new BookNotFoundException("Book not found with ID: 2"));
+
+        // Act
+        cacheWarmer.warmHotKeys();
+
+        // Assert: the run happens on the warmer's thread
+        verify(hashOperations, timeout(5000)).putAll(eq(HOT_KEYS), anyMap());
+        verify(bookService).getBookById(1L);
+        verify(bookService).getBookById(2L);
+        verify(bookService, never()).getBookById(3L);
+        verify(bookService).searchBooksByCategory("fiction");
+        verify(bookService).getRecentBooks(10);
+
+        ArgumentCaptor<Map<String, String>> saved = ArgumentCaptor.forClass(Map.class);
+        verify(hashOperations).putAll(eq(HOT_KEYS), saved.capture());
+        assertEquals(2, saved.getValue().get("ids").split("\n").length);
+        assertEquals("fiction", saved.getValue().get("categories"));
+    }
+
+    @Test
+    void warmOnStartup_WarmsTheKeysSavedByTheLastRun() throws Exception {
+        // Arrange
+        when(hashOperations.entries(HOT_KEYS)).thenReturn(Map.of("ids", "7\n8", "isbns", "9780134685991",
+                                                                  "categories", "", "recent-limits", "20"));
+
+        // Act
+        cacheWarmer.warmOnStartup();
+        awaitIdle();
+
+        // Assert
+        verify(bookService).getRecentBooks(20);
+        verify(bookService).getBookById(7L);
+        verify(bookService).getBookById(8L);
+        verify(bookService).getBookByIsbn("9780134685991");
+        verify(bookService, never()).searchBooksByCategory(anyString());
+    }
+
+    @Test
+    void warmHotKeys_ReturnsAtOnceAndSkipsARunWhileThePreviousOneIsGoing() throws Exception {
+        // Arrange
+        CountDownLatch release = new CountDownLatch(1);
+        cacheWarmer.recordBookId(1L);
+        when(bookService.getBookById(1L)).thenAnswer(invocation -> {
+            release.await();
+            return null;
+        });
+
+        // Act
+        cacheWarmer.warmHotKeys();
+        verify(bookService, timeout(5000)).getBookById(1L);
+        cacheWarmer.warmHotKeys();
+        release.countDown();
+
+        // Assert
+        awaitIdle();
+        verify(bookService, times(1)).getBookById(1L);
+        verify(hashOperations, times(1)).putAll(eq(HOT_KEYS), anyMap());
+    }
+
+    private void awaitIdle() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (cacheWarmer.isRunning() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertFalse(cacheWarmer.isRunning());
+    }
+}
@@ -0,0 +1,48 @@
+package com.bookstore.bookservice.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HotKeyTrackerTest {
+
+    @Test
+    void topKeys_FindsHotKeysAmongALongTail() {
+        // Arrange: keys 0-9 get half the traffic, 10 000 other keys share the rest
+        HotKeyTracker<Long> tracker = new HotKeyTracker<>(20);
+        Random random = new Random(42);
+
+        // Act
+        for (int i = 0; i < 200_000; i++) {
+            long key = random.nextBoolean() ? random.nextInt(10) : 10 + random.nextInt(10_000);
+            tracker.record(key);
+        }
+
+        // Assert
+        List<Long> top = tracker.topKeys(10);
+        assertEquals(10, top.size());
+        assertTrue(top.stream().allMatch(key -> key < 10), "hot keys expected, got " + top);
+    }
+
+    @Test
+    void record_DecaysKeysThatStopBeingRequested() {
+        // Arrange: key 1 was hot, then traffic moves to keys 2-5
+        HotKeyTracker<Integer> tracker = new HotKeyTracker<>(4);
+        for (int i = 0; i < 5_000; i++) {
+            tracker.record(1);
+        }
+        int hotEstimate = tracker.estimate(1);
+
+        // Act: several samples' worth of other traffic
+        for (int i = 0; i < 20_000; i++) {
+            tracker.record(2 + i % 4);
+        }
+
+        // Assert
+        assertTrue(tracker.estimate(1) < hotEstimate / 4);
+        assertFalse(tracker.topKeys(4).contains(1));
+    }
+}
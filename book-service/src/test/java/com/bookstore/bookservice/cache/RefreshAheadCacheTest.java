@@ -0,0 +1,121 @@
+package com.bookstore.bookservice.cache;
+
+import com.bookstore.bookservice.dto.BookDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.cache.interceptor.SimpleKey;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RefreshAheadCacheTest {
+
+    private static final Duration TTL = Duration.ofHours(1);
+
+    @Mock
+    private RedisLease lease;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ConcurrentMapCache remote;
+    private RefreshAheadCache cache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        remote = new ConcurrentMapCache("all-books");
+        // Runs refreshes inline so the test sees their result
+        cache = new RefreshAheadCache(remote, TTL, 1.0, lease, "test:cache-refresh:", Runnable::run, meterRegistry);
+    }
+
+    @Test
+    void get_MissStoresTheValueWithItsExpiry() throws Exception {
+        // Act
+        long before = System.currentTimeMillis();
+        String value = cache.get(SimpleKey.EMPTY, () -> "catalog");
+
+        // Assert
+        assertEquals("catalog", value);
+        RefreshAheadValue stored = (RefreshAheadValue) remote.get(SimpleKey.EMPTY).get();
+        assertEquals("catalog", stored.getValue());
+        assertTrue(stored.getExpiresAt() >= before + TTL.toMillis());
+        assertEquals("catalog", cache.get(SimpleKey.EMPTY).get());
+    }
+
+    @Test
+    void get_FreshEntryIsServedWithoutRefreshing() {
+        // Arrange
+        remote.put(SimpleKey.EMPTY, new RefreshAheadValue("catalog", 50, System.currentTimeMillis() + TTL.toMillis()));
+        AtomicInteger loads = new AtomicInteger();
+
+        // Act
+        String value = cache.get(SimpleKey.EMPTY, () -> "reloaded " + loads.incrementAndGet());
+
+        // Assert
+        assertEquals("catalog", value);
+        assertEquals(0, loads.get());
+        verifyNoInteractions(lease);
+    }
+
+    @Test
+    void get_EntryDueForRefreshServesTheOldValueAndReplacesItInTheBackground() {
+        // Arrange
+        remote.put(SimpleKey.EMPTY, new RefreshAheadValue("old catalog", 50, System.currentTimeMillis() - 1));
+        when(lease.tryAcquire("test:cache-refresh:all-books::" + SimpleKey.EMPTY)).thenReturn("token");
+
+        // Act
+        String value = cache.get(SimpleKey.EMPTY, () -> "new catalog");
+
+        // Assert
+        assertEquals("old catalog", value);
+        assertEquals("new catalog", cache.get(SimpleKey.EMPTY).get());
+        assertEquals(1.0, meterRegistry.get("cache.refresh-ahead.refreshes").counter().count());
+        verify(lease).release(anyString(), eq("token"));
+    }
+
+    @Test
+    void get_RefreshLeasedByAnotherNodeIsSkipped() {
+        // Arrange
+        remote.put(SimpleKey.EMPTY, new RefreshAheadValue("old catalog", 50, System.currentTimeMillis() - 1));
+        when(lease.tryAcquire(anyString())).thenReturn(null);
+
+        // Act
+        cache.get(SimpleKey.EMPTY, () -> fail("must not load while another node refreshes"));
+
+        // Assert
+        assertEquals("old catalog", cache.get(SimpleKey.EMPTY).get());
+        verify(lease, never()).release(anyString(), anyString());
+    }
+
+    @Test
+    void refreshAheadValue_RoundTripsThroughTheRedisSerializer() {
+        // Arrange
+        BookDto book = new BookDto();
+        book.setId(1L);
+        book.setTitle("Effective Java");
+        List<BookDto> books = new ArrayList<>(List.of(book));
+        GenericJackson2JsonRedisSerializer serializer = new GenericJackson2JsonRedisSerializer();
+
+        // Act
+        Object read = serializer.deserialize(serializer.serialize(new RefreshAheadValue(books, 120, 42L)));
+
+        // Assert
+        RefreshAheadValue entry = assertInstanceOf(RefreshAheadValue.class, read);
+        assertEquals(120, entry.getComputeMillis());
+        assertEquals(42L, entry.getExpiresAt());
+        BookDto readBook = assertInstanceOf(BookDto.class, ((List<?>) entry.getValue()).get(0));
+        assertEquals("Effective Java", readBook.getTitle());
+    }
+}
@@ -0,0 +1,133 @@
+package com.bookstore.bookservice.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SingleFlightCacheTest {
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ConcurrentMapCache remote;
+    private SingleFlightCache cache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        remote = new ConcurrentMapCache("all-books");
+        cache = new SingleFlightCache(remote, redisTemplate, "test:cache-load:", Duration.ofSeconds(5),
+                Duration.ofMillis(10), meterRegistry);
+        lenient().when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+    }
+
+    @Test
+    void get_ConcurrentMissesOnOneNodeLoadOnce() throws Exception {
+        // Arrange
+        when(valueOperations.setIfAbsent(eq("test:cache-load:all-books::1"), anyString(), any(Duration.class)))
+                .thenReturn(true);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+
+        // Act
+        List<Future<String>> results = new ArrayList<>();
+        try {
+            results.add(callers.submit(() -> cache.get(1L, () -> {
+                loads.incrementAndGet();
+                loading.countDown();
+                release.await();
+                return "catalog";
+            })));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 7; i++) {
+                results.add(callers.submit(() -> cache.get(1L, () -> {
+                    loads.incrementAndGet();
+                    return "duplicate load";
+                })));
+            }
+            while (meterRegistry.get("cache.single-flight.coalesced").tag("scope", "local").counter().count() < 7) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            // Assert
+            for (Future<String> result : results) {
+                assertEquals("catalog", result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+        assertEquals(1, loads.get());
+        assertEquals("catalog", remote.get(1L).get());
+        verify(redisTemplate).execute(any(RedisScript.class), eq(List.of("test:cache-load:all-books::1")), anyString());
+    }
+
+    @Test
+    void get_WaitsForTheNodeHoldingTheLeaseInsteadOfLoading() throws Exception {
+        // Arrange: another node holds the lease and finishes its load shortly
+        when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(false);
+        lenient().when(redisTemplate.hasKey(anyString())).thenReturn(true);
+        Thread peer = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                return;
+            }
+            remote.put(1L, "loaded by peer");
+        });
+        peer.start();
+
+        // Act
+        String value = cache.get(1L, () -> "loaded here");
+
+        // Assert
+        assertEquals("loaded by peer", value);
+        assertEquals(0.0, meterRegistry.get("cache.single-flight.loads").counter().count());
+        assertEquals(1.0, meterRegistry.get("cache.single-flight.coalesced").tag("scope", "cluster").counter().count());
+        peer.join();
+    }
+
+    @Test
+    void get_LoaderFailureIsRethrownAndNothingIsCached() {
+        // Arrange
+        when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(true);
+
+        // Act & Assert
+        Cache.ValueRetrievalException exception = assertThrows(Cache.ValueRetrievalException.class,
+                () -> cache.get(1L, () -> {
+                    throw new IllegalStateException("database unavailable");
+                }));
+        assertEquals("database unavailable", exception.getCause().getMessage());
+        assertNull(remote.get(1L));
+        verify(redisTemplate).execute(any(RedisScript.class), anyList(), anyString());
+    }
+}
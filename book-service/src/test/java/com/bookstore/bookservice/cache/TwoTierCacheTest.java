@@ -0,0 +1,93 @@
+package com.bookstore.bookservice.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class TwoTierCacheTest {
+
+    private ConcurrentMapCache remote;
+    private CacheInvalidationBroadcaster broadcaster;
+    private TwoTierCache cache;
+
+    @BeforeEach
+    void setUp() {
+        remote = spy(new ConcurrentMapCache("books"));
+        broadcaster = mock(CacheInvalidationBroadcaster.class);
+        com.github.benmanes.caffeine.cache.Cache<String, Cache.ValueWrapper> local = Caffeine.newBuilder()
+                .maximumSize(100)
+                .build();
+        cache = new TwoTierCache("books", remote, local, broadcaster);
+    }
+
+    @Test
+    void get_SecondReadServedFromLocalTier() {
+        // Arrange
+        remote.put(1L, "Effective Java");
+
+        // Act
+        cache.get(1L);
+        Cache.ValueWrapper second = cache.get(1L);
+
+        // Assert
+        assertEquals("Effective Java", second.get());
+        verify(remote, times(1)).get(1L);
+    }
+
+    @Test
+    void put_WritesRemoteDropsLocalAndNotifiesPeers() {
+        // Arrange
+        remote.put(1L, "old");
+        cache.get(1L);
+
+        // Act
+        cache.put(1L, "new");
+
+        // Assert
+        assertEquals("new", cache.get(1L).get());
+        verify(broadcaster).publishEvict("books", "1");
+    }
+
+    @Test
+    void evictLocal_PeerInvalidationDropsLocalCopyOnly() {
+        // Arrange
+        remote.put(1L, "old");
+        cache.get(1L);
+        remote.put(1L, "changed by peer");
+
+        // Act
+        cache.evictLocal("1");
+
+        // Assert
+        assertEquals("changed by peer", cache.get(1L).get());
+        verifyNoInteractions(broadcaster);
+    }
+
+    @Test
+    void clear_EmptiesBothTiersAndNotifiesPeers() {
+        // Arrange
+        cache.put(1L, "a");
+        cache.get(1L);
+
+        // Act
+        cache.clear();
+
+        // Assert
+        assertNull(cache.get(1L));
+        verify(broadcaster).publishClear("books");
+    }
+
+    @Test
+    void weigh_CollectionsWeighTheirElementCount() {
+        assertEquals(3, TwoTierCacheManager.weigh(List.of(1, 2, 3)));
+        assertEquals(1, TwoTierCacheManager.weigh(List.of()));
+        assertEquals(1, TwoTierCacheManager.weigh("book"));
+    }
+}
@@ -0,0 +1,118 @@
+package com.bookstore.bookservice.event;
+
+import com.bookstore.bookservice.dto.UserEventDTO;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookEventCodecTest {
+
+    @Test
+    void encodeDecode_RoundTripsEveryField() {
+        // Arrange
+        BookEvent event = new BookEvent("STOCK_UPDATED", 42L, "Żółć & Ünïcode", "Author", "9781234567890", -3);
+        event.setTimestamp(LocalDateTime.of(2024, 2, 29, 13, 45, 7, 123456789));
+
+        // Act
+        BookEvent decoded = BookEventCodec.decode(BookEventCodec.encode(event));
+
+        // Assert
+        assertEquals(event.getEventType(), decoded.getEventType());
+        assertEquals(event.getBookId(), decoded.getBookId());
+        assertEquals(event.getTitle(), decoded.getTitle());
+        assertEquals(event.getAuthor(), decoded.getAuthor());
+        assertEquals(event.getIsbn(), decoded.getIsbn());
+        assertEquals(event.getStockQuantity(), decoded.getStockQuantity());
+        assertEquals(event.getTimestamp(), decoded.getTimestamp());
+    }
+
+    @Test
+    void encodeDecode_KeepsNullsDistinctFromEmpty() {
+        // Arrange
+        BookEvent event = new BookEvent("BOOK_DELETED", 7L, "", null, null, null);
+        event.setTimestamp(null);
+
+        // Act
+        BookEvent decoded = BookEventCodec.decode(BookEventCodec.encode(event));
+
+        // Assert
+        assertEquals("", decoded.getTitle());
+        assertNull(decoded.getAuthor());
+        assertNull(decoded.getStockQuantity());
+        assertNull(decoded.getTimestamp());
+    }
+
+    @Test
+    void decode_IgnoresFieldsAppendedByANewerProducer() {
+        // Arrange
+        byte[] encoded = BookEventCodec.encode(new BookEvent("BOOK_CREATED", 1L, "T", "A", "9781234567890", 5));
+        byte[] extended = Arrays.copyOf(encoded, encoded.length + 3);
+
+        // Act
+        BookEvent decoded = BookEventCodec.decode(extended);
+
+        // Assert
+        assertEquals(5, decoded.getStockQuantity());
+    }
+
+    @Test
+    void decode_RejectsUnknownVersionAndTruncatedInput() {
+        byte[] encoded = BookEventCodec.encode(new BookEvent("BOOK_CREATED", 1L, "Title", "A", "9781234567890", 5));
+
+        byte[] futureVersion = encoded.clone();
+        futureVersion[0] = 2;
+        assertThrows(IllegalArgumentException.class, () -> BookEventCodec.decode(futureVersion));
+        assertThrows(IllegalArgumentException.class,
+                () -> BookEventCodec.decode(Arrays.copyOf(encoded, encoded.length / 2)));
+    }
+
+    @Test
+    void presence_RejectsMoreFieldsThanTheBitmapHolds() {
+        Object[] eight = new Object[EventWireFormat.MAX_FIELDS];
+        eight[7] = "last";
+
+        assertEquals(0x80, EventWireFormat.presence(eight));
+        assertThrows(IllegalArgumentException.class, () -> EventWireFormat.presence(new Object[9]));
+    }
+
+    @Test
+    void userEventDecode_ReadsUserServiceLayout() {
+        // Arrange: the same field order user-service writes
+        LocalDateTime timestamp = LocalDateTime.of(2024, 1, 1, 0, 0);
+        byte[] encoded = new EventWireFormat.Writer()
+                .header(EventWireFormat.VERSION_1,
+                        EventWireFormat.presence("USER_DEACTIVATED", 9L, "Ada", "Lovelace", "ada@example.com", false, timestamp))
+                .writeString("USER_DEACTIVATED")
+                .writeLong(9L)
+                .writeString("Ada")
+                .writeString("Lovelace")
+                .writeString("ada@example.com")
+                .writeBoolean(false)
+                .writeTimestamp(timestamp)
+                .toByteArray();
+
+        // Act
+        UserEventDTO decoded = UserEventCodec.decode(encoded);
+
+        // Assert
+        assertEquals("USER_DEACTIVATED", decoded.getEventType());
+        assertEquals(9L, decoded.getUserId());
+        assertEquals("ada@example.com", decoded.getEmail());
+        assertEquals(Boolean.FALSE, decoded.getActive());
+        assertEquals(timestamp, decoded.getTimestamp());
+    }
+
+    @Test
+    void contentType_DefaultsToJsonWithoutHeader() {
+        RecordHeaders headers = new RecordHeaders();
+        assertEquals(EventWireFormat.JSON, EventWireFormat.contentType(headers));
+
+        headers.add(EventWireFormat.CONTENT_TYPE_HEADER, EventWireFormat.BINARY_V1.getBytes(StandardCharsets.UTF_8));
+        assertTrue(EventWireFormat.isBinary(EventWireFormat.contentType(headers)));
+    }
+}
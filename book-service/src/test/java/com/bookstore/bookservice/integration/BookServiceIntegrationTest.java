@@ -25,8 +25,11 @@ import org.testcontainers.junit.jupiter.Testcontainers;
 import org.testcontainers.utility.DockerImageName;
 
 import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -258,6 +261,45 @@ public class BookServiceIntegrationTest {
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    void updateStock_NegativeStock_CanBeRestocked() throws Exception {
+        // A book oversold to -10
+        Book book = new Book();
+        book.setTitle("Oversold Book");
+        book.setAuthor("Test Author");
+        book.setIsbn("9781234567890");
+        book.setPrice(new BigDecimal("19.99"));
+        book.setStockQuantity(-10);
+        book.setCategory("Fiction");
+        Book savedBook = bookRepository.save(book);
+
+        mockMvc.perform(patch("/api/v1/books/{id}/stock", savedBook.getId())
+                .param("quantity", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.stockQuantity").value(-5)); // -10 + 5
+
+        mockMvc.perform(patch("/api/v1/books/{id}/stock", savedBook.getId())
+                .param("quantity", "-1")) // Still cannot go further below zero
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void updateStockQuantities_NegativeStock_CanBeRestocked() {
+        Book oversold = new Book("Oversold Book", "Test Author", "9781234567890", new BigDecimal("19.99"), -10, "Fiction");
+        Book stocked = new Book("Stocked Book", "Test Author", "9781234567891", new BigDecimal("19.99"), 3, "Fiction");
+        Long oversoldId = bookRepository.save(oversold).getId();
+        Long stockedId = bookRepository.save(stocked).getId();
+
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        quantities.put(oversoldId, 5);
+        quantities.put(stockedId, -3);
+        int updated = bookRepository.updateStockQuantities(quantities);
+
+        assertEquals(2, updated);
+        assertEquals(-5, bookRepository.findById(oversoldId).orElseThrow().getStockQuantity());
+        assertEquals(0, bookRepository.findById(stockedId).orElseThrow().getStockQuantity());
+    }
+
     @Test
     void searchBooks_Success() throws Exception {
         // Create books with different titles
@@ -0,0 +1,146 @@
+package com.bookstore.bookservice.kafka;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.event.ListenerContainerIdleEvent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class KeyOrderedParallelProcessorTest {
+
+    private static final String TOPIC = "user-events";
+    private static final TopicPartition PARTITION = new TopicPartition(TOPIC, 0);
+
+    @Mock
+    private Consumer<String, String> consumer;
+
+    private SimpleMeterRegistry meterRegistry;
+    private KeyOrderedParallelProcessor processor;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        processor = new KeyOrderedParallelProcessor("test", true, 4, 100, 10, 2000, meterRegistry);
+        lenient().when(consumer.assignment()).thenReturn(Set.of(PARTITION));
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        processor.destroy();
+    }
+
+    @Test
+    void process_SlowKeyDoesNotBlockOtherKeysButHoldsBackTheCommit() throws Exception {
+        // Arrange
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch otherKeysDone = new CountDownLatch(2);
+        List<Long> slowKeyOrder = Collections.synchronizedList(new ArrayList<>());
+
+        // Act
+        processor.process(List.of(record(0, "slow"), record(1, "slow"), record(2, "a"), record(3, "b")), consumer,
+                record -> {
+                    if ("slow".equals(record.key())) {
+                        release.await();
+                        slowKeyOrder.add(record.offset());
+                    } else {
+                        otherKeysDone.countDown();
+                    }
+                });
+
+        // Assert: the other keys finished while offset 0 is still running, so nothing is committable past it
+        assertTrue(otherKeysDone.await(5, TimeUnit.SECONDS));
+        awaitInFlight(2);
+        assertEquals(0, processor.committableOffset(PARTITION));
+        assertEquals(2.0, meterRegistry.get("kafka.consumer.parallel.in-flight").gauge().value());
+
+        release.countDown();
+        awaitInFlight(0);
+        assertEquals(List.of(0L, 1L), slowKeyOrder);
+        assertEquals(4, processor.committableOffset(PARTITION));
+    }
+
+    @Test
+    void process_FailedRecordIsRetriedOnItsLaneBeforeTheNextRecordOfThatKey() throws Exception {
+        // Arrange
+        AtomicInteger attempts = new AtomicInteger();
+        List<Long> handled = Collections.synchronizedList(new ArrayList<>());
+
+        // Act
+        processor.process(List.of(record(0, "k"), record(1, "k")), consumer, record -> {
+            if (record.offset() == 0 && attempts.incrementAndGet() < 3) {
+                throw new IllegalStateException("dead-letter topic unavailable");
+            }
+            handled.add(record.offset());
+        });
+        awaitInFlight(0);
+
+        // Assert
+        assertEquals(3, attempts.get());
+        assertEquals(List.of(0L, 1L), handled);
+        assertEquals(2, processor.committableOffset(PARTITION));
+    }
+
+    @Test
+    void onPartitionsRevoked_CommitsFinishedOffsetsSynchronously() throws Exception {
+        // Arrange
+        processor.process(List.of(record(5, "a"), record(6, "b")), consumer, record -> { });
+        awaitInFlight(0);
+
+        // Act
+        processor.onPartitionsRevokedBeforeCommit(consumer, List.of(PARTITION));
+
+        // Assert
+        verify(consumer).commitSync(Map.of(PARTITION, new OffsetAndMetadata(7)));
+        assertEquals(-1, processor.committableOffset(PARTITION));
+    }
+
+    @Test
+    void onIdleEvent_CommitsRecordsThatFinishedAfterTheLastBatch() throws Exception {
+        // Arrange: the offsets only become committable after process() has returned
+        CountDownLatch release = new CountDownLatch(1);
+        processor.process(List.of(record(3, "a"), record(4, "b")), consumer, record -> release.await());
+        release.countDown();
+        awaitInFlight(0);
+
+        // Act
+        processor.onApplicationEvent(new ListenerContainerIdleEvent(this, this, 1000, "test", List.of(PARTITION),
+                consumer, false));
+
+        // Assert: the batch itself could only commit up to offset 3
+        verify(consumer).commitAsync(eq(Map.of(PARTITION, new OffsetAndMetadata(3))), any());
+        verify(consumer).commitAsync(eq(Map.of(PARTITION, new OffsetAndMetadata(5))), any());
+    }
+
+    private void awaitInFlight(int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (processor.inFlight() != expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(expected, processor.inFlight());
+    }
+
+    private static ConsumerRecord<String, String> record(long offset, String key) {
+        return new ConsumerRecord<>(TOPIC, 0, offset, key, "{}");
+    }
+}
@@ -0,0 +1,126 @@
+package com.bookstore.bookservice.ratelimit;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.List;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DistributedRateLimiterAspectTest {
+
+    @Mock
+    private TokenBucketRateLimiter rateLimiter;
+
+    @Mock
+    private ProceedingJoinPoint joinPoint;
+
+    @Mock
+    private MethodSignature signature;
+
+    private DistributedRateLimiterAspect aspect;
+    private MockHttpServletRequest request;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        aspect = new DistributedRateLimiterAspect(rateLimiter, new ClientIdResolver(List.of("10.0.0.0/8", "::1")));
+        request = new MockHttpServletRequest();
+        request.setRemoteAddr("10.0.0.1");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        when(joinPoint.getSignature()).thenReturn(signature);
+        when(signature.getMethod()).thenReturn(LimitedEndpoint.class.getMethod("call"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void limit_DirectClientIsLimitedByItsAddressWhateverItForwards() throws Throwable {
+        // Arrange: not a trusted proxy, so the header is the client's own invention
+        request.setRemoteAddr("203.0.113.7");
+
+        // Act
+        for (int i = 0; i < 3; i++) {
+            request.removeHeader("X-Forwarded-For");
+            request.addHeader("X-Forwarded-For", "198.51.100." + i);
+            aspect.limit(joinPoint);
+        }
+
+        // Assert
+        verify(rateLimiter, times(3)).acquire("book-service", "ip:203.0.113.7");
+        verify(joinPoint, times(3)).proceed();
+    }
+
+    @Test
+    void limit_ClientsBehindTheLoadBalancerGetTheirOwnBuckets() throws Throwable {
+        // Act
+        request.addHeader("X-Forwarded-For", "198.51.100.1");
+        aspect.limit(joinPoint);
+        request.removeHeader("X-Forwarded-For");
+        request.addHeader("X-Forwarded-For", "198.51.100.2");
+        aspect.limit(joinPoint);
+
+        // Assert
+        verify(rateLimiter).acquire("book-service", "ip:198.51.100.1");
+        verify(rateLimiter).acquire("book-service", "ip:198.51.100.2");
+    }
+
+    @Test
+    void limit_EntriesLeftOfTheLastUntrustedHopAreIgnored() throws Throwable {
+        // Arrange: the client prepended a fake address; the balancer and an inner proxy appended theirs
+        request.addHeader("X-Forwarded-For", "192.0.2.99, 198.51.100.1");
+        request.addHeader("X-Forwarded-For", "10.1.2.3");
+
+        // Act
+        aspect.limit(joinPoint);
+
+        // Assert
+        verify(rateLimiter).acquire("book-service", "ip:198.51.100.1");
+    }
+
+    @Test
+    void limit_NoForwardedHeaderFromTrustedProxy_UsesTheProxyAddress() throws Throwable {
+        // Act
+        aspect.limit(joinPoint);
+
+        // Assert
+        verify(rateLimiter).acquire("book-service", "ip:10.0.0.1");
+    }
+
+    @Test
+    void limit_AuthenticatedUserGetsTheirOwnBucket() throws Throwable {
+        // Arrange
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                "alice", "password", AuthorityUtils.createAuthorityList("ROLE_USER")));
+        request.addHeader("X-Forwarded-For", "198.51.100.1");
+
+        // Act
+        aspect.limit(joinPoint);
+
+        // Assert
+        verify(rateLimiter).acquire("book-service", "user:alice");
+    }
+
+    static class LimitedEndpoint {
+
+        @DistributedRateLimiter(name = "book-service")
+        public void call() {
+        }
+    }
+}
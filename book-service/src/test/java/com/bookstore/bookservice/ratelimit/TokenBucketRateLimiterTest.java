@@ -0,0 +1,111 @@
+package com.bookstore.bookservice.ratelimit;
+
+import com.bookstore.bookservice.exception.RateLimitExceededException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TokenBucketRateLimiterTest {
+
+    private static final String KEY = "book-service:rate-limiter:book-service:ip:10.0.0.1";
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    private SimpleMeterRegistry meterRegistry;
+    private TokenBucketRateLimiter rateLimiter;
+
+    @BeforeEach
+    void setUp() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("rate-limiter.instances.book-service.capacity", "5")
+                .withProperty("rate-limiter.instances.book-service.refill-per-second", "5")
+                .withProperty("rate-limiter.instances.book-service.lease-size", "3");
+        meterRegistry = new SimpleMeterRegistry();
+        rateLimiter = new TokenBucketRateLimiter(redisTemplate, environment, meterRegistry, 60_000, 1000);
+    }
+
+    @Test
+    void acquire_HandsOutALeasedBlockWithoutGoingBackToRedis() {
+        // Arrange
+        when(redisTemplate.execute(any(RedisScript.class), eq(List.of(KEY)), eq("5"), anyString(), eq("3")))
+                .thenReturn(List.of(3L, 0L));
+
+        // Act
+        for (int i = 0; i < 4; i++) {
+            rateLimiter.acquire("book-service", "ip:10.0.0.1");
+        }
+
+        // Assert: the fourth call needed a second block
+        verify(redisTemplate, times(2)).execute(any(RedisScript.class), eq(List.of(KEY)), eq("5"), anyString(), eq("3"));
+        assertEquals(4.0, meterRegistry.get("rate-limiter.requests").tag("outcome", "permitted").counter().count());
+        assertEquals(2.0, meterRegistry.get("rate-limiter.leases").tag("outcome", "granted").counter().count());
+    }
+
+    @Test
+    void acquire_EmptyBucketIsRejectedLocallyUntilItRefills() {
+        // Arrange
+        when(redisTemplate.execute(any(RedisScript.class), eq(List.of(KEY)), anyString(), anyString(), anyString()))
+                .thenReturn(List.of(0L, 200L));
+
+        // Act
+        RateLimitExceededException first = assertThrows(RateLimitExceededException.class,
+                () -> rateLimiter.acquire("book-service", "ip:10.0.0.1"));
+        RateLimitExceededException second = assertThrows(RateLimitExceededException.class,
+                () -> rateLimiter.acquire("book-service", "ip:10.0.0.1"));
+
+        // Assert: the second rejection came from the remembered answer
+        assertEquals(200, first.getRetryAfterMs());
+        assertTrue(second.getRetryAfterMs() <= 200);
+        assertEquals(1, second.getRetryAfterSeconds());
+        verify(redisTemplate, times(1)).execute(any(RedisScript.class), anyList(), anyString(), anyString(), anyString());
+        assertEquals(2.0, meterRegistry.get("rate-limiter.requests").tag("outcome", "rejected").counter().count());
+    }
+
+    @Test
+    void acquire_ClientsHaveSeparateBuckets() {
+        // Arrange
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), anyString(), anyString(), anyString()))
+                .thenReturn(List.of(3L, 0L));
+
+        // Act
+        rateLimiter.acquire("book-service", "ip:10.0.0.1");
+        rateLimiter.acquire("book-service", "ip:10.0.0.2");
+
+        // Assert
+        verify(redisTemplate).execute(any(RedisScript.class), eq(List.of(KEY)), anyString(), anyString(), anyString());
+        verify(redisTemplate).execute(any(RedisScript.class), eq(List.of("book-service:rate-limiter:book-service:ip:10.0.0.2")),
+                anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void acquire_RedisUnavailableLimitsOnThisNodeAlone() {
+        // Arrange
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), anyString(), anyString(), anyString()))
+                .thenThrow(new RedisConnectionFailureException("Connection refused"));
+
+        // Act: one lease period's worth of permits at 5 per second, capped by the capacity of 5
+        for (int i = 0; i < 5; i++) {
+            rateLimiter.acquire("book-service", "ip:10.0.0.1");
+        }
+
+        // Assert
+        assertThrows(RateLimitExceededException.class, () -> rateLimiter.acquire("book-service", "ip:10.0.0.1"));
+        verify(redisTemplate, times(1)).execute(any(RedisScript.class), anyList(), anyString(), anyString(), anyString());
+        assertEquals(1.0, meterRegistry.get("rate-limiter.leases").tag("outcome", "unavailable").counter().count());
+    }
+}
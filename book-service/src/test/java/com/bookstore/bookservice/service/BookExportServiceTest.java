@@ -0,0 +1,71 @@
+package com.bookstore.bookservice.service;
+
+import com.bookstore.bookservice.entity.Book;
+import com.bookstore.bookservice.mapper.BookMapperImpl;
+import com.bookstore.bookservice.repository.BookRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BookExportServiceTest {
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @Mock
+    private EntityManager entityManager;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private BookExportService exportService;
+
+    @BeforeEach
+    void setUp() {
+        exportService = new BookExportService(bookRepository, new BookMapperImpl(), objectMapper, entityManager);
+    }
+
+    @Test
+    void exportNdjson_WritesOneLinePerBookAndClearsEveryChunk() throws Exception {
+        // Arrange: 2500 books at the default chunk size of 1000
+        AtomicBoolean closed = new AtomicBoolean();
+        LocalDateTime since = LocalDateTime.of(2024, 1, 1, 0, 0);
+        when(bookRepository.streamForExport(true, since)).thenReturn(
+                LongStream.rangeClosed(1, 2500).mapToObj(BookExportServiceTest::book).onClose(() -> closed.set(true)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        long written = exportService.exportNdjson(true, since, out);
+
+        // Assert
+        assertEquals(2500, written);
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2500, lines.length);
+        JsonNode last = objectMapper.readTree(lines[2499]);
+        assertEquals(2500, last.get("id").asLong());
+        assertEquals("9780000002500", last.get("isbn").asText());
+        verify(entityManager, times(2)).clear();
+        assertTrue(closed.get());
+    }
+
+    private static Book book(long id) {
+        Book book = new Book("Title " + id, "Author", String.valueOf(9780000000000L + id),
+                             new BigDecimal("9.99"), 1, "Fiction");
+        book.setId(id);
+        return book;
+    }
+}
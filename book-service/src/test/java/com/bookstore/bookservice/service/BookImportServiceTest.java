@@ -0,0 +1,197 @@
+package com.bookstore.bookservice.service;
+
+import com.bookstore.bookservice.cache.BookCacheInvalidator;
+import com.bookstore.bookservice.dto.BookImportResultDto;
+import com.bookstore.bookservice.entity.Book;
+import com.bookstore.bookservice.event.BookEvent;
+import com.bookstore.bookservice.mapper.BookMapperImpl;
+import com.bookstore.bookservice.repository.BookRepository;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BookImportServiceTest {
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @Mock
+    private KafkaProducerService kafkaProducerService;
+
+    @Mock
+    private BookSearchIndex bookSearchIndex;
+
+    @Mock
+    private BookSubstringIndex bookSubstringIndex;
+
+    @Mock
+    private BookCacheInvalidator bookCacheInvalidator;
+
+    @Mock
+    private InventoryStatistics inventoryStatistics;
+
+    @Mock
+    private IsbnFilter isbnFilter;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final AtomicLong nextId = new AtomicLong(100);
+    private BookImportService importService;
+
+    @BeforeEach
+    void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        importService = new BookImportService(bookRepository, new BookMapperImpl(), kafkaProducerService,
+                bookSearchIndex, bookSubstringIndex, bookCacheInvalidator, inventoryStatistics, isbnFilter,
+                Validation.buildDefaultValidatorFactory().getValidator(), objectMapper, entityManager,
+                transactionManager);
+
+        lenient().when(bookRepository.saveAll(anyIterable())).thenAnswer(invocation -> {
+            List<Book> saved = new ArrayList<>();
+            for (Book book : invocation.<Iterable<Book>>getArgument(0)) {
+                if (book.getId() == null) {
+                    book.setId(nextId.getAndIncrement());
+                }
+                saved.add(book);
+            }
+            return saved;
+        });
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void importCsv_UpsertsByIsbnAndReportsInvalidRows() throws Exception {
+        // Arrange
+        Book existing = new Book("Old Title", "Author", "9780000000002", new BigDecimal("10.00"), 1, "Fiction");
+        existing.setId(7L);
+        when(bookRepository.findByIsbnIn(anyCollection())).thenReturn(List.of(existing));
+        String csv = "title,author,isbn,price,stockQuantity,category,shelf\n"
+                + "New Book,Ann,9780000000001,12.50,3,Fiction,A1\n"
+                + "\"Updated, Title\",Author,9780000000002,11.00,4,Fiction,\n"
+                + ",Nobody,9780000000003,-1,2,Fiction,B2\n";
+
+        // Act
+        BookImportResultDto result = importService.importCsv(stream(csv));
+
+        // Assert
+        assertEquals(3, result.getTotalRows());
+        assertEquals(1, result.getCreated());
+        assertEquals(1, result.getUpdated());
+        assertEquals(1, result.getRejected());
+        BookImportResultDto.RowError error = result.getErrors().get(0);
+        assertEquals(3, error.getRow());
+        assertEquals("9780000000003", error.getIsbn());
+        assertTrue(error.getMessage().contains("price") && error.getMessage().contains("title"));
+
+        assertEquals("Updated, Title", existing.getTitle());
+        assertEquals(4, existing.getStockQuantity());
+        ArgumentCaptor<List<BookEvent>> events = ArgumentCaptor.forClass(List.class);
+        verify(kafkaProducerService).publishBookEvents(events.capture());
+        assertEquals(List.of("BOOK_CREATED", "BOOK_UPDATED"),
+                events.getValue().stream().map(BookEvent::getEventType).toList());
+        verify(bookCacheInvalidator).bookChanged(existing, "9780000000002", "Fiction");
+        verify(entityManager).clear();
+    }
+
+    @Test
+    void importNdjson_WritesOneTransactionPerChunkAndSkipsMalformedLines() throws Exception {
+        // Arrange: 2500 rows at the default chunk size of 1000
+        StringBuilder ndjson = new StringBuilder();
+        for (int i = 0; i < 2500; i++) {
+            ndjson.append(jsonRow(String.valueOf(9780000000000L + i))).append('\n');
+            if (i == 10) {
+                ndjson.append("{\"title\": \"broken\"\n\n");
+            }
+        }
+
+        // Act
+        BookImportResultDto result = importService.importNdjson(stream(ndjson.toString()));
+
+        // Assert
+        assertEquals(2501, result.getTotalRows());
+        assertEquals(2500, result.getCreated());
+        assertEquals(1, result.getRejected());
+        assertEquals(12, result.getErrors().get(0).getRow());
+        verify(bookRepository, times(3)).saveAll(anyIterable());
+        verify(kafkaProducerService, times(3)).publishBookEvents(anyList());
+        verify(transactionManager, times(3)).commit(any());
+    }
+
+    @Test
+    void importNdjson_FailedChunkIsRetriedRowByRow() throws Exception {
+        // Arrange: the second ISBN violates a constraint, whether alone or with the others
+        String conflicting = "9780000000002";
+        when(bookRepository.saveAll(anyIterable())).thenAnswer(invocation -> {
+            List<Book> saved = new ArrayList<>();
+            for (Book book : invocation.<Iterable<Book>>getArgument(0)) {
+                if (conflicting.equals(book.getIsbn())) {
+                    throw new DataIntegrityViolationException("Duplicate entry", new IllegalStateException("Duplicate entry '" + conflicting + "'"));
+                }
+                book.setId(nextId.getAndIncrement());
+                saved.add(book);
+            }
+            return saved;
+        });
+        String ndjson = jsonRow("9780000000001") + "\n" + jsonRow(conflicting) + "\n" + jsonRow("9780000000003") + "\n";
+
+        // Act
+        BookImportResultDto result = importService.importNdjson(stream(ndjson));
+
+        // Assert
+        assertEquals(2, result.getCreated());
+        assertEquals(1, result.getRejected());
+        assertEquals(2, result.getErrors().get(0).getRow());
+        assertEquals("Duplicate entry '" + conflicting + "'", result.getErrors().get(0).getMessage());
+        verify(transactionManager, times(2)).rollback(any());
+    }
+
+    @Test
+    void importCsv_StopsAtUnparseableInputAndKeepsEarlierRows() throws Exception {
+        // Arrange
+        String csv = "title,author,isbn,price,stockQuantity,category\n"
+                + "Fine,Ann,9780000000001,12.50,3,Fiction\n"
+                + "\"Unterminated,Ann,9780000000002,12.50,3,Fiction\n";
+
+        // Act
+        BookImportResultDto result = importService.importCsv(stream(csv));
+
+        // Assert
+        assertEquals(1, result.getCreated());
+        assertEquals(1, result.getRejected());
+        assertTrue(result.getErrors().get(0).getMessage().endsWith("import stopped"));
+    }
+
+    private static String jsonRow(String isbn) {
+        return "{\"title\":\"Title " + isbn + "\",\"author\":\"Author\",\"isbn\":\"" + isbn
+                + "\",\"price\":9.99,\"stockQuantity\":1,\"category\":\"Fiction\"}";
+    }
+
+    private static ByteArrayInputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
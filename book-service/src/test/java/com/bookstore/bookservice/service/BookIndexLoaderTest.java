@@ -0,0 +1,111 @@
+package com.bookstore.bookservice.service;
+
+import com.bookstore.bookservice.entity.Book;
+import com.bookstore.bookservice.repository.BookRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BookIndexLoaderTest {
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private BookScanListener searchIndex;
+
+    @Mock
+    private BookScanListener substringIndex;
+
+    @Mock
+    private BookScanListener disabledIndex;
+
+    @Test
+    void loadOnStartup_FeedsEveryIndexFromOneScan() {
+        // Arrange
+        Book first = book("9780000000001");
+        Book second = book("9780000000002");
+        Book third = book("9780000000003");
+        when(searchIndex.scanStarting()).thenReturn(true);
+        when(substringIndex.scanStarting()).thenReturn(true);
+        when(disabledIndex.scanStarting()).thenReturn(false);
+        when(bookRepository.streamForExport(null, null)).thenReturn(Stream.of(first, second, third));
+        BookIndexLoader loader = loader();
+
+        // Act
+        loader.loadOnStartup();
+
+        // Assert
+        verify(bookRepository, times(1)).streamForExport(null, null);
+        verify(searchIndex).scanned(first);
+        verify(searchIndex).scanned(third);
+        verify(substringIndex, times(3)).scanned(any());
+        verify(searchIndex).scanFinished(null);
+        verify(substringIndex).scanFinished(null);
+        verify(disabledIndex, never()).scanned(any());
+        verify(disabledIndex, never()).scanFinished(any());
+        // Cleared every two rows
+        verify(entityManager, times(1)).clear();
+    }
+
+    @Test
+    void loadOnStartup_FailedScanIsReportedToEveryIndex() {
+        // Arrange
+        when(searchIndex.scanStarting()).thenReturn(true);
+        when(substringIndex.scanStarting()).thenThrow(new IllegalStateException("count failed"));
+        when(disabledIndex.scanStarting()).thenReturn(false);
+        when(bookRepository.streamForExport(null, null))
+                .thenThrow(new DataAccessResourceFailureException("connection lost"));
+
+        // Act
+        loader().loadOnStartup();
+
+        // Assert
+        verify(searchIndex).scanFinished(any(DataAccessResourceFailureException.class));
+        verify(substringIndex, never()).scanFinished(any());
+    }
+
+    @Test
+    void loadOnStartup_NothingToBuild_DoesNotScan() {
+        // Arrange
+        when(searchIndex.scanStarting()).thenReturn(false);
+        when(substringIndex.scanStarting()).thenReturn(false);
+        when(disabledIndex.scanStarting()).thenReturn(false);
+
+        // Act
+        loader().loadOnStartup();
+
+        // Assert
+        verifyNoInteractions(bookRepository, transactionManager);
+    }
+
+    private BookIndexLoader loader() {
+        BookIndexLoader loader = new BookIndexLoader(bookRepository, entityManager, transactionManager,
+                List.of(searchIndex, substringIndex, disabledIndex));
+        ReflectionTestUtils.setField(loader, "chunkSize", 2);
+        return loader;
+    }
+
+    private static Book book(String isbn) {
+        return new Book("Title", "Author", isbn, new BigDecimal("9.99"), 1, "Fiction");
+    }
+}
@@ -0,0 +1,136 @@
+package com.bookstore.bookservice.service;
+
+import com.bookstore.bookservice.entity.Book;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookSearchIndexTest {
+
+    private BookSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new BookSearchIndex();
+        ReflectionTestUtils.setField(index, "enabled", true);
+        index.index(book(1L, "Effective Java", "Joshua Bloch", "Best practices for the Java platform", "Addison-Wesley"));
+        index.index(book(2L, "Java Concurrency in Practice", "Brian Goetz", null, "Addison-Wesley"));
+        index.index(book(3L, "Clean Code", "Robert C. Martin", "A handbook of agile software craftsmanship", "Prentice Hall"));
+        index.index(book(4L, "JavaScript: The Good Parts", "Douglas Crockford", null, "O'Reilly"));
+    }
+
+    @Test
+    void tokenizeInto_LowercasesAndSplitsOnNonWordCharacters() {
+        List<String> tokens = new ArrayList<>();
+
+        BookSearchIndex.tokenizeInto("JavaScript: The Good-Parts, 2nd ed.", tokens);
+        BookSearchIndex.tokenizeInto(null, tokens);
+
+        assertEquals(List.of("javascript", "the", "good", "parts", "2nd", "ed"), tokens);
+    }
+
+    @Test
+    void search_MatchesPartiallyTypedWordsAcrossFields() {
+        assertEquals(List.of(1L, 2L, 4L), index.search("jav"));
+        assertEquals(List.of(2L), index.search("GOETZ"));
+        assertEquals(List.of(1L, 2L), index.search("addison"));
+        assertEquals(List.of(3L), index.search("craftsman"));
+    }
+
+    @Test
+    void search_EveryTokenMustMatch() {
+        assertEquals(List.of(1L, 2L), index.search("java addison"));
+        assertEquals(List.of(2L), index.search("java pract goetz"));
+        assertEquals(List.of(), index.search("java martin"));
+        assertEquals(List.of(), index.search("  --  "));
+    }
+
+    @Test
+    void search_ShortTokensMatchOnlyWholeWords() {
+        // "pr" would expand to practice, practices and prentice
+        assertEquals(List.of(), index.search("pr"));
+        assertEquals(List.of(), index.search("ja"));
+        assertEquals(List.of(2L), index.search("in"));
+        assertEquals(List.of(3L), index.search("c"));
+        assertEquals(List.of(2L), index.search("java in"));
+    }
+
+    @Test
+    void canAnswer_TermsWithShortTokensGoToTheDatabase() {
+        // Arrange
+        ReflectionTestUtils.setField(index, "ready", true);
+
+        // Act & Assert: the LIKE query still finds "ha" inside "handbook"
+        assertFalse(index.canAnswer("ha"));
+        assertFalse(index.canAnswer("java in"));
+        assertTrue(index.canAnswer("han"));
+        assertTrue(index.canAnswer("java pract"));
+    }
+
+    @Test
+    void index_ReindexingReplacesTheBooksTokens() {
+        index.index(book(2L, "Concurrency in Go", "Katherine Cox-Buday", null, "O'Reilly"));
+
+        assertEquals(List.of(1L, 4L), index.search("java"));
+        assertEquals(List.of(), index.search("goetz"));
+        assertEquals(List.of(2L), index.search("concurrency go"));
+        assertEquals(List.of(2L, 4L), index.search("reilly"));
+        assertEquals(4, index.size());
+    }
+
+    @Test
+    void remove_DropsTheBookFromEveryToken() {
+        index.remove(1L);
+        index.remove(99L);
+
+        assertEquals(List.of(2L, 4L), index.search("java"));
+        assertEquals(List.of(), index.search("bloch"));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void scan_ReplacesTheIndexAndBecomesReady() {
+        // Arrange
+        assertFalse(index.canAnswer("fowler"));
+
+        // Act
+        assertTrue(index.scanStarting());
+        index.scanned(book(10L, "Domain-Driven Design", "Eric Evans", null, null));
+        index.scanned(book(11L, "Refactoring", "Martin Fowler", null, null));
+        index.scanned(book(12L, "Patterns of Enterprise Application Architecture", "Martin Fowler", null, null));
+        index.scanFinished(null);
+
+        // Assert: the books indexed before the scan are gone
+        assertTrue(index.canAnswer("fowler"));
+        assertFalse(index.canAnswer("--"));
+        assertEquals(List.of(11L, 12L), index.search("fowler"));
+        assertEquals(List.of(), index.search("java"));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void scan_FailedScanLeavesSearchesOnTheDatabase() {
+        // Act
+        index.scanStarting();
+        index.scanned(book(10L, "Domain-Driven Design", "Eric Evans", null, null));
+        index.scanFinished(new IllegalStateException("connection lost"));
+
+        // Assert
+        assertFalse(index.canAnswer("evans"));
+    }
+
+    private static Book book(Long id, String title, String author, String description, String publisher) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle(title);
+        book.setAuthor(author);
+        book.setDescription(description);
+        book.setPublisher(publisher);
+        return book;
+    }
+}
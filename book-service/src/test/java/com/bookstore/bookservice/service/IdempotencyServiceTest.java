@@ -0,0 +1,119 @@
+package com.bookstore.bookservice.service;
+
+import com.bookstore.bookservice.dto.BookDto;
+import com.bookstore.bookservice.exception.IdempotencyException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyServiceTest {
+
+    private static final String KEY = "book-service:idempotency:order-1";
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private SimpleMeterRegistry meterRegistry;
+    private IdempotencyService idempotencyService;
+    private BookDto book;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        idempotencyService = new IdempotencyService(redisTemplate, transactionManager, objectMapper, meterRegistry, 100, 30);
+        book = new BookDto();
+        book.setId(1L);
+        book.setTitle("Effective Java");
+        book.setPrice(new BigDecimal("45.00"));
+    }
+
+    @Test
+    void execute_FirstRequestRunsTheOperationAndRecordsItsResult() {
+        // Arrange: the key is free, and the result replaces our own marker
+        when(redisTemplate.execute(any(RedisScript.class), eq(List.of(KEY)), anyString(), anyString())).thenReturn(null);
+        when(redisTemplate.execute(any(RedisScript.class), eq(List.of(KEY)), anyString(), anyString(), anyString()))
+                .thenReturn(1L);
+        AtomicInteger runs = new AtomicInteger();
+
+        // Act
+        BookDto first = idempotencyService.execute("order-1", BookDto.class, () -> {
+            runs.incrementAndGet();
+            return book;
+        });
+        BookDto repeat = idempotencyService.execute("order-1", BookDto.class, () -> {
+            runs.incrementAndGet();
+            return book;
+        });
+
+        // Assert: the repeat came from the near-cache, without another round trip
+        assertSame(book, first);
+        assertEquals("Effective Java", repeat.getTitle());
+        assertEquals(1, runs.get());
+        verify(redisTemplate, times(1)).execute(any(RedisScript.class), eq(List.of(KEY)), anyString(), anyString());
+        verify(redisTemplate).execute(any(RedisScript.class), eq(List.of(KEY)), startsWith("P:"),
+                startsWith("C:" + BookDto.class.getName() + ":"), eq("3600000"));
+        assertEquals(1.0, meterRegistry.get("idempotency.requests").tag("outcome", "replayed").counter().count());
+    }
+
+    @Test
+    void execute_WaitsForTheRequestInProgressAndReturnsItsResult() {
+        // Arrange: another request holds the key, then completes it
+        String recorded = new IdempotencyCodec(objectMapper).completed(book, BookDto.class);
+        when(redisTemplate.execute(any(RedisScript.class), eq(List.of(KEY)), anyString(), anyString()))
+                .thenReturn("P:other-request", "P:other-request", recorded);
+
+        // Act
+        BookDto result = idempotencyService.execute("order-1", BookDto.class,
+                () -> fail("must not run while another request holds the key"));
+
+        // Assert
+        assertEquals(1L, result.getId());
+        assertEquals(0, new BigDecimal("45.00").compareTo(result.getPrice()));
+        verify(redisTemplate, times(3)).execute(any(RedisScript.class), eq(List.of(KEY)), anyString(), anyString());
+    }
+
+    @Test
+    void execute_FailedOperationReleasesTheKeyAndRethrows() {
+        // Arrange
+        when(redisTemplate.execute(any(RedisScript.class), eq(List.of(KEY)), anyString(), anyString())).thenReturn(null);
+
+        // Act & Assert
+        IllegalStateException exception = assertThrows(IllegalStateException.class,
+                () -> idempotencyService.execute("order-1", BookDto.class, () -> {
+                    throw new IllegalStateException("duplicate ISBN");
+                }));
+        assertEquals("duplicate ISBN", exception.getMessage());
+        verify(redisTemplate).execute(any(RedisScript.class), eq(List.of(KEY)), startsWith("P:"));
+    }
+
+    @Test
+    void execute_KeyRecordedForAnotherResultTypeIsRejected() {
+        // Arrange
+        String recorded = new IdempotencyCodec(objectMapper).completed("created", String.class);
+        when(redisTemplate.execute(any(RedisScript.class), eq(List.of(KEY)), anyString(), anyString())).thenReturn(recorded);
+
+        // Act & Assert
+        assertThrows(IdempotencyException.class,
+                () -> idempotencyService.execute("order-1", BookDto.class, () -> book));
+    }
+}
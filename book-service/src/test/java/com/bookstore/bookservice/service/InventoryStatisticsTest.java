@@ -0,0 +1,167 @@
+package com.bookstore.bookservice.service;
+
+import com.bookstore.bookservice.dto.InventoryStatsDto;
+import com.bookstore.bookservice.entity.Book;
+import com.bookstore.bookservice.repository.BookRepository;
+import com.bookstore.bookservice.repository.CategoryInventory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class InventoryStatisticsTest {
+
+    @Mock
+    private BookRepository bookRepository;
+
+    private InventoryStatistics inventoryStatistics;
+
+    @BeforeEach
+    void setUp() {
+        inventoryStatistics = new InventoryStatistics(bookRepository);
+    }
+
+    @Test
+    void getStats_ReadsTheAggregateQueryUntilBuilt() {
+        // Arrange
+        when(bookRepository.aggregateInventoryByCategory(10)).thenReturn(List.of(row("Fiction", 3, 40, 1, 0)));
+
+        // Act
+        InventoryStatsDto stats = inventoryStatistics.getStats();
+
+        // Assert
+        assertFalse(inventoryStatistics.isReady());
+        assertEquals(3, stats.getTitles());
+        assertEquals(40, stats.getUnits());
+        verify(bookRepository).aggregateInventoryByCategory(10);
+    }
+
+    @Test
+    void scan_BuildsTheCountersFromEveryBook() {
+        // Act
+        assertTrue(inventoryStatistics.scanStarting());
+        inventoryStatistics.scanned(book("Fiction", 25));
+        inventoryStatistics.scanned(book("Fiction", 5));
+        inventoryStatistics.scanned(book("Poetry", -2));
+        inventoryStatistics.scanFinished(null);
+
+        // Assert
+        InventoryStatsDto stats = inventoryStatistics.getStats();
+        assertTrue(inventoryStatistics.isReady());
+        assertEquals(3, stats.getTitles());
+        assertEquals(28, stats.getUnits());
+        assertEquals(2, stats.getLowStock());
+        assertEquals(1, stats.getNegativeStock());
+        verifyNoInteractions(bookRepository);
+    }
+
+    @Test
+    void changes_AreAppliedToTheCountersWithoutQuerying() {
+        // Arrange: Fiction has 2 active books with 30 units, one of them low on stock
+        when(bookRepository.aggregateInventoryByCategory(10)).thenReturn(List.of(row("Fiction", 2, 30, 1, 0)));
+        inventoryStatistics.rebuild();
+        Book book = book("Fiction", 25);
+
+        // Act
+        inventoryStatistics.bookCreatedAfterCommit(book);            // +1 title, +25 units
+
+        book.setStockQuantity(5);
+        inventoryStatistics.stockChangedAfterCommit(book, -20);     // now low on stock
+
+        InventoryStatistics.BookState beforeMove = InventoryStatistics.stateOf(book);
+        book.setCategory("Science");
+        inventoryStatistics.bookChangedAfterCommit(beforeMove, book); // moves to Science
+
+        book.setActive(false);
+        book.setStockQuantity(-1);
+        inventoryStatistics.bookChangedAfterCommit(InventoryStatistics.stateOf(book("Science", 5)), book);
+
+        // Assert
+        InventoryStatsDto stats = inventoryStatistics.getStats();
+        assertEquals(2, stats.getCategories().size());
+        InventoryStatsDto.CategoryStats fiction = stats.getCategories().get(0);
+        assertEquals("Fiction", fiction.getCategory());
+        assertEquals(2, fiction.getTitles());
+        assertEquals(30, fiction.getUnits());
+        assertEquals(1, fiction.getLowStock());
+        InventoryStatsDto.CategoryStats science = stats.getCategories().get(1);
+        assertEquals(0, science.getTitles());
+        assertEquals(0, science.getUnits());
+        assertEquals(1, science.getNegativeStock());
+        assertEquals(1, stats.getNegativeStock());
+        verify(bookRepository, times(1)).aggregateInventoryByCategory(anyInt());
+    }
+
+    @Test
+    void bookDeleted_DropsCategoriesThatBecomeEmpty() {
+        // Arrange
+        when(bookRepository.aggregateInventoryByCategory(10)).thenReturn(List.of(row("Poetry", 1, 3, 1, 0)));
+        inventoryStatistics.rebuild();
+
+        // Act
+        inventoryStatistics.bookDeletedAfterCommit(InventoryStatistics.stateOf(book("Poetry", 3)));
+
+        // Assert
+        InventoryStatsDto stats = inventoryStatistics.getStats();
+        assertTrue(stats.getCategories().isEmpty());
+        assertEquals(0, stats.getLowStock());
+    }
+
+    @Test
+    void rebuild_ReplacesLocalCountersWithTheDatabaseTotals() {
+        // Arrange: this node saw one creation; another instance has since written more books
+        when(bookRepository.aggregateInventoryByCategory(10))
+                .thenReturn(List.of(row("Fiction", 2, 30, 1, 0)), List.of(row("Fiction", 5, 80, 1, 0)));
+        inventoryStatistics.rebuild();
+        inventoryStatistics.bookCreatedAfterCommit(book("Fiction", 25));
+
+        // Act
+        inventoryStatistics.rebuild();
+
+        // Assert
+        InventoryStatsDto stats = inventoryStatistics.getStats();
+        assertEquals(5, stats.getTitles());
+        assertEquals(80, stats.getUnits());
+    }
+
+    private static Book book(String category, int stock) {
+        return new Book("Title", "Author", "9780000000001", new BigDecimal("9.99"), stock, category);
+    }
+
+    private static CategoryInventory row(String category, long titles, long units, long lowStock, long negativeStock) {
+        return new CategoryInventory() {
+            @Override
+            public String getCategory() {
+                return category;
+            }
+
+            @Override
+            public Long getTitles() {
+                return titles;
+            }
+
+            @Override
+            public Long getUnits() {
+                return units;
+            }
+
+            @Override
+            public Long getLowStock() {
+                return lowStock;
+            }
+
+            @Override
+            public Long getNegativeStock() {
+                return negativeStock;
+            }
+        };
+    }
+}
@@ -0,0 +1,124 @@
+package com.bookstore.bookservice.service;
+
+import com.bookstore.bookservice.entity.Book;
+import com.bookstore.bookservice.repository.BookRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IsbnFilterTest {
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    private SimpleMeterRegistry meterRegistry;
+    private IsbnFilter isbnFilter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        isbnFilter = new IsbnFilter(bookRepository, transactionManager, new ConcurrentMapCacheManager(),
+                redisTemplate, meterRegistry);
+    }
+
+    @Test
+    void rebuild_RulesOutIsbnsThatDoNotExist() {
+        // Arrange
+        when(bookRepository.count()).thenReturn(2L);
+        when(bookRepository.streamAllIsbns()).thenReturn(Stream.of("9781234567890", "9781234567891"));
+
+        // Act
+        isbnFilter.rebuild();
+
+        // Assert
+        assertTrue(isbnFilter.mightContain("9781234567890"));
+        assertFalse(isbnFilter.isKnownMissing("9781234567891"));
+        assertTrue(isbnFilter.isKnownMissing("9780000000000"));
+        assertEquals(1.0, meterRegistry.get("book.isbn-filter.rejected").counter().count());
+    }
+
+    @Test
+    void recordMissing_IsRememberedUntilTheIsbnIsCreated() {
+        // Arrange: filter not built yet, so only the missing-isbns cache can answer
+        Book book = new Book();
+        book.setIsbn("9781234567890");
+        isbnFilter.recordMissing("9781234567890");
+        assertTrue(isbnFilter.isKnownMissing("9781234567890"));
+
+        // Act
+        isbnFilter.bookCreatedAfterCommit(book);
+
+        // Assert
+        assertFalse(isbnFilter.isKnownMissing("9781234567890"));
+        verify(redisTemplate).convertAndSend(eq("book-isbn-filter"), endsWith("\n9781234567890"));
+    }
+
+    @Test
+    void onMessage_AddsIsbnsCreatedOnOtherNodes() {
+        // Arrange
+        when(bookRepository.count()).thenReturn(0L);
+        when(bookRepository.streamAllIsbns()).thenReturn(Stream.empty());
+        isbnFilter.rebuild();
+        assertFalse(isbnFilter.mightContain("9781234567890"));
+
+        // Act
+        isbnFilter.onMessage(new DefaultMessage("book-isbn-filter".getBytes(StandardCharsets.UTF_8),
+                "other-node\n9781234567890".getBytes(StandardCharsets.UTF_8)), null);
+
+        // Assert
+        assertTrue(isbnFilter.mightContain("9781234567890"));
+    }
+
+    @Test
+    void missedAnnouncement_IsbnReportedMissingUntilTheNextRebuild() {
+        // Arrange: another node created the ISBN, but its announcement never arrived here
+        when(bookRepository.count()).thenReturn(1L);
+        when(bookRepository.streamAllIsbns()).thenReturn(Stream.empty(), Stream.of("9781234567890"));
+        isbnFilter.rebuild();
+        assertTrue(isbnFilter.isKnownMissing("9781234567890"));
+
+        // Act
+        isbnFilter.rebuild();
+
+        // Assert
+        assertFalse(isbnFilter.isKnownMissing("9781234567890"));
+    }
+
+    @Test
+    void falsePositiveRate_IsTheShareOfMissingIsbnsTheFilterLetThrough() {
+        // Arrange
+        when(bookRepository.count()).thenReturn(1L);
+        when(bookRepository.streamAllIsbns()).thenReturn(Stream.of("9781234567890"));
+        isbnFilter.rebuild();
+
+        // Act: one unknown ISBN ruled out, one deleted ISBN the filter still lets through
+        isbnFilter.isKnownMissing("9780000000000");
+        isbnFilter.isKnownMissing("9781234567890");
+        isbnFilter.recordMissing("9781234567890");
+
+        // Assert
+        assertEquals(0.5, meterRegistry.get("book.isbn-filter.false-positive-rate").gauge().value());
+        assertEquals(1.0, meterRegistry.get("book.isbn-filter.false-positives").counter().count());
+    }
+}
@@ -0,0 +1,61 @@
+package com.bookstore.bookservice.service;
+
+import com.bookstore.bookservice.event.BookEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class KafkaProducerServiceTest {
+
+    @Mock
+    private OutboxService outboxService;
+
+    @Mock
+    private ObjectMapper objectMapper;
+
+    private KafkaProducerService producerService;
+
+    @BeforeEach
+    void setUp() {
+        producerService = new KafkaProducerService(outboxService, objectMapper);
+        ReflectionTestUtils.setField(producerService, "bookEventsTopic", "book-events");
+    }
+
+    @Test
+    void publishBookEvent_UnserializableEventFailsTheCaller() throws Exception {
+        // Arrange
+        when(objectMapper.writeValueAsBytes(any())).thenThrow(new JsonProcessingException("boom") { });
+
+        // Act & Assert: the caller's transaction rolls back instead of committing without its event
+        assertThrows(IllegalStateException.class,
+                () -> producerService.publishBookEvent(new BookEvent("BOOK_CREATED", 1L, "T", "A", "9781234567890", 1)));
+        verifyNoInteractions(outboxService);
+    }
+
+    @Test
+    void publishBookEvents_UnserializableEventAppendsNothing() throws Exception {
+        // Arrange
+        BookEvent good = new BookEvent("BOOK_CREATED", 1L, "T", "A", "9781234567890", 1);
+        BookEvent bad = new BookEvent("BOOK_CREATED", 2L, "T", "A", "9780000000002", 1);
+        when(objectMapper.writeValueAsBytes(good)).thenReturn(new byte[] {'{', '}'});
+        when(objectMapper.writeValueAsBytes(bad)).thenThrow(new JsonProcessingException("boom") { });
+
+        // Act & Assert: the import then retries the chunk row by row and reports this row as rejected
+        IllegalStateException exception = assertThrows(IllegalStateException.class,
+                () -> producerService.publishBookEvents(List.of(good, bad)));
+        assertTrue(exception.getMessage().contains("book ID: 2"));
+        verifyNoInteractions(outboxService);
+    }
+}
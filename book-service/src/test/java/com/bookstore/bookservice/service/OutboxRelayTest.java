@@ -0,0 +1,135 @@
+package com.bookstore.bookservice.service;
+
+import com.bookstore.bookservice.entity.OutboxEvent;
+import com.bookstore.bookservice.event.EventWireFormat;
+import com.bookstore.bookservice.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.utils.Utils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatcher;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxRelayTest {
+
+    private static final String TOPIC = "book-events";
+    private static final int PARTITIONS = 3;
+
+    @Mock
+    private OutboxEventRepository outboxEventRepository;
+
+    @Mock
+    private KafkaTemplate<String, byte[]> kafkaTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+    private OutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        relay = new OutboxRelay(outboxEventRepository, kafkaTemplate, transactionManager, meterRegistry);
+
+        List<PartitionInfo> partitions = new ArrayList<>();
+        for (int i = 0; i < PARTITIONS; i++) {
+            partitions.add(new PartitionInfo(TOPIC, i, null, null, null));
+        }
+        lenient().when(kafkaTemplate.partitionsFor(TOPIC)).thenReturn(partitions);
+    }
+
+    @Test
+    void relay_SendsEachKeyToItsHashedPartitionAndDeletesDelivered() {
+        // Arrange
+        List<OutboxEvent> batch = List.of(event(1L, "7"), event(2L, "8"), event(3L, "7"));
+        when(outboxEventRepository.findNextBatch(any(Pageable.class))).thenReturn(batch);
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(delivered());
+
+        // Act
+        relay.relay();
+
+        // Assert
+        verify(kafkaTemplate, times(2)).send(argThat(sentTo("7", partitionOf("7"))));
+        verify(kafkaTemplate).send(argThat(sentTo("8", partitionOf("8"))));
+        verify(outboxEventRepository).deleteByIdIn(
+                argThat((Collection<Long> ids) -> ids.size() == 3 && ids.containsAll(List.of(1L, 2L, 3L))));
+        assertEquals(3.0, meterRegistry.counter("outbox.relay.published").count());
+        assertTrue(relay.lagMillis() >= 0);
+    }
+
+    @Test
+    void relay_KeepsEventsQueuedBehindAFailedSendForTheSamePartition() {
+        // Arrange
+        OutboxEvent first = event(1L, "7");
+        OutboxEvent second = event(2L, "7");
+        when(outboxEventRepository.findNextBatch(any(Pageable.class))).thenReturn(List.of(first, second));
+        when(kafkaTemplate.send(any(ProducerRecord.class)))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")))
+                .thenReturn(delivered());
+
+        // Act
+        relay.relay();
+
+        // Assert
+        verify(outboxEventRepository, never()).deleteByIdIn(anyCollection());
+        assertEquals(1.0, meterRegistry.counter("outbox.relay.failed").count());
+        assertEquals(0.0, meterRegistry.counter("outbox.relay.published").count());
+    }
+
+    @Test
+    void relay_EmptyOutboxResetsLag() {
+        // Arrange
+        when(outboxEventRepository.findNextBatch(any(Pageable.class))).thenReturn(List.of());
+
+        // Act
+        relay.relay();
+
+        // Assert
+        assertEquals(0, relay.lagMillis());
+        verifyNoInteractions(kafkaTemplate);
+    }
+
+    private OutboxEvent event(Long id, String bookId) {
+        OutboxEvent event = new OutboxEvent("Book", bookId, "BOOK_UPDATED", TOPIC,
+                EventWireFormat.JSON, "{}".getBytes(StandardCharsets.UTF_8));
+        event.setId(id);
+        event.setCreatedAt(LocalDateTime.now().minusSeconds(1));
+        return event;
+    }
+
+    @SuppressWarnings("unchecked")
+    private CompletableFuture<SendResult<String, byte[]>> delivered() {
+        return CompletableFuture.completedFuture(mock(SendResult.class));
+    }
+
+    private static ArgumentMatcher<ProducerRecord<String, byte[]>> sentTo(String key, int partition) {
+        return record -> record != null && TOPIC.equals(record.topic()) && key.equals(record.key())
+                && record.partition() == partition
+                && EventWireFormat.JSON.equals(EventWireFormat.contentType(record.headers()));
+    }
+
+    private static int partitionOf(String key) {
+        return Utils.toPositive(Utils.murmur2(key.getBytes(StandardCharsets.UTF_8))) % PARTITIONS;
+    }
+}
@@ -0,0 +1,218 @@
+package com.bookstore.bookservice.service;
+
+import com.bookstore.bookservice.dto.StockReservationDto;
+import com.bookstore.bookservice.entity.Book;
+import com.bookstore.bookservice.exception.ReservationNotFoundException;
+import com.bookstore.bookservice.repository.BookRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.SetOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StockReservationServiceTest {
+
+    private static final Instant NOW = Instant.parse("2024-01-01T00:00:00Z");
+    private static final List<String> KEYS = List.of("book-service:stock:1", "book-service:stock:1:expiries");
+    private static final List<String> RESERVE_KEYS = List.of("book-service:stock:1", "book-service:stock:1:expiries",
+                                                             "book-service:stock:books");
+    private static final long EXPIRES_AT = NOW.plusSeconds(60).toEpochMilli();
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @Mock
+    private BookService bookService;
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private HashOperations<String, Object, Object> hashOperations;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    @Mock
+    private SetOperations<String, String> setOperations;
+
+    private StockReservationService reservationService;
+    private Book book;
+
+    @BeforeEach
+    void setUp() {
+        book = new Book("Test Book", "Test Author", "9781234567890", new BigDecimal("19.99"), 10, "Fiction");
+        book.setId(1L);
+        reservationService = new StockReservationService(bookRepository, bookService, redisTemplate,
+                Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+
+    @Test
+    void reserve_SeedsStockFromDatabaseWhenTheStoreAsks() {
+        // Arrange
+        when(bookRepository.findById(1L)).thenReturn(Optional.of(book));
+        when(redisTemplate.execute(any(RedisScript.class), eq(RESERVE_KEYS), anyString(), eq("4"), anyString(),
+                eq(String.valueOf(EXPIRES_AT)), anyString(), anyString(), anyString(), anyString(), eq("1")))
+                .thenReturn(List.of(-1L, 2L), List.of(1L, 6L));
+
+        // Act
+        StockReservationDto reservation = reservationService.reserve(1L, 4, 60);
+
+        // Assert: the second attempt carried the stock read from the database and the settle count seen
+        // before reading it, and nothing was written there
+        assertEquals(StockReservationDto.HELD, reservation.getStatus());
+        assertTrue(reservation.getReservationId().startsWith("1:"));
+        verify(redisTemplate).execute(any(RedisScript.class), eq(RESERVE_KEYS), anyString(), eq("4"), anyString(),
+                anyString(), anyString(), eq("10"), anyString(), eq("2"), eq("1"));
+        verify(bookRepository, times(1)).findById(1L);
+        verifyNoInteractions(bookService);
+    }
+
+    @Test
+    void reserve_ConfirmationSettledWhileSeeding_RereadsTheDatabase() {
+        // Arrange: a confirmation settles between the first database read and the seed
+        when(bookRepository.findById(1L)).thenReturn(Optional.of(book));
+        when(redisTemplate.execute(any(RedisScript.class), eq(RESERVE_KEYS), anyString(), eq("4"), anyString(),
+                anyString(), anyString(), anyString(), anyString(), anyString(), eq("1")))
+                .thenReturn(List.of(-1L, 0L), List.of(-1L, 1L), List.of(1L, 2L));
+
+        // Act
+        StockReservationDto reservation = reservationService.reserve(1L, 4, 60);
+
+        // Assert
+        assertEquals(StockReservationDto.HELD, reservation.getStatus());
+        verify(bookRepository, times(2)).findById(1L);
+        verify(redisTemplate).execute(any(RedisScript.class), eq(RESERVE_KEYS), anyString(), eq("4"), anyString(),
+                anyString(), anyString(), eq("10"), anyString(), eq("1"), eq("1"));
+    }
+
+    @Test
+    void reserve_HeldElsewhereLeavesTooLittle_Rejected() {
+        // Arrange
+        when(redisTemplate.execute(any(RedisScript.class), eq(RESERVE_KEYS), anyString(), anyString(), anyString(),
+                anyString(), anyString(), anyString(), anyString(), anyString(), anyString()))
+                .thenReturn(List.of(0L, 3L));
+
+        // Act
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> reservationService.reserve(1L, 4, 60));
+
+        // Assert
+        assertTrue(exception.getMessage().contains("Available: 3"));
+        verifyNoInteractions(bookRepository, bookService);
+    }
+
+    @Test
+    void confirm_WritesTheSaleThroughBeforeReturning() {
+        // Arrange
+        when(redisTemplate.execute(any(RedisScript.class), eq(KEYS), anyString(), eq("hold"), eq("1"), anyString()))
+                .thenReturn(List.of(4L, EXPIRES_AT));
+
+        // Act
+        StockReservationDto reservation = reservationService.confirm("1:hold");
+
+        // Assert: the units stop counting as pending only once the sale is committed
+        assertEquals(StockReservationDto.CONFIRMED, reservation.getStatus());
+        assertEquals(4, reservation.getQuantity());
+        InOrder inOrder = inOrder(bookService, redisTemplate);
+        inOrder.verify(bookService).updateStock(1L, -4);
+        inOrder.verify(redisTemplate).execute(any(RedisScript.class), eq(KEYS), eq("hold"), eq("0"));
+    }
+
+    @Test
+    void confirm_DatabaseNoLongerHasTheUnits_FailsAndForcesReseed() {
+        // Arrange
+        when(redisTemplate.execute(any(RedisScript.class), eq(KEYS), anyString(), eq("hold"), eq("1"), anyString()))
+                .thenReturn(List.of(4L, EXPIRES_AT));
+        doThrow(new IllegalArgumentException("Insufficient stock")).when(bookService).updateStock(1L, -4);
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> reservationService.confirm("1:hold"));
+        verify(redisTemplate).execute(any(RedisScript.class), eq(KEYS), eq("hold"), eq("1"));
+    }
+
+    @Test
+    void confirm_TransientFailure_RestoresTheHold() {
+        // Arrange
+        when(redisTemplate.execute(any(RedisScript.class), eq(KEYS), anyString(), eq("hold"), eq("1"), anyString()))
+                .thenReturn(List.of(4L, EXPIRES_AT));
+        doThrow(new QueryTimeoutException("Lock wait timeout")).when(bookService).updateStock(1L, -4);
+
+        // Act & Assert
+        assertThrows(QueryTimeoutException.class, () -> reservationService.confirm("1:hold"));
+        verify(redisTemplate).execute(any(RedisScript.class), eq(KEYS), eq("hold"), eq("4"),
+                eq(String.valueOf(EXPIRES_AT)), anyString());
+    }
+
+    @Test
+    void release_UnknownOrExpiredReservation_NotFound() {
+        // Arrange
+        when(redisTemplate.execute(any(RedisScript.class), eq(KEYS), anyString(), eq("hold"), eq("0"), anyString()))
+                .thenReturn(null);
+
+        // Act & Assert
+        assertThrows(ReservationNotFoundException.class, () -> reservationService.release("1:hold"));
+        assertThrows(ReservationNotFoundException.class, () -> reservationService.release("not-a-reservation"));
+        verifyNoInteractions(bookService);
+    }
+
+    @Test
+    void reconcile_ResetsTrackedBooksFromTheDatabase() {
+        // Arrange: book 1 is live, book 2 has been deleted
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.setIfAbsent(eq("book-service:stock:reconcile"), anyString(), any(Duration.class)))
+                .thenReturn(true);
+        when(redisTemplate.opsForSet()).thenReturn(setOperations);
+        when(setOperations.members("book-service:stock:books")).thenReturn(Set.of("1", "2"));
+        when(redisTemplate.opsForHash()).thenReturn(hashOperations);
+        when(hashOperations.get("book-service:stock:1", "settles")).thenReturn("3");
+        when(bookRepository.findAllById(List.of(1L, 2L))).thenReturn(List.of(book));
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(), any(), any(), any()))
+                .thenReturn(List.of(1L, 2L, 8L), List.of(0L, 0L, 0L));
+
+        // Act
+        reservationService.reconcile();
+
+        // Assert: the figure is only applied if no confirmation settled since the counter was read
+        verify(redisTemplate).execute(any(RedisScript.class), eq(RESERVE_KEYS), anyString(), eq("10"), eq("3"), eq("1"));
+        verify(redisTemplate).execute(any(RedisScript.class),
+                eq(List.of("book-service:stock:2", "book-service:stock:2:expiries", "book-service:stock:books")),
+                anyString(), eq(""), eq("0"), eq("2"));
+    }
+
+    @Test
+    void reconcile_AnotherInstanceHoldsTheLease_Skips() {
+        // Arrange
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.setIfAbsent(eq("book-service:stock:reconcile"), anyString(), any(Duration.class)))
+                .thenReturn(false);
+
+        // Act
+        reservationService.reconcile();
+
+        // Assert
+        verify(redisTemplate, never()).opsForSet();
+        verifyNoInteractions(bookRepository);
+    }
+}
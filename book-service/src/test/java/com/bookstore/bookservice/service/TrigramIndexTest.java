@@ -0,0 +1,69 @@
+package com.bookstore.bookservice.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrigramIndexTest {
+
+    private TrigramIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new TrigramIndex();
+        index.put(1, "Effective Java");
+        index.put(2, "Java Concurrency in Practice");
+        index.put(3, "Clean Code");
+        index.put(4, "JavaScript: The Good Parts");
+    }
+
+    @Test
+    void search_MatchesSubstringIgnoringCase() {
+        assertArrayEquals(new int[]{1, 2, 4}, index.search("JAVA"));
+        assertArrayEquals(new int[]{2}, index.search("currency in"));
+        assertArrayEquals(new int[]{3}, index.search("an co"));
+    }
+
+    @Test
+    void search_SharedTrigramsWithoutSubstring_AreVerifiedAway() {
+        // "abcy" has trigrams "abc" and "bcy", both present but never adjacent
+        index.put(5, "abcd xbcy");
+        assertArrayEquals(new int[0], index.search("abcy"));
+        assertArrayEquals(new int[]{5}, index.search("xbcy"));
+    }
+
+    @Test
+    void put_ReplacesPreviousValue() {
+        index.put(2, "Concurrency in Go");
+
+        assertArrayEquals(new int[]{1, 4}, index.search("java"));
+        assertArrayEquals(new int[]{2}, index.search("in go"));
+    }
+
+    @Test
+    void remove_DropsDocument() {
+        index.remove(1);
+
+        assertArrayEquals(new int[]{2, 4}, index.search("java"));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void search_IgnoresAccentsLikeTheDatabaseCollation() {
+        index.put(5, "Cien años de soledad");
+        index.put(6, "Gabriel García Márquez");
+
+        assertArrayEquals(new int[]{5}, index.search("anos de"));
+        assertArrayEquals(new int[]{6}, index.search("garcia marquez"));
+        assertArrayEquals(new int[]{6}, index.search("GARCÍA"));
+    }
+
+    @Test
+    void isSearchable_RequiresAFullTrigram() {
+        assertFalse(TrigramIndex.isSearchable("ja"));
+        assertFalse(TrigramIndex.isSearchable(null));
+        assertTrue(TrigramIndex.isSearchable("jav"));
+        assertThrows(IllegalArgumentException.class, () -> index.search("ja"));
+    }
+}
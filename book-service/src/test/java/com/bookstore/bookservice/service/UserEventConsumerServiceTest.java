@@ -0,0 +1,134 @@
+package com.bookstore.bookservice.service;
+
+import com.bookstore.bookservice.dto.UserEventDTO;
+import com.bookstore.bookservice.kafka.KeyOrderedParallelProcessor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.KafkaException;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserEventConsumerServiceTest {
+
+    private static final String TOPIC = "user-events";
+
+    @Mock
+    private DeadLetterPublishingRecoverer deadLetterRecoverer;
+
+    @Mock
+    private Acknowledgment ack;
+
+    @Mock
+    private Consumer<?, ?> consumer;
+
+    private UserEventConsumerService consumerService;
+
+    @BeforeEach
+    void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        // Sequential mode; the parallel path is covered by KeyOrderedParallelProcessorTest
+        KeyOrderedParallelProcessor processor =
+                new KeyOrderedParallelProcessor("test", false, 1, 10, 10, 100, new SimpleMeterRegistry());
+        consumerService = spy(new UserEventConsumerService(objectMapper, deadLetterRecoverer, processor));
+        ReflectionTestUtils.setField(consumerService, "retryBackoffMs", 1L);
+    }
+
+    @Test
+    void consumeUserEvents_HandlingFailureIsRetriedBeforeDeadLettering() {
+        // Arrange: fails once, then succeeds
+        doThrow(new IllegalStateException("cache unavailable")).doCallRealMethod()
+                .when(consumerService).handle(any(UserEventDTO.class));
+
+        // Act
+        consumerService.consumeUserEvents(List.of(record(0, "{\"user_id\":1,\"event_type\":\"USER_CREATED\"}")),
+                ack, consumer);
+
+        // Assert
+        verify(consumerService, times(2)).handle(any(UserEventDTO.class));
+        verifyNoInteractions(deadLetterRecoverer);
+        verify(ack).acknowledge();
+    }
+
+    @Test
+    void consumeUserEvents_RetriesExhausted_DeadLettered() {
+        // Arrange
+        ConsumerRecord<String, byte[]> failing = record(0, "{\"user_id\":1,\"event_type\":\"USER_CREATED\"}");
+        doThrow(new IllegalStateException("cache unavailable")).when(consumerService).handle(any(UserEventDTO.class));
+
+        // Act
+        consumerService.consumeUserEvents(List.of(failing), ack, consumer);
+
+        // Assert
+        verify(consumerService, times(3)).handle(any(UserEventDTO.class));
+        verify(deadLetterRecoverer).accept(eq(failing), any(IllegalStateException.class));
+        verify(ack).acknowledge();
+    }
+
+    @Test
+    void consumeUserEvents_InvalidEventIsDeadLetteredWithoutRetrying() {
+        // Arrange
+        ConsumerRecord<String, byte[]> untyped = record(0, "{\"user_id\":1}");
+
+        // Act
+        consumerService.consumeUserEvents(List.of(untyped), ack, consumer);
+
+        // Assert
+        verify(deadLetterRecoverer).accept(eq(untyped), any(IllegalArgumentException.class));
+        verify(consumerService, never()).handle(any(UserEventDTO.class));
+    }
+
+    @Test
+    void consumeUserEvents_PoisonRecordIsDeadLetteredAndBatchCommittedOnce() {
+        // Arrange
+        ConsumerRecord<String, byte[]> poison = record(1, "{not json");
+        List<ConsumerRecord<String, byte[]>> batch = List.of(
+                record(0, "{\"user_id\":1,\"event_type\":\"USER_CREATED\"}"),
+                poison,
+                record(2, "{\"user_id\":2,\"event_type\":\"USER_DELETED\"}"));
+
+        // Act
+        consumerService.consumeUserEvents(batch, ack, consumer);
+
+        // Assert
+        verify(deadLetterRecoverer).accept(eq(poison), any(Exception.class));
+        verifyNoMoreInteractions(deadLetterRecoverer);
+        verify(ack).acknowledge();
+    }
+
+    @Test
+    void consumeUserEvents_DeadLetterFailureRedeliversFromFailedRecord() {
+        // Arrange
+        ConsumerRecord<String, byte[]> poison = record(1, "{not json");
+        doThrow(new KafkaException("dlt unavailable")).when(deadLetterRecoverer).accept(eq(poison), any());
+
+        // Act & Assert
+        BatchListenerFailedException exception = assertThrows(BatchListenerFailedException.class,
+                () -> consumerService.consumeUserEvents(
+                        List.of(record(0, "{\"user_id\":1,\"event_type\":\"USER_UPDATED\"}"), poison), ack, consumer));
+        assertEquals(1, exception.getIndex());
+        verify(ack, never()).acknowledge();
+    }
+
+    private ConsumerRecord<String, byte[]> record(long offset, String json) {
+        return new ConsumerRecord<>(TOPIC, 0, offset, "key", json.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -1,30 +1,61 @@
 package com.bookstore.bookservice.service.impl;
 
+import com.bookstore.bookservice.cache.BookBatchCache;
+import com.bookstore.bookservice.cache.BookCacheInvalidator;
+import com.bookstore.bookservice.dto.BookBatchGetResultDto;
 import com.bookstore.bookservice.dto.BookDto;
 import com.bookstore.bookservice.dto.CreateBookRequestDto;
+import com.bookstore.bookservice.dto.CursorPage;
 import com.bookstore.bookservice.dto.UpdateBookRequestDto;
 import com.bookstore.bookservice.entity.Book;
 import com.bookstore.bookservice.exception.BookNotFoundException;
 import com.bookstore.bookservice.exception.DuplicateIsbnException;
+import com.bookstore.bookservice.exception.InvalidCursorException;
 import com.bookstore.bookservice.mapper.BookMapper;
+import com.bookstore.bookservice.ratelimit.ClientIdResolver;
+import com.bookstore.bookservice.ratelimit.DistributedRateLimiterAspect;
+import com.bookstore.bookservice.ratelimit.TokenBucketRateLimiter;
 import com.bookstore.bookservice.repository.BookRepository;
+import com.bookstore.bookservice.service.BookSearchIndex;
+import com.bookstore.bookservice.service.BookService;
+import com.bookstore.bookservice.service.BookSubstringIndex;
+import com.bookstore.bookservice.service.InventoryStatistics;
 import com.bookstore.bookservice.service.IdempotencyService;
+import com.bookstore.bookservice.service.IsbnFilter;
 import com.bookstore.bookservice.service.KafkaProducerService;
+import com.bookstore.bookservice.util.BatchLoader;
+import com.bookstore.bookservice.util.KeysetCursor;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.KeysetScrollPosition;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.repository.query.FluentQuery;
 
 import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -45,6 +76,27 @@ class BookServiceImplTest {
     @Mock
     private IdempotencyService idempotencyService;
 
+    @Mock
+    private BookSearchIndex bookSearchIndex;
+
+    @Mock
+    private BookSubstringIndex bookSubstringIndex;
+
+    @Mock
+    private BookCacheInvalidator bookCacheInvalidator;
+
+    @Mock
+    private InventoryStatistics inventoryStatistics;
+
+    @Mock
+    private BookBatchCache bookBatchCache;
+
+    @Mock
+    private BatchLoader<Long, BookDto> bookByIdLoader;
+
+    @Mock
+    private IsbnFilter isbnFilter;
+
     @InjectMocks
     private BookServiceImpl bookService;
 
@@ -55,6 +107,9 @@ class BookServiceImplTest {
 
     @BeforeEach
     void setUp() {
+        // As before the filter is built: every ISBN might exist
+        lenient().when(isbnFilter.mightContain(any())).thenReturn(true);
+
         testBook = new Book();
         testBook.setId(1L);
         testBook.setTitle("Test Book");
@@ -94,7 +149,7 @@ class BookServiceImplTest {
         // Arrange
         when(bookRepository.existsByIsbn(createBookRequestDto.getIsbn())).thenReturn(false);
         when(bookMapper.toEntity(createBookRequestDto)).thenReturn(testBook);
-        when(bookRepository.save(testBook)).thenReturn(testBook);
+        when(bookRepository.saveAndFlush(testBook)).thenReturn(testBook);
         when(bookMapper.toDto(testBook)).thenReturn(testBookDto);
 
         // Act
@@ -107,7 +162,7 @@ class BookServiceImplTest {
         assertEquals(testBookDto.getIsbn(), result.getIsbn());
 
         verify(bookRepository).existsByIsbn(createBookRequestDto.getIsbn());
-        verify(bookRepository).save(testBook);
+        verify(bookRepository).saveAndFlush(testBook);
         verify(kafkaProducerService).publishBookEvent(any());
     }
 
@@ -122,15 +177,39 @@ class BookServiceImplTest {
         });
 
         verify(bookRepository).existsByIsbn(createBookRequestDto.getIsbn());
-        verify(bookRepository, never()).save(any());
+        verify(bookRepository, never()).saveAndFlush(any());
         verify(kafkaProducerService, never()).publishBookEvent(any());
     }
 
+    @Test
+    void createBook_StaleFilterLetsDuplicateThrough_UniqueIndexReportsDuplicateIsbn() {
+        // Arrange: this node's filter has not heard of the ISBN another node created
+        when(isbnFilter.mightContain(createBookRequestDto.getIsbn())).thenReturn(false);
+        when(bookMapper.toEntity(createBookRequestDto)).thenReturn(testBook);
+        when(bookRepository.saveAndFlush(testBook)).thenThrow(new DataIntegrityViolationException("could not execute statement",
+                new ConstraintViolationException("Duplicate entry", new SQLException("Duplicate entry"), "books.isbn")));
+
+        // Act & Assert
+        assertThrows(DuplicateIsbnException.class, () -> bookService.createBook(createBookRequestDto));
+        verify(kafkaProducerService, never()).publishBookEvent(any());
+        verify(isbnFilter, never()).bookCreatedAfterCommit(any());
+    }
+
+    @Test
+    void createBook_OtherConstraintViolation_Propagates() {
+        // Arrange
+        when(bookMapper.toEntity(createBookRequestDto)).thenReturn(testBook);
+        when(bookRepository.saveAndFlush(testBook)).thenThrow(new DataIntegrityViolationException("could not execute statement",
+                new ConstraintViolationException("Data too long", new SQLException("Data too long"), "books.title")));
+
+        // Act & Assert
+        assertThrows(DataIntegrityViolationException.class, () -> bookService.createBook(createBookRequestDto));
+    }
+
     @Test
     void getBookById_Success() {
         // Arrange
-        when(bookRepository.findById(1L)).thenReturn(Optional.of(testBook));
-        when(bookMapper.toDto(testBook)).thenReturn(testBookDto);
+        when(bookByIdLoader.load(1L)).thenReturn(testBookDto);
 
         // Act
         BookDto result = bookService.getBookById(1L);
@@ -140,20 +219,20 @@ class BookServiceImplTest {
         assertEquals(testBookDto.getId(), result.getId());
         assertEquals(testBookDto.getTitle(), result.getTitle());
 
-        verify(bookRepository).findById(1L);
+        verify(bookByIdLoader).load(1L);
     }
 
     @Test
     void getBookById_NotFound_ThrowsException() {
         // Arrange
-        when(bookRepository.findById(1L)).thenReturn(Optional.empty());
+        when(bookByIdLoader.load(1L)).thenReturn(null);
 
         // Act & Assert
         assertThrows(BookNotFoundException.class, () -> {
             bookService.getBookById(1L);
         });
 
-        verify(bookRepository).findById(1L);
+        verify(bookByIdLoader).load(1L);
     }
 
     @Test
@@ -174,12 +253,50 @@ class BookServiceImplTest {
     }
 
     @Test
-    void getAllBooks_Success() {
+    void getBookByIsbn_KnownMissing_ThrowsWithoutQuery() {
+        // Arrange
+        String isbn = "9780000000000";
+        when(isbnFilter.isKnownMissing(isbn)).thenReturn(true);
+
+        // Act & Assert
+        assertThrows(BookNotFoundException.class, () -> bookService.getBookByIsbn(isbn));
+
+        verifyNoInteractions(bookRepository);
+    }
+
+    @Test
+    void getBookByIsbn_NotFound_RecordsMissing() {
         // Arrange
-        List<Book> books = Arrays.asList(testBook);
-        when(bookRepository.findByActiveTrue()).thenReturn(books);
+        String isbn = "9780000000000";
+        when(bookRepository.findByIsbn(isbn)).thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertThrows(BookNotFoundException.class, () -> bookService.getBookByIsbn(isbn));
+
+        verify(isbnFilter).recordMissing(isbn);
+    }
+
+    @Test
+    void createBook_IsbnRuledOutByFilter_SkipsExistenceQuery() {
+        // Arrange
+        when(isbnFilter.mightContain(createBookRequestDto.getIsbn())).thenReturn(false);
+        when(bookMapper.toEntity(createBookRequestDto)).thenReturn(testBook);
+        when(bookRepository.saveAndFlush(testBook)).thenReturn(testBook);
         when(bookMapper.toDto(testBook)).thenReturn(testBookDto);
 
+        // Act
+        bookService.createBook(createBookRequestDto);
+
+        // Assert
+        verify(bookRepository, never()).existsByIsbn(any());
+        verify(isbnFilter).bookCreatedAfterCommit(testBook);
+    }
+
+    @Test
+    void getAllBooks_Success() {
+        // Arrange
+        when(bookRepository.findActiveBookDtos()).thenReturn(Arrays.asList(testBookDto));
+
         // Act
         List<BookDto> result = bookService.getAllBooks();
 
@@ -188,16 +305,16 @@ class BookServiceImplTest {
         assertEquals(1, result.size());
         assertEquals(testBookDto.getTitle(), result.get(0).getTitle());
 
-        verify(bookRepository).findByActiveTrue();
+        verify(bookRepository).findActiveBookDtos();
+        verifyNoInteractions(bookMapper);
     }
 
     @Test
     void getAllBooksWithPagination_Success() {
         // Arrange
         Pageable pageable = PageRequest.of(0, 10);
-        Page<Book> bookPage = new PageImpl<>(Arrays.asList(testBook));
-        when(bookRepository.findAll(pageable)).thenReturn(bookPage);
-        when(bookMapper.toDto(testBook)).thenReturn(testBookDto);
+        Page<BookDto> bookPage = new PageImpl<>(Arrays.asList(testBookDto));
+        when(bookRepository.findAllBookDtos(pageable)).thenReturn(bookPage);
 
         // Act
         Page<BookDto> result = bookService.getAllBooks(pageable);
@@ -207,7 +324,7 @@ class BookServiceImplTest {
         assertEquals(1, result.getTotalElements());
         assertEquals(testBookDto.getTitle(), result.getContent().get(0).getTitle());
 
-        verify(bookRepository).findAll(pageable);
+        verify(bookRepository).findAllBookDtos(pageable);
     }
 
     @Test
@@ -227,6 +344,7 @@ class BookServiceImplTest {
         verify(bookMapper).updateEntityFromDto(updateBookRequestDto, testBook);
         verify(bookRepository).save(testBook);
         verify(kafkaProducerService).publishBookEvent(any());
+        verify(bookCacheInvalidator).bookChanged(testBook, "9781234567890", "Fiction");
     }
 
     @Test
@@ -268,14 +386,14 @@ class BookServiceImplTest {
         });
 
         verify(bookRepository).findById(1L);
-        verify(bookRepository, never()).delete(any());
+        verify(bookRepository, never()).delete(any(Book.class));
     }
 
     @Test
     void updateStock_Success() {
         // Arrange
+        when(bookRepository.updateStockQuantity(1L, 10)).thenReturn(1);
         when(bookRepository.findById(1L)).thenReturn(Optional.of(testBook));
-        when(bookRepository.save(testBook)).thenReturn(testBook);
         when(bookMapper.toDto(testBook)).thenReturn(testBookDto);
 
         // Act
@@ -283,34 +401,66 @@ class BookServiceImplTest {
 
         // Assert
         assertNotNull(result);
-        assertEquals(60, testBook.getStockQuantity()); // Original 50 + 10
 
-        verify(bookRepository).findById(1L);
-        verify(bookRepository).save(testBook);
+        verify(bookRepository).updateStockQuantity(1L, 10);
+        verify(bookRepository, never()).save(any());
         verify(kafkaProducerService).publishBookEvent(any());
+        verify(bookCacheInvalidator).bookChanged(testBook);
     }
 
     @Test
     void updateStock_InsufficientStock_ThrowsException() {
         // Arrange
+        when(bookRepository.updateStockQuantity(1L, -100)).thenReturn(0);
         when(bookRepository.findById(1L)).thenReturn(Optional.of(testBook));
 
         // Act & Assert
-        assertThrows(IllegalArgumentException.class, () -> {
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
             bookService.updateStock(1L, -100); // Trying to reduce by more than available
         });
 
-        verify(bookRepository).findById(1L);
-        verify(bookRepository, never()).save(any());
+        assertTrue(exception.getMessage().contains("Available: 50"));
+        verify(kafkaProducerService, never()).publishBookEvent(any());
+    }
+
+    @Test
+    void updateStockInBatch_SingleSetBasedUpdate() {
+        // Arrange
+        Book otherBook = new Book();
+        otherBook.setId(2L);
+        otherBook.setIsbn("9780987654321");
+        otherBook.setStockQuantity(5);
+        when(bookRepository.updateStockQuantities(any())).thenReturn(2);
+        when(bookRepository.findAllById(List.of(1L, 2L))).thenReturn(List.of(testBook, otherBook));
+
+        // Act
+        bookService.updateStockInBatch(List.of(1L, 2L, 1L), List.of(-1, 3, -2));
+
+        // Assert
+        verify(bookRepository).updateStockQuantities(Map.of(1L, -3, 2L, 3));
+        verify(bookRepository, never()).updateStockQuantity(any(), any());
+        verify(kafkaProducerService, times(2)).publishBookEvent(any());
+    }
+
+    @Test
+    void updateStockInBatch_InsufficientStock_ThrowsException() {
+        // Arrange
+        when(bookRepository.updateStockQuantities(any())).thenReturn(0);
+        when(bookRepository.findAllById(List.of(1L))).thenReturn(List.of(testBook));
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> {
+            bookService.updateStockInBatch(List.of(1L), List.of(-100));
+        });
+
+        verify(kafkaProducerService, never()).publishBookEvent(any());
     }
 
     @Test
     void searchBooksByTitle_Success() {
         // Arrange
         String title = "Test";
-        List<Book> books = Arrays.asList(testBook);
-        when(bookRepository.findByTitleContainingIgnoreCase(title)).thenReturn(books);
-        when(bookMapper.toDto(testBook)).thenReturn(testBookDto);
+        when(bookRepository.findBookDtosByTitleContaining(title)).thenReturn(Arrays.asList(testBookDto));
 
         // Act
         List<BookDto> result = bookService.searchBooksByTitle(title);
@@ -319,16 +469,31 @@ class BookServiceImplTest {
         assertNotNull(result);
         assertEquals(1, result.size());
 
-        verify(bookRepository).findByTitleContainingIgnoreCase(title);
+        verify(bookRepository).findBookDtosByTitleContaining(title);
+    }
+
+    @Test
+    void searchBooksByTitle_IndexReady_UsesSubstringIndex() {
+        // Arrange
+        String title = "Test";
+        when(bookSubstringIndex.canAnswer(title)).thenReturn(true);
+        when(bookSubstringIndex.findIdsByTitleContaining(title)).thenReturn(Arrays.asList(1L));
+        when(bookRepository.findBookDtosByIdIn(Arrays.asList(1L))).thenReturn(Arrays.asList(testBookDto));
+
+        // Act
+        List<BookDto> result = bookService.searchBooksByTitle(title);
+
+        // Assert
+        assertEquals(1, result.size());
+
+        verify(bookRepository, never()).findBookDtosByTitleContaining(any());
     }
 
     @Test
     void searchBooksByAuthor_Success() {
         // Arrange
         String author = "Test Author";
-        List<Book> books = Arrays.asList(testBook);
-        when(bookRepository.findByAuthorContainingIgnoreCase(author)).thenReturn(books);
-        when(bookMapper.toDto(testBook)).thenReturn(testBookDto);
+        when(bookRepository.findBookDtosByAuthorContaining(author)).thenReturn(Arrays.asList(testBookDto));
 
         // Act
         List<BookDto> result = bookService.searchBooksByAuthor(author);
@@ -337,16 +502,14 @@ class BookServiceImplTest {
         assertNotNull(result);
         assertEquals(1, result.size());
 
-        verify(bookRepository).findByAuthorContainingIgnoreCase(author);
+        verify(bookRepository).findBookDtosByAuthorContaining(author);
     }
 
     @Test
     void findBooksWithLowStock_Success() {
         // Arrange
         Integer threshold = 10;
-        List<Book> books = Arrays.asList(testBook);
-        when(bookRepository.findBooksWithLowStock(threshold)).thenReturn(books);
-        when(bookMapper.toDto(testBook)).thenReturn(testBookDto);
+        when(bookRepository.findBookDtosWithLowStock(threshold)).thenReturn(Arrays.asList(testBookDto));
 
         // Act
         List<BookDto> result = bookService.findBooksWithLowStock(threshold);
@@ -355,17 +518,53 @@ class BookServiceImplTest {
         assertNotNull(result);
         assertEquals(1, result.size());
 
-        verify(bookRepository).findBooksWithLowStock(threshold);
+        verify(bookRepository).findBookDtosWithLowStock(threshold);
+    }
+
+    @Test
+    void searchBooks_IndexReady_UsesIndex() {
+        // Arrange
+        Pageable pageable = PageRequest.of(0, 10);
+        when(bookSearchIndex.canAnswer("test")).thenReturn(true);
+        when(bookSearchIndex.search("test")).thenReturn(Arrays.asList(1L));
+        when(bookRepository.findBookDtosByIdIn(Arrays.asList(1L))).thenReturn(Arrays.asList(testBookDto));
+
+        // Act
+        Page<BookDto> result = bookService.searchBooks("test", pageable);
+
+        // Assert
+        assertEquals(1, result.getTotalElements());
+        assertEquals(testBookDto.getTitle(), result.getContent().get(0).getTitle());
+
+        verify(bookRepository, never()).searchBookDtos(any(), any());
+    }
+
+    @Test
+    void searchBooks_IndexNotReady_FallsBackToRepository() {
+        // Arrange
+        Pageable pageable = PageRequest.of(0, 10);
+        when(bookSearchIndex.canAnswer("test")).thenReturn(false);
+        when(bookRepository.searchBookDtos("test", pageable)).thenReturn(new PageImpl<>(Arrays.asList(testBookDto)));
+
+        // Act
+        Page<BookDto> result = bookService.searchBooks("test", pageable);
+
+        // Assert
+        assertEquals(1, result.getTotalElements());
+
+        verify(bookRepository).searchBookDtos("test", pageable);
+        verify(bookSearchIndex, never()).search(any());
     }
 
     @Test
     void createBookIdempotent_NewKey_Success() {
         // Arrange
         String idempotencyKey = "test-key-123";
-        when(idempotencyService.getCachedResult(idempotencyKey)).thenReturn(Optional.empty());
+        when(idempotencyService.execute(eq(idempotencyKey), eq(BookDto.class), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<BookDto>>getArgument(2).get());
         when(bookRepository.existsByIsbn(createBookRequestDto.getIsbn())).thenReturn(false);
         when(bookMapper.toEntity(createBookRequestDto)).thenReturn(testBook);
-        when(bookRepository.save(testBook)).thenReturn(testBook);
+        when(bookRepository.saveAndFlush(testBook)).thenReturn(testBook);
         when(bookMapper.toDto(testBook)).thenReturn(testBookDto);
 
         // Act
@@ -375,16 +574,31 @@ class BookServiceImplTest {
         assertNotNull(result);
         assertEquals(testBookDto.getTitle(), result.getTitle());
 
-        verify(idempotencyService).getCachedResult(idempotencyKey);
-        verify(idempotencyService).cacheResult(idempotencyKey, result);
-        verify(bookRepository).save(testBook);
+        verify(bookRepository).saveAndFlush(testBook);
+    }
+
+    @Test
+    void createBookIdempotent_IsRateLimitedAtTheEntryPoint() {
+        // Arrange: createBook runs on the target, past its own proxy, so the entry point must carry the limit
+        TokenBucketRateLimiter rateLimiter = mock(TokenBucketRateLimiter.class);
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(bookService);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAspect(new DistributedRateLimiterAspect(rateLimiter, new ClientIdResolver(List.of())));
+        BookService proxy = proxyFactory.getProxy();
+        when(idempotencyService.execute(eq("test-key-123"), eq(BookDto.class), any())).thenReturn(testBookDto);
+
+        // Act
+        proxy.createBookIdempotent("test-key-123", createBookRequestDto);
+
+        // Assert
+        verify(rateLimiter).acquire("book-service", "internal");
     }
 
     @Test
     void createBookIdempotent_ExistingKey_ReturnsCachedResult() {
         // Arrange
         String idempotencyKey = "test-key-123";
-        when(idempotencyService.getCachedResult(idempotencyKey)).thenReturn(Optional.of(testBookDto));
+        when(idempotencyService.execute(eq(idempotencyKey), eq(BookDto.class), any())).thenReturn(testBookDto);
 
         // Act
         BookDto result = bookService.createBookIdempotent(idempotencyKey, createBookRequestDto);
@@ -393,8 +607,121 @@ class BookServiceImplTest {
         assertNotNull(result);
         assertEquals(testBookDto.getTitle(), result.getTitle());
 
-        verify(idempotencyService).getCachedResult(idempotencyKey);
-        verify(idempotencyService, never()).cacheResult(any(), any());
-        verify(bookRepository, never()).save(any());
+        verify(bookRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void getBooks_ServesCachedKeysAndLoadsOnlyTheMissesInOneQuery() {
+        // Arrange
+        BookDto uncached = new BookDto();
+        uncached.setId(2L);
+        uncached.setIsbn("9780134685991");
+        Map<Object, BookDto> cached = new HashMap<>(Map.of(1L, testBookDto, "9781234567890", testBookDto));
+        when(bookBatchCache.getAll(List.of(1L, 2L, 3L, "9780134685991", "9781234567890")))
+                .thenReturn(cached);
+        when(bookRepository.findBookDtosByIdInOrIsbnIn(List.of(2L, 3L), List.of("9780134685991")))
+                .thenReturn(List.of(uncached));
+
+        // Act
+        BookBatchGetResultDto result = bookService.getBooks(List.of(1L, 2L, 3L, 1L),
+                List.of("9780134685991", "9781234567890"));
+
+        // Assert
+        assertEquals(List.of(testBookDto, uncached), result.getBooks());
+        assertEquals(List.of(3L), result.getMissingIds());
+        assertTrue(result.getMissingIsbns().isEmpty());
+        verify(bookBatchCache).putAll(List.of(uncached));
+        verifyNoMoreInteractions(bookRepository);
+    }
+
+    @Test
+    void getBooks_TooManyKeys_ThrowsIllegalArgumentException() {
+        // Arrange
+        List<Long> ids = new ArrayList<>();
+        for (long id = 1; id <= 501; id++) {
+            ids.add(id);
+        }
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> bookService.getBooks(ids, List.of()));
+        verifyNoInteractions(bookBatchCache, bookRepository);
+    }
+
+    @Test
+    void scrollBooks_NextCursorResumesAfterTheLastRowInTheSameSort() {
+        // Arrange
+        Book second = new Book();
+        second.setId(2L);
+        second.setTitle("Zebra Tales");
+        List<ScrollPosition> positions = stubScroll(List.of(testBook, second), true, "title");
+        when(bookMapper.toDto(any(Book.class))).thenReturn(testBookDto);
+
+        // Act
+        CursorPage<BookDto> first = bookService.scrollBooks(null, 2, "title", "desc");
+        // The cursor keeps its sort even if the request asks for another
+        bookService.scrollBooks(first.getNextCursor(), 2, "price", "asc");
+
+        // Assert
+        assertEquals(2, first.getContent().size());
+        assertNotNull(first.getNextCursor());
+        assertTrue(positions.get(0).isInitial());
+        KeysetScrollPosition resumed = (KeysetScrollPosition) positions.get(1);
+        assertEquals(Map.of("title", "Zebra Tales", "id", 2L), resumed.getKeys());
+    }
+
+    @Test
+    void scrollBooks_TamperedCursorIsRejected() {
+        // Arrange: a title-sorted cursor without its title key, one that is not a cursor, and an unknown sort
+        String missingSortKey = KeysetCursor.encode("title", Sort.Direction.ASC, Map.of("id", 7L));
+        String badId = KeysetCursor.encode("id", Sort.Direction.ASC, Map.of("id", "seven"));
+        String unknownSort = KeysetCursor.encode("pages", Sort.Direction.ASC, Map.of("pages", 10, "id", 7L));
+
+        // Act & Assert
+        assertThrows(InvalidCursorException.class, () -> bookService.scrollBooks(missingSortKey, 10, "id", "asc"));
+        assertThrows(InvalidCursorException.class, () -> bookService.scrollBooks(badId, 10, "id", "asc"));
+        assertThrows(InvalidCursorException.class, () -> bookService.scrollBooks(unknownSort, 10, "id", "asc"));
+        assertThrows(InvalidCursorException.class, () -> bookService.scrollBooks("bm90LWEtY3Vyc29y", 10, "id", "asc"));
+        assertThrows(InvalidCursorException.class, () -> bookService.scrollBooks(null, 0, "id", "asc"));
+        verifyNoInteractions(bookRepository);
+    }
+
+    @Test
+    void scrollBooksWithFilters_CursorIsBoundToItsFilters() {
+        // Arrange
+        List<ScrollPosition> positions = stubScroll(List.of(testBook), true, "id");
+        when(bookMapper.toDto(any(Book.class))).thenReturn(testBookDto);
+        String cursor = bookService.scrollBooksWithFilters("java", null, null, new BigDecimal("10.00"), null, null, 1)
+                .getNextCursor();
+
+        // Act & Assert: the same filters continue, others do not
+        bookService.scrollBooksWithFilters("java", "", null, new BigDecimal("10"), null, cursor, 1);
+        assertThrows(InvalidCursorException.class,
+                () -> bookService.scrollBooksWithFilters("kotlin", null, null, new BigDecimal("10.00"), null, cursor, 1));
+        assertThrows(InvalidCursorException.class, () -> bookService.scrollBooks(cursor, 1, "id", "asc"));
+        assertEquals(Map.of("id", 1L), ((KeysetScrollPosition) positions.get(1)).getKeys());
+        verify(bookRepository, times(2)).findBy(any(Specification.class), any());
+    }
+
+    // Serves the content as one window, recording the scroll position each query asks for
+    @SuppressWarnings("unchecked")
+    private List<ScrollPosition> stubScroll(List<Book> content, boolean hasNext, String sortBy) {
+        List<ScrollPosition> positions = new ArrayList<>();
+        when(bookRepository.findBy(any(Specification.class), any())).thenAnswer(invocation -> {
+            FluentQuery.FetchableFluentQuery<Book> query = mock(FluentQuery.FetchableFluentQuery.class, RETURNS_SELF);
+            when(query.scroll(any())).thenAnswer(scroll -> {
+                positions.add(scroll.getArgument(0));
+                return Window.from(content, i -> {
+                    Map<String, Object> keys = new LinkedHashMap<>();
+                    if (!"id".equals(sortBy)) {
+                        keys.put(sortBy, content.get(i).getTitle());
+                    }
+                    keys.put("id", content.get(i).getId());
+                    return ScrollPosition.forward(keys);
+                }, hasNext);
+            });
+            Function<FluentQuery.FetchableFluentQuery<Book>, Object> queryFunction = invocation.getArgument(1);
+            return queryFunction.apply(query);
+        });
+        return positions;
     }
 }
@@ -0,0 +1,89 @@
+package com.bookstore.bookservice.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchLoaderTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<List<Long>> batches = new CopyOnWriteArrayList<>();
+    private BatchLoader<Long, String> loader;
+
+    @AfterEach
+    void tearDown() {
+        loader.destroy();
+    }
+
+    @Test
+    void loadAsync_KeysWithinTheWindowShareOneBatch() throws Exception {
+        // Arrange: a window long enough for every key to join
+        loader = new BatchLoader<>("test", true, titlesFor(Map.of(1L, "one", 2L, "two")), 100, 200_000, 1, meterRegistry);
+
+        // Act
+        CompletableFuture<String> first = loader.loadAsync(1L);
+        CompletableFuture<String> second = loader.loadAsync(2L);
+        CompletableFuture<String> again = loader.loadAsync(1L);
+        CompletableFuture<String> missing = loader.loadAsync(3L);
+
+        // Assert
+        assertEquals("one", first.get(5, TimeUnit.SECONDS));
+        assertEquals("two", second.get(5, TimeUnit.SECONDS));
+        assertEquals("one", again.get(5, TimeUnit.SECONDS));
+        assertNull(missing.get(5, TimeUnit.SECONDS));
+        assertEquals(List.of(List.of(1L, 2L, 3L)), batches);
+        assertEquals(3.0, meterRegistry.get("loader.batch.size").summary().totalAmount());
+    }
+
+    @Test
+    void loadAsync_FullBatchIsDispatchedWithoutWaitingForTheWindow() throws Exception {
+        // Arrange: a window that would outlast the test
+        loader = new BatchLoader<>("test", true, titlesFor(Map.of(1L, "one", 2L, "two")), 2, 60_000_000, 1, meterRegistry);
+
+        // Act
+        CompletableFuture<String> first = loader.loadAsync(1L);
+        CompletableFuture<String> second = loader.loadAsync(2L);
+
+        // Assert
+        assertTrue(first.isDone() && second.isDone());
+        assertEquals("one", first.get());
+        assertEquals(List.of(List.of(1L, 2L)), batches);
+    }
+
+    @Test
+    void load_BatchFailureIsRethrownToEveryCaller() {
+        // Arrange
+        loader = new BatchLoader<>("test", true, keys -> {
+            throw new IllegalStateException("database unavailable");
+        }, 100, 1_000, 1, meterRegistry);
+
+        // Act & Assert
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () -> loader.load(1L));
+        assertEquals("database unavailable", exception.getMessage());
+    }
+
+    private Function<Collection<Long>, Map<Long, String>> titlesFor(Map<Long, String> titles) {
+        return keys -> {
+            batches.add(new ArrayList<>(keys));
+            Map<Long, String> found = new HashMap<>();
+            keys.forEach(key -> {
+                if (titles.containsKey(key)) {
+                    found.put(key, titles.get(key));
+                }
+            });
+            return found;
+        };
+    }
+}
@@ -0,0 +1,73 @@
+package com.bookstore.bookservice.util;
+
+import com.bookstore.bookservice.exception.InvalidCursorException;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeysetCursorTest {
+
+    private static final Map<String, Function<String, Object>> PARSERS = Map.of(
+            "id", Long::valueOf,
+            "title", value -> value,
+            "price", BigDecimal::new
+    );
+
+    @Test
+    void encodeDecode_RoundTripsSortAndTypedKeys() {
+        Map<String, Object> keys = new LinkedHashMap<>();
+        keys.put("title", "Cats & Dogs = 100% fun");
+        keys.put("id", 42L);
+
+        String token = KeysetCursor.encode("title", Sort.Direction.DESC, keys);
+        KeysetCursor cursor = KeysetCursor.decode(token);
+
+        assertEquals("title", cursor.getSortBy());
+        assertEquals(Sort.Direction.DESC, cursor.getDirection());
+        assertEquals(keys, cursor.typedKeys(PARSERS));
+    }
+
+    @Test
+    void typedKeys_ParsesNumericColumns() {
+        String token = KeysetCursor.encode("price", Sort.Direction.ASC, Map.of("price", new BigDecimal("19.99"), "id", 3L));
+
+        assertEquals(new BigDecimal("19.99"), KeysetCursor.decode(token).typedKeys(PARSERS).get("price"));
+    }
+
+    @Test
+    void decode_RejectsTamperedToken() {
+        assertThrows(InvalidCursorException.class, () -> KeysetCursor.decode("not-a-cursor"));
+        assertThrows(InvalidCursorException.class, () -> KeysetCursor.decode("%%%"));
+
+        String unknownColumn = KeysetCursor.encode("pages", Sort.Direction.ASC, Map.of("pages", 10, "id", 1L));
+        assertThrows(InvalidCursorException.class, () -> KeysetCursor.decode(unknownColumn).typedKeys(PARSERS));
+    }
+
+    @Test
+    void typedKeys_RejectsKeysThatDoNotMatchTheSort() {
+        String missingSortKey = KeysetCursor.encode("title", Sort.Direction.ASC, Map.of("id", 1L));
+        String extraKey = KeysetCursor.encode("id", Sort.Direction.ASC, Map.of("id", 1L, "price", "9.99"));
+        String unparseable = KeysetCursor.encode("price", Sort.Direction.ASC, Map.of("price", "cheap", "id", 1L));
+
+        assertThrows(InvalidCursorException.class, () -> KeysetCursor.decode(missingSortKey).typedKeys(PARSERS));
+        assertThrows(InvalidCursorException.class, () -> KeysetCursor.decode(extraKey).typedKeys(PARSERS));
+        assertThrows(InvalidCursorException.class, () -> KeysetCursor.decode(unparseable).typedKeys(PARSERS));
+    }
+
+    @Test
+    void requireFilter_RejectsCursorIssuedForOtherFilters() {
+        String filter = KeysetCursor.fingerprint("java", null, new BigDecimal("10.00"));
+        KeysetCursor cursor = KeysetCursor.decode(KeysetCursor.encode("id", Sort.Direction.ASC, filter, Map.of("id", 1L)));
+
+        cursor.requireFilter(KeysetCursor.fingerprint("java", " ", new BigDecimal("10")));
+        assertThrows(InvalidCursorException.class, () -> cursor.requireFilter(KeysetCursor.fingerprint("java", null, null)));
+        assertThrows(InvalidCursorException.class, () -> cursor.requireFilter(""));
+        assertEquals("", KeysetCursor.fingerprint(null, "", null));
+    }
+}
@@ -97,4 +97,11 @@ INSERT INTO books (title, author, isbn, price, stock, category, description, ava
 ('Steve Jobs', 'Walter Isaacson', '9781451648539', 349.99, 20, 'BIOGRAPHY', 'Biography of Apple co-founder', true),
 ('The Da Vinci Code', 'Dan Brown', '9780307474278', 249.99, 45, 'MYSTERY', 'Mystery thriller novel', true);
 
+-- Id blocks for Hibernate's pooled-lo table generator; next_val is the next unused id
+CREATE TABLE id_sequences (
+    sequence_name VARCHAR(255) NOT NULL PRIMARY KEY,
+    next_val BIGINT
+);
+INSERT INTO id_sequences (sequence_name, next_val) SELECT 'books', COALESCE(MAX(id), 0) + 1 FROM books;
+
 FLUSH PRIVILEGES;
@@ -118,4 +118,11 @@ INSERT INTO user_addresses (user_id, type, street_address, city, state, postal_c
 (1, 'HOME', '123 Main Street', 'Mumbai', 'Maharashtra', '400001', 'India', true),
 (2, 'HOME', '456 Oak Avenue', 'Delhi', 'Delhi', '110001', 'India', true);
 
+-- Id blocks for Hibernate's pooled-lo table generator; next_val is the next unused id
+CREATE TABLE id_sequences (
+    sequence_name VARCHAR(255) NOT NULL PRIMARY KEY,
+    next_val BIGINT
+);
+INSERT INTO id_sequences (sequence_name, next_val) SELECT 'users', COALESCE(MAX(id), 0) + 1 FROM users;
+
 FLUSH PRIVILEGES;
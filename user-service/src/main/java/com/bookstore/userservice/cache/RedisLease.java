@@ -0,0 +1,65 @@
+package com.bookstore.userservice.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Short-lived exclusive claim on a key, taken with SET NX PX and released only by its holder
+ * (compare-and-delete), so a holder that overran its lease never frees someone else's.
+ * Leases only avoid duplicate work, so a Redis error counts as acquired rather than failing the caller.
+ */
+@Slf4j
+public class RedisLease {
+
+    private static final RedisScript<Long> RELEASE = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final Duration leaseTime;
+
+    public RedisLease(StringRedisTemplate redisTemplate, Duration leaseTime) {
+        this.redisTemplate = redisTemplate;
+        this.leaseTime = leaseTime;
+    }
+
+    public Duration getLeaseTime() {
+        return leaseTime;
+    }
+
+    /**
+     * @return the token to release the lease with, or null if another holder has it
+     */
+    public String tryAcquire(String key) {
+        String token = UUID.randomUUID().toString();
+        try {
+            return Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(key, token, leaseTime)) ? token : null;
+        } catch (RuntimeException e) {
+            log.debug("Could not take lease {}, proceeding without it: {}", key, e.getMessage());
+            return token;
+        }
+    }
+
+    public boolean isHeld(String key) {
+        try {
+            return Boolean.TRUE.equals(redisTemplate.hasKey(key));
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    public void release(String key, String token) {
+        try {
+            redisTemplate.execute(RELEASE, List.of(key), token);
+        } catch (RuntimeException e) {
+            // It expires on its own
+            log.debug("Could not release lease {}: {}", key, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.bookstore.userservice.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Refreshes expensive entries in the background before they expire, so readers never hit the expiry cliff.
+ * Each value is stored as a {@link RefreshAheadValue} carrying its compute time (delta) and expiry. Every read
+ * through {@code @Cacheable(sync = true)} decides independently, XFetch-style, whether to refresh now:
+ * {@code now - delta * beta * ln(random) >= expiry}. The chance rises as expiry nears and is higher for values
+ * that are slow to compute, so one refresh normally starts shortly before expiry without any coordination.
+ * The reader that wins starts the refresh on the refresh executor and, like every other reader, keeps getting
+ * the current value until the new one is written. A key refreshes at most once at a time per node, and a Redis
+ * lease keeps other nodes from refreshing it at the same time.
+ *
+ * <p>Metrics, tagged with the cache name: cache.refresh-ahead.refreshes and cache.refresh-ahead.failures.
+ */
+@Slf4j
+public class RefreshAheadCache implements Cache {
+
+    private final Cache delegate;
+    private final Duration timeToLive;
+    private final double beta;
+    private final RedisLease lease;
+    private final String leasePrefix;
+    private final Executor refreshExecutor;
+
+    private final Set<Object> refreshing = ConcurrentHashMap.newKeySet();
+    private final Counter refreshes;
+    private final Counter failures;
+
+    public RefreshAheadCache(Cache delegate, Duration timeToLive, double beta, RedisLease lease, String leasePrefix,
+                             Executor refreshExecutor, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.timeToLive = timeToLive;
+        this.beta = beta;
+        this.lease = lease;
+        this.leasePrefix = leasePrefix + delegate.getName() + "::";
+        this.refreshExecutor = refreshExecutor;
+
+        this.refreshes = Counter.builder("cache.refresh-ahead.refreshes")
+                .description("Entries recomputed in the background before they expired")
+                .tag("cache", delegate.getName())
+                .register(meterRegistry);
+        this.failures = Counter.builder("cache.refresh-ahead.failures")
+                .description("Background refreshes that failed, leaving the current value in place")
+                .tag("cache", delegate.getName())
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return delegate.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        ValueWrapper wrapper = delegate.get(key);
+        if (wrapper != null && wrapper.get() instanceof RefreshAheadValue entry) {
+            return new SimpleValueWrapper(entry.getValue());
+        }
+        return wrapper;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object value = wrapper != null ? wrapper.get() : null;
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException(
+                    "Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper wrapper = delegate.get(key);
+        if (wrapper != null && wrapper.get() instanceof RefreshAheadValue entry) {
+            if (shouldRefresh(entry, System.currentTimeMillis())) {
+                refreshInBackground(key, valueLoader);
+            }
+            return (T) entry.getValue();
+        }
+        if (wrapper != null) {
+            // Written before this cache was refresh-ahead; it simply expires
+            return (T) wrapper.get();
+        }
+        Object loaded = delegate.get(key, () -> compute(valueLoader));
+        return (T) (loaded instanceof RefreshAheadValue entry ? entry.getValue() : loaded);
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        // Compute time unknown, so the entry is only refreshed once it expires
+        delegate.put(key, new RefreshAheadValue(value, 0, System.currentTimeMillis() + timeToLive.toMillis()));
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        ValueWrapper existing = delegate.putIfAbsent(key,
+                new RefreshAheadValue(value, 0, System.currentTimeMillis() + timeToLive.toMillis()));
+        if (existing != null && existing.get() instanceof RefreshAheadValue entry) {
+            return new SimpleValueWrapper(entry.getValue());
+        }
+        return existing;
+    }
+
+    @Override
+    public void evict(Object key) {
+        delegate.evict(key);
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        return delegate.evictIfPresent(key);
+    }
+
+    @Override
+    public void clear() {
+        delegate.clear();
+    }
+
+    @Override
+    public boolean invalidate() {
+        return delegate.invalidate();
+    }
+
+    boolean shouldRefresh(RefreshAheadValue entry, long now) {
+        // -ln(random) is exponentially distributed with mean 1, so the expected head start is delta * beta
+        double headStart = entry.getComputeMillis() * beta * -Math.log(1.0 - ThreadLocalRandom.current().nextDouble());
+        return now + headStart >= entry.getExpiresAt();
+    }
+
+    private void refreshInBackground(Object key, Callable<?> valueLoader) {
+        if (!refreshing.add(key)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                String leaseKey = leasePrefix + key;
+                String token = lease.tryAcquire(leaseKey);
+                if (token == null) {
+                    // Another node is refreshing it
+                    refreshing.remove(key);
+                    return;
+                }
+                try {
+                    RefreshAheadValue fresh = compute(valueLoader);
+                    if (fresh != null) {
+                        delegate.put(key, fresh);
+                    }
+                    refreshes.increment();
+                } catch (Exception e) {
+                    failures.increment();
+                    log.warn("Background refresh of {}::{} failed, keeping the current value: {}",
+                               getName(), key, e.getMessage());
+                } finally {
+                    lease.release(leaseKey, token);
+                    refreshing.remove(key);
+                }
+            });
+        } catch (RuntimeException e) {
+            refreshing.remove(key);
+            log.debug("Could not schedule refresh of {}::{}: {}", getName(), key, e.getMessage());
+        }
+    }
+
+    private RefreshAheadValue compute(Callable<?> valueLoader) throws Exception {
+        long started = System.currentTimeMillis();
+        Object value = valueLoader.call();
+        if (value == null) {
+            return null;
+        }
+        long finished = System.currentTimeMillis();
+        return new RefreshAheadValue(value, finished - started, finished + timeToLive.toMillis());
+    }
+}
@@ -0,0 +1,21 @@
+package com.bookstore.userservice.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * A cached value stored together with what it took to compute and when it is due to expire,
+ * which is what RefreshAheadCache needs to decide on an early refresh.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RefreshAheadValue implements Serializable {
+
+    private Object value;
+    private long computeMillis;
+    private long expiresAt;
+}
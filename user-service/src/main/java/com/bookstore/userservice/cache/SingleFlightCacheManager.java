@@ -0,0 +1,54 @@
+package com.bookstore.userservice.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Wraps a cache manager so every cache it hands out loads misses single-flight; see {@link SingleFlightCache}.
+ */
+public class SingleFlightCacheManager implements CacheManager {
+
+    private final CacheManager delegate;
+    private final StringRedisTemplate redisTemplate;
+    private final String leasePrefix;
+    private final Duration leaseTime;
+    private final Duration pollInterval;
+    private final MeterRegistry meterRegistry;
+
+    private final ConcurrentMap<String, SingleFlightCache> caches = new ConcurrentHashMap<>();
+
+    public SingleFlightCacheManager(CacheManager delegate, StringRedisTemplate redisTemplate, String leasePrefix,
+                                    Duration leaseTime, Duration pollInterval, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.redisTemplate = redisTemplate;
+        this.leasePrefix = leasePrefix;
+        this.leaseTime = leaseTime;
+        this.pollInterval = pollInterval;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        return caches.computeIfAbsent(name, this::createCache);
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return delegate.getCacheNames();
+    }
+
+    private SingleFlightCache createCache(String name) {
+        Cache cache = delegate.getCache(name);
+        if (cache == null) {
+            return null;
+        }
+        return new SingleFlightCache(cache, redisTemplate, leasePrefix, leaseTime, pollInterval, meterRegistry);
+    }
+}
@@ -1,16 +1,28 @@
 package com.bookstore.userservice.config;
 
+import com.bookstore.userservice.cache.RedisLease;
+import com.bookstore.userservice.cache.RefreshAheadCacheManager;
+import com.bookstore.userservice.cache.SingleFlightCacheManager;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.redisson.Redisson;
 import org.redisson.api.RedissonClient;
 import org.redisson.config.Config;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.CacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
+import java.time.Duration;
+import java.util.Set;
+
 @Configuration
 public class RedisConfig {
     
@@ -23,6 +35,39 @@ public class RedisConfig {
     @Value("${spring.data.redis.password:}")
     private String redisPassword;
     
+    @Value("${spring.cache.redis.time-to-live:300000}")
+    private long cacheTtlMs;
+    
+    @Value("${cache.single-flight.enabled:true}")
+    private boolean singleFlightEnabled;
+    
+    @Value("${cache.single-flight.lease-prefix:user-service:cache-load:}")
+    private String singleFlightLeasePrefix;
+    
+    @Value("${cache.single-flight.lease-ms:10000}")
+    private long singleFlightLeaseMs;
+    
+    @Value("${cache.single-flight.poll-ms:50}")
+    private long singleFlightPollMs;
+    
+    @Value("${cache.refresh-ahead.enabled:true}")
+    private boolean refreshAheadEnabled;
+    
+    @Value("${cache.refresh-ahead.caches:activeUsers}")
+    private Set<String> refreshAheadCaches;
+    
+    @Value("${cache.refresh-ahead.beta:1.0}")
+    private double refreshAheadBeta;
+    
+    @Value("${cache.refresh-ahead.threads:2}")
+    private int refreshAheadThreads;
+    
+    @Value("${cache.refresh-ahead.lease-prefix:user-service:cache-refresh:}")
+    private String refreshAheadLeasePrefix;
+    
+    @Value("${cache.refresh-ahead.lease-ms:30000}")
+    private long refreshAheadLeaseMs;
+    
     @Bean
     public RedisConnectionFactory redisConnectionFactory() {
         LettuceConnectionFactory factory = new LettuceConnectionFactory(redisHost, redisPort);
@@ -61,4 +106,30 @@ public class RedisConfig {
         
         return Redisson.create(config);
     }
+    
+    /**
+     * The Redis cache manager Spring Boot would configure, wrapped so concurrent misses for one key
+     * load once per cluster and the refresh-ahead caches are recomputed before they expire.
+     * Backs off to Boot's own manager for any other spring.cache.type.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "spring.cache.type", havingValue = "redis")
+    public CacheManager cacheManager(RedisConnectionFactory connectionFactory, StringRedisTemplate stringRedisTemplate,
+                                     MeterRegistry meterRegistry) {
+        RedisCacheManager redisCacheManager = RedisCacheManager.builder(connectionFactory)
+                .cacheDefaults(RedisCacheConfiguration.defaultCacheConfig().entryTtl(Duration.ofMillis(cacheTtlMs)))
+                .build();
+        redisCacheManager.afterPropertiesSet();
+        CacheManager cacheManager = redisCacheManager;
+        if (singleFlightEnabled) {
+            cacheManager = new SingleFlightCacheManager(cacheManager, stringRedisTemplate, singleFlightLeasePrefix,
+                    Duration.ofMillis(singleFlightLeaseMs), Duration.ofMillis(singleFlightPollMs), meterRegistry);
+        }
+        if (refreshAheadEnabled) {
+            cacheManager = new RefreshAheadCacheManager(cacheManager, refreshAheadCaches, Duration.ofMillis(cacheTtlMs),
+                    refreshAheadBeta, new RedisLease(stringRedisTemplate, Duration.ofMillis(refreshAheadLeaseMs)),
+                    refreshAheadLeasePrefix, refreshAheadThreads, meterRegistry);
+        }
+        return cacheManager;
+    }
 }
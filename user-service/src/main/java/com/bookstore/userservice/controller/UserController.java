@@ -1,8 +1,10 @@
 package com.bookstore.userservice.controller;
 
 import com.bookstore.userservice.dto.CreateUserRequestDto;
+import com.bookstore.userservice.dto.CursorPage;
 import com.bookstore.userservice.dto.UpdateUserRequestDto;
 import com.bookstore.userservice.dto.UserDto;
+import com.bookstore.userservice.ratelimit.DistributedRateLimiter;
 import com.bookstore.userservice.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -34,13 +36,19 @@ public class UserController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "201", description = "User created successfully"),
             @ApiResponse(responseCode = "400", description = "Invalid input data"),
-            @ApiResponse(responseCode = "409", description = "User with email or phone number already exists")
+            @ApiResponse(responseCode = "409", description = "User with email or phone number already exists, "
+                    + "or the Idempotency-Key was already used for a different request"),
+            @ApiResponse(responseCode = "429", description = "Too many requests from this client")
     })
     @PostMapping
+    @DistributedRateLimiter(name = "user-service")
     public ResponseEntity<UserDto> createUser(
-            @Valid @RequestBody CreateUserRequestDto createUserRequest) {
+            @Valid @RequestBody CreateUserRequestDto createUserRequest,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         log.info("Creating new user with email: {}", createUserRequest.getEmail());
-        UserDto createdUser = userService.createUser(createUserRequest);
+        UserDto createdUser = idempotencyKey != null
+                ? userService.createUserIdempotent(idempotencyKey, createUserRequest)
+                : userService.createUser(createUserRequest);
         return ResponseEntity.status(HttpStatus.CREATED).body(createdUser);
     }
     
@@ -82,6 +90,23 @@ public class UserController {
         return ResponseEntity.ok(users);
     }
     
+    @Operation(summary = "Scroll all users", description = "Keyset-paginated listing without a total count. " +
+            "Pass nextCursor from the previous response as cursor to continue; the cursor keeps its original sort.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Users retrieved successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor or unsupported sort field")
+    })
+    @GetMapping("/scroll")
+    public ResponseEntity<CursorPage<UserDto>> scrollUsers(
+            @Parameter(description = "Continuation token from a previous response") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size") @RequestParam(defaultValue = "20") int size,
+            @Parameter(description = "Sort by field (id, email, username)") @RequestParam(defaultValue = "id") String sortBy,
+            @Parameter(description = "Sort direction") @RequestParam(defaultValue = "asc") String sortDir) {
+        log.info("Scrolling users: size={}, sortBy={}", size, sortBy);
+        CursorPage<UserDto> users = userService.scrollUsers(cursor, size, sortBy, sortDir);
+        return ResponseEntity.ok(users);
+    }
+    
     @Operation(summary = "Get active users", description = "Retrieves all active users")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Active users retrieved successfully")
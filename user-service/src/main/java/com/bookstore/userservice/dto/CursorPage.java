@@ -0,0 +1,32 @@
+package com.bookstore.userservice.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "One window of a keyset-paginated listing, without a total count")
+public class CursorPage<T> implements Serializable {
+    
+    private static final long serialVersionUID = 1L;
+    
+    @Schema(description = "Items in this window")
+    private List<T> content;
+    
+    @Schema(description = "Number of items in this window", example = "20")
+    private int size;
+    
+    @Schema(description = "Opaque token to pass as cursor for the next window, null on the last window")
+    private String nextCursor;
+    
+    @Schema(description = "Whether another window follows")
+    private boolean hasNext;
+}
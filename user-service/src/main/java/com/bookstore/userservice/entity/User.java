@@ -22,8 +22,11 @@ import java.util.Objects;
 })
 public class User {
 
+    // Ids come in blocks from id_sequences (see hibernate.id.optimizer.pooled.preferred), so inserts can batch
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "user_id")
+    @TableGenerator(name = "user_id", table = "id_sequences", pkColumnName = "sequence_name",
+                    valueColumnName = "next_val", pkColumnValue = "users", allocationSize = 50)
     private Long id;
 
     @NotBlank(message = "Username is required")
@@ -0,0 +1,26 @@
+package com.bookstore.userservice.event;
+
+import com.bookstore.userservice.dto.BookEventDTO;
+
+/**
+ * Binary v1 decoder for book events published by book-service. Field order is part of the format
+ * and must match book-service's BookEventCodec: eventType, bookId, title, author, isbn, stockQuantity, timestamp.
+ */
+public final class BookEventCodec {
+
+    private BookEventCodec() {
+    }
+
+    public static BookEventDTO decode(byte[] bytes) {
+        EventWireFormat.Reader reader = new EventWireFormat.Reader(bytes, EventWireFormat.VERSION_1);
+        return BookEventDTO.builder()
+                .eventType(reader.readString())
+                .bookId(reader.readLong())
+                .title(reader.readString())
+                .author(reader.readString())
+                .isbn(reader.readString())
+                .stockQuantity(reader.readInt())
+                .timestamp(reader.readTimestamp())
+                .build();
+    }
+}
@@ -0,0 +1,39 @@
+package com.bookstore.userservice.event;
+
+/**
+ * Binary v1 codec for {@link UserEvent}. Field order is part of the format:
+ * eventType, userId, firstName, lastName, email, active, timestamp.
+ */
+public final class UserEventCodec {
+
+    private UserEventCodec() {
+    }
+
+    public static byte[] encode(UserEvent event) {
+        return new EventWireFormat.Writer()
+                .header(EventWireFormat.VERSION_1, EventWireFormat.presence(event.getEventType(), event.getUserId(),
+                        event.getFirstName(), event.getLastName(), event.getEmail(), event.getActive(),
+                        event.getTimestamp()))
+                .writeString(event.getEventType())
+                .writeLong(event.getUserId())
+                .writeString(event.getFirstName())
+                .writeString(event.getLastName())
+                .writeString(event.getEmail())
+                .writeBoolean(event.getActive())
+                .writeTimestamp(event.getTimestamp())
+                .toByteArray();
+    }
+
+    public static UserEvent decode(byte[] bytes) {
+        EventWireFormat.Reader reader = new EventWireFormat.Reader(bytes, EventWireFormat.VERSION_1);
+        return UserEvent.builder()
+                .eventType(reader.readString())
+                .userId(reader.readLong())
+                .firstName(reader.readString())
+                .lastName(reader.readString())
+                .email(reader.readString())
+                .active(reader.readBoolean())
+                .timestamp(reader.readTimestamp())
+                .build();
+    }
+}
@@ -0,0 +1,24 @@
+package com.bookstore.userservice.ratelimit;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Limits calls per client with a token bucket shared by every node, in place of Resilience4j's
+ * per-JVM {@code @RateLimiter(name = ...)}. The bucket for {@code name} is configured with
+ * rate-limiter.instances.&lt;name&gt;.capacity, .refill-per-second and .lease-size; calls over the
+ * limit fail with {@link com.bookstore.userservice.exception.RateLimitExceededException}.
+ *
+ * @see DistributedRateLimiterAspect
+ * @see TokenBucketRateLimiter
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface DistributedRateLimiter {
+
+    String name();
+}
@@ -1,13 +1,24 @@
 package com.bookstore.userservice.service;
 
 import com.bookstore.userservice.dto.BookEventDTO;
+import com.bookstore.userservice.event.BookEventCodec;
+import com.bookstore.userservice.event.EventWireFormat;
+import com.bookstore.userservice.kafka.KeyOrderedParallelProcessor;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
 import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.util.List;
+
 @Slf4j
 @Service
 @RequiredArgsConstructor
@@ -15,42 +26,132 @@ public class BookEventConsumerService {
 
     private final ObjectMapper objectMapper;
     private final NotificationService notificationService;
+    private final DeadLetterPublishingRecoverer deadLetterRecoverer;
+    private final KeyOrderedParallelProcessor parallelProcessor;
+    
+    @Value("${kafka.consumer.retry.max-attempts:3}")
+    private int retryMaxAttempts = 3;
     
-    @KafkaListener(topics = "${kafka.topics.book-events}", groupId = "${spring.kafka.consumer.group-id}")
-    public void consumeBookEvent(String eventJson, Acknowledgment ack) {
+    @Value("${kafka.consumer.retry.backoff-ms:100}")
+    private long retryBackoffMs = 100;
+    
+    @Value("${kafka.consumer.retry.max-backoff-ms:1000}")
+    private long retryMaxBackoffMs = 1000;
+
+    /**
+     * Handles a whole poll and commits it once. A record that cannot be decoded or is invalid goes straight
+     * to the dead-letter topic; one whose handling fails is retried in place up to kafka.consumer.retry.max-attempts
+     * times with doubling backoff, and dead-lettered only once those run out. Either way the rest of the batch
+     * carries on.
+     * In parallel mode the records are handed to workers keyed by book ID instead, and the processor
+     * commits offsets as contiguous runs of them finish.
+     */
+    @KafkaListener(topics = "${kafka.topics.book-events}", groupId = "${spring.kafka.consumer.group-id}",
+                   containerFactory = "batchEventKafkaListenerContainerFactory")
+    public void consumeBookEvents(List<ConsumerRecord<String, byte[]>> records, Acknowledgment ack,
+                                  Consumer<?, ?> consumer) {
+        if (parallelProcessor.isEnabled()) {
+            // A failed dead-letter publish is retried by the processor on that key's lane
+            parallelProcessor.process(records, consumer, this::process);
+            return;
+        }
+        
+        int deadLettered = 0;
+        for (int i = 0; i < records.size(); i++) {
+            try {
+                if (!process(records.get(i))) {
+                    deadLettered++;
+                }
+            } catch (RuntimeException e) {
+                // Nothing from this record on is committed; the container redelivers from here
+                throw new BatchListenerFailedException("Failed to dead-letter book event", e, i);
+            }
+        }
+        
+        // Acknowledge the whole batch to Kafka in one commit
+        ack.acknowledge();
+        log.debug("Processed batch of {} book events, {} dead-lettered", records.size(), deadLettered);
+    }
+    
+    // Returns false when the record went to the dead-letter topic; throws if even that failed
+    private boolean process(ConsumerRecord<String, byte[]> record) {
+        BookEventDTO bookEvent;
         try {
-            log.info("Received book event: {}", eventJson);
-            
-            BookEventDTO bookEvent = objectMapper.readValue(eventJson, BookEventDTO.class);
-            
-            // Process the event based on event type
-            switch (bookEvent.getEventType()) {
-                case "BOOK_CREATED":
-                    handleBookCreated(bookEvent);
-                    break;
-                case "BOOK_UPDATED":
-                    handleBookUpdated(bookEvent);
-                    break;
-                case "BOOK_DELETED":
-                    handleBookDeleted(bookEvent);
-                    break;
-                case "STOCK_UPDATED":
-                    handleStockUpdated(bookEvent);
-                    break;
-                default:
-                    log.warn("Unknown book event type: {}", bookEvent.getEventType());
+            bookEvent = decode(record);
+            validate(bookEvent);
+        } catch (IOException | RuntimeException e) {
+            // Retrying cannot fix a malformed or invalid record
+            log.error("Invalid book event at {}-{}@{}, dead-lettering it",
+                    record.topic(), record.partition(), record.offset(), e);
+            deadLetterRecoverer.accept(record, e);
+            return false;
+        }
+        
+        log.info("Received book event: {}", bookEvent);
+        for (int attempt = 1; ; attempt++) {
+            try {
+                handle(bookEvent);
+                return true;
+            } catch (RuntimeException e) {
+                if (attempt >= retryMaxAttempts) {
+                    log.error("Book event at {}-{}@{} failed {} times, dead-lettering it",
+                            record.topic(), record.partition(), record.offset(), attempt, e);
+                    deadLetterRecoverer.accept(record, e);
+                    return false;
+                }
+                long backoffMs = Math.min(retryBackoffMs << (attempt - 1), retryMaxBackoffMs);
+                log.warn("Book event at {}-{}@{} failed, retrying in {} ms: {}",
+                        record.topic(), record.partition(), record.offset(), backoffMs, e.getMessage());
+                sleep(backoffMs);
             }
-            
-            // Acknowledge the message to Kafka
-            ack.acknowledge();
-            
-        } catch (Exception e) {
-            log.error("Error processing book event: {}", eventJson, e);
-            // Don't acknowledge the message to trigger redelivery
-            // If this consistently fails, it might end up in a DLQ if configured
         }
     }
     
+    private static void validate(BookEventDTO bookEvent) {
+        if (bookEvent == null || bookEvent.getEventType() == null || bookEvent.getBookId() == null) {
+            throw new IllegalArgumentException("Book event has no event type or book ID");
+        }
+    }
+    
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            // Leaves the record uncommitted, to be redelivered
+            throw new IllegalStateException("Interrupted while retrying book event", e);
+        }
+    }
+    
+    // Package-private so tests can make it fail
+    void handle(BookEventDTO bookEvent) {
+        // Process the event based on event type
+        switch (bookEvent.getEventType()) {
+            case "BOOK_CREATED":
+                handleBookCreated(bookEvent);
+                break;
+            case "BOOK_UPDATED":
+                handleBookUpdated(bookEvent);
+                break;
+            case "BOOK_DELETED":
+                handleBookDeleted(bookEvent);
+                break;
+            case "STOCK_UPDATED":
+                handleStockUpdated(bookEvent);
+                break;
+            default:
+                log.warn("Unknown book event type: {}", bookEvent.getEventType());
+        }
+    }
+    
+    // Binary when the producer says so; anything else, including records without the header, is JSON
+    private BookEventDTO decode(ConsumerRecord<String, byte[]> record) throws IOException {
+        if (EventWireFormat.isBinary(EventWireFormat.contentType(record.headers()))) {
+            return BookEventCodec.decode(record.value());
+        }
+        return objectMapper.readValue(record.value(), BookEventDTO.class);
+    }
+    
     private void handleBookCreated(BookEventDTO bookEvent) {
         log.info("Processing BOOK_CREATED event for book ID: {}, title: {}", 
                 bookEvent.getBookId(), bookEvent.getTitle());
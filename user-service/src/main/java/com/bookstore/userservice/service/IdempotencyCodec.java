@@ -0,0 +1,107 @@
+package com.bookstore.userservice.service;
+
+import com.bookstore.userservice.exception.IdempotencyException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * The string stored under an idempotency key:
+ * <ul>
+ *   <li>{@code P:<request fingerprint>:<owner token>} while the first request is still running</li>
+ *   <li>{@code C:<request fingerprint>:<result class>:<result JSON>} once it has completed</li>
+ * </ul>
+ * The fingerprint is the SHA-256 of the request as JSON, or "-" if the caller gave no request, and lets a
+ * repeat with a different body be told apart from a retry. Completed records written before fingerprints
+ * ({@code C:<result class>:<result JSON>}) are read as having none.
+ * Results are read back as the class the caller asks for, not the class recorded in the JSON, and a key
+ * completed with a different result class is rejected, so replaying a key can never yield a mis-typed object.
+ */
+public class IdempotencyCodec {
+
+    private static final String IN_PROGRESS = "P:";
+    private static final String COMPLETED = "C:";
+    private static final String NO_FINGERPRINT = "-";
+
+    private final ObjectMapper objectMapper;
+
+    public IdempotencyCodec(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public String fingerprint(Object request) {
+        if (request == null) {
+            return NO_FINGERPRINT;
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(digest);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Cannot fingerprint " + request.getClass().getSimpleName(), e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public String inProgress(String ownerToken, String fingerprint) {
+        return IN_PROGRESS + fingerprint + ":" + ownerToken;
+    }
+
+    public boolean isCompleted(String value) {
+        return value.startsWith(COMPLETED);
+    }
+
+    /**
+     * False only if both the record and the caller have a fingerprint and they differ.
+     */
+    public boolean isSameRequest(String value, String fingerprint) {
+        String stored = storedFingerprint(value);
+        return stored == null || NO_FINGERPRINT.equals(stored) || NO_FINGERPRINT.equals(fingerprint)
+                || stored.equals(fingerprint);
+    }
+
+    public String completed(Object result, Class<?> resultType, String fingerprint) {
+        try {
+            return COMPLETED + fingerprint + ":" + resultType.getName() + ":" + objectMapper.writeValueAsString(result);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Cannot encode " + resultType.getSimpleName() + " result", e);
+        }
+    }
+
+    public <T> T decode(String value, Class<T> resultType) {
+        if (!isCompleted(value)) {
+            throw new IllegalArgumentException("Not a completed idempotency record");
+        }
+        int typeStart = storedFingerprint(value) != null
+                ? value.indexOf(':', COMPLETED.length()) + 1 : COMPLETED.length();
+        int separator = value.indexOf(':', typeStart);
+        if (separator < 0) {
+            throw new IllegalArgumentException("Not a completed idempotency record");
+        }
+        String storedType = value.substring(typeStart, separator);
+        if (!storedType.equals(resultType.getName())) {
+            throw new IdempotencyException("Idempotency key was already used for a request returning " + storedType);
+        }
+        try {
+            return objectMapper.readValue(value.substring(separator + 1), resultType);
+        } catch (JsonProcessingException e) {
+            throw new IdempotencyException("Stored result for idempotency key cannot be read as "
+                    + resultType.getSimpleName(), e);
+        }
+    }
+
+    // The first field after the prefix; a class name (always qualified, so with a dot) means a record from before fingerprints
+    private static String storedFingerprint(String value) {
+        int start = value.indexOf(':') + 1;
+        int end = value.indexOf(':', start);
+        if (end < 0) {
+            return null;
+        }
+        String field = value.substring(start, end);
+        return field.contains(".") ? null : field;
+    }
+}
@@ -1,21 +1,166 @@
 package com.bookstore.userservice.service;
 
-import lombok.RequiredArgsConstructor;
+import com.bookstore.userservice.exception.IdempotencyException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
-import org.redisson.api.RMapCache;
-import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.util.concurrent.TimeUnit;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
 
+/**
+ * Idempotency for user operations.
+ *
+ * <p>{@link #execute} runs an operation at most once per key and replays its result to every repeat.
+ * Given the request, a fingerprint of it is stored with the key, and a repeat with a different request is
+ * rejected with {@link IdempotencyException} instead of getting the first request's result.
+ * The first caller reserves the key in one round trip (a Lua GET-or-SET that leaves an in-progress
+ * marker with a short TTL) and runs the operation in its own transaction; once that commits, the result
+ * replaces the marker for idempotency.ttl-minutes. Callers arriving meanwhile poll until the result
+ * appears, or fail with {@link IdempotencyException} after idempotency.wait-timeout-ms. A failed
+ * operation removes the marker and its exception is rethrown unchanged. Completed keys are also kept in
+ * a small local near-cache, results are read back as the requested type (see {@link IdempotencyCodec}),
+ * and if Redis is unavailable the operation runs without idempotency rather than failing. Call it
+ * outside a transaction.
+ *
+ * <p>{@link #isProcessed} and {@link #markAsProcessed} record plain "already done" markers. Each marker is
+ * its own top-level key with a native TTL, so Redis expires it with no index or background scan and the
+ * keyspace spreads evenly instead of growing one hot hash.
+ *
+ * <p>Metrics: idempotency.requests, tagged with outcome executed, replayed or in-progress.
+ */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class IdempotencyService {
     
-    private final RedissonClient redissonClient;
-    private static final String IDEMPOTENCY_KEY_PREFIX = "idempotency:";
-    private static final long IDEMPOTENCY_TTL_HOURS = 24;
+    private static final Duration PROCESSED_TTL = Duration.ofHours(24);
+    
+    // Returns the current value, or reserves the key and returns nil
+    private static final RedisScript<String> RESERVE = new DefaultRedisScript<>(
+            "local current = redis.call('get', KEYS[1]) " +
+            "if current then return current end " +
+            "redis.call('set', KEYS[1], ARGV[1], 'px', ARGV[2]) " +
+            "return false",
+            String.class);
+    
+    // Replaces the caller's own in-progress marker with the result
+    private static final RedisScript<Long> COMPLETE = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then " +
+            "redis.call('set', KEYS[1], ARGV[2], 'px', ARGV[3]) return 1 end " +
+            "return 0",
+            Long.class);
+    
+    private static final RedisScript<Long> RELEASE = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+    
+    private final StringRedisTemplate redisTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final IdempotencyCodec codec;
+    private final Cache<String, String> completed;
+    private final Counter executed;
+    private final Counter replayed;
+    private final Counter inProgress;
+    
+    @Value("${idempotency.key-prefix:user-service:idempotency:}")
+    private String keyPrefix = "user-service:idempotency:";
+    
+    @Value("${idempotency.ttl-minutes:60}")
+    private int ttlMinutes = 60;
+    
+    @Value("${idempotency.in-progress-ttl-ms:30000}")
+    private long inProgressTtlMs = 30000;
+    
+    @Value("${idempotency.wait-timeout-ms:10000}")
+    private long waitTimeoutMs = 10000;
+    
+    @Value("${idempotency.poll-ms:50}")
+    private long pollMs = 50;
+    
+    public IdempotencyService(StringRedisTemplate redisTemplate,
+                              PlatformTransactionManager transactionManager, ObjectMapper objectMapper,
+                              MeterRegistry meterRegistry,
+                              @Value("${idempotency.near-cache.max-size:10000}") long nearCacheMaxSize,
+                              @Value("${idempotency.near-cache.ttl-seconds:30}") long nearCacheTtlSeconds) {
+        this.redisTemplate = redisTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.codec = new IdempotencyCodec(objectMapper);
+        this.completed = Caffeine.newBuilder()
+                .maximumSize(nearCacheMaxSize)
+                .expireAfterWrite(Duration.ofSeconds(nearCacheTtlSeconds))
+                .build();
+        
+        this.executed = requests(meterRegistry, "executed");
+        this.replayed = requests(meterRegistry, "replayed");
+        this.inProgress = requests(meterRegistry, "in-progress");
+    }
+    
+    /**
+     * Runs the operation in a transaction unless the key has been used before; then returns the recorded result.
+     */
+    public <T> T execute(String idempotencyKey, Class<T> resultType, Supplier<T> operation) {
+        return execute(idempotencyKey, null, resultType, operation);
+    }
+    
+    /**
+     * As {@link #execute(String, Class, Supplier)}, but a key first used for a different request is rejected.
+     * @param request what the operation was asked to do, compared as JSON
+     */
+    public <T> T execute(String idempotencyKey, Object request, Class<T> resultType, Supplier<T> operation) {
+        String redisKey = keyPrefix + idempotencyKey;
+        String fingerprint = codec.fingerprint(request);
+        String local = completed.getIfPresent(redisKey);
+        if (local != null) {
+            checkSameRequest(idempotencyKey, local, fingerprint);
+            replayed.increment();
+            return codec.decode(local, resultType);
+        }
+        
+        String marker = codec.inProgress(UUID.randomUUID().toString(), fingerprint);
+        long deadline = System.nanoTime() + Duration.ofMillis(waitTimeoutMs).toNanos();
+        while (true) {
+            String current;
+            try {
+                current = redisTemplate.execute(RESERVE, List.of(redisKey), marker, String.valueOf(inProgressTtlMs));
+            } catch (RuntimeException e) {
+                log.warn("Idempotency store unavailable, running {} without it: {}", idempotencyKey, e.getMessage());
+                return transactionTemplate.execute(status -> operation.get());
+            }
+            if (current == null) {
+                return runReserved(idempotencyKey, redisKey, marker, fingerprint, resultType, operation);
+            }
+            checkSameRequest(idempotencyKey, current, fingerprint);
+            if (codec.isCompleted(current)) {
+                log.info("Duplicate operation detected for key: {}", idempotencyKey);
+                replayed.increment();
+                T result = codec.decode(current, resultType);
+                completed.put(redisKey, current);
+                return result;
+            }
+            if (System.nanoTime() >= deadline) {
+                inProgress.increment();
+                throw new IdempotencyException("A request with idempotency key " + idempotencyKey + " is still in progress");
+            }
+            try {
+                Thread.sleep(pollMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IdempotencyException("Interrupted while waiting for idempotency key " + idempotencyKey);
+            }
+        }
+    }
     
     /**
      * Check if operation with given key has already been processed
@@ -23,9 +168,7 @@ public class IdempotencyService {
      * @return true if operation already processed, false otherwise
      */
     public boolean isProcessed(String key) {
-        RMapCache<String, String> cache = redissonClient.getMapCache("idempotency");
-        String fullKey = IDEMPOTENCY_KEY_PREFIX + key;
-        boolean exists = cache.containsKey(fullKey);
+        boolean exists = Boolean.TRUE.equals(redisTemplate.hasKey(processedKey(key)));
         
         if (exists) {
             log.info("Duplicate operation detected for key: {}", key);
@@ -40,11 +183,7 @@ public class IdempotencyService {
      * @param result the operation result (optional)
      */
     public void markAsProcessed(String key, String result) {
-        RMapCache<String, String> cache = redissonClient.getMapCache("idempotency");
-        String fullKey = IDEMPOTENCY_KEY_PREFIX + key;
-        
-        cache.put(fullKey, result != null ? result : "processed", 
-                IDEMPOTENCY_TTL_HOURS, TimeUnit.HOURS);
+        redisTemplate.opsForValue().set(processedKey(key), result != null ? result : "processed", PROCESSED_TTL);
         
         log.debug("Marked operation as processed for key: {}", key);
     }
@@ -55,19 +194,18 @@ public class IdempotencyService {
      * @return the stored result, or null if not found
      */
     public String getProcessedResult(String key) {
-        RMapCache<String, String> cache = redissonClient.getMapCache("idempotency");
-        String fullKey = IDEMPOTENCY_KEY_PREFIX + key;
-        return cache.get(fullKey);
+        return redisTemplate.opsForValue().get(processedKey(key));
     }
     
     /**
-     * Generate idempotency key for user creation
-     * @param email the user email
-     * @param phoneNumber the user phone number
+     * Generate idempotency key for user creation, scoped to the client so that two clients choosing the
+     * same Idempotency-Key never see each other's users
+     * @param clientId the caller, as identified by {@link com.bookstore.userservice.ratelimit.ClientIdResolver}
+     * @param clientKey the Idempotency-Key the client sent with the sign-up
      * @return the idempotency key
      */
-    public String generateCreateUserKey(String email, String phoneNumber) {
-        return "create_user:" + email + ":" + phoneNumber.hashCode();
+    public String generateCreateUserKey(String clientId, String clientKey) {
+        return "create_user:" + clientId + ":" + clientKey;
     }
     
     /**
@@ -79,4 +217,55 @@ public class IdempotencyService {
     public String generateUpdateUserKey(Long userId, String requestHash) {
         return "update_user:" + userId + ":" + requestHash;
     }
+    
+    private String processedKey(String key) {
+        return keyPrefix + "processed:" + key;
+    }
+    
+    private void checkSameRequest(String idempotencyKey, String value, String fingerprint) {
+        if (!codec.isSameRequest(value, fingerprint)) {
+            throw new IdempotencyException("Idempotency key " + idempotencyKey + " was already used for a different request");
+        }
+    }
+    
+    private <T> T runReserved(String idempotencyKey, String redisKey, String marker, String fingerprint,
+                              Class<T> resultType, Supplier<T> operation) {
+        executed.increment();
+        T result;
+        try {
+            result = transactionTemplate.execute(status -> operation.get());
+        } catch (RuntimeException | Error e) {
+            release(redisKey, marker);
+            throw e;
+        }
+        
+        String record = codec.completed(result, resultType, fingerprint);
+        try {
+            Long stored = redisTemplate.execute(COMPLETE, List.of(redisKey), marker, record,
+                    String.valueOf(Duration.ofMinutes(ttlMinutes).toMillis()));
+            if (!Long.valueOf(1).equals(stored)) {
+                log.warn("In-progress marker for idempotency key {} expired before the request completed", idempotencyKey);
+            }
+        } catch (RuntimeException e) {
+            log.error("Error recording result for idempotency key: {}", idempotencyKey, e);
+        }
+        completed.put(redisKey, record);
+        return result;
+    }
+    
+    private void release(String redisKey, String marker) {
+        try {
+            redisTemplate.execute(RELEASE, List.of(redisKey), marker);
+        } catch (RuntimeException e) {
+            // It expires on its own
+            log.warn("Could not release idempotency key {}: {}", redisKey, e.getMessage());
+        }
+    }
+    
+    private static Counter requests(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("idempotency.requests")
+                .description("Idempotent requests by outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
 }
@@ -1,30 +1,40 @@
 package com.bookstore.userservice.service;
 
 import com.bookstore.userservice.entity.User;
+import com.bookstore.userservice.event.EventWireFormat;
 import com.bookstore.userservice.event.UserEvent;
+import com.bookstore.userservice.event.UserEventCodec;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
-import java.util.concurrent.CompletableFuture;
 
+/**
+ * Publishes user events through the transactional outbox: events are written with the caller's
+ * transaction and sent to Kafka by {@link OutboxRelay} once it has committed.
+ * kafka.events.wire-format selects JSON or the binary codec; switch to binary only once every consumer
+ * of the topic understands it.
+ */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class KafkaProducerService {
     
-    private final KafkaTemplate<String, String> kafkaTemplate;
+    private static final String AGGREGATE_TYPE = "User";
+    
+    private final OutboxService outboxService;
     private final ObjectMapper objectMapper;
     
     @Value("${kafka.topics.user-events}")
     private String userEventsTopic;
     
+    @Value("${kafka.events.wire-format:json}")
+    private String wireFormat = "json";
+    
     public void publishUserCreatedEvent(User user) {
         publishUserEvent(user, "USER_CREATED");
     }
@@ -57,22 +67,16 @@ public class KafkaProducerService {
                     .timestamp(LocalDateTime.now())
                     .build();
             
-            String eventJson = objectMapper.writeValueAsString(event);
-            
-            CompletableFuture<SendResult<String, String>> future = 
-                    kafkaTemplate.send(userEventsTopic, user.getId().toString(), eventJson);
+            boolean binary = "binary".equalsIgnoreCase(wireFormat);
+            byte[] payload = binary ? UserEventCodec.encode(event) : objectMapper.writeValueAsBytes(event);
             
-            future.whenComplete((result, exception) -> {
-                if (exception == null) {
-                    log.info("Published user event: {} for user ID: {}", eventType, user.getId());
-                } else {
-                    log.error("Failed to publish user event: {} for user ID: {}", 
-                            eventType, user.getId(), exception);
-                }
-            });
+            outboxService.append(userEventsTopic, AGGREGATE_TYPE, user.getId().toString(), eventType,
+                    binary ? EventWireFormat.BINARY_V1 : EventWireFormat.JSON, payload);
+            log.info("Recorded user event: {} for user ID: {}", eventType, user.getId());
             
         } catch (JsonProcessingException e) {
-            log.error("Error serializing user event for user ID: {}", user.getId(), e);
+            // Rolls the caller's transaction back rather than committing the change without its event
+            throw new IllegalStateException("Could not serialize user event for user ID: " + user.getId(), e);
         }
     }
 }
@@ -0,0 +1,198 @@
+package com.bookstore.userservice.service;
+
+import com.bookstore.userservice.entity.OutboxEvent;
+import com.bookstore.userservice.event.EventWireFormat;
+import com.bookstore.userservice.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.utils.Utils;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drains the outbox to Kafka in batches.
+ * Each batch is read oldest-first under a row lock and sent with explicit partitions, computed the same way
+ * the default partitioner hashes record keys, so all events for one aggregate land on one partition in table order.
+ * Each record carries the event's content-type header so consumers can pick the decoder.
+ * Sends are pipelined and only then awaited; per partition, events are deleted up to the first unacknowledged one,
+ * and the rest stay for the next pass. Delivery is at-least-once: consumers must tolerate duplicates.
+ * The row locks are held while acks are awaited, which keeps a second instance from sending the same events
+ * out of order; only relays touch these rows, and the wait is capped at outbox.relay.send-timeout-ms per batch,
+ * so an unreachable broker holds one connection for at most that long before the pass gives up and retries.
+ * Runs on the shared scheduler, sized by spring.task.scheduling.pool.size so it does not hold up other jobs.
+ * <p>
+ * Metrics: outbox.relay.lag (age of the oldest pending event), outbox.relay.published,
+ * outbox.relay.failed and outbox.relay.batch (time per batch).
+ */
+@Slf4j
+@Component
+public class OutboxRelay {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final AtomicLong lagMillis = new AtomicLong();
+    private final Counter published;
+    private final Counter failed;
+    private final Timer batchTimer;
+
+    @Value("${outbox.relay.batch-size:500}")
+    private int batchSize = 500;
+
+    @Value("${outbox.relay.max-batches-per-run:20}")
+    private int maxBatchesPerRun = 20;
+
+    @Value("${outbox.relay.send-timeout-ms:2000}")
+    private long sendTimeoutMs = 2000;
+
+    public OutboxRelay(OutboxEventRepository outboxEventRepository,
+                       @Qualifier("outboxKafkaTemplate") KafkaTemplate<String, byte[]> kafkaTemplate,
+                       PlatformTransactionManager transactionManager,
+                       MeterRegistry meterRegistry) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.kafkaTemplate = kafkaTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // No gap locks, so inserts of new events are never blocked while a batch waits on Kafka
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+
+        TimeGauge.builder("outbox.relay.lag", lagMillis, TimeUnit.MILLISECONDS, AtomicLong::get)
+                .description("Age of the oldest event waiting in the outbox")
+                .register(meterRegistry);
+        this.published = Counter.builder("outbox.relay.published")
+                .description("Outbox events delivered to Kafka")
+                .register(meterRegistry);
+        this.failed = Counter.builder("outbox.relay.failed")
+                .description("Outbox sends that failed and will be retried")
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder("outbox.relay.batch")
+                .description("Time to relay one outbox batch")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.relay.interval-ms:200}")
+    public void relay() {
+        for (int i = 0; i < maxBatchesPerRun; i++) {
+            Integer relayed;
+            try {
+                relayed = transactionTemplate.execute(status -> relayBatch());
+            } catch (PessimisticLockingFailureException e) {
+                log.debug("Outbox is being relayed by another instance");
+                return;
+            } catch (RuntimeException e) {
+                log.error("Outbox relay pass failed, will retry", e);
+                return;
+            }
+            // A short batch means the outbox is drained, or a send failed and should be retried later
+            if (relayed == null || relayed < batchSize) {
+                return;
+            }
+        }
+    }
+
+    int relayBatch() {
+        List<OutboxEvent> batch = outboxEventRepository.findNextBatch(PageRequest.of(0, batchSize));
+        if (batch.isEmpty()) {
+            lagMillis.set(0);
+            return 0;
+        }
+        lagMillis.set(Math.max(0, Duration.between(batch.get(0).getCreatedAt(), LocalDateTime.now()).toMillis()));
+
+        long started = System.nanoTime();
+        Map<String, Integer> partitionCounts = new HashMap<>();
+        Map<TopicPartition, List<PendingSend>> byPartition = new LinkedHashMap<>();
+        for (OutboxEvent event : batch) {
+            int partition = partitionFor(event.getTopic(), event.getAggregateId(), partitionCounts);
+            ProducerRecord<String, byte[]> record =
+                new ProducerRecord<>(event.getTopic(), partition, event.getAggregateId(), event.getPayload());
+            record.headers().add(EventWireFormat.CONTENT_TYPE_HEADER,
+                                 event.getContentType().getBytes(StandardCharsets.UTF_8));
+            CompletableFuture<SendResult<String, byte[]>> future = kafkaTemplate.send(record);
+            byPartition.computeIfAbsent(new TopicPartition(event.getTopic(), partition), tp -> new ArrayList<>())
+                    .add(new PendingSend(event.getId(), future));
+        }
+
+        long deadline = started + TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs);
+        List<Long> delivered = new ArrayList<>(batch.size());
+        byPartition.forEach((topicPartition, sends) -> {
+            for (PendingSend send : sends) {
+                if (!awaitDelivery(send, topicPartition, deadline)) {
+                    // Later events for this partition stay queued behind the failed one
+                    break;
+                }
+                delivered.add(send.eventId);
+            }
+        });
+
+        if (!delivered.isEmpty()) {
+            outboxEventRepository.deleteByIdIn(delivered);
+        }
+        published.increment(delivered.size());
+        batchTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        log.debug("Relayed {} of {} outbox events", delivered.size(), batch.size());
+        return delivered.size();
+    }
+
+    private boolean awaitDelivery(PendingSend send, TopicPartition topicPartition, long deadline) {
+        try {
+            send.future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failed.increment();
+            return false;
+        } catch (ExecutionException | TimeoutException e) {
+            failed.increment();
+            log.warn("Failed to relay outbox event {} to {}, will retry: {}",
+                    send.eventId, topicPartition, e.getMessage());
+            return false;
+        }
+    }
+
+    private int partitionFor(String topic, String key, Map<String, Integer> partitionCounts) {
+        int partitions = partitionCounts.computeIfAbsent(topic, t -> kafkaTemplate.partitionsFor(t).size());
+        return Utils.toPositive(Utils.murmur2(key.getBytes(StandardCharsets.UTF_8))) % partitions;
+    }
+
+    long lagMillis() {
+        return lagMillis.get();
+    }
+
+    private static final class PendingSend {
+        private final Long eventId;
+        private final CompletableFuture<SendResult<String, byte[]>> future;
+
+        PendingSend(Long eventId, CompletableFuture<SendResult<String, byte[]>> future) {
+            this.eventId = eventId;
+            this.future = future;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.bookstore.userservice.service;
+
+import com.bookstore.userservice.entity.OutboxEvent;
+import com.bookstore.userservice.repository.OutboxEventRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Records events in the caller's transaction, so an event exists if and only if its change committed.
+ * {@link OutboxRelay} delivers them to Kafka afterwards.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OutboxService {
+
+    private final OutboxEventRepository outboxEventRepository;
+
+    @Transactional
+    public void append(String topic, String aggregateType, String aggregateId, String eventType,
+                       String contentType, byte[] payload) {
+        outboxEventRepository.save(
+                new OutboxEvent(aggregateType, aggregateId, eventType, topic, contentType, payload));
+        log.debug("Recorded {} event for {} {} in outbox for topic {}", eventType, aggregateType, aggregateId, topic);
+    }
+}
@@ -1,6 +1,7 @@
 package com.bookstore.userservice.service;
 
 import com.bookstore.userservice.dto.CreateUserRequestDto;
+import com.bookstore.userservice.dto.CursorPage;
 import com.bookstore.userservice.dto.UpdateUserRequestDto;
 import com.bookstore.userservice.dto.UserDto;
 import org.springframework.data.domain.Page;
@@ -17,6 +18,15 @@ public interface UserService {
      */
     UserDto createUser(CreateUserRequestDto createUserRequest);
     
+    /**
+     * Create a new user once per client and client-supplied idempotency key; a repeated request gets the
+     * first result, and a request reusing the key with a different body is rejected
+     * @param idempotencyKey the Idempotency-Key header sent by the client
+     * @param createUserRequest the user creation request
+     * @return the created user DTO
+     */
+    UserDto createUserIdempotent(String idempotencyKey, CreateUserRequestDto createUserRequest);
+    
     /**
      * Get user by ID
      * @param id the user ID
@@ -38,6 +48,16 @@ public interface UserService {
      */
     Page<UserDto> getAllUsers(Pageable pageable);
     
+    /**
+     * Get all users with keyset (cursor) pagination, without a count query
+     * @param cursor the continuation token from a previous window, or null for the first window
+     * @param size the maximum number of users to return
+     * @param sortBy the sort field, ignored when a cursor is given
+     * @param sortDir the sort direction, ignored when a cursor is given
+     * @return window of user DTOs with the next cursor
+     */
+    CursorPage<UserDto> scrollUsers(String cursor, int size, String sortBy, String sortDir);
+    
     /**
      * Get all active users
      * @return list of active user DTOs
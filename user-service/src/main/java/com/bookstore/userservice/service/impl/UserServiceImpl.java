@@ -1,30 +1,42 @@
 package com.bookstore.userservice.service.impl;
 
 import com.bookstore.userservice.dto.CreateUserRequestDto;
+import com.bookstore.userservice.dto.CursorPage;
 import com.bookstore.userservice.dto.UpdateUserRequestDto;
 import com.bookstore.userservice.dto.UserDto;
 import com.bookstore.userservice.entity.User;
 import com.bookstore.userservice.exception.DuplicateEmailException;
 import com.bookstore.userservice.exception.DuplicatePhoneNumberException;
+import com.bookstore.userservice.exception.InvalidCursorException;
 import com.bookstore.userservice.exception.UserNotFoundException;
 import com.bookstore.userservice.mapper.UserMapper;
+import com.bookstore.userservice.ratelimit.ClientIdResolver;
 import com.bookstore.userservice.repository.UserRepository;
 import com.bookstore.userservice.service.IdempotencyService;
 import com.bookstore.userservice.service.KafkaProducerService;
 import com.bookstore.userservice.service.UserService;
+import com.bookstore.userservice.util.KeysetCursor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.KeysetScrollPosition;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
 
 @Slf4j
 @Service
@@ -32,10 +44,20 @@ import java.util.Optional;
 @Transactional
 public class UserServiceImpl implements UserService {
     
+    private static final int MAX_SCROLL_SIZE = 1000;
+    
+    // Sortable columns for keyset pagination; all are NOT NULL so (value, id) is a strict total order
+    private static final Map<String, Function<String, Object>> KEYSET_COLUMNS = Map.of(
+            "id", Long::valueOf,
+            "email", value -> value,
+            "username", value -> value
+    );
+    
     private final UserRepository userRepository;
     private final UserMapper userMapper;
     private final KafkaProducerService kafkaProducerService;
     private final IdempotencyService idempotencyService;
+    private final ClientIdResolver clientIdResolver;
     
     @Override
     public UserDto createUser(CreateUserRequestDto createUserRequest) {
@@ -67,8 +89,21 @@ public class UserServiceImpl implements UserService {
         return userMapper.toDto(savedUser);
     }
     
+    // No transaction: a retried or double-submitted sign-up waits for the first one without holding a
+    // connection and gets the same user back; the idempotency service runs the insert in its own transaction.
+    // The key comes from the client and is scoped to it, so a different sign-up with the same details still hits
+    // the duplicate checks, and the same key with a different body is rejected rather than replayed
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public UserDto createUserIdempotent(String idempotencyKey, CreateUserRequestDto createUserRequest) {
+        log.info("Creating user with idempotency key: {}", idempotencyKey);
+        
+        String key = idempotencyService.generateCreateUserKey(clientIdResolver.clientId(), idempotencyKey);
+        return idempotencyService.execute(key, createUserRequest, UserDto.class, () -> createUser(createUserRequest));
+    }
+    
     @Override
-    @Cacheable(value = "users", key = "#id", unless = "#result == null")
+    @Cacheable(value = "users", key = "#id", sync = true)
     @Transactional(readOnly = true)
     public UserDto getUserById(Long id) {
         log.info("Fetching user by ID: {}", id);
@@ -78,7 +113,7 @@ public class UserServiceImpl implements UserService {
     }
     
     @Override
-    @Cacheable(value = "users", key = "#email", unless = "#result == null")
+    @Cacheable(value = "users", key = "#email", sync = true)
     @Transactional(readOnly = true)
     public UserDto getUserByEmail(String email) {
         log.info("Fetching user by email: {}", email);
@@ -97,7 +132,56 @@ public class UserServiceImpl implements UserService {
     }
     
     @Override
-    @Cacheable(value = "activeUsers")
+    @Transactional(readOnly = true)
+    public CursorPage<UserDto> scrollUsers(String cursor, int size, String sortBy, String sortDir) {
+        log.info("Scrolling users: size={}, sortBy={}", size, sortBy);
+        if (size < 1) {
+            throw new InvalidCursorException("Page size must be at least 1");
+        }
+        
+        // A continuation token carries its own sort so a walk cannot change order midway
+        KeysetCursor keysetCursor = cursor != null ? KeysetCursor.decode(cursor) : null;
+        if (keysetCursor != null) {
+            keysetCursor.requireFilter("");
+        }
+        String sortProperty = keysetCursor != null ? keysetCursor.getSortBy() : sortBy;
+        Sort.Direction direction = keysetCursor != null
+                ? keysetCursor.getDirection()
+                : ("desc".equalsIgnoreCase(sortDir) ? Sort.Direction.DESC : Sort.Direction.ASC);
+        if (!KEYSET_COLUMNS.containsKey(sortProperty)) {
+            throw new InvalidCursorException("Cursor pagination is not supported for sort field: " + sortProperty);
+        }
+        
+        Sort sort = "id".equals(sortProperty)
+                ? Sort.by(direction, "id")
+                : Sort.by(direction, sortProperty, "id");
+        ScrollPosition position = keysetCursor != null
+                ? ScrollPosition.forward(keysetCursor.typedKeys(KEYSET_COLUMNS))
+                : ScrollPosition.keyset();
+        int limit = Math.min(size, MAX_SCROLL_SIZE);
+        
+        Window<User> window = userRepository.findBy(Specification.where(null),
+                query -> query.sortBy(sort).limit(limit).scroll(position));
+        
+        String nextCursor = null;
+        if (window.hasNext() && !window.isEmpty()) {
+            KeysetScrollPosition last = (KeysetScrollPosition) window.positionAt(window.size() - 1);
+            nextCursor = KeysetCursor.encode(sortProperty, direction, last.getKeys());
+        }
+        
+        List<UserDto> content = window.getContent().stream()
+                .map(userMapper::toDto)
+                .toList();
+        return CursorPage.<UserDto>builder()
+                .content(content)
+                .size(content.size())
+                .nextCursor(nextCursor)
+                .hasNext(nextCursor != null)
+                .build();
+    }
+    
+    @Override
+    @Cacheable(value = "activeUsers", sync = true)
     @Transactional(readOnly = true)
     public List<UserDto> getActiveUsers() {
         log.info("Fetching all active users");
@@ -218,7 +302,7 @@ public class UserServiceImpl implements UserService {
     }
     
     @Override
-    @Cacheable(value = "userStats", key = "'activeCount'")
+    @Cacheable(value = "userStats", key = "'activeCount'", sync = true)
     @Transactional(readOnly = true)
     public long getActiveUsersCount() {
         return userRepository.countActiveUsers();
@@ -0,0 +1,105 @@
+package com.bookstore.userservice.service;
+
+import com.bookstore.userservice.dto.CreateUserRequestDto;
+import com.bookstore.userservice.dto.UserDto;
+import com.bookstore.userservice.exception.IdempotencyException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyServiceTest {
+
+    private static final String KEY = "user-service:idempotency:create_user:ip:203.0.113.7:signup-1";
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final IdempotencyCodec codec = new IdempotencyCodec(objectMapper);
+    private IdempotencyService idempotencyService;
+    private CreateUserRequestDto signUp;
+    private UserDto user;
+
+    @BeforeEach
+    void setUp() {
+        idempotencyService = new IdempotencyService(redisTemplate, transactionManager, objectMapper,
+                new SimpleMeterRegistry(), 100, 30);
+        signUp = CreateUserRequestDto.builder()
+                .firstName("John")
+                .lastName("Doe")
+                .email("john.doe@example.com")
+                .phoneNumber("+1234567890")
+                .build();
+        user = UserDto.builder().id(1L).email("john.doe@example.com").build();
+    }
+
+    @Test
+    void execute_ShouldReplayTheResult_WhenTheSameRequestIsRetried() {
+        // Given
+        when(redisTemplate.execute(any(RedisScript.class), eq(List.of(KEY)), anyString(), anyString()))
+                .thenReturn(codec.completed(user, UserDto.class, codec.fingerprint(signUp)));
+
+        // When
+        UserDto result = idempotencyService.execute("create_user:ip:203.0.113.7:signup-1", signUp, UserDto.class,
+                () -> fail("A retry must not run again"));
+
+        // Then
+        assertEquals(1L, result.getId());
+    }
+
+    @Test
+    void execute_ShouldReject_WhenTheKeyWasUsedForADifferentRequest() {
+        // Given: the key completed for another sign-up
+        CreateUserRequestDto otherSignUp = CreateUserRequestDto.builder()
+                .firstName("Jane")
+                .lastName("Roe")
+                .email("jane.roe@example.com")
+                .phoneNumber("+1987654321")
+                .build();
+        when(redisTemplate.execute(any(RedisScript.class), eq(List.of(KEY)), anyString(), anyString()))
+                .thenReturn(codec.completed(user, UserDto.class, codec.fingerprint(otherSignUp)));
+
+        // When & Then: neither the first user is leaked nor the sign-up run
+        assertThrows(IdempotencyException.class, () -> idempotencyService.execute(
+                "create_user:ip:203.0.113.7:signup-1", signUp, UserDto.class, () -> fail("Must not run")));
+    }
+
+    @Test
+    void execute_ShouldReject_WhileADifferentRequestHoldsTheKey() {
+        // Given
+        when(redisTemplate.execute(any(RedisScript.class), eq(List.of(KEY)), anyString(), anyString()))
+                .thenReturn(codec.inProgress("owner", codec.fingerprint(user)));
+
+        // When & Then: rejected at once instead of waiting for a result it could not use
+        assertThrows(IdempotencyException.class, () -> idempotencyService.execute(
+                "create_user:ip:203.0.113.7:signup-1", signUp, UserDto.class, () -> fail("Must not run")));
+        verify(redisTemplate, times(1)).execute(any(RedisScript.class), eq(List.of(KEY)), anyString(), anyString());
+    }
+
+    @Test
+    void decode_ShouldReadRecordsWrittenBeforeFingerprints() throws Exception {
+        // Given
+        String legacy = "C:" + UserDto.class.getName() + ":" + objectMapper.writeValueAsString(user);
+
+        // When & Then
+        assertTrue(codec.isSameRequest(legacy, codec.fingerprint(signUp)));
+        assertEquals(1L, codec.decode(legacy, UserDto.class).getId());
+    }
+}
@@ -1,30 +1,44 @@
 package com.bookstore.userservice.service.impl;
 
 import com.bookstore.userservice.dto.CreateUserRequestDto;
+import com.bookstore.userservice.dto.CursorPage;
 import com.bookstore.userservice.dto.UpdateUserRequestDto;
 import com.bookstore.userservice.dto.UserDto;
 import com.bookstore.userservice.entity.User;
 import com.bookstore.userservice.exception.DuplicateEmailException;
 import com.bookstore.userservice.exception.DuplicatePhoneNumberException;
+import com.bookstore.userservice.exception.InvalidCursorException;
 import com.bookstore.userservice.exception.UserNotFoundException;
 import com.bookstore.userservice.mapper.UserMapper;
+import com.bookstore.userservice.ratelimit.ClientIdResolver;
 import com.bookstore.userservice.repository.UserRepository;
 import com.bookstore.userservice.service.IdempotencyService;
 import com.bookstore.userservice.service.KafkaProducerService;
+import com.bookstore.userservice.util.KeysetCursor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.KeysetScrollPosition;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.repository.query.FluentQuery;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -45,6 +59,9 @@ class UserServiceImplTest {
     @Mock
     private IdempotencyService idempotencyService;
     
+    @Mock
+    private ClientIdResolver clientIdResolver;
+    
     @InjectMocks
     private UserServiceImpl userService;
     
@@ -91,6 +108,10 @@ class UserServiceImplTest {
                 .firstName("Jane")
                 .lastName("Smith")
                 .build();
+        
+        // Every idempotency key is new: the operation runs
+        lenient().when(idempotencyService.execute(any(), any(), eq(UserDto.class), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<UserDto>>getArgument(3).get());
     }
     
     @Test
@@ -116,6 +137,64 @@ class UserServiceImplTest {
         verify(kafkaProducerService).publishUserCreatedEvent(sampleUser);
     }
     
+    @Test
+    void createUserIdempotent_ShouldReturnRecordedUser_WhenSameKeyIsRepeated() {
+        // Given
+        when(clientIdResolver.clientId()).thenReturn("ip:203.0.113.7");
+        when(idempotencyService.generateCreateUserKey("ip:203.0.113.7", "signup-1"))
+                .thenReturn("create_user:ip:203.0.113.7:signup-1");
+        when(idempotencyService.execute(eq("create_user:ip:203.0.113.7:signup-1"), same(createUserRequest),
+                eq(UserDto.class), any()))
+                .thenReturn(sampleUserDto);
+        
+        // When
+        UserDto result = userService.createUserIdempotent("signup-1", createUserRequest);
+        
+        // Then: the key is scoped to the caller, and the request goes along to be compared with the first
+        assertEquals(sampleUserDto.getId(), result.getId());
+        verify(userRepository, never()).save(any(User.class));
+        verify(kafkaProducerService, never()).publishUserCreatedEvent(any());
+    }
+    
+    @Test
+    void createUser_ShouldThrowDuplicateEmailException_WhenSameDetailsAreSignedUpAgain() {
+        // Given: the first sign-up went through; the second has the same email and phone but another name
+        CreateUserRequestDto secondSignUp = CreateUserRequestDto.builder()
+                .firstName("Johnny")
+                .lastName("Doe")
+                .email(createUserRequest.getEmail())
+                .phoneNumber(createUserRequest.getPhoneNumber())
+                .build();
+        when(userRepository.existsByEmail(createUserRequest.getEmail())).thenReturn(true);
+        
+        // When & Then: no replay of the first user
+        assertThrows(DuplicateEmailException.class, () -> userService.createUser(secondSignUp));
+        verify(idempotencyService, never()).execute(any(), any(), any(), any());
+        verify(userRepository, never()).save(any(User.class));
+    }
+    
+    @Test
+    void createUser_ShouldInsertAgain_WhenUserWasDeletedAndSignsUpAgain() {
+        // Given
+        when(userRepository.findById(1L)).thenReturn(Optional.of(sampleUser));
+        when(userRepository.existsByEmail(createUserRequest.getEmail())).thenReturn(false);
+        when(userRepository.existsByPhoneNumber(createUserRequest.getPhoneNumber())).thenReturn(false);
+        when(userMapper.toEntity(createUserRequest)).thenReturn(sampleUser);
+        when(userRepository.save(any(User.class))).thenReturn(sampleUser);
+        when(userMapper.toDto(sampleUser)).thenReturn(sampleUserDto);
+        userService.createUser(createUserRequest);
+        
+        // When
+        userService.deleteUser(1L);
+        UserDto result = userService.createUser(createUserRequest);
+        
+        // Then: the second sign-up inserts a new row instead of getting the deleted user back
+        assertNotNull(result);
+        verify(userRepository).delete(sampleUser);
+        verify(userRepository, times(2)).save(any(User.class));
+        verify(kafkaProducerService, times(2)).publishUserCreatedEvent(sampleUser);
+    }
+    
     @Test
     void createUser_ShouldThrowDuplicateEmailException_WhenEmailExists() {
         // Given
@@ -299,4 +378,47 @@ class UserServiceImplTest {
         assertEquals(expectedCount, result);
         verify(userRepository).countActiveUsers();
     }
+    
+    @Test
+    void scrollUsers_NextCursorResumesAfterTheLastRowInTheSameSort() {
+        // Arrange
+        List<ScrollPosition> positions = new ArrayList<>();
+        when(userRepository.findBy(any(Specification.class), any())).thenAnswer(invocation -> {
+            FluentQuery.FetchableFluentQuery<User> query = mock(FluentQuery.FetchableFluentQuery.class, RETURNS_SELF);
+            when(query.scroll(any())).thenAnswer(scroll -> {
+                positions.add(scroll.getArgument(0));
+                return Window.from(List.of(sampleUser),
+                        i -> ScrollPosition.forward(Map.of("email", sampleUser.getEmail(), "id", sampleUser.getId())), true);
+            });
+            Function<FluentQuery.FetchableFluentQuery<User>, Object> queryFunction = invocation.getArgument(1);
+            return queryFunction.apply(query);
+        });
+        when(userMapper.toDto(sampleUser)).thenReturn(sampleUserDto);
+        
+        // Act
+        CursorPage<UserDto> first = userService.scrollUsers(null, 1, "email", "asc");
+        userService.scrollUsers(first.getNextCursor(), 1, "id", "desc");
+        
+        // Assert: the second page continues the email walk after the last row
+        assertEquals(List.of(sampleUserDto), first.getContent());
+        assertTrue(first.isHasNext());
+        assertTrue(positions.get(0).isInitial());
+        assertEquals(Map.of("email", "john.doe@example.com", "id", 1L),
+                ((KeysetScrollPosition) positions.get(1)).getKeys());
+    }
+    
+    @Test
+    void scrollUsers_TamperedCursorIsRejected() {
+        // Arrange
+        String missingSortKey = KeysetCursor.encode("email", Sort.Direction.ASC, Map.of("id", 1L));
+        String badId = KeysetCursor.encode("id", Sort.Direction.ASC, Map.of("id", "one"));
+        String unknownSort = KeysetCursor.encode("password", Sort.Direction.ASC, Map.of("password", "x", "id", 1L));
+        
+        // Act & Assert
+        assertThrows(InvalidCursorException.class, () -> userService.scrollUsers(missingSortKey, 10, "id", "asc"));
+        assertThrows(InvalidCursorException.class, () -> userService.scrollUsers(badId, 10, "id", "asc"));
+        assertThrows(InvalidCursorException.class, () -> userService.scrollUsers(unknownSort, 10, "id", "asc"));
+        assertThrows(InvalidCursorException.class, () -> userService.scrollUsers("garbage", 10, "id", "asc"));
+        verifyNoInteractions(userRepository);
+    }
 }